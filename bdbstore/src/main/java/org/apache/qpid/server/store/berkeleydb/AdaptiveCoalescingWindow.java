@@ -0,0 +1,107 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+/**
+ * Decides how long the commit thread should wait, once it has work, for further commits to join the next log flush.
+ * <p>
+ * The window is derived from moving averages of the log flush duration, the number of commits per flush and the
+ * interval between arriving commits.  Waiting is only worthwhile when commits are concurrent: either flushes already
+ * carry more than one commit, or a further commit is expected within the window.  The window never exceeds the cost
+ * of a flush (so a commit is delayed by at most one extra flush time) nor the configured maximum, and it ends early
+ * once one more commit than usual has been gathered.  On a slow disk where a flush takes several milliseconds this
+ * lets commits that would otherwise each have paid for a flush share one; on a fast disk the window collapses
+ * towards zero, and a lone committer is never held back.
+ */
+final class AdaptiveCoalescingWindow
+{
+    /** Weight given to the latest observation in the moving averages */
+    private static final double ALPHA = 0.125;
+    /** Average commits per flush above which commits are considered concurrent */
+    private static final double CONCURRENT_BATCH_SIZE = 1.5;
+
+    private final long _maxWindowNanos;
+    private final int _maxBatchSize;
+    private double _averageFlushNanos;
+    private double _averageBatchSize;
+    private double _averageArrivalIntervalNanos;
+    private long _windowNanos;
+    private int _targetBatchSize = 1;
+
+    AdaptiveCoalescingWindow(final long maxWindowNanos, final int maxBatchSize)
+    {
+        _maxWindowNanos = maxWindowNanos;
+        _maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Records the outcome of a flush cycle.
+     *
+     * @param batchSize number of commits made durable by the flush
+     * @param cycleNanos time since the start of the previous cycle, over which those commits arrived
+     * @param flushNanos duration of the flush itself
+     */
+    void update(final int batchSize, final long cycleNanos, final long flushNanos)
+    {
+        _averageFlushNanos = average(_averageFlushNanos, flushNanos);
+        _averageBatchSize = average(_averageBatchSize, batchSize);
+        if (batchSize > 0 && cycleNanos > 0)
+        {
+            _averageArrivalIntervalNanos = average(_averageArrivalIntervalNanos, (double) cycleNanos / batchSize);
+        }
+
+        final double window = Math.min(_maxWindowNanos, _averageFlushNanos);
+        final boolean arrivalsWithinWindow = _averageArrivalIntervalNanos > 0
+                                             && _averageArrivalIntervalNanos < window;
+        if (window < 1 || !(arrivalsWithinWindow || _averageBatchSize >= CONCURRENT_BATCH_SIZE))
+        {
+            _windowNanos = 0;
+            _targetBatchSize = 1;
+        }
+        else
+        {
+            double target = Math.ceil(_averageBatchSize) + 1;
+            if (arrivalsWithinWindow)
+            {
+                target = Math.max(target, 1 + Math.ceil(window / _averageArrivalIntervalNanos));
+            }
+            _windowNanos = (long) window;
+            _targetBatchSize = (int) Math.min(_maxBatchSize, target);
+        }
+    }
+
+    /** Maximum time to wait for further commits once the first has arrived */
+    long getWindowNanos()
+    {
+        return _windowNanos;
+    }
+
+    /** Number of queued commits at which the wait may end early */
+    int getTargetBatchSize()
+    {
+        return _targetBatchSize;
+    }
+
+    private static double average(final double average, final double sample)
+    {
+        return average == 0 ? sample : average + ALPHA * (sample - average);
+    }
+}
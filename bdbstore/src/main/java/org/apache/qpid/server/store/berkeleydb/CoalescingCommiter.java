@@ -29,6 +29,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -42,7 +43,25 @@ public class CoalescingCommiter implements Committer
 
     public CoalescingCommiter(String name, EnvironmentFacade environmentFacade)
     {
-        _commitThread = new CommitThread("Commit-Thread-" + name, environmentFacade);
+        this(name, environmentFacade, 0, new CommitStatistics());
+    }
+
+    /**
+     * @param maxCoalescingDelay upper bound in microseconds on the time a commit may be held back to share a log
+     *                           flush with later commits.  Zero disables the adaptive coalescing window.
+     */
+    public CoalescingCommiter(String name,
+                              EnvironmentFacade environmentFacade,
+                              int maxCoalescingDelay,
+                              CommitStatistics statistics)
+    {
+        _commitThread = new CommitThread("Commit-Thread-" + name,
+                                         environmentFacade,
+                                         maxCoalescingDelay > 0
+                                                 ? new AdaptiveCoalescingWindow(TimeUnit.MICROSECONDS.toNanos(maxCoalescingDelay),
+                                                                                CommitThread.MAX_BATCH_SIZE)
+                                                 : null,
+                                         statistics);
     }
 
     @Override
@@ -95,6 +114,7 @@ public class CoalescingCommiter implements Committer
     {
         private final X _value;
         private final ThreadNotifyingSettableFuture<X> _future;
+        private final long _createTime = System.nanoTime();
 
         public BDBCommitFutureResult(X value,
                                      final ThreadNotifyingSettableFuture<X> future)
@@ -112,6 +132,12 @@ public class CoalescingCommiter implements Committer
         {
             _future.setException(databaseException);
         }
+
+        @Override
+        public long getCreateTime()
+        {
+            return _createTime;
+        }
     }
 
     private interface CommitThreadJob
@@ -119,6 +145,8 @@ public class CoalescingCommiter implements Committer
         void complete();
 
         void abort(RuntimeException e);
+
+        long getCreateTime();
     }
 
     /**
@@ -133,18 +161,29 @@ public class CoalescingCommiter implements Committer
     {
         private static final Logger LOGGER = LoggerFactory.getLogger(CommitThread.class);
         private static final int JOB_QUEUE_NOTIFY_THRESHOLD = 8;
+        private static final int MAX_BATCH_SIZE = 256;
 
         private final AtomicBoolean _stopped = new AtomicBoolean(false);
         private final Queue<CommitThreadJob> _jobQueue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger _queuedJobs = new AtomicInteger();
         private final Object _lock = new Object();
         private final EnvironmentFacade _environmentFacade;
+        private final AdaptiveCoalescingWindow _coalescingWindow;
+        private final CommitStatistics _statistics;
+        private volatile int _notifyThreshold = JOB_QUEUE_NOTIFY_THRESHOLD;
+        private long _lastCycleStart = System.nanoTime();
 
-        private final List<CommitThreadJob> _inProcessJobs = new ArrayList<>(256);
+        private final List<CommitThreadJob> _inProcessJobs = new ArrayList<>(MAX_BATCH_SIZE);
 
-        public CommitThread(String name, EnvironmentFacade environmentFacade)
+        public CommitThread(String name,
+                            EnvironmentFacade environmentFacade,
+                            AdaptiveCoalescingWindow coalescingWindow,
+                            CommitStatistics statistics)
         {
             super(name);
             _environmentFacade = environmentFacade;
+            _coalescingWindow = coalescingWindow;
+            _statistics = statistics;
         }
 
         public void explicitNotify()
@@ -174,41 +213,86 @@ public class CoalescingCommiter implements Committer
                         }
                     }
                 }
+                if (_coalescingWindow != null)
+                {
+                    awaitCoalescingWindow();
+                }
                 processJobs();
             }
         }
 
+        /**
+         * Holds back the flush until the adaptive window has elapsed or enough commits have queued to end it
+         * early.
+         */
+        private void awaitCoalescingWindow()
+        {
+            final long windowNanos = _coalescingWindow.getWindowNanos();
+            if (windowNanos > 0)
+            {
+                final long deadline = System.nanoTime() + windowNanos;
+                final int targetBatchSize = _coalescingWindow.getTargetBatchSize();
+                synchronized (_lock)
+                {
+                    long remaining;
+                    while (!_stopped.get()
+                           && _queuedJobs.get() < targetBatchSize
+                           && (remaining = deadline - System.nanoTime()) > 0)
+                    {
+                        try
+                        {
+                            TimeUnit.NANOSECONDS.timedWait(_lock, remaining);
+                        }
+                        catch (InterruptedException e)
+                        {
+                        }
+                    }
+                }
+            }
+        }
+
         private void processJobs()
         {
             CommitThreadJob job;
             while((job = _jobQueue.poll()) != null)
             {
+                _queuedJobs.decrementAndGet();
                 _inProcessJobs.add(job);
             }
 
             int completedJobsIndex = 0;
             try
             {
-                long startTime = 0;
-                if(LOGGER.isDebugEnabled())
-                {
-                    startTime = System.currentTimeMillis();
-                }
+                final long startTime = System.nanoTime();
 
                 _environmentFacade.flushLog();
 
+                final long completeTime = System.nanoTime();
+                final long duration = completeTime - startTime;
                 if(LOGGER.isDebugEnabled())
                 {
-                    long duration = System.currentTimeMillis() - startTime;
-                    LOGGER.debug("flushLog completed in " + duration  + " ms");
+                    LOGGER.debug("flushLog completed in " + TimeUnit.NANOSECONDS.toMillis(duration)  + " ms");
                 }
 
                 while(completedJobsIndex < _inProcessJobs.size())
                 {
-                    _inProcessJobs.get(completedJobsIndex).complete();
+                    final CommitThreadJob completedJob = _inProcessJobs.get(completedJobsIndex);
+                    completedJob.complete();
+                    _statistics.recordCommit(completeTime - completedJob.getCreateTime());
                     completedJobsIndex++;
                 }
 
+                _statistics.recordFlush(_inProcessJobs.size(), duration);
+                if (_coalescingWindow != null)
+                {
+                    _coalescingWindow.update(_inProcessJobs.size(), startTime - _lastCycleStart, duration);
+                    _lastCycleStart = startTime;
+                    _notifyThreshold = _coalescingWindow.getWindowNanos() > 0
+                            ? Math.min(JOB_QUEUE_NOTIFY_THRESHOLD, _coalescingWindow.getTargetBatchSize())
+                            : JOB_QUEUE_NOTIFY_THRESHOLD;
+                    _statistics.setCoalescingWindow(_coalescingWindow.getWindowNanos());
+                }
+
             }
             catch (RuntimeException e)
             {
@@ -245,7 +329,8 @@ public class CoalescingCommiter implements Committer
                 throw new IllegalStateException("Commit thread is stopped");
             }
             _jobQueue.add(commit);
-            if(sync || _jobQueue.size() >= JOB_QUEUE_NOTIFY_THRESHOLD)
+            final int queuedJobs = _queuedJobs.incrementAndGet();
+            if(sync || queuedJobs >= _notifyThreshold)
             {
                 synchronized (_lock)
                 {
@@ -334,9 +419,16 @@ public class CoalescingCommiter implements Committer
 
     private class SynchronousCommitThreadJob implements CommitThreadJob
     {
+        private final long _createTime = System.nanoTime();
         private boolean _done;
         private RuntimeException _exception;
 
+        @Override
+        public long getCreateTime()
+        {
+            return _createTime;
+        }
+
         @Override
         public synchronized void complete()
         {
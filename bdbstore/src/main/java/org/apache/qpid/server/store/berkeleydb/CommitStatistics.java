@@ -0,0 +1,87 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics gathered by the {@link CoalescingCommiter} of an environment.  Held by the environment facade so that
+ * they survive the committer being replaced, for instance when the durability of a replicated environment changes.
+ */
+public class CommitStatistics
+{
+    private final LogLinearHistogram _batchSizes = new LogLinearHistogram();
+    private final LogLinearHistogram _commitLatencies = new LogLinearHistogram();
+    private final LogLinearHistogram _flushLatencies = new LogLinearHistogram();
+    private volatile long _coalescingWindowMicros;
+
+    void recordFlush(final int batchSize, final long flushNanos)
+    {
+        _batchSizes.record(batchSize);
+        _flushLatencies.record(TimeUnit.NANOSECONDS.toMicros(flushNanos));
+    }
+
+    void recordCommit(final long commitNanos)
+    {
+        _commitLatencies.record(TimeUnit.NANOSECONDS.toMicros(commitNanos));
+    }
+
+    void setCoalescingWindow(final long windowNanos)
+    {
+        _coalescingWindowMicros = TimeUnit.NANOSECONDS.toMicros(windowNanos);
+    }
+
+    /** Number of log flushes performed by the committer */
+    public long getFlushCount()
+    {
+        return _flushLatencies.getCount();
+    }
+
+    /** Number of transaction commits completed by the committer */
+    public long getCommitCount()
+    {
+        return _commitLatencies.getCount();
+    }
+
+    /** Number of commits made durable by a single log flush at the given percentile */
+    public long getBatchSize(final double percentile)
+    {
+        return _batchSizes.getValueAtPercentile(percentile);
+    }
+
+    /** Time in microseconds from a commit being handed to the committer to its completion, at the given percentile */
+    public long getCommitLatency(final double percentile)
+    {
+        return _commitLatencies.getValueAtPercentile(percentile);
+    }
+
+    /** Duration in microseconds of a log flush at the given percentile */
+    public long getFlushLatency(final double percentile)
+    {
+        return _flushLatencies.getValueAtPercentile(percentile);
+    }
+
+    /** The time in microseconds the committer currently waits to gather commits before flushing */
+    public long getCoalescingWindow()
+    {
+        return _coalescingWindowMicros;
+    }
+}
@@ -57,6 +57,8 @@ public interface EnvironmentFacade
     CacheMode CACHE_MODE_DEFAULT = CacheMode.EVICT_LN;
     String LOG_HANDLER_CLEANER_PROTECTED_FILES_LIMIT_PROPERTY_NAME = "qpid.bdb.je.cleaner_protected_files_limit";
     int DEFAULT_LOG_HANDLER_CLEANER_PROTECTED_FILES_LIMIT = 10;
+    String COMMITTER_MAX_COALESCING_DELAY_PROPERTY_NAME = "qpid.bdb.committer.maxCoalescingDelay";
+    int DEFAULT_COMMITTER_MAX_COALESCING_DELAY = 0;
 
 
     void upgradeIfNecessary(ConfiguredObject<?> parent);
@@ -97,4 +99,6 @@ public interface EnvironmentFacade
     Map<String, Object> getTransactionStatistics(boolean reset);
 
     Map<String,Object> getDatabaseStatistics(String database, boolean reset);
+
+    CommitStatistics getCommitStatistics();
 }
@@ -0,0 +1,112 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-footprint histogram of non-negative long values.  Values below {@link #SUB_BUCKETS} are counted exactly;
+ * above that each power of two is split into {@link #SUB_BUCKETS} linear buckets, bounding the relative error of a
+ * reported percentile to about 6%.  Recording is wait-free and allocation free, so it may be called on the commit
+ * path; readers see a consistent enough view for monitoring purposes.
+ */
+final class LogLinearHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong _totalCount = new AtomicLong();
+    private final AtomicLong _max = new AtomicLong();
+
+    void record(long value)
+    {
+        if (value < 0)
+        {
+            value = 0;
+        }
+        _counts.incrementAndGet(indexOf(value));
+        _totalCount.incrementAndGet();
+
+        long max;
+        while (value > (max = _max.get()) && !_max.compareAndSet(max, value))
+        {
+        }
+    }
+
+    long getCount()
+    {
+        return _totalCount.get();
+    }
+
+    long getMax()
+    {
+        return _max.get();
+    }
+
+    /**
+     * Returns the highest value equivalent to the bucket holding the given percentile, or zero if nothing has been
+     * recorded.
+     */
+    long getValueAtPercentile(final double percentile)
+    {
+        final long total = _totalCount.get();
+        if (total == 0)
+        {
+            return 0;
+        }
+        final long target = Math.max(1L, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            cumulative += _counts.get(i);
+            if (cumulative >= target)
+            {
+                return Math.min(highestEquivalentValue(i), _max.get());
+            }
+        }
+        return _max.get();
+    }
+
+    static int indexOf(final long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long highestEquivalentValue(final int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long subBucket = index % SUB_BUCKETS;
+        final long upper = (SUB_BUCKETS + subBucket + 1) << shift;
+        return upper <= 0 ? Long.MAX_VALUE : upper - 1;
+    }
+}
@@ -64,6 +64,7 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
     private final AtomicReference<Environment> _environment;
 
     private final Committer _committer;
+    private final CommitStatistics _commitStatistics = new CommitStatistics();
     private final File _environmentPath;
 
     private static final Set<String> PARAMS_SET_BY_DEFAULT;
@@ -157,7 +158,11 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
             }
         }
 
-        _committer =  new CoalescingCommiter(name, this);
+        _committer =  new CoalescingCommiter(name,
+                                             this,
+                                             configuration.getFacadeParameter(COMMITTER_MAX_COALESCING_DELAY_PROPERTY_NAME,
+                                                                              DEFAULT_COMMITTER_MAX_COALESCING_DELAY),
+                                             _commitStatistics);
         _committer.start();
     }
 
@@ -315,6 +320,12 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
         return EnvironmentUtils.getTransactionStatistics(getEnvironment(), reset);
     }
 
+    @Override
+    public CommitStatistics getCommitStatistics()
+    {
+        return _commitStatistics;
+    }
+
     private void closeSequences()
     {
         RuntimeException firstThrownException = null;
@@ -123,6 +123,15 @@ public class BDBHAVirtualHostNodeImpl extends AbstractVirtualHostNode<BDBHAVirtu
     private GroupLogSubject _groupLogSubject;
     private String _virtualHostNodePrincipalName;
 
+    private final CommitStatisticsReporter _commitStatisticsReporter = new CommitStatisticsReporter()
+    {
+        @Override
+        EnvironmentFacade getEnvironmentFacade()
+        {
+            return getReplicatedEnvironmentFacade();
+        }
+    };
+
     @ManagedAttributeField
     private String _storePath;
 
@@ -1460,6 +1469,49 @@ public class BDBHAVirtualHostNodeImpl extends AbstractVirtualHostNode<BDBHAVirtu
             return Collections.emptyMap();
         }
     }
+
+    @Override
+    public long getCommitterFlushCount()
+    {
+        return _commitStatisticsReporter.getCommitterFlushCount();
+    }
+
+    @Override
+    public long getCommitBatchSizeP50()
+    {
+        return _commitStatisticsReporter.getCommitBatchSizeP50();
+    }
+
+    @Override
+    public long getCommitBatchSizeP99()
+    {
+        return _commitStatisticsReporter.getCommitBatchSizeP99();
+    }
+
+    @Override
+    public long getCommitLatencyP50()
+    {
+        return _commitStatisticsReporter.getCommitLatencyP50();
+    }
+
+    @Override
+    public long getCommitLatencyP99()
+    {
+        return _commitStatisticsReporter.getCommitLatencyP99();
+    }
+
+    @Override
+    public long getCommitLatencyP999()
+    {
+        return _commitStatisticsReporter.getCommitLatencyP999();
+    }
+
+    @Override
+    public long getCommitCoalescingWindow()
+    {
+        return _commitStatisticsReporter.getCommitCoalescingWindow();
+    }
+
     public static Map<String, Collection<String>> getSupportedChildTypes()
     {
         return Collections.singletonMap(VirtualHost.class.getSimpleName(), (Collection<String>) Collections.singleton(BDBHAVirtualHostImpl.VIRTUAL_HOST_TYPE));
@@ -21,6 +21,9 @@
 package org.apache.qpid.server.virtualhostnode.berkeleydb;
 
 import org.apache.qpid.server.model.ManagedAttribute;
+import org.apache.qpid.server.model.ManagedStatistic;
+import org.apache.qpid.server.model.StatisticType;
+import org.apache.qpid.server.model.StatisticUnit;
 import org.apache.qpid.server.model.VirtualHostNode;
 import org.apache.qpid.server.store.FileBasedSettings;
 import org.apache.qpid.server.store.berkeleydb.BDBEnvironmentContainer;
@@ -38,4 +41,43 @@ public interface BDBVirtualHostNode<X extends BDBVirtualHostNode<X>>
     @ManagedAttribute( description = "Configuration for the preference store, e.g. type, path, etc.",
             defaultValue = "{\"type\": \"Provided\"}")
     PreferenceStoreAttributes getPreferenceStoreAttributes();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Log Flushes",
+                      description = "Number of log flushes performed by the committer.")
+    long getCommitterFlushCount();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT,
+                      label = "Commits per Flush (p50)",
+                      description = "Median number of commits made durable by a single log flush, over all "
+                                    + "flushes since the node was started.")
+    long getCommitBatchSizeP50();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT,
+                      label = "Commits per Flush (p99)",
+                      description = "99th percentile of the number of commits made durable by a single log flush, "
+                                    + "over all flushes since the node was started.")
+    long getCommitBatchSizeP99();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION,
+                      label = "Commit Latency (p50, us)",
+                      description = "Median time in microseconds for the committer to make a commit durable, over "
+                                    + "all commits since the node was started.")
+    long getCommitLatencyP50();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION,
+                      label = "Commit Latency (p99, us)",
+                      description = "99th percentile of the time in microseconds for the committer to make a commit "
+                                    + "durable, over all commits since the node was started.")
+    long getCommitLatencyP99();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION,
+                      label = "Commit Latency (p99.9, us)",
+                      description = "99.9th percentile of the time in microseconds for the committer to make a "
+                                    + "commit durable, over all commits since the node was started.")
+    long getCommitLatencyP999();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION,
+                      label = "Coalescing Window (us)",
+                      description = "Time in microseconds the committer currently waits to gather commits into a log flush.")
+    long getCommitCoalescingWindow();
 }
@@ -46,6 +46,16 @@ public class BDBVirtualHostNodeImpl extends AbstractStandardVirtualHostNode<BDBV
     @ManagedAttributeField
     private String _storePath;
 
+    private final CommitStatisticsReporter _commitStatisticsReporter = new CommitStatisticsReporter()
+    {
+        @Override
+        EnvironmentFacade getEnvironmentFacade()
+        {
+            BDBConfigurationStore bdbConfigurationStore = (BDBConfigurationStore) getConfigurationStore();
+            return bdbConfigurationStore == null ? null : bdbConfigurationStore.getEnvironmentFacade();
+        }
+    };
+
     @ManagedObjectFactoryConstructor(conditionallyAvailable = true, condition = "org.apache.qpid.server.JECheck#isAvailable()")
     public BDBVirtualHostNodeImpl(Map<String, Object> attributes, Broker<?> parent)
     {
@@ -184,6 +194,48 @@ public class BDBVirtualHostNodeImpl extends AbstractStandardVirtualHostNode<BDBV
         return Collections.emptyMap();
     }
 
+    @Override
+    public long getCommitterFlushCount()
+    {
+        return _commitStatisticsReporter.getCommitterFlushCount();
+    }
+
+    @Override
+    public long getCommitBatchSizeP50()
+    {
+        return _commitStatisticsReporter.getCommitBatchSizeP50();
+    }
+
+    @Override
+    public long getCommitBatchSizeP99()
+    {
+        return _commitStatisticsReporter.getCommitBatchSizeP99();
+    }
+
+    @Override
+    public long getCommitLatencyP50()
+    {
+        return _commitStatisticsReporter.getCommitLatencyP50();
+    }
+
+    @Override
+    public long getCommitLatencyP99()
+    {
+        return _commitStatisticsReporter.getCommitLatencyP99();
+    }
+
+    @Override
+    public long getCommitLatencyP999()
+    {
+        return _commitStatisticsReporter.getCommitLatencyP999();
+    }
+
+    @Override
+    public long getCommitCoalescingWindow()
+    {
+        return _commitStatisticsReporter.getCommitCoalescingWindow();
+    }
+
     @Override
     public PreferenceStore getPreferenceStore()
     {
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.virtualhostnode.berkeleydb;
+
+import org.apache.qpid.server.store.berkeleydb.CommitStatistics;
+import org.apache.qpid.server.store.berkeleydb.EnvironmentFacade;
+
+/**
+ * Reads the commit statistics exposed by {@link BDBVirtualHostNode} from the environment of a node, reporting zero
+ * while the node has no environment.
+ */
+abstract class CommitStatisticsReporter
+{
+    /** Returns the environment of the node, or null if it currently has none */
+    abstract EnvironmentFacade getEnvironmentFacade();
+
+    long getCommitterFlushCount()
+    {
+        CommitStatistics statistics = getCommitStatistics();
+        return statistics == null ? 0L : statistics.getFlushCount();
+    }
+
+    long getCommitBatchSizeP50()
+    {
+        CommitStatistics statistics = getCommitStatistics();
+        return statistics == null ? 0L : statistics.getBatchSize(50.0);
+    }
+
+    long getCommitBatchSizeP99()
+    {
+        CommitStatistics statistics = getCommitStatistics();
+        return statistics == null ? 0L : statistics.getBatchSize(99.0);
+    }
+
+    long getCommitLatencyP50()
+    {
+        CommitStatistics statistics = getCommitStatistics();
+        return statistics == null ? 0L : statistics.getCommitLatency(50.0);
+    }
+
+    long getCommitLatencyP99()
+    {
+        CommitStatistics statistics = getCommitStatistics();
+        return statistics == null ? 0L : statistics.getCommitLatency(99.0);
+    }
+
+    long getCommitLatencyP999()
+    {
+        CommitStatistics statistics = getCommitStatistics();
+        return statistics == null ? 0L : statistics.getCommitLatency(99.9);
+    }
+
+    long getCommitCoalescingWindow()
+    {
+        CommitStatistics statistics = getCommitStatistics();
+        return statistics == null ? 0L : statistics.getCoalescingWindow();
+    }
+
+    private CommitStatistics getCommitStatistics()
+    {
+        EnvironmentFacade environmentFacade = getEnvironmentFacade();
+        return environmentFacade == null ? null : environmentFacade.getCommitStatistics();
+    }
+}
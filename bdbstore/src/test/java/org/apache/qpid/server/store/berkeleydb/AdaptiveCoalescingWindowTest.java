@@ -0,0 +1,94 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class AdaptiveCoalescingWindowTest extends QpidTestCase
+{
+    private static final long MAX_WINDOW = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public void testNoWindowBeforeAnyFlush()
+    {
+        AdaptiveCoalescingWindow window = new AdaptiveCoalescingWindow(MAX_WINDOW, 256);
+        assertEquals(0L, window.getWindowNanos());
+        assertEquals(1, window.getTargetBatchSize());
+    }
+
+    public void testSlowFlushWithFrequentArrivalsOpensWindow()
+    {
+        AdaptiveCoalescingWindow window = new AdaptiveCoalescingWindow(MAX_WINDOW, 256);
+        for (int i = 0; i < 20; i++)
+        {
+            // 20 commits over a 10ms cycle of which 8ms were spent flushing
+            window.update(20, TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(8));
+        }
+        assertEquals("Window should be bounded by the maximum", MAX_WINDOW, window.getWindowNanos());
+        assertEquals(21, window.getTargetBatchSize());
+    }
+
+    public void testFastFlushKeepsWindowBelowFlushTime()
+    {
+        AdaptiveCoalescingWindow window = new AdaptiveCoalescingWindow(MAX_WINDOW, 256);
+        final long flushNanos = TimeUnit.MICROSECONDS.toNanos(200);
+        for (int i = 0; i < 20; i++)
+        {
+            window.update(50, TimeUnit.MILLISECONDS.toNanos(1), flushNanos);
+        }
+        assertEquals(flushNanos, window.getWindowNanos());
+        assertEquals(51, window.getTargetBatchSize());
+    }
+
+    public void testSparseArrivalsCloseWindow()
+    {
+        AdaptiveCoalescingWindow window = new AdaptiveCoalescingWindow(MAX_WINDOW, 256);
+        for (int i = 0; i < 20; i++)
+        {
+            window.update(1, TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(8));
+        }
+        assertEquals(0L, window.getWindowNanos());
+        assertEquals(1, window.getTargetBatchSize());
+    }
+
+    public void testConcurrentSynchronousCommitsOpenWindow()
+    {
+        AdaptiveCoalescingWindow window = new AdaptiveCoalescingWindow(MAX_WINDOW, 256);
+        for (int i = 0; i < 20; i++)
+        {
+            // two blocked committers per flush; their arrivals are spread over the whole flush cycle
+            window.update(2, TimeUnit.MILLISECONDS.toNanos(5), TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        assertEquals(MAX_WINDOW, window.getWindowNanos());
+        assertEquals(3, window.getTargetBatchSize());
+    }
+
+    public void testTargetBatchSizeBounded()
+    {
+        AdaptiveCoalescingWindow window = new AdaptiveCoalescingWindow(MAX_WINDOW, 16);
+        for (int i = 0; i < 20; i++)
+        {
+            window.update(1000, TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(8));
+        }
+        assertEquals(16, window.getTargetBatchSize());
+    }
+}
@@ -112,4 +112,25 @@ public class CoalescingCommitterTest extends QpidTestCase
         verify(_environmentFacade, times(2)).flushLog();
         verify(_environmentFacade, times(1)).flushLogFailed(testFailure);
     }
+
+    public void testCommitStatisticsRecorded() throws Exception
+    {
+        CommitStatistics statistics = new CommitStatistics();
+        CoalescingCommiter adaptiveCommitter = new CoalescingCommiter("Adaptive", _environmentFacade, 1000, statistics);
+        adaptiveCommitter.start();
+        try
+        {
+            adaptiveCommitter.commit(null, true);
+            ListenableFuture<?> future = adaptiveCommitter.commitAsync(null, null);
+            future.get(1000, TimeUnit.MILLISECONDS);
+        }
+        finally
+        {
+            adaptiveCommitter.stop();
+        }
+
+        assertEquals("Unexpected number of commits", 2L, statistics.getCommitCount());
+        assertTrue("Unexpected number of flushes", statistics.getFlushCount() >= 1L && statistics.getFlushCount() <= 2L);
+        assertTrue("Unexpected batch size", statistics.getBatchSize(50.0) >= 1L);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class LogLinearHistogramTest extends QpidTestCase
+{
+    public void testEmptyHistogram()
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getValueAtPercentile(50.0));
+    }
+
+    public void testSmallValuesAreExact()
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 1; i <= 10; i++)
+        {
+            histogram.record(i);
+        }
+        assertEquals(10L, histogram.getCount());
+        assertEquals(5L, histogram.getValueAtPercentile(50.0));
+        assertEquals(10L, histogram.getValueAtPercentile(99.0));
+        assertEquals(10L, histogram.getMax());
+    }
+
+    public void testPercentilesWithinRelativeError()
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 1; i <= 100000; i++)
+        {
+            histogram.record(i);
+        }
+        assertWithinError(50000L, histogram.getValueAtPercentile(50.0));
+        assertWithinError(99000L, histogram.getValueAtPercentile(99.0));
+        assertWithinError(99900L, histogram.getValueAtPercentile(99.9));
+        assertEquals(100000L, histogram.getValueAtPercentile(100.0));
+    }
+
+    public void testBucketBoundaries()
+    {
+        for (long value : new long[]{0L, 15L, 16L, 17L, 1000L, 1L << 40, Long.MAX_VALUE})
+        {
+            int index = LogLinearHistogram.indexOf(value);
+            assertTrue("Value " + value + " above its bucket",
+                       value <= LogLinearHistogram.highestEquivalentValue(index));
+            if (index > 0)
+            {
+                assertTrue("Value " + value + " below its bucket",
+                           value > LogLinearHistogram.highestEquivalentValue(index - 1));
+            }
+        }
+    }
+
+    private void assertWithinError(final long expected, final long actual)
+    {
+        assertTrue("Expected " + expected + " but was " + actual,
+                   Math.abs(actual - expected) <= expected / LogLinearHistogram.SUB_BUCKETS);
+    }
+}
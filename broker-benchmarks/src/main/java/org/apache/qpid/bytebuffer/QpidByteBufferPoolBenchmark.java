@@ -0,0 +1,98 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.bytebuffer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures allocation and disposal of direct {@link QpidByteBuffer}s through the broker's pool, both for whole pooled
+ * buffers and for small slices carved from the per-thread cached buffer, uncontended and with several threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QpidByteBufferPoolBenchmark
+{
+    private static final int POOLED_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_POOL_SIZE = 1024;
+    private static final int SMALL_BUFFER_SIZE = 1024;
+
+    @Setup
+    public void setUp()
+    {
+        QpidByteBuffer.initialisePool(POOLED_BUFFER_SIZE, MAX_POOL_SIZE);
+    }
+
+    @Benchmark
+    public int pooledBuffer()
+    {
+        return allocateAndDispose(POOLED_BUFFER_SIZE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int pooledBufferContended()
+    {
+        return allocateAndDispose(POOLED_BUFFER_SIZE);
+    }
+
+    @Benchmark
+    public int smallBuffer()
+    {
+        return allocateAndDispose(SMALL_BUFFER_SIZE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int smallBufferContended()
+    {
+        return allocateAndDispose(SMALL_BUFFER_SIZE);
+    }
+
+    private int allocateAndDispose(final int size)
+    {
+        final QpidByteBuffer buffer = QpidByteBuffer.allocateDirect(size);
+        try
+        {
+            buffer.putLong(0, size);
+            return buffer.capacity();
+        }
+        finally
+        {
+            buffer.dispose();
+        }
+    }
+}
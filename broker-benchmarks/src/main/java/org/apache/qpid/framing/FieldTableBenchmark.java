@@ -0,0 +1,112 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.framing;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+
+/**
+ * Measures encoding a populated {@link FieldTable} and decoding one back from its wire form.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldTableBenchmark
+{
+    @Param({"4", "32"})
+    private int _entries;
+
+    private FieldTable _table;
+    private QpidByteBuffer _encodeBuffer;
+    private QpidByteBuffer _encoded;
+
+    @Setup
+    public void setUp()
+    {
+        _table = new FieldTable();
+        for (int i = 0; i < _entries; i++)
+        {
+            switch (i % 4)
+            {
+                case 0:
+                    _table.setString("string" + i, "value" + i);
+                    break;
+                case 1:
+                    _table.setInteger("int" + i, i);
+                    break;
+                case 2:
+                    _table.setLong("long" + i, (long) i << 32);
+                    break;
+                default:
+                    _table.setBoolean("boolean" + i, (i & 1) == 0);
+                    break;
+            }
+        }
+
+        final int size = EncodingUtils.encodedFieldTableLength(_table);
+        _encodeBuffer = QpidByteBuffer.allocate(size);
+        _encoded = QpidByteBuffer.allocate(size);
+        EncodingUtils.writeFieldTableBytes(_encoded, _table);
+        _encoded.flip();
+    }
+
+    @Benchmark
+    public QpidByteBuffer encode()
+    {
+        final FieldTable table = new FieldTable(_table);
+        _encodeBuffer.clear();
+        EncodingUtils.writeFieldTableBytes(_encodeBuffer, table);
+        return _encodeBuffer;
+    }
+
+    @Benchmark
+    public Object decode() throws AMQFrameDecodingException
+    {
+        final QpidByteBuffer buffer = _encoded.duplicate();
+        try
+        {
+            final FieldTable table = EncodingUtils.readFieldTable(buffer);
+            final Object value = table.getObject("string0");
+            table.dispose();
+            return value;
+        }
+        finally
+        {
+            buffer.dispose();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.benchmark;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Helpers shared by the benchmarks for building an in-process, memory backed virtualhost and the messages
+ * that are pushed through it.
+ */
+public final class BenchmarkSupport
+{
+    private BenchmarkSupport()
+    {
+    }
+
+    public static QueueManagingVirtualHost<?> createVirtualHost(final String name) throws Exception
+    {
+        return BrokerTestHelper.createVirtualHost(name);
+    }
+
+    public static void closeVirtualHost(final QueueManagingVirtualHost<?> virtualHost)
+    {
+        if (virtualHost != null)
+        {
+            virtualHost.close();
+        }
+    }
+
+    public static ServerMessage<?> createMessage(final QueueManagingVirtualHost<?> virtualHost,
+                                                 final Map<String, Object> headers,
+                                                 final int payloadSize)
+    {
+        final InternalMessageHeader header = new InternalMessageHeader(headers,
+                                                                       null,
+                                                                       0L,
+                                                                       null,
+                                                                       null,
+                                                                       UUID.randomUUID().toString(),
+                                                                       null,
+                                                                       null,
+                                                                       (byte) 4,
+                                                                       System.currentTimeMillis(),
+                                                                       0L,
+                                                                       null,
+                                                                       null);
+        return InternalMessage.createBytesMessage(virtualHost.getMessageStore(), header, new byte[payloadSize]);
+    }
+}
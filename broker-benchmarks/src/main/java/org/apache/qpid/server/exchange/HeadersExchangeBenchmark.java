@@ -0,0 +1,135 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.exchange.ExchangeDefaults;
+import org.apache.qpid.server.benchmark.BenchmarkSupport;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.queue.BaseQueue;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Measures routing through {@link HeadersExchange}.  Each queue is bound requiring a header with a value unique to
+ * the queue together with a header common to a region, every tenth queue additionally with x-match "any" on either
+ * of two further headers, and one queue on the presence of the region header only, so that each message matches a
+ * handful of bindings out of many.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadersExchangeBenchmark
+{
+    private static final int REGIONS = 8;
+    private static final int MESSAGES = 64;
+
+    @Param({"100", "10000"})
+    private int _bindings;
+
+    private QueueManagingVirtualHost<?> _virtualHost;
+    private HeadersExchange _exchange;
+    private MessageReference<?>[] _messageReferences;
+    private int _next;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _virtualHost = BenchmarkSupport.createVirtualHost(getClass().getSimpleName());
+        _exchange = (HeadersExchange) _virtualHost.getChildByName(Exchange.class,
+                                                                  ExchangeDefaults.HEADERS_EXCHANGE_NAME);
+
+        for (int i = 0; i < _bindings; i++)
+        {
+            final Queue<?> queue = BrokerTestHelper.createQueue("queue-" + i, _virtualHost);
+            final Map<String, Object> arguments = new HashMap<>();
+            arguments.put("entitlement", "user" + i);
+            arguments.put("region", String.valueOf(i % REGIONS));
+            _exchange.addBinding("entitlement-" + i, queue, arguments);
+            if (i % 10 == 0)
+            {
+                final Map<String, Object> anyArguments = new HashMap<>();
+                anyArguments.put("x-match", "any");
+                anyArguments.put("desk", "desk" + i);
+                anyArguments.put("book", "book" + i);
+                _exchange.addBinding("desk-" + i, queue, anyArguments);
+            }
+            if (i == 0)
+            {
+                final Map<String, Object> presenceArguments = new HashMap<>();
+                presenceArguments.put("region", null);
+                _exchange.addBinding("region", queue, presenceArguments);
+            }
+        }
+
+        _messageReferences = new MessageReference<?>[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            final int target = (i * _bindings) / MESSAGES;
+            final Map<String, Object> headers = new HashMap<>();
+            headers.put("entitlement", "user" + target);
+            headers.put("region", String.valueOf(target % REGIONS));
+            headers.put("desk", "desk" + target);
+            headers.put("trader", "trader" + i);
+            _messageReferences[i] = BenchmarkSupport.createMessage(_virtualHost, headers, 256).newReference();
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        for (MessageReference<?> messageReference : _messageReferences)
+        {
+            messageReference.release();
+        }
+        BenchmarkSupport.closeVirtualHost(_virtualHost);
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> route()
+    {
+        final MessageReference<?> messageReference = _messageReferences[_next++ % MESSAGES];
+        return _exchange.doRoute(messageReference.getMessage(), "", InstanceProperties.EMPTY);
+    }
+}
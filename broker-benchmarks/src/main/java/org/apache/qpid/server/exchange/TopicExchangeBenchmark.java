@@ -0,0 +1,115 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.exchange.ExchangeDefaults;
+import org.apache.qpid.server.benchmark.BenchmarkSupport;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.queue.BaseQueue;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Measures routing through {@link TopicExchange}, i.e. a walk of the
+ * {@link org.apache.qpid.server.exchange.topic.TopicMatcherDFAState} automaton and collection of the matched queues.
+ * Each queue is bound with an exact key, every fourth queue additionally with a single-word wildcard and one queue
+ * with a multi-word wildcard, so most routing keys match more than one binding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicExchangeBenchmark
+{
+    private static final int REGIONS = 8;
+
+    @Param({"10", "1000"})
+    private int _bindings;
+
+    private QueueManagingVirtualHost<?> _virtualHost;
+    private TopicExchange _exchange;
+    private MessageReference<?> _messageReference;
+    private String[] _routingKeys;
+    private int _next;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _virtualHost = BenchmarkSupport.createVirtualHost(getClass().getSimpleName());
+        _exchange = (TopicExchange) _virtualHost.getChildByName(Exchange.class, ExchangeDefaults.TOPIC_EXCHANGE_NAME);
+        _messageReference = BenchmarkSupport.createMessage(_virtualHost, null, 256).newReference();
+
+        _routingKeys = new String[_bindings];
+        for (int i = 0; i < _bindings; i++)
+        {
+            final Queue<?> queue = BrokerTestHelper.createQueue("queue-" + i, _virtualHost);
+            final String routingKey = "market." + (i % REGIONS) + ".symbol" + i;
+            _routingKeys[i] = routingKey;
+            _exchange.addBinding(routingKey, queue, Collections.<String, Object>emptyMap());
+            if (i % 4 == 0)
+            {
+                _exchange.addBinding("market.*.symbol" + i, queue, Collections.<String, Object>emptyMap());
+            }
+            if (i == 0)
+            {
+                _exchange.addBinding("market.#", queue, Collections.<String, Object>emptyMap());
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _messageReference.release();
+        BenchmarkSupport.closeVirtualHost(_virtualHost);
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> route()
+    {
+        final String routingKey = _routingKeys[_next++ % _routingKeys.length];
+        final ServerMessage<?> message = _messageReference.getMessage();
+        return _exchange.doRoute(message, routingKey, InstanceProperties.EMPTY);
+    }
+}
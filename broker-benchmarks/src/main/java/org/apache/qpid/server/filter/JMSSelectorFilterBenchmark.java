@@ -0,0 +1,96 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.BenchmarkSupport;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Measures evaluation of parsed JMS selectors against a message carrying a handful of application headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JMSSelectorFilterBenchmark
+{
+    @Param({"colour = 'red'",
+            "colour = 'red' AND size > 10",
+            "colour IN ('red', 'green', 'blue') AND size BETWEEN 5 AND 50 AND region LIKE 'eu%' AND JMSPriority > 2",
+            "(colour = 'green' OR size < 3 OR region = 'apac') AND NOT (flag = TRUE) AND price * 2 > 10.5"})
+    private String _selector;
+
+    private QueueManagingVirtualHost<?> _virtualHost;
+    private MessageReference<?> _messageReference;
+    private JMSSelectorFilter _filter;
+    private Filterable _filterable;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _virtualHost = BenchmarkSupport.createVirtualHost(getClass().getSimpleName());
+
+        final Map<String, Object> headers = new HashMap<>();
+        headers.put("colour", "red");
+        headers.put("size", 42);
+        headers.put("region", "eu-west");
+        headers.put("flag", Boolean.FALSE);
+        headers.put("price", 12.75d);
+        _messageReference = BenchmarkSupport.createMessage(_virtualHost, headers, 256).newReference();
+
+        _filter = new JMSSelectorFilter(_selector);
+        _filterable = Filterable.Factory.newInstance(_messageReference.getMessage(), InstanceProperties.EMPTY);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _messageReference.release();
+        BenchmarkSupport.closeVirtualHost(_virtualHost);
+    }
+
+    @Benchmark
+    public boolean matches()
+    {
+        return _filter.matches(_filterable);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import org.apache.qpid.server.consumer.ConsumerImpl;
+import org.apache.qpid.server.consumer.MockConsumer;
+import org.apache.qpid.server.message.MessageInstance;
+
+/**
+ * Consumer target that behaves like a no-ack 0-8 consumer: every delivered entry is dequeued immediately so the
+ * queue reaches a steady state rather than accumulating unacknowledged messages.
+ */
+class AutoAcknowledgingConsumerTarget extends MockConsumer
+{
+    @Override
+    public long send(final ConsumerImpl consumer, final MessageInstance entry, final boolean batch)
+    {
+        final long size = entry.getMessage().getSize();
+        entry.delete();
+        return size;
+    }
+}
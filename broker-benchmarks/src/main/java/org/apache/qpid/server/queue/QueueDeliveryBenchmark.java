@@ -0,0 +1,122 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.BenchmarkSupport;
+import org.apache.qpid.server.consumer.ConsumerImpl;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Measures the per-message cost of {@link AbstractQueue#enqueue} followed by delivery to competing consumers,
+ * either straight through on the publishing thread or via the queue runner's {@link AbstractQueue#processQueue}.
+ * <p>
+ * Each invocation enqueues a batch of distinct messages, created once up front, and waits for the consumers to drain
+ * the queue, so the figures are per message delivered rather than per message enqueued.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueDeliveryBenchmark
+{
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1", "16", "256"})
+    private int _consumers;
+
+    @Param({"256"})
+    private int _payloadSize;
+
+    private QueueManagingVirtualHost<?> _virtualHost;
+    private Queue<?> _queue;
+    private final MessageReference<?>[] _messageReferences = new MessageReference<?>[BATCH_SIZE];
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _virtualHost = BenchmarkSupport.createVirtualHost(getClass().getSimpleName());
+        _queue = BrokerTestHelper.createQueue("delivery", _virtualHost);
+
+        // a message may only be referenced once by any queue, so each message of a batch is distinct
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            _messageReferences[i] = BenchmarkSupport.createMessage(_virtualHost, null, _payloadSize).newReference();
+        }
+        final ServerMessage<?> message = _messageReferences[0].getMessage();
+
+        for (int i = 0; i < _consumers; i++)
+        {
+            _queue.addConsumer(new AutoAcknowledgingConsumerTarget(),
+                               null,
+                               message.getClass(),
+                               "consumer-" + i,
+                               EnumSet.of(ConsumerImpl.Option.ACQUIRES, ConsumerImpl.Option.SEES_REQUEUES),
+                               0);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        for (MessageReference<?> messageReference : _messageReferences)
+        {
+            messageReference.release();
+        }
+        BenchmarkSupport.closeVirtualHost(_virtualHost);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void enqueueAndDeliver()
+    {
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            _queue.enqueue(_messageReferences[i].getMessage(), null, null);
+        }
+        while (_queue.getQueueDepthMessages() != 0)
+        {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.BenchmarkSupport;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Compares the single-lock red-black tree with the concurrent skip list as the entry list of a sorted queue, both
+ * uncontended and with several publishers enqueuing at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedQueueEntryListBenchmark
+{
+    private static final String SORT_KEY = "KEY";
+
+    @Param({"redBlackTree", "skipList"})
+    private String _implementation;
+
+    @Param({"1000", "100000"})
+    private int _depth;
+
+    private QueueManagingVirtualHost<?> _virtualHost;
+    private QueueEntryList _entries;
+    private QueueEntryList _emptyEntries;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _virtualHost = BenchmarkSupport.createVirtualHost(getClass().getSimpleName());
+
+        // a message may only be referenced once by any queue, so the deep list needs a message per entry
+        final Random random = new Random(0);
+        _entries = createEntryList(createQueue("deep"));
+        for (int i = 0; i < _depth; i++)
+        {
+            _entries.add(createMessage(random), null);
+        }
+        _emptyEntries = createEntryList(createQueue("empty"));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        BenchmarkSupport.closeVirtualHost(_virtualHost);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public QueueEntry addAcquireDelete(final Publisher publisher)
+    {
+        final QueueEntry entry = _emptyEntries.add(publisher._messageReference.getMessage(), null);
+        entry.acquire();
+        entry.delete();
+        return entry;
+    }
+
+    @Benchmark
+    public int next()
+    {
+        int count = 0;
+        QueueEntry entry = _entries.getHead();
+        while ((entry = _entries.next(entry)) != null)
+        {
+            count++;
+        }
+        return count;
+    }
+
+    private SortedQueueImpl createQueue(final String name)
+    {
+        final Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.ID, UUID.randomUUID());
+        attributes.put(Queue.NAME, name);
+        attributes.put(SortedQueue.SORT_KEY, SORT_KEY);
+        return (SortedQueueImpl) _virtualHost.createChild(Queue.class, attributes);
+    }
+
+    private QueueEntryList createEntryList(final SortedQueueImpl queue)
+    {
+        return "redBlackTree".equals(_implementation)
+                ? new SortedQueueEntryList(queue)
+                : new ConcurrentSortedQueueEntryList(queue);
+    }
+
+    private MessageReference<?> createMessageReference(final Random random)
+    {
+        return createMessage(random).newReference();
+    }
+
+    private ServerMessage<?> createMessage(final Random random)
+    {
+        final Map<String, Object> headers =
+                Collections.<String, Object>singletonMap(SORT_KEY, String.valueOf(random.nextInt(_depth)));
+        return BenchmarkSupport.createMessage(_virtualHost, headers, 256);
+    }
+
+    /**
+     * Each publishing thread re-enqueues its own message, as a message may only be referenced once by any queue.
+     */
+    @State(Scope.Thread)
+    public static class Publisher
+    {
+        private MessageReference<?> _messageReference;
+
+        @Setup
+        public void setUp(final SortedQueueEntryListBenchmark benchmark)
+        {
+            // hold a reference for the lifetime of the benchmark so the message survives its entries being deleted
+            _messageReference = benchmark.createMessageReference(new Random());
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            _messageReference.release();
+        }
+    }
+}
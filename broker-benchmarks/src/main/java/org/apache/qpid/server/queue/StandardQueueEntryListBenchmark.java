@@ -0,0 +1,110 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.BenchmarkSupport;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * Measures the cost of appending to, and walking, the lock-free linked list backing a standard queue.
+ * <p>
+ * Appending adds, acquires and deletes an entry on an otherwise empty list, so the list never grows; walking visits
+ * every entry of a list pre-populated with one distinct message per entry.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StandardQueueEntryListBenchmark
+{
+    @Param({"1000", "100000"})
+    private int _depth;
+
+    private QueueManagingVirtualHost<?> _virtualHost;
+    private StandardQueueEntryList _entries;
+    private StandardQueueEntryList _emptyEntries;
+    private MessageReference<?> _messageReference;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _virtualHost = BenchmarkSupport.createVirtualHost(getClass().getSimpleName());
+        final ServerMessage<?> message = BenchmarkSupport.createMessage(_virtualHost, null, 256);
+        // hold a reference for the lifetime of the benchmark so the message survives its entries being deleted
+        _messageReference = message.newReference();
+
+        // a message may only be referenced once by any queue, so the deep list needs a message per entry
+        _entries = ((StandardQueueImpl) BrokerTestHelper.createQueue("deep", _virtualHost)).getEntries();
+        for (int i = 0; i < _depth; i++)
+        {
+            _entries.add(BenchmarkSupport.createMessage(_virtualHost, null, 256), null);
+        }
+        _emptyEntries = ((StandardQueueImpl) BrokerTestHelper.createQueue("empty", _virtualHost)).getEntries();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _messageReference.release();
+        BenchmarkSupport.closeVirtualHost(_virtualHost);
+    }
+
+    @Benchmark
+    public QueueEntry addAcquireDelete()
+    {
+        final QueueEntry entry = _emptyEntries.add(_messageReference.getMessage(), null);
+        entry.acquire();
+        entry.delete();
+        return entry;
+    }
+
+    @Benchmark
+    public int next()
+    {
+        int count = 0;
+        QueueEntry entry = _entries.getHead();
+        while ((entry = _entries.next(entry)) != null)
+        {
+            count++;
+        }
+        return count;
+    }
+}
@@ -67,6 +67,7 @@ import org.apache.qpid.server.model.State;
 import org.apache.qpid.server.model.StateTransition;
 import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.queue.BaseQueue;
+import org.apache.qpid.server.queue.EnqueueBatch;
 import org.apache.qpid.server.security.SecurityToken;
 import org.apache.qpid.server.security.access.Operation;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
@@ -406,10 +407,17 @@ public abstract class AbstractExchange<T extends AbstractExchange<T>>
     final List<? extends BaseQueue> route(final ServerMessage message,
                                           final String routingAddress,
                                           final InstanceProperties instanceProperties)
+    {
+        return routed(message, doRoute(message, routingAddress, instanceProperties));
+    }
+
+    /**
+     * Accounts for the routing of the message to the given queues, dropping any of them which has been deleted.
+     */
+    private List<? extends BaseQueue> routed(final ServerMessage message, List<? extends BaseQueue> queues)
     {
         _receivedMessageCount.incrementAndGet();
         _receivedMessageSize.addAndGet(message.getSize());
-        List<? extends BaseQueue> queues = doRoute(message, routingAddress, instanceProperties);
         List<? extends BaseQueue> allQueues = queues;
 
         boolean deletedQueues = false;
@@ -455,6 +463,78 @@ public abstract class AbstractExchange<T extends AbstractExchange<T>>
         }
 
         List<? extends BaseQueue> queues = route(message, routingAddress, instanceProperties);
+        return enqueue(message, routingAddress, instanceProperties, queues, txn, postEnqueueAction);
+    }
+
+    /**
+     * Routes and enqueues a batch of messages received together, such as the transfers read from a connection at
+     * once, each to the queues it would be enqueued to if it were sent on its own with its initial routing address.
+     * The state of the virtual host is checked once for the batch, consecutive messages with the same routing address
+     * share one routing decision where the exchange routes by address alone, and the queues the batch is enqueued to
+     * are woken once the whole batch has been enqueued rather than once per message.
+     *
+     * @param enqueues receives the number of queues each message was enqueued to, as each is enqueued; should the
+     * batch fail partway through, the entries for the messages not enqueued are left unchanged
+     */
+    public final <M extends ServerMessage<? extends StorableMessageMetaData>> void send(final List<M> messages,
+                                                                                       final List<? extends InstanceProperties> instanceProperties,
+                                                                                       final ServerTransaction txn,
+                                                                                       final Action<? super MessageInstance> postEnqueueAction,
+                                                                                       final int[] enqueues)
+    {
+        if (_virtualHost.getState() != State.ACTIVE)
+        {
+            throw new VirtualHostUnavailableException(this._virtualHost);
+        }
+
+        EnqueueBatch.begin();
+        try
+        {
+            String lastRoutingAddress = null;
+            List<? extends BaseQueue> lastRoute = null;
+            for (int i = 0; i < messages.size(); i++)
+            {
+                final M message = messages.get(i);
+                final String routingAddress = message.getInitialRoutingAddress();
+                final List<? extends BaseQueue> queues;
+                if (lastRoute != null
+                    && (routingAddress == null ? lastRoutingAddress == null : routingAddress.equals(lastRoutingAddress)))
+                {
+                    queues = routed(message, lastRoute);
+                }
+                else
+                {
+                    List<? extends BaseQueue> route = doRoute(message, routingAddress, instanceProperties.get(i));
+                    lastRoute = isRoutedByAddressOnly(routingAddress) ? route : null;
+                    lastRoutingAddress = routingAddress;
+                    queues = routed(message, route);
+                }
+                enqueues[i] = enqueue(message, routingAddress, instanceProperties.get(i), queues, txn, postEnqueueAction);
+            }
+        }
+        finally
+        {
+            EnqueueBatch.complete();
+        }
+    }
+
+    /**
+     * Returns true if every message sent to the exchange with the given routing address is routed to the same queues,
+     * whatever its content, so that the route of one such message may be reused for the next.  The route must not
+     * have side effects beyond those accounted for by the exchange itself.
+     */
+    protected boolean isRoutedByAddressOnly(final String routingAddress)
+    {
+        return false;
+    }
+
+    private <M extends ServerMessage<? extends StorableMessageMetaData>> int enqueue(final M message,
+                                                                                    final String routingAddress,
+                                                                                    final InstanceProperties instanceProperties,
+                                                                                    final List<? extends BaseQueue> queues,
+                                                                                    final ServerTransaction txn,
+                                                                                    final Action<? super MessageInstance> postEnqueueAction)
+    {
         if(queues == null || queues.isEmpty())
         {
             Exchange altExchange = getAlternateExchange();
@@ -554,6 +634,18 @@ public abstract class AbstractExchange<T extends AbstractExchange<T>>
         return _droppedMessageSize.get();
     }
 
+    @Override
+    public long getRoutingCacheHits()
+    {
+        return 0L;
+    }
+
+    @Override
+    public long getRoutingCacheMisses()
+    {
+        return 0L;
+    }
+
     @Override
     public boolean addBinding(final String bindingKey, final Queue<?> queue, final Map<String, Object> arguments)
     {
@@ -188,6 +188,13 @@ public class DirectExchange extends AbstractExchange<DirectExchange>
 
     }
 
+    @Override
+    protected boolean isRoutedByAddressOnly(final String routingAddress)
+    {
+        BindingSet bindings = _bindingsByKey.get(routingAddress == null ? "" : routingAddress);
+        return bindings == null || !bindings.hasFilteredQueues();
+    }
+
     @Override
     protected void onBindingUpdated(final Binding<?> binding, final Map<String, Object> oldArguments)
     {
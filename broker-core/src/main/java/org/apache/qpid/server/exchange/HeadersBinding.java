@@ -116,6 +116,43 @@ class HeadersBinding
         return _binding;
     }
 
+    boolean isMatchAny()
+    {
+        return matchAny;
+    }
+
+    /**
+     * @return the names of the headers which must be present, whatever their value
+     */
+    Set<String> getRequiredHeaders()
+    {
+        return Collections.unmodifiableSet(required);
+    }
+
+    /**
+     * @return the names of the headers which must be present, mapped to the value they must have
+     */
+    Map<String, Object> getRequiredValues()
+    {
+        return Collections.unmodifiableMap(matches);
+    }
+
+    /**
+     * @return the number of headers which must be present for the binding to match with x-match "all"
+     */
+    int getConditionCount()
+    {
+        return required.size() + matches.size();
+    }
+
+    /**
+     * @return true if the message passes the selector of the binding, if any, ignoring its header arguments
+     */
+    boolean passesFilter(Filterable message)
+    {
+        return _filter == null || _filter.allAllow(message);
+    }
+
     /**
      * Checks whether the supplied headers match the requirements of this binding
      * @param headers the headers to check
@@ -136,7 +173,7 @@ class HeadersBinding
 
     public boolean matches(Filterable message)
     {
-        return matches(message.getMessageHeader()) && (_filter == null || _filter.allAllow(message));
+        return matches(message.getMessageHeader()) && passesFilter(message);
     }
 
     private boolean and(AMQMessageHeader headers)
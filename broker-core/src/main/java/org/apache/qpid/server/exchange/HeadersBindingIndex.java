@@ -0,0 +1,362 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.message.AMQMessageHeader;
+
+/**
+ * Indexes headers bindings by the names, and where given the values, of the headers they refer to, so that the
+ * bindings matching a message are found by looking up each header of the message rather than by testing every
+ * binding.
+ * <p>
+ * A binding with x-match "any" matches as soon as any one of its headers is found.  A binding with x-match "all"
+ * matches once all of its headers are found, which is determined by counting the headers found for it: each header
+ * name appears at most once in both the binding and the message, so a binding is found at most once per header.
+ * <p>
+ * The index is copy-on-write.  Bindings are added, removed and replaced under the lock of the index by publishing an
+ * updated copy, in which only the entries of the headers the change refers to are copied, and matching takes no lock.
+ * A match therefore sees each change either entirely or not at all; in particular a replaced binding is never
+ * matched together with, or in the absence of, the binding replacing it.
+ */
+class HeadersBindingIndex
+{
+    private volatile Snapshot _snapshot = new Snapshot(Collections.<HeadersBinding>emptySet(),
+                                                       Collections.<String, HeaderEntry>emptyMap());
+
+    synchronized void add(final HeadersBinding binding)
+    {
+        Update update = new Update(_snapshot);
+        update.add(binding);
+        _snapshot = update.getSnapshot();
+    }
+
+    synchronized void remove(final HeadersBinding binding)
+    {
+        Update update = new Update(_snapshot);
+        update.remove(binding);
+        _snapshot = update.getSnapshot();
+    }
+
+    /**
+     * Swaps one binding for another in a single step, as seen by concurrent matches.
+     */
+    synchronized void replace(final HeadersBinding oldBinding, final HeadersBinding newBinding)
+    {
+        Update update = new Update(_snapshot);
+        update.remove(oldBinding);
+        update.add(newBinding);
+        _snapshot = update.getSnapshot();
+    }
+
+    /**
+     * @return the bindings matched by the headers and passed by the selectors of the message
+     */
+    Set<HeadersBinding> match(final Filterable message)
+    {
+        final Snapshot snapshot = _snapshot;
+        final Set<HeadersBinding> candidates = new LinkedHashSet<>(snapshot._unconditionalBindings);
+        final AMQMessageHeader headers = message.getMessageHeader();
+        if (headers != null && !snapshot._headerEntries.isEmpty())
+        {
+            Map<HeadersBinding, int[]> foundCounts = null;
+            for (String name : headers.getHeaderNames())
+            {
+                final HeaderEntry headerEntry = snapshot._headerEntries.get(name);
+                if (headerEntry != null)
+                {
+                    final Object value = headers.getHeader(name);
+                    foundCounts = headerEntry.match(value, candidates, foundCounts);
+                }
+            }
+        }
+
+        if (candidates.isEmpty())
+        {
+            return Collections.emptySet();
+        }
+
+        final Set<HeadersBinding> matches = new LinkedHashSet<>();
+        for (HeadersBinding binding : candidates)
+        {
+            if (binding.passesFilter(message))
+            {
+                matches.add(binding);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * A published state of the index, which is never modified.
+     */
+    private static final class Snapshot
+    {
+        private final Set<HeadersBinding> _unconditionalBindings;
+        private final Map<String, HeaderEntry> _headerEntries;
+
+        private Snapshot(final Set<HeadersBinding> unconditionalBindings,
+                         final Map<String, HeaderEntry> headerEntries)
+        {
+            _unconditionalBindings = unconditionalBindings;
+            _headerEntries = headerEntries;
+        }
+    }
+
+    /**
+     * Builds the snapshot following a change, copying only the parts of the current snapshot the change touches.
+     */
+    private static final class Update
+    {
+        private final Snapshot _base;
+        private final Map<String, HeaderEntry> _headerEntries;
+        private final Set<String> _copiedNames = new HashSet<>();
+        private Set<HeadersBinding> _unconditionalBindings;
+
+        private Update(final Snapshot base)
+        {
+            _base = base;
+            _headerEntries = new HashMap<>(base._headerEntries);
+        }
+
+        private void add(final HeadersBinding binding)
+        {
+            if (binding.getConditionCount() == 0)
+            {
+                getUnconditionalBindings().add(binding);
+            }
+            else
+            {
+                for (String name : binding.getRequiredHeaders())
+                {
+                    getHeaderEntry(name).addPresence(binding);
+                }
+                for (Map.Entry<String, Object> entry : binding.getRequiredValues().entrySet())
+                {
+                    getHeaderEntry(entry.getKey()).addValue(entry.getValue(), binding);
+                }
+            }
+        }
+
+        private void remove(final HeadersBinding binding)
+        {
+            if (binding.getConditionCount() == 0)
+            {
+                getUnconditionalBindings().remove(binding);
+            }
+            else
+            {
+                for (String name : binding.getRequiredHeaders())
+                {
+                    if (_headerEntries.containsKey(name))
+                    {
+                        getHeaderEntry(name).removePresence(binding);
+                    }
+                }
+                for (Map.Entry<String, Object> entry : binding.getRequiredValues().entrySet())
+                {
+                    if (_headerEntries.containsKey(entry.getKey()))
+                    {
+                        getHeaderEntry(entry.getKey()).removeValue(entry.getValue(), binding);
+                    }
+                }
+            }
+        }
+
+        private Set<HeadersBinding> getUnconditionalBindings()
+        {
+            if (_unconditionalBindings == null)
+            {
+                _unconditionalBindings = new HashSet<>(_base._unconditionalBindings);
+            }
+            return _unconditionalBindings;
+        }
+
+        private HeaderEntry getHeaderEntry(final String name)
+        {
+            HeaderEntry headerEntry = _headerEntries.get(name);
+            if (_copiedNames.add(name))
+            {
+                headerEntry = headerEntry == null ? new HeaderEntry() : new HeaderEntry(headerEntry);
+                _headerEntries.put(name, headerEntry);
+            }
+            return headerEntry;
+        }
+
+        private Snapshot getSnapshot()
+        {
+            for (String name : _copiedNames)
+            {
+                if (_headerEntries.get(name).isEmpty())
+                {
+                    _headerEntries.remove(name);
+                }
+            }
+            return new Snapshot(_unconditionalBindings == null ? _base._unconditionalBindings : _unconditionalBindings,
+                                _headerEntries);
+        }
+    }
+
+    /**
+     * The bindings referring to a single header name.
+     */
+    private static final class HeaderEntry
+    {
+        private final Set<HeadersBinding> _anyPresence;
+        private final Set<HeadersBinding> _allPresence;
+        private final Map<Object, Set<HeadersBinding>> _anyValues;
+        private final Map<Object, Set<HeadersBinding>> _allValues;
+
+        private HeaderEntry()
+        {
+            _anyPresence = new HashSet<>();
+            _allPresence = new HashSet<>();
+            _anyValues = new HashMap<>();
+            _allValues = new HashMap<>();
+        }
+
+        private HeaderEntry(final HeaderEntry other)
+        {
+            _anyPresence = new HashSet<>(other._anyPresence);
+            _allPresence = new HashSet<>(other._allPresence);
+            _anyValues = copyValues(other._anyValues);
+            _allValues = copyValues(other._allValues);
+        }
+
+        private static Map<Object, Set<HeadersBinding>> copyValues(final Map<Object, Set<HeadersBinding>> values)
+        {
+            final Map<Object, Set<HeadersBinding>> copy = new HashMap<>(values);
+            for (Map.Entry<Object, Set<HeadersBinding>> entry : copy.entrySet())
+            {
+                entry.setValue(new HashSet<>(entry.getValue()));
+            }
+            return copy;
+        }
+
+        private void addPresence(final HeadersBinding binding)
+        {
+            (binding.isMatchAny() ? _anyPresence : _allPresence).add(binding);
+        }
+
+        private void removePresence(final HeadersBinding binding)
+        {
+            (binding.isMatchAny() ? _anyPresence : _allPresence).remove(binding);
+        }
+
+        private void addValue(final Object value, final HeadersBinding binding)
+        {
+            final Map<Object, Set<HeadersBinding>> values = binding.isMatchAny() ? _anyValues : _allValues;
+            Set<HeadersBinding> bindings = values.get(value);
+            if (bindings == null)
+            {
+                bindings = new HashSet<>();
+                values.put(value, bindings);
+            }
+            bindings.add(binding);
+        }
+
+        private void removeValue(final Object value, final HeadersBinding binding)
+        {
+            final Map<Object, Set<HeadersBinding>> values = binding.isMatchAny() ? _anyValues : _allValues;
+            final Set<HeadersBinding> bindings = values.get(value);
+            if (bindings != null)
+            {
+                bindings.remove(binding);
+                if (bindings.isEmpty())
+                {
+                    values.remove(value);
+                }
+            }
+        }
+
+        private boolean isEmpty()
+        {
+            return _anyPresence.isEmpty() && _allPresence.isEmpty() && _anyValues.isEmpty() && _allValues.isEmpty();
+        }
+
+        /**
+         * Adds the bindings found by the given value of this header to the candidates, or counts them where the
+         * binding needs further headers to be found.
+         *
+         * @return the counts of headers found so far for the bindings requiring all of their headers
+         */
+        private Map<HeadersBinding, int[]> match(final Object value,
+                                                 final Set<HeadersBinding> candidates,
+                                                 Map<HeadersBinding, int[]> foundCounts)
+        {
+            candidates.addAll(_anyPresence);
+            foundCounts = count(_allPresence, candidates, foundCounts);
+            if (value != null)
+            {
+                final Set<HeadersBinding> anyBindings = _anyValues.get(value);
+                if (anyBindings != null)
+                {
+                    candidates.addAll(anyBindings);
+                }
+                final Set<HeadersBinding> allBindings = _allValues.get(value);
+                if (allBindings != null)
+                {
+                    foundCounts = count(allBindings, candidates, foundCounts);
+                }
+            }
+            return foundCounts;
+        }
+
+        private static Map<HeadersBinding, int[]> count(final Set<HeadersBinding> bindings,
+                                                        final Set<HeadersBinding> candidates,
+                                                        Map<HeadersBinding, int[]> foundCounts)
+        {
+            for (HeadersBinding binding : bindings)
+            {
+                final int conditionCount = binding.getConditionCount();
+                if (conditionCount == 1)
+                {
+                    candidates.add(binding);
+                }
+                else
+                {
+                    if (foundCounts == null)
+                    {
+                        foundCounts = new HashMap<>();
+                    }
+                    int[] found = foundCounts.get(binding);
+                    if (found == null)
+                    {
+                        found = new int[1];
+                        foundCounts.put(binding, found);
+                    }
+                    if (++found[0] == conditionCount)
+                    {
+                        candidates.add(binding);
+                    }
+                }
+            }
+            return foundCounts;
+        }
+    }
+}
@@ -25,8 +25,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +46,7 @@ import org.apache.qpid.server.filter.Filterable;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Binding;
+import org.apache.qpid.server.model.ManagedContextDefault;
 import org.apache.qpid.server.model.ManagedObject;
 import org.apache.qpid.server.model.ManagedObjectFactoryConstructor;
 import org.apache.qpid.server.model.Queue;
@@ -54,6 +59,13 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
 {
     private static final Logger _logger = LoggerFactory.getLogger(TopicExchange.class);
 
+    public static final String ROUTING_CACHE_SIZE = "exchange.topic.routingCacheSize";
+    @ManagedContextDefault(name = ROUTING_CACHE_SIZE,
+            description = "The maximum number of routing keys for which a topic exchange caches the queues to which "
+                          + "they route. Routing keys matching bindings with selectors are not cached. "
+                          + "Zero disables the cache.")
+    public static final int DEFAULT_ROUTING_CACHE_SIZE = 0;
+
     private final TopicParser _parser = new TopicParser();
 
     private final Map<String, TopicExchangeResult> _topicExchangeResults =
@@ -61,12 +73,31 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
 
     private final Map<Binding<?>, Map<String,Object>> _bindings = new HashMap<>();
 
+    private final ConcurrentMap<String, CachedRoute> _routingCache = new ConcurrentHashMap<>();
+    private final AtomicLong _routingCacheHits = new AtomicLong();
+    private final AtomicLong _routingCacheMisses = new AtomicLong();
+    private volatile int _routingCacheSize;
+
+    /**
+     * Incremented under the lock of the exchange once its bindings have changed.  A cached route is only used whilst
+     * the generation at which it was computed is current, so a route computed from the bindings as they were before a
+     * change can never be served after it.
+     */
+    private volatile long _bindingGeneration;
+
     @ManagedObjectFactoryConstructor
     public TopicExchange(final Map<String,Object> attributes, final QueueManagingVirtualHost<?> vhost)
     {
         super(attributes, vhost);
     }
 
+    @Override
+    protected void onOpen()
+    {
+        super.onOpen();
+        _routingCacheSize = getContextValue(Integer.class, ROUTING_CACHE_SIZE);
+    }
+
     @Override
     protected synchronized void onBindingUpdated(final Binding<?> binding, final Map<String, Object> oldArguments)
     {
@@ -125,8 +156,10 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
         {
             throw new ConnectionScopedRuntimeException(e);
         }
-
-
+        finally
+        {
+            invalidateRoutingCache();
+        }
     }
 
     protected synchronized void registerQueue(final Binding<?> binding) throws AMQInvalidArgumentException
@@ -216,28 +249,62 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
     }
 
     @Override
-    public ArrayList<BaseQueue> doRoute(ServerMessage payload,
-                                        final String routingAddress,
-                                        final InstanceProperties instanceProperties)
+    public List<? extends BaseQueue> doRoute(ServerMessage payload,
+                                             final String routingAddress,
+                                             final InstanceProperties instanceProperties)
     {
 
         final String routingKey = routingAddress == null
                                           ? ""
                                           : routingAddress;
 
-        final Collection<Queue<?>> matchedQueues =
-                getMatchedQueues(Filterable.Factory.newInstance(payload,instanceProperties), routingKey);
-
-        ArrayList<BaseQueue> queues;
+        List<? extends BaseQueue> queues = null;
 
-        if(matchedQueues.getClass() == ArrayList.class)
+        final long bindingGeneration = _bindingGeneration;
+        if(_routingCacheSize > 0)
         {
-            queues = (ArrayList) matchedQueues;
+            final CachedRoute cachedRoute = _routingCache.get(routingKey);
+            if(cachedRoute != null && cachedRoute.getBindingGeneration() == bindingGeneration)
+            {
+                _routingCacheHits.incrementAndGet();
+                queues = cachedRoute.route();
+            }
+            else
+            {
+                _routingCacheMisses.incrementAndGet();
+            }
         }
-        else
+
+        if(queues == null)
         {
-            queues = new ArrayList<BaseQueue>();
-            queues.addAll(matchedQueues);
+            final Collection<TopicMatcherResult> results = _parser.parse(routingKey);
+
+            if(_routingCacheSize > 0 && isCacheable(results))
+            {
+                final CachedRoute cachedRoute = new CachedRoute(bindingGeneration, results);
+                if(_routingCache.size() >= _routingCacheSize)
+                {
+                    // rather than tracking recency on every publish, start afresh; the cache is meant for publishers
+                    // using a small set of routing keys
+                    _routingCache.clear();
+                }
+                _routingCache.put(routingKey, cachedRoute);
+                queues = cachedRoute.route();
+            }
+            else
+            {
+                final Collection<Queue<?>> matchedQueues =
+                        getMatchedQueues(Filterable.Factory.newInstance(payload,instanceProperties), results);
+
+                if(matchedQueues.getClass() == ArrayList.class)
+                {
+                    queues = (ArrayList) matchedQueues;
+                }
+                else
+                {
+                    queues = new ArrayList<BaseQueue>(matchedQueues);
+                }
+            }
         }
 
         if(queues == null || queues.isEmpty())
@@ -286,10 +353,8 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
         }
     }
 
-    private Collection<Queue<?>> getMatchedQueues(Filterable message, String routingKey)
+    private Collection<Queue<?>> getMatchedQueues(Filterable message, Collection<TopicMatcherResult> results)
     {
-
-        Collection<TopicMatcherResult> results = _parser.parse(routingKey);
         switch(results.size())
         {
             case 0:
@@ -328,11 +393,99 @@ public class TopicExchange extends AbstractExchange<TopicExchange>
             // TODO - this seems incorrect, handling of invalid bindings should be propagated more cleanly
             throw new ConnectionScopedRuntimeException(e);
         }
+        finally
+        {
+            invalidateRoutingCache();
+        }
     }
 
     protected void onUnbind(final Binding<?> binding)
     {
-        deregisterQueue(binding);
+        try
+        {
+            deregisterQueue(binding);
+        }
+        finally
+        {
+            invalidateRoutingCache();
+        }
+    }
+
+    @Override
+    public long getRoutingCacheHits()
+    {
+        return _routingCacheHits.get();
+    }
+
+    @Override
+    public long getRoutingCacheMisses()
+    {
+        return _routingCacheMisses.get();
+    }
+
+    /**
+     * Must be called after, never before, the bindings are changed, as a route computed concurrently with the change
+     * may otherwise be cached under the new generation.
+     */
+    private synchronized void invalidateRoutingCache()
+    {
+        _bindingGeneration++;
+        _routingCache.clear();
+    }
+
+    private static boolean isCacheable(final Collection<TopicMatcherResult> results)
+    {
+        for(TopicMatcherResult result : results)
+        {
+            if(((TopicExchangeResult) result).hasFilteredQueues())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The queues to which a routing key routes when none of the bindings it matches has a selector, together with
+     * the bindings whose match count routing through {@link #getMatchedQueues(Filterable, Collection)} increments.
+     */
+    private static final class CachedRoute
+    {
+        private final long _bindingGeneration;
+        private final List<BaseQueue> _queues;
+        private final List<Binding<?>> _matchedBindings;
+
+        private CachedRoute(final long bindingGeneration, final Collection<TopicMatcherResult> results)
+        {
+            _bindingGeneration = bindingGeneration;
+            final Collection<BaseQueue> queues = new LinkedHashSet<>();
+            final List<Binding<?>> matchedBindings = new ArrayList<>();
+            for(TopicMatcherResult result : results)
+            {
+                TopicExchangeResult res = (TopicExchangeResult) result;
+                queues.addAll(res.getUnfilteredQueues());
+                if(results.size() > 1)
+                {
+                    matchedBindings.addAll(res.getBindings());
+                }
+            }
+            _queues = Collections.unmodifiableList(new ArrayList<>(queues));
+            _matchedBindings = matchedBindings;
+        }
+
+        private long getBindingGeneration()
+        {
+            return _bindingGeneration;
+        }
+
+        private List<BaseQueue> route()
+        {
+            for(Binding<?> binding : _matchedBindings)
+            {
+                binding.incrementMatches();
+            }
+            return _queues;
+        }
     }
 
 }
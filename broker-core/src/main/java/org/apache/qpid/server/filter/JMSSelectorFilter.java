@@ -20,6 +20,8 @@
  */
 package org.apache.qpid.server.filter;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +29,7 @@ import org.apache.qpid.common.AMQPFilterTypes;
 import org.apache.qpid.filter.BooleanExpression;
 import org.apache.qpid.filter.FilterableMessage;
 import org.apache.qpid.filter.JMSMessagePropertyExpression;
+import org.apache.qpid.filter.SelectorCompiler;
 import org.apache.qpid.filter.SelectorParsingException;
 import org.apache.qpid.filter.selector.ParseException;
 import org.apache.qpid.filter.selector.SelectorParser;
@@ -39,15 +42,38 @@ public class JMSSelectorFilter implements MessageFilter
 {
     private final static Logger _logger = LoggerFactory.getLogger(JMSSelectorFilter.class);
 
+    public static final String SELECTOR_COMPILATION_ENABLED = "qpid.selector.compile";
+    public static final String SELECTOR_CACHE_SIZE = "qpid.selector.cacheSize";
+    public static final int DEFAULT_SELECTOR_CACHE_SIZE = 1024;
+
+    private static final boolean COMPILE_SELECTORS =
+            Boolean.parseBoolean(System.getProperty(SELECTOR_COMPILATION_ENABLED, "true"));
+
+    /** Matchers are stateless, so consumers with identical selector text share one parsed (and compiled) matcher */
+    private static final Cache<String, BooleanExpression<FilterableMessage>> MATCHER_CACHE =
+            CacheBuilder.newBuilder()
+                        .maximumSize(Math.max(0, Integer.getInteger(SELECTOR_CACHE_SIZE, DEFAULT_SELECTOR_CACHE_SIZE)))
+                        .build();
+
     private String _selector;
-    private BooleanExpression _matcher;
+    private BooleanExpression<FilterableMessage> _matcher;
 
     public JMSSelectorFilter(String selector) throws ParseException, TokenMgrError, SelectorParsingException
     {
         _selector = selector;
-        SelectorParser<FilterableMessage> selectorParser = new SelectorParser<>();
-        selectorParser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
-        _matcher = selectorParser.parse(selector);
+        BooleanExpression<FilterableMessage> matcher = MATCHER_CACHE.getIfPresent(selector);
+        if (matcher == null)
+        {
+            SelectorParser<FilterableMessage> selectorParser = new SelectorParser<>();
+            selectorParser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
+            matcher = selectorParser.parse(selector);
+            if (COMPILE_SELECTORS)
+            {
+                matcher = SelectorCompiler.compile(matcher);
+            }
+            MATCHER_CACHE.put(selector, matcher);
+        }
+        _matcher = matcher;
     }
 
     @Override
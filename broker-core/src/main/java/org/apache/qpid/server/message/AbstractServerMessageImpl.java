@@ -29,6 +29,7 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.model.NamedAddressSpace;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
@@ -43,11 +44,18 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
     private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, Collection> _resourcesUpdater =
             AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, Collection.class,"_resources");
 
+    private static final AtomicReferenceFieldUpdater<AbstractServerMessageImpl, ConvertedMessage[]> _convertedMessagesUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractServerMessageImpl.class, ConvertedMessage[].class, "_convertedMessages");
+
+    /** One conversion per target protocol is all that is ever expected */
+    private static final int MAX_CONVERTED_MESSAGES = 4;
+
 
     private volatile int _referenceCount = 0;
     private final StoredMessage<T> _handle;
     private final Object _connectionReference;
     private volatile Collection<UUID> _resources;
+    private volatile ConvertedMessage[] _convertedMessages;
 
 
     public AbstractServerMessageImpl(StoredMessage<T> handle, Object connectionReference)
@@ -102,6 +110,7 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
                 updated = _refCountUpdater.compareAndSet(this, count, -1);
                 if (updated)
                 {
+                    _convertedMessages = null;
                     // must check if the handle is null since there may be cases where we decide to throw away a message
                     // and the handle has not yet been constructed
                     if (_handle != null)
@@ -155,6 +164,19 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
         return resources != null && !resources.isEmpty();
     }
 
+    /**
+     * @return true if the only outstanding reference to this message is a single one held on behalf of the given
+     * resource
+     */
+    final public boolean isReferencedOnlyBy(TransactionLogResource resource)
+    {
+        Collection<UUID> resources = _resources;
+        return _referenceCount == 1
+               && resources != null
+               && resources.size() == 1
+               && resources.contains(resource.getId());
+    }
+
     @Override
     final public boolean isPersistent()
     {
@@ -188,11 +210,124 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
     final public Object getConnectionReference()
     {
         return _connectionReference;
+    }
+
+    /**
+     * Returns a previously cached conversion of this message to the given class, or null if there is none.  The
+     * cache is discarded if the message content has since been flowed to disk.
+     */
+    final public <N extends ServerMessage<?>> N getConvertedMessage(Class<N> targetClass,
+                                                                    NamedAddressSpace addressSpace)
+    {
+        ConvertedMessage[] convertedMessages = _convertedMessages;
+        if (convertedMessages != null)
+        {
+            if (!getStoredMessage().isInMemory())
+            {
+                _convertedMessagesUpdater.compareAndSet(this, convertedMessages, null);
+                return null;
+            }
+            for (ConvertedMessage convertedMessage : convertedMessages)
+            {
+                if (convertedMessage.matches(targetClass, addressSpace))
+                {
+                    return targetClass.cast(convertedMessage.getMessage());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops all cached conversions of this message, so that they do not keep a copy of the content on the heap once
+     * the message itself has been flowed to disk.
+     */
+    final public void discardConvertedMessages()
+    {
+        _convertedMessages = null;
+    }
+
+    /**
+     * Caches a conversion of this message so that it can be shared by all consumers requiring the same target class.
+     * The cache only lives while the message is referenced, and is not populated when the message content is not in
+     * memory, as the conversion would otherwise pin a copy of the content on the heap.
+     *
+     * @return the conversion to use, which is a previously cached conversion if another thread won the race to
+     * convert the message
+     */
+    final public <N extends ServerMessage<?>> N cacheConvertedMessage(Class<N> targetClass,
+                                                                      NamedAddressSpace addressSpace,
+                                                                      N message)
+    {
+        ConvertedMessage[] currentValue;
+        ConvertedMessage[] newValue;
+        do
+        {
+            if (_referenceCount <= 0 || !getStoredMessage().isInMemory())
+            {
+                return message;
+            }
+            currentValue = _convertedMessages;
+            if (currentValue == null)
+            {
+                newValue = new ConvertedMessage[] { new ConvertedMessage(targetClass, addressSpace, message) };
+            }
+            else
+            {
+                for (ConvertedMessage convertedMessage : currentValue)
+                {
+                    if (convertedMessage.matches(targetClass, addressSpace))
+                    {
+                        return targetClass.cast(convertedMessage.getMessage());
+                    }
+                }
+                if (currentValue.length >= MAX_CONVERTED_MESSAGES)
+                {
+                    return message;
+                }
+                newValue = Arrays.copyOf(currentValue, currentValue.length + 1);
+                newValue[currentValue.length] = new ConvertedMessage(targetClass, addressSpace, message);
+            }
+        }
+        while (!_convertedMessagesUpdater.compareAndSet(this, currentValue, newValue));
+
+        if (_referenceCount < 0)
+        {
+            // deleted while caching
+            _convertedMessages = null;
+        }
+        return message;
     }public String toString()
     {
         return "Message[" + debugIdentity() + "]";
     }
 
+    private static final class ConvertedMessage
+    {
+        private final Class<?> _targetClass;
+        private final NamedAddressSpace _addressSpace;
+        private final ServerMessage<?> _message;
+
+        private ConvertedMessage(final Class<?> targetClass,
+                                 final NamedAddressSpace addressSpace,
+                                 final ServerMessage<?> message)
+        {
+            _targetClass = targetClass;
+            _addressSpace = addressSpace;
+            _message = message;
+        }
+
+        private boolean matches(final Class<?> targetClass, final NamedAddressSpace addressSpace)
+        {
+            return _targetClass == targetClass && _addressSpace == addressSpace;
+        }
+
+        private ServerMessage<?> getMessage()
+        {
+            return _message;
+        }
+    }
+
     private static class Reference<X extends AbstractServerMessageImpl<X,T>, T extends StorableMessageMetaData>
             implements MessageReference<X>
     {
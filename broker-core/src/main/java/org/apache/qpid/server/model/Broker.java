@@ -249,6 +249,36 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
                       description = "Number of objects pending finalization")
     int getNumberOfObjectsPendingFinalization();
 
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+                      units = StatisticUnit.COUNT,
+                      label = "Number Of Pooled Buffers",
+                      description = "Number of network buffers held in the buffer pool awaiting reuse")
+    long getNumberOfPooledBuffers();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE,
+                      units = StatisticUnit.COUNT,
+                      label = "Buffer Pool Hits",
+                      description = "Number of network buffer allocations satisfied from the buffer pool")
+    long getBufferPoolHits();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE,
+                      units = StatisticUnit.COUNT,
+                      label = "Buffer Pool Misses",
+                      description = "Number of network buffer allocations that required new direct memory")
+    long getBufferPoolMisses();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+                      units = StatisticUnit.BYTES,
+                      label = "Buffer Pool Direct Memory Size",
+                      description = "Size of direct memory held by network buffers, whether in use or pooled")
+    long getBufferPoolDirectMemorySize();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+                      units = StatisticUnit.BYTES,
+                      label = "Buffer Pool Direct Memory High Water Mark",
+                      description = "Maximum size of direct memory held by network buffers")
+    long getBufferPoolDirectMemorySizeHighWaterMark();
+
     @ManagedOperation(nonModifying = true,
             description = "Initiates garbage collection",
             changesConfiguredObjectState = false)
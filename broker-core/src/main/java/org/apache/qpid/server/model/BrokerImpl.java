@@ -956,6 +956,36 @@ public class BrokerImpl extends AbstractContainer<BrokerImpl> implements Broker<
         return _networkBufferSize;
     }
 
+    @Override
+    public long getNumberOfPooledBuffers()
+    {
+        return QpidByteBuffer.getNumberOfPooledBuffers();
+    }
+
+    @Override
+    public long getBufferPoolHits()
+    {
+        return QpidByteBuffer.getPoolHitCount();
+    }
+
+    @Override
+    public long getBufferPoolMisses()
+    {
+        return QpidByteBuffer.getPoolMissCount();
+    }
+
+    @Override
+    public long getBufferPoolDirectMemorySize()
+    {
+        return QpidByteBuffer.getAllocatedDirectMemorySize();
+    }
+
+    @Override
+    public long getBufferPoolDirectMemorySizeHighWaterMark()
+    {
+        return QpidByteBuffer.getMaximumAllocatedDirectMemorySize();
+    }
+
     public String getDocumentationUrl()
     {
         return _documentationUrl;
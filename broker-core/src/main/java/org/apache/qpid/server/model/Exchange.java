@@ -73,6 +73,12 @@ public interface Exchange<X extends Exchange<X>> extends ConfiguredObject<X>, Me
     @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Inbound")
     long getMessagesIn();
 
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Routing Cache Hits")
+    long getRoutingCacheHits();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Routing Cache Misses")
+    long getRoutingCacheMisses();
+
 
     //operations
     Binding createBinding(String bindingKey,
@@ -94,6 +94,42 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedContextDefault(name = MAX_ASYNCHRONOUS_DELIVERIES )
     int DEFAULT_MAX_ASYNCHRONOUS_DELIVERIES = 80;
 
+    String DELIVERY_RUNNERS = "queue.deliveryRunners";
+    @ManagedContextDefault(name = DELIVERY_RUNNERS,
+            description = "The number of runners performing asynchronous delivery to the consumers of a queue. Each"
+                          + " consumer is assigned to one runner, so values greater than one allow delivery to many"
+                          + " consumers to proceed in parallel. Partitioned queues use at least one runner per"
+                          + " partition. Queues using message groups always use one runner.")
+    int DEFAULT_DELIVERY_RUNNERS = 1;
+
+    String COMPACT_ENTRIES_THRESHOLD = "queue.compactEntriesThreshold";
+    @ManagedContextDefault(name = COMPACT_ENTRIES_THRESHOLD,
+            description = "The number of entries a standard queue keeps in full form beyond the position of its"
+                          + " furthest consumer. Entries further back than this are held in compacted segments and"
+                          + " their messages reloaded from the store when a consumer reaches them. Zero disables"
+                          + " compaction.")
+    int DEFAULT_COMPACT_ENTRIES_THRESHOLD = 0;
+
+    String ADAPTIVE_CREDIT_ENABLED = "queue.adaptiveCredit.enabled";
+    @ManagedContextDefault(name = ADAPTIVE_CREDIT_ENABLED,
+            description = "If true, the number of messages each consumer of the queue may hold unacknowledged is"
+                          + " capped at an estimate of what the consumer can process within one round trip, derived"
+                          + " from its observed acknowledgement rate and latency, regardless of the prefetch"
+                          + " requested by the client.")
+    boolean DEFAULT_ADAPTIVE_CREDIT_ENABLED = false;
+
+    String ADAPTIVE_CREDIT_MINIMUM = "queue.adaptiveCredit.minimum";
+    @ManagedContextDefault(name = ADAPTIVE_CREDIT_MINIMUM,
+            description = "The number of unacknowledged messages a consumer may always hold when adaptive credit is"
+                          + " enabled.")
+    int DEFAULT_ADAPTIVE_CREDIT_MINIMUM = 10;
+
+    String ADAPTIVE_CREDIT_HEADROOM_PERCENT = "queue.adaptiveCredit.headroomPercent";
+    @ManagedContextDefault(name = ADAPTIVE_CREDIT_HEADROOM_PERCENT,
+            description = "The cap on unacknowledged messages applied by adaptive credit, as a percentage of the"
+                          + " consumer's estimated bandwidth-delay product.")
+    int DEFAULT_ADAPTIVE_CREDIT_HEADROOM_PERCENT = 200;
+
     String MIME_TYPE_TO_FILE_EXTENSION = "qpid.mimeTypeToFileExtension";
     @SuppressWarnings("unused")
     @ManagedContextDefault(name = MIME_TYPE_TO_FILE_EXTENSION, description = "A mapping of MIME types to file extensions.")
@@ -171,6 +207,10 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @DerivedAttribute
     boolean isQueueFlowStopped();
 
+    @DerivedAttribute( description = "True whilst messages of this queue are still being recovered from the message "
+                                     + "store. Messages arriving meanwhile are held until recovery completes.")
+    boolean isRecovering();
+
     @ManagedContextDefault( name = "queue.alertThresholdMessageAge")
     long DEFAULT_ALERT_THRESHOLD_MESSAGE_AGE = 0l;
 
@@ -259,6 +299,18 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Consumers with credit")
     int getConsumerCountWithCredit();
 
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Message Groups")
+    int getMessageGroupCount();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Message Group Assignments")
+    long getMessageGroupAssignments();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Recovered")
+    long getRecoveredMessages();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MESSAGES, label = "Held Until Recovered")
+    int getHeldUntilRecoveredMessages();
+
     @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.BYTES, label = "Delivered (Persistent)")
     long getPersistentDequeuedBytes();
 
@@ -92,6 +92,21 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     @ManagedContextDefault(name = PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE)
     long DEFAULT_PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE = 1024 * 1024;
 
+    String PORT_AMQP_WRITE_BATCH_SIZE = "qpid.port.amqp.writeBatchSize";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_WRITE_BATCH_SIZE,
+                           description = "Number of bytes of encoded frames a connection accumulates whilst processing"
+                                         + " pending work before they are written to the network in a single"
+                                         + " gathering write.")
+    int DEFAULT_PORT_AMQP_WRITE_BATCH_SIZE = 256 * 1024;
+
+    String PORT_AMQP_WRITE_BATCH_LATENCY = "qpid.port.amqp.writeBatchLatency";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_WRITE_BATCH_LATENCY,
+                           description = "Maximum time in microseconds that encoded frames may be held back whilst a"
+                                         + " connection accumulates a write batch. Zero or less disables the bound.")
+    long DEFAULT_PORT_AMQP_WRITE_BATCH_LATENCY = 1000;
+
 
     String PROTOCOL_HANDSHAKE_TIMEOUT = "qpid.port.protocol_handshake_timeout";
 
@@ -23,9 +23,14 @@ package org.apache.qpid.server.protocol;
 
 import java.util.HashMap;
 import java.util.Map;
+
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.NamedAddressSpace;
 import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.plugin.QpidServiceLoader;
+import org.apache.qpid.server.util.ServerScopedRuntimeException;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
 
 public class MessageConverterRegistry
 {
@@ -56,4 +61,44 @@ public class MessageConverterRegistry
         }
         return map == null ? null : map.get(to);
     }
+
+    /**
+     * Converts the message for delivery, reusing the conversion made for an earlier delivery of the same message to
+     * the same target class where there is one, so that fanning a message out to many consumers of another protocol
+     * converts it only once.  Converted messages are shared and must be treated as read-only.
+     */
+    public static <N extends ServerMessage<?>> N convert(ServerMessage<?> message,
+                                                         Class<N> to,
+                                                         NamedAddressSpace addressSpace)
+    {
+        AbstractServerMessageImpl<?, ?> cachingMessage =
+                message instanceof AbstractServerMessageImpl ? (AbstractServerMessageImpl<?, ?>) message : null;
+        if (cachingMessage != null)
+        {
+            N converted = cachingMessage.getConvertedMessage(to, addressSpace);
+            if (converted != null)
+            {
+                registerConversion(addressSpace, true);
+                return converted;
+            }
+        }
+
+        MessageConverter converter = getConverter(message.getClass(), to);
+        if (converter == null)
+        {
+            throw new ServerScopedRuntimeException("No message converter from " + message.getClass().getSimpleName()
+                                                   + " to " + to.getSimpleName());
+        }
+        N converted = to.cast(converter.convert(message, addressSpace));
+        registerConversion(addressSpace, false);
+        return cachingMessage == null ? converted : cachingMessage.cacheConvertedMessage(to, addressSpace, converted);
+    }
+
+    private static void registerConversion(final NamedAddressSpace addressSpace, final boolean cached)
+    {
+        if (addressSpace instanceof QueueManagingVirtualHost)
+        {
+            ((QueueManagingVirtualHost<?>) addressSpace).registerMessageConversion(cached);
+        }
+    }
 }
@@ -82,6 +82,7 @@ import org.apache.qpid.server.logging.LogMessage;
 import org.apache.qpid.server.logging.LogSubject;
 import org.apache.qpid.server.logging.messages.QueueMessages;
 import org.apache.qpid.server.logging.subjects.QueueLogSubject;
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageDeletedException;
 import org.apache.qpid.server.message.MessageInfo;
@@ -247,6 +248,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     private final AtomicBoolean _overfull = new AtomicBoolean(false);
     private final FlowToDiskChecker _flowToDiskChecker = new FlowToDiskChecker();
+    private final QueueEntryExpiryIndex _expiryIndex = new QueueEntryExpiryIndex();
     private final CopyOnWriteArrayList<Binding<?>> _bindings = new CopyOnWriteArrayList<>();
     private Map<String, Object> _arguments;
 
@@ -285,8 +287,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     private final AtomicInteger _enqueuingWhileRecovering = new AtomicInteger(0);
 
     private final ConcurrentLinkedQueue<EnqueueRequest> _postRecoveryQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _postRecoveryQueueSize = new AtomicInteger();
+    private final AtomicLong _recoveredMessages = new AtomicLong();
 
     private final QueueRunner _queueRunner;
+    private volatile QueueRunner[] _queueRunners;
     private boolean _closing;
     private final ConcurrentMap<String, Callable<MessageFilter>> _defaultFiltersMap = new ConcurrentHashMap<>();
     private final List<HoldMethod> _holdMethods = new CopyOnWriteArrayList<>();
@@ -308,6 +313,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
         _queueRunner = new QueueRunner(this, getSystemTaskControllerContext("Queue Delivery",
                                                                             virtualHost.getPrincipal()));
+        _queueRunners = new QueueRunner[] { _queueRunner };
     }
 
     @Override
@@ -497,6 +503,21 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
         _estimatedAverageMessageHeaderSize = getContextValue(Long.class, QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD);
         _maxAsyncDeliveries = getContextValue(Integer.class, Queue.MAX_ASYNCHRONOUS_DELIVERIES);
+
+        final int deliveryRunners = getDeliveryRunnerCount();
+        if (deliveryRunners > 1 && _messageGroupManager == null)
+        {
+            final QueueRunner[] queueRunners = new QueueRunner[deliveryRunners];
+            queueRunners[0] = _queueRunner;
+            for (int i = 1; i < deliveryRunners; i++)
+            {
+                queueRunners[i] = new QueueRunner(this,
+                                                  getSystemTaskControllerContext("Queue Delivery",
+                                                                                 _virtualHost.getPrincipal()),
+                                                  i);
+            }
+            _queueRunners = queueRunners;
+        }
         _mimeTypeToFileExtension = getContextValue(Map.class, MAP_OF_STRING_STRING, MIME_TYPE_TO_FILE_EXTENSION);
 
         if(_defaultFilters != null)
@@ -935,13 +956,14 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
         consumer.setStateListener(this);
         QueueContext queueContext;
+        final QueueRunner queueRunner = assignQueueRunner();
         if(filters == null || !filters.startAtTail())
         {
-            queueContext = new QueueContext(getEntries().getHead());
+            queueContext = createQueueContext(getEntries().getHead(), queueRunner);
         }
         else
         {
-            queueContext = new QueueContext(getEntries().getTail());
+            queueContext = createQueueContext(getEntries().getTail(), queueRunner);
         }
         consumer.setQueueContext(queueContext);
 
@@ -978,6 +1000,48 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         return consumer;
     }
 
+    QueueContext createQueueContext(final QueueEntry lastSeenEntry, final QueueRunner queueRunner)
+    {
+        return new QueueContext(lastSeenEntry, queueRunner);
+    }
+
+    /**
+     * @return the entry following the last seen by the consumer with the given context, which may or may not be
+     * available to it
+     */
+    QueueEntry nextEntry(final QueueContext context, final QueueEntry lastSeen)
+    {
+        return getEntries().next(lastSeen);
+    }
+
+    /**
+     * @return the number of runners to perform asynchronous delivery to the consumers of this queue, ignored if the
+     * queue uses message groups
+     */
+    protected int getDeliveryRunnerCount()
+    {
+        return getContextValue(Integer.class, Queue.DELIVERY_RUNNERS);
+    }
+
+    /**
+     * Picks the runner which will perform asynchronous delivery to a new consumer, balancing consumers across the
+     * runners by choosing the one currently serving the fewest.
+     */
+    private QueueRunner assignQueueRunner()
+    {
+        final QueueRunner[] queueRunners = _queueRunners;
+        QueueRunner selected = queueRunners[0];
+        for (int i = 1; i < queueRunners.length; i++)
+        {
+            if (queueRunners[i].getConsumerCount() < selected.getConsumerCount())
+            {
+                selected = queueRunners[i];
+            }
+        }
+        selected.consumerAssigned();
+        return selected;
+    }
+
     @Override
     protected ListenableFuture<Void> beforeClose()
     {
@@ -1002,6 +1066,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             // No longer can the queue have an exclusive consumer
             setExclusiveSubscriber(null);
 
+            final QueueContext queueContext = consumer.getQueueContext();
+            if (queueContext != null && queueContext.getQueueRunner() != null)
+            {
+                queueContext.getQueueRunner().consumerUnassigned();
+            }
             consumer.setQueueContext(null);
 
             if(_exclusive == ExclusivityPolicy.LINK)
@@ -1155,6 +1224,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 if(addedToRecoveryQueue = (_recovering.get() == RECOVERING))
                 {
                     _postRecoveryQueue.add(new EnqueueRequest(message, action, enqueueRecord));
+                    _postRecoveryQueueSize.incrementAndGet();
                 }
             }
             finally
@@ -1177,7 +1247,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
 
         long estimatedQueueSize = _atomicQueueSize.get() + _atomicQueueCount.get() * _estimatedAverageMessageHeaderSize;
-        _flowToDiskChecker.flowToDiskAndReportIfNecessary(message.getStoredMessage(), estimatedQueueSize,
+        _flowToDiskChecker.flowToDiskAndReportIfNecessary(message, estimatedQueueSize,
                                                           _targetQueueSize.get());
     }
 
@@ -1187,6 +1257,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         incrementQueueSize(message);
 
         _totalMessagesReceived.incrementAndGet();
+        _recoveredMessages.incrementAndGet();
 
         doEnqueue(message, null, enqueueRecord);
     }
@@ -1218,6 +1289,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         while(!_postRecoveryQueue.isEmpty())
         {
             EnqueueRequest request = _postRecoveryQueue.poll();
+            _postRecoveryQueueSize.decrementAndGet();
             MessageReference<?> messageReference = request.getMessage();
             doEnqueue(messageReference.getMessage(), request.getAction(), request.getEnqueueRecord());
             messageReference.release();
@@ -1229,10 +1301,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         final QueueConsumer<?> exclusiveSub = _exclusiveSubscriber;
         final QueueEntry entry = getEntries().add(message, enqueueRecord);
         updateExpiration(entry);
+        _expiryIndex.add(entry);
 
         try
         {
-            if (action != null || (exclusiveSub == null  && _queueRunner.isIdle()))
+            if (action != null || (exclusiveSub == null  && areQueueRunnersIdle()))
             {
                 AccessController.doPrivileged(
                         new PrivilegedAction<Void>()
@@ -1250,7 +1323,10 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             {
                 checkConsumersNotAheadOfDelivery(entry);
                 notifyPullOnlyConsumers();
-                deliverAsync();
+                if (!EnqueueBatch.deferDelivery(this))
+                {
+                    deliverAsync();
+                }
             }
 
             checkForNotificationOnNewMessage(entry.getMessage());
@@ -1551,6 +1627,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     @Override
     public void dequeue(QueueEntry entry)
     {
+        _expiryIndex.remove(entry);
         decrementQueueCount();
         decrementQueueSize(entry);
         if (entry.acquiredByConsumer())
@@ -1617,6 +1694,38 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         return _activeSubscriberCount.get();
     }
 
+    @Override
+    public int getMessageGroupCount()
+    {
+        MessageGroupManager messageGroupManager = _messageGroupManager;
+        return messageGroupManager == null ? 0 : messageGroupManager.getGroupCount();
+    }
+
+    @Override
+    public long getMessageGroupAssignments()
+    {
+        MessageGroupManager messageGroupManager = _messageGroupManager;
+        return messageGroupManager == null ? 0L : messageGroupManager.getGroupAssignmentCount();
+    }
+
+    @Override
+    public long getRecoveredMessages()
+    {
+        return _recoveredMessages.get();
+    }
+
+    @Override
+    public int getHeldUntilRecoveredMessages()
+    {
+        return _postRecoveryQueueSize.get();
+    }
+
+    @Override
+    public boolean isRecovering()
+    {
+        return _recovering.get() != RECOVERED;
+    }
+
     public boolean isUnused()
     {
         return getConsumerCount() == 0;
@@ -1746,7 +1855,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             }
             if(!sub.isPullOnly())
             {
-                deliverAsync();
+                deliverAsync(sub);
             }
         }
     }
@@ -1784,6 +1893,14 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     /** Used to track bindings to exchanges so that on deletion they can easily be cancelled. */
     abstract QueueEntryList getEntries();
 
+    /**
+     * @return the iterator used by {@link #checkMessageStatus()} to visit every entry of the queue
+     */
+    QueueEntryIterator getHousekeepingIterator()
+    {
+        return getEntries().iterator();
+    }
+
     protected QueueConsumerList getConsumerList()
     {
         return _consumerList;
@@ -2166,10 +2283,54 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     {
         _stateChangeCount.incrementAndGet();
 
-        _queueRunner.execute();
+        for (QueueRunner queueRunner : _queueRunners)
+        {
+            queueRunner.execute();
+        }
 
     }
 
+    /**
+     * Schedules asynchronous delivery for the runner serving the given consumer only, used when a change in the
+     * state of one consumer (rather than of the queue) may allow delivery to progress.
+     */
+    private void deliverAsync(QueueConsumer<?> sub)
+    {
+        final QueueContext context = sub.getQueueContext();
+        final QueueRunner queueRunner = context == null ? null : context.getQueueRunner();
+        if (queueRunner == null || _queueRunners.length == 1)
+        {
+            deliverAsync();
+        }
+        else
+        {
+            _stateChangeCount.incrementAndGet();
+            queueRunner.execute();
+        }
+    }
+
+    private boolean areQueueRunnersIdle()
+    {
+        for (QueueRunner queueRunner : _queueRunners)
+        {
+            if (!queueRunner.isIdle())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isServedBy(final QueueConsumer<?> sub, final QueueRunner runner)
+    {
+        if (_queueRunners.length == 1)
+        {
+            return true;
+        }
+        final QueueContext context = sub.getQueueContext();
+        return context != null && context.getQueueRunner() == runner;
+    }
+
     void notifyPullOnlyConsumers()
     {
         if(_hasPullOnlyConsumers)
@@ -2385,8 +2546,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             QueueEntry lastSeen = context.getLastSeenEntry();
             QueueEntry releasedNode = context.getReleasedEntry();
 
-            QueueEntry node = (releasedNode != null && lastSeen.compareTo(releasedNode)>=0) ? releasedNode : getEntries()
-                    .next(lastSeen);
+            QueueEntry node = (releasedNode != null && lastSeen.compareTo(releasedNode)>=0) ? releasedNode : nextEntry(
+                    context, lastSeen);
 
             boolean expired = false;
             while (node != null && (!node.isAvailable() || (expired = node.expired()) || !sub.hasInterest(node) ||
@@ -2408,8 +2569,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
                 lastSeen = context.getLastSeenEntry();
                 releasedNode = context.getReleasedEntry();
-                node = (releasedNode != null && lastSeen.compareTo(releasedNode)>=0) ? releasedNode : getEntries().next(
-                        lastSeen);
+                node = (releasedNode != null && lastSeen.compareTo(releasedNode)>=0) ? releasedNode : nextEntry(
+                        context, lastSeen);
             }
             return node;
         }
@@ -2459,6 +2620,9 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
      * processQueue job stops iterating, resubmits itself to the executor, and
      * ends the current instance
      *
+     * When the queue has more than one runner each runner only attempts delivery
+     * to the consumers assigned to it, with its own budget of iterations.
+     *
      * @param runner the Runner to schedule
      */
     public long processQueue(QueueRunner runner)
@@ -2471,7 +2635,8 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         boolean lastLoop = false;
         int iterations = getMaxAsyncDeliveries();
 
-        final int numSubs = _consumerList.size();
+        final boolean singleRunner = _queueRunners.length == 1;
+        final int numSubs = singleRunner ? _consumerList.size() : runner.getConsumerCount();
 
         final int perSub = Math.max(iterations / Math.max(numSubs,1), 1);
 
@@ -2505,7 +2670,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
                 QueueConsumer<?> sub = consumerNodeIterator.getNode().getConsumer();
 
-                if(!sub.isPullOnly())
+                if(!sub.isPullOnly() && isServedBy(sub, runner))
                 {
                     sub.getSendLock();
 
@@ -2560,7 +2725,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                 //All consumers reported being done, but we have to do
                 //an extra loop if the iterations are not exhausted and
                 //there is still any work to be done
-                deliveryIncomplete = _consumerList.size() != 0;
+                deliveryIncomplete = (singleRunner ? _consumerList.size() : runner.getConsumerCount()) != 0;
                 lastLoop = true;
             }
             else
@@ -2586,10 +2751,9 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     public void checkMessageStatus()
     {
-        QueueEntryIterator queueListIterator = getEntries().iterator();
-
         final long estimatedQueueSize = _atomicQueueSize.get() + _atomicQueueCount.get() * _estimatedAverageMessageHeaderSize;
-        _flowToDiskChecker.reportFlowToDiskStatusIfNecessary(estimatedQueueSize, _targetQueueSize.get());
+        final long targetQueueSize = _targetQueueSize.get();
+        _flowToDiskChecker.reportFlowToDiskStatusIfNecessary(estimatedQueueSize, targetQueueSize);
 
         final Set<NotificationCheck> perMessageChecks = new HashSet<>();
         final Set<NotificationCheck> queueLevelChecks = new HashSet<>();
@@ -2609,50 +2773,60 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         final long currentTime = System.currentTimeMillis();
         final long thresholdTime = currentTime - getAlertRepeatGap();
 
-        long cumulativeQueueSize = 0;
-        while (!_stopped.get() && queueListIterator.advance())
+        for (QueueEntry node : _expiryIndex.removeExpired(currentTime))
         {
-            final QueueEntry node = queueListIterator.getNode();
-            // Only process nodes that are not currently deleted and not dequeued
-            if (!node.isDeleted())
+            if (_stopped.get())
             {
-                // If the node has expired then acquire it
-                if (node.expired())
-                {
-                    boolean acquiredForDequeueing = node.acquireOrSteal(new Runnable()
-                    {
-                        @Override
-                        public void run()
-                        {
-                            dequeueEntry(node);
-                        }
-                    });
+                break;
+            }
+            expireEntry(node);
+        }
 
-                    if(acquiredForDequeueing)
+        // The remaining checks need to visit every entry, so the queue is only walked when one of them applies
+        if (!perMessageChecks.isEmpty() || !_holdMethods.isEmpty() || estimatedQueueSize > targetQueueSize)
+        {
+            QueueEntryIterator queueListIterator = getHousekeepingIterator();
+            long cumulativeQueueSize = 0;
+            while (!_stopped.get() && queueListIterator.advance())
+            {
+                final QueueEntry node = queueListIterator.getNode();
+                if (node instanceof CompactedQueueEntrySegment)
+                {
+                    // the messages of a compacted segment are already flowed to disk where possible
+                    final CompactedQueueEntrySegment segment = (CompactedQueueEntrySegment) node;
+                    if (!segment.isExpanded())
                     {
-                        _logger.debug("Dequeuing expired node {}", node);
-                        // Then dequeue it.
-                        dequeueEntry(node);
+                        cumulativeQueueSize += segment.getCompactedSize()
+                                               + segment.getCompactedCount() * _estimatedAverageMessageHeaderSize;
                     }
                 }
-                else
+                // Only process nodes that are not currently deleted and not dequeued
+                else if (!node.isDeleted())
                 {
-                    node.checkHeld(currentTime);
-
-                    // There is a chance that the node could be deleted by
-                    // the time the check actually occurs. So verify we
-                    // can actually get the message to perform the check.
-                    ServerMessage msg = node.getMessage();
-
-                    if (msg != null)
+                    // If the node has expired then acquire it
+                    if (node.expired())
+                    {
+                        expireEntry(node);
+                    }
+                    else
                     {
-                        cumulativeQueueSize += msg.getSize() + _estimatedAverageMessageHeaderSize;
-                        _flowToDiskChecker.flowToDiskIfNecessary(msg.getStoredMessage(), cumulativeQueueSize,
-                                                                 _targetQueueSize.get());
+                        node.checkHeld(currentTime);
 
-                        for(NotificationCheck check : perMessageChecks)
+                        // There is a chance that the node could be deleted by
+                        // the time the check actually occurs. So verify we
+                        // can actually get the message to perform the check.
+                        ServerMessage msg = node.getMessage();
+
+                        if (msg != null)
                         {
-                            checkForNotification(msg, listener, currentTime, thresholdTime, check);
+                            cumulativeQueueSize += msg.getSize() + _estimatedAverageMessageHeaderSize;
+                            _flowToDiskChecker.flowToDiskIfNecessary(msg, cumulativeQueueSize,
+                                                                     targetQueueSize);
+
+                            for(NotificationCheck check : perMessageChecks)
+                            {
+                                checkForNotification(msg, listener, currentTime, thresholdTime, check);
+                            }
                         }
                     }
                 }
@@ -2666,6 +2840,25 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     }
 
+    private void expireEntry(final QueueEntry node)
+    {
+        boolean acquiredForDequeueing = node.acquireOrSteal(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                dequeueEntry(node);
+            }
+        });
+
+        if(acquiredForDequeueing)
+        {
+            _logger.debug("Dequeuing expired node {}", node);
+            // Then dequeue it.
+            dequeueEntry(node);
+        }
+    }
+
     @Override
     public long getPotentialMemoryFootprint()
     {
@@ -3850,19 +4043,24 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     {
         final AtomicBoolean _lastReportedFlowToDiskStatus = new AtomicBoolean(false);
 
-        void flowToDiskIfNecessary(StoredMessage<?> storedMessage, long estimatedQueueSize, final long targetQueueSize)
+        void flowToDiskIfNecessary(ServerMessage<?> message, long estimatedQueueSize, final long targetQueueSize)
         {
+            StoredMessage<?> storedMessage = message.getStoredMessage();
             if ((estimatedQueueSize > targetQueueSize) && storedMessage.isInMemory())
             {
                 storedMessage.flowToDisk();
+                if (message instanceof AbstractServerMessageImpl)
+                {
+                    ((AbstractServerMessageImpl<?, ?>) message).discardConvertedMessages();
+                }
             }
         }
 
-        void flowToDiskAndReportIfNecessary(StoredMessage<?> storedMessage,
+        void flowToDiskAndReportIfNecessary(ServerMessage<?> message,
                                             final long estimatedQueueSize,
                                             final long targetQueueSize)
         {
-            flowToDiskIfNecessary(storedMessage, estimatedQueueSize, targetQueueSize);
+            flowToDiskIfNecessary(message, estimatedQueueSize, targetQueueSize);
             reportFlowToDiskStatusIfNecessary(estimatedQueueSize, targetQueueSize);
         }
 
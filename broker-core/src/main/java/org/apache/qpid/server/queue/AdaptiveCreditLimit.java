@@ -0,0 +1,195 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Caps the number of messages a consumer may hold unacknowledged at an estimate of its bandwidth-delay product: the
+ * rate at which the consumer acknowledges messages multiplied by the shortest recently observed time between sending
+ * a message and its acknowledgement, plus some headroom.  A consumer which processes messages slowly is therefore not
+ * sent more than it can work through in about one round trip, however large the prefetch its client asked for, leaving
+ * the remaining messages available to the other consumers of the queue.
+ * <p>
+ * Round trip times are sampled by timing one outstanding message at a time, and only for a message sent when no more
+ * than the minimum credit is in flight: a message sent behind a full window would time the consumer working through
+ * the window as well, and the limit would ratchet upwards.  Once the shortest round trip has not been confirmed for a
+ * while, the consumer is held to the minimum credit until a fresh sample has been taken.
+ */
+final class AdaptiveCreditLimit
+{
+    private static final long RATE_WINDOW_NANOS = 100000000L;
+    private static final long IDLE_WINDOW_NANOS = 10 * RATE_WINDOW_NANOS;
+    private static final long MINIMUM_ROUND_TRIP_EXPIRY_NANOS = 10000000000L;
+
+    private static final AtomicIntegerFieldUpdater<AdaptiveCreditLimit> _inFlightUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(AdaptiveCreditLimit.class, "_inFlight");
+    private static final AtomicReferenceFieldUpdater<AdaptiveCreditLimit, QueueEntry> _probeUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AdaptiveCreditLimit.class, QueueEntry.class, "_probe");
+
+    private final int _minimumCredit;
+    private final int _headroomPercent;
+    private final long _minimumRoundTripExpiryNanos;
+    private final AtomicLong _acknowledgedInWindow = new AtomicLong();
+    private final AtomicLong _windowStart = new AtomicLong(System.nanoTime());
+
+    private volatile int _inFlight;
+    private volatile int _limit;
+    private volatile double _acknowledgementsPerNano;
+
+    private volatile QueueEntry _probe;
+    private volatile long _probeSentTime;
+
+    private volatile long _minimumRoundTrip = -1L;
+    private volatile long _minimumRoundTripTime;
+    private volatile boolean _drainingForProbe;
+
+    AdaptiveCreditLimit(final int minimumCredit, final int headroomPercent)
+    {
+        this(minimumCredit, headroomPercent, MINIMUM_ROUND_TRIP_EXPIRY_NANOS);
+    }
+
+    AdaptiveCreditLimit(final int minimumCredit, final int headroomPercent, final long minimumRoundTripExpiryNanos)
+    {
+        _minimumCredit = Math.max(1, minimumCredit);
+        _headroomPercent = Math.max(100, headroomPercent);
+        _minimumRoundTripExpiryNanos = minimumRoundTripExpiryNanos;
+        _limit = _minimumCredit;
+    }
+
+    boolean isLimited()
+    {
+        return _inFlight >= (_drainingForProbe ? _minimumCredit : _limit);
+    }
+
+    int getLimit()
+    {
+        return _limit;
+    }
+
+    int getInFlight()
+    {
+        return _inFlight;
+    }
+
+    void sent(final QueueEntry entry)
+    {
+        final int inFlight = _inFlightUpdater.incrementAndGet(this);
+        if (_probe == null && inFlight <= _minimumCredit)
+        {
+            final long now = System.nanoTime();
+            if (_probeUpdater.compareAndSet(this, null, entry))
+            {
+                _probeSentTime = now;
+            }
+        }
+    }
+
+    /**
+     * @return true if settling the entry lifted the limit
+     */
+    boolean settled(final QueueEntry entry, final boolean acknowledged)
+    {
+        final boolean wasLimited = isLimited();
+        int inFlight;
+        do
+        {
+            inFlight = _inFlight;
+        }
+        while (inFlight > 0 && !_inFlightUpdater.compareAndSet(this, inFlight, inFlight - 1));
+
+        final long now = System.nanoTime();
+        if (_probe == entry)
+        {
+            final long sentTime = _probeSentTime;
+            if (_probeUpdater.compareAndSet(this, entry, null) && acknowledged)
+            {
+                roundTripSampled(now - sentTime, now);
+            }
+        }
+
+        if (!_drainingForProbe
+            && _minimumRoundTrip >= 0L
+            && now - _minimumRoundTripTime > _minimumRoundTripExpiryNanos)
+        {
+            _drainingForProbe = true;
+        }
+
+        if (acknowledged)
+        {
+            _acknowledgedInWindow.incrementAndGet();
+            final long windowStart = _windowStart.get();
+            final long elapsed = now - windowStart;
+            if (elapsed >= RATE_WINDOW_NANOS && _windowStart.compareAndSet(windowStart, now))
+            {
+                final long acknowledgements = _acknowledgedInWindow.getAndSet(0L);
+                // a window spanning a period the consumer was idle says nothing about the rate it can sustain
+                if (elapsed < IDLE_WINDOW_NANOS)
+                {
+                    rateSampled((double) acknowledgements / (double) elapsed);
+                }
+            }
+        }
+
+        return wasLimited && !isLimited();
+    }
+
+    private void roundTripSampled(final long roundTrip, final long now)
+    {
+        final long minimumRoundTrip = _minimumRoundTrip;
+        if (minimumRoundTrip < 0L
+            || roundTrip <= minimumRoundTrip
+            || now - _minimumRoundTripTime > _minimumRoundTripExpiryNanos)
+        {
+            _minimumRoundTrip = roundTrip;
+            _minimumRoundTripTime = now;
+        }
+        _drainingForProbe = false;
+    }
+
+    private void rateSampled(final double acknowledgementsPerNano)
+    {
+        final double previous = _acknowledgementsPerNano;
+        final double rate = previous == 0d ? acknowledgementsPerNano : 0.75d * previous + 0.25d * acknowledgementsPerNano;
+        _acknowledgementsPerNano = rate;
+
+        final long minimumRoundTrip = _minimumRoundTrip;
+        if (minimumRoundTrip >= 0L)
+        {
+            final double bandwidthDelayProduct = rate * (double) minimumRoundTrip;
+            final double limit = Math.ceil(bandwidthDelayProduct * _headroomPercent / 100d);
+            _limit = limit >= Integer.MAX_VALUE ? Integer.MAX_VALUE : Math.max(_minimumCredit, (int) limit);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "AdaptiveCreditLimit{" +
+               "_inFlight=" + _inFlight +
+               ", _limit=" + _limit +
+               ", _minimumRoundTrip=" + _minimumRoundTrip +
+               ", _drainingForProbe=" + _drainingForProbe +
+               '}';
+    }
+}
@@ -23,6 +23,7 @@ package org.apache.qpid.server.queue;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +37,7 @@ public class AssignedConsumerMessageGroupManager implements MessageGroupManager
     private final String _groupId;
     private final ConcurrentMap<Integer, QueueConsumer<?>> _groupMap = new ConcurrentHashMap<Integer, QueueConsumer<?>>();
     private final int _groupMask;
+    private final AtomicLong _groupAssignments = new AtomicLong();
 
     public AssignedConsumerMessageGroupManager(final String groupId, final int maxGroups)
     {
@@ -94,7 +96,12 @@ public class AssignedConsumerMessageGroupManager implements MessageGroupManager
                 {
                     _logger.debug("Assigning group {} to sub {}", groupVal, sub);
                     assignedSub = _groupMap.putIfAbsent(group, sub);
-                    return assignedSub == null || assignedSub == sub;
+                    if(assignedSub == null)
+                    {
+                        _groupAssignments.incrementAndGet();
+                        return true;
+                    }
+                    return assignedSub == sub;
                 }
                 else
                 {
@@ -153,6 +160,18 @@ public class AssignedConsumerMessageGroupManager implements MessageGroupManager
         }
     }
 
+    @Override
+    public int getGroupCount()
+    {
+        return _groupMap.size();
+    }
+
+    @Override
+    public long getGroupAssignmentCount()
+    {
+        return _groupAssignments.get();
+    }
+
     public void clearAssignments(QueueConsumer<?> sub)
     {
         Iterator<QueueConsumer<?>> subIter = _groupMap.values().iterator();
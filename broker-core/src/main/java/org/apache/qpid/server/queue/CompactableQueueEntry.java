@@ -0,0 +1,81 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+
+/**
+ * An entry of a {@link CompactingQueueEntryList}.  Once compacted the entry is replaced in the list by the segment
+ * holding it, and any navigation from the entry is redirected through that segment.
+ */
+public class CompactableQueueEntry extends StandardQueueEntry
+{
+    protected CompactableQueueEntry(final CompactingQueueEntryList queueEntryList)
+    {
+        super(queueEntryList);
+    }
+
+    public CompactableQueueEntry(final CompactingQueueEntryList queueEntryList,
+                                 final ServerMessage message,
+                                 final MessageEnqueueRecord messageEnqueueRecord)
+    {
+        super(queueEntryList, message, messageEnqueueRecord);
+    }
+
+    CompactableQueueEntry(final CompactingQueueEntryList queueEntryList,
+                          final ServerMessage message,
+                          final long entryId,
+                          final MessageEnqueueRecord messageEnqueueRecord)
+    {
+        super(queueEntryList, message, entryId, messageEnqueueRecord);
+    }
+
+    CompactedQueueEntrySegment getSegment()
+    {
+        final EntryState state = getEntryState();
+        return state instanceof CompactedQueueEntrySegment.CompactedState
+                ? ((CompactedQueueEntrySegment.CompactedState) state).getSegment()
+                : null;
+    }
+
+    /**
+     * @return the node this entry is linked to, regardless of whether the entry has been compacted
+     */
+    OrderedQueueEntry getLinkedNode()
+    {
+        return super.getNextNode();
+    }
+
+    @Override
+    public OrderedQueueEntry getNextNode()
+    {
+        final CompactedQueueEntrySegment segment = getSegment();
+        return segment == null ? super.getNextNode() : segment;
+    }
+
+    @Override
+    public OrderedQueueEntry getNextValidEntry()
+    {
+        final CompactedQueueEntrySegment segment = getSegment();
+        return segment == null ? super.getNextValidEntry() : segment.getNextValidEntry();
+    }
+}
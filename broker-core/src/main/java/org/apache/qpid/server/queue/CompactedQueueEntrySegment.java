@@ -0,0 +1,238 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.plugin.MessageMetaDataType;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.StoredMessage;
+
+/**
+ * Stands in the list for a run of consecutive entries which have never been offered to a consumer.  Only the entry
+ * and message ids are retained for messages which are referenced by nothing but this queue and which have been
+ * flowed to disk; such messages are reloaded from the store when the segment is first navigated through.  The
+ * segment itself is always in the deleted state and so is skipped by {@link #getNextValidEntry()}.
+ */
+final class CompactedQueueEntrySegment extends OrderedQueueEntry
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactedQueueEntrySegment.class);
+
+    static final int SEGMENT_SIZE = 1024;
+
+    private final CompactedState _compactedState = new CompactedState(this);
+
+    private long[] _entryIds = new long[SEGMENT_SIZE];
+    private long[] _messageIds = new long[SEGMENT_SIZE];
+    private MessageEnqueueRecord[] _enqueueRecords = new MessageEnqueueRecord[SEGMENT_SIZE];
+    private MessageReference[] _references = new MessageReference[SEGMENT_SIZE];
+    private int _count;
+    private long _compactedSize;
+
+    private volatile boolean _expanded;
+
+    CompactedQueueEntrySegment(final CompactingQueueEntryList queueEntryList)
+    {
+        super(queueEntryList);
+    }
+
+    /**
+     * Moves the given entry into this segment.  Must only be called while holding the monitor of a segment which
+     * has not yet been linked into the list.
+     *
+     * @return false if the entry is no longer eligible for compaction, in which case it is left unchanged
+     */
+    boolean add(final CompactableQueueEntry entry)
+    {
+        if (_count == SEGMENT_SIZE || !entry.compact(_compactedState))
+        {
+            return false;
+        }
+        if (_count == 0)
+        {
+            setEntryId(entry.getEntryId());
+        }
+
+        // the state change above prevents any new reference being taken through the entry, so if the queue holds
+        // the only reference now it will continue to do so, and the message may safely be dropped from the heap
+        final MessageReference reference = entry.getMessageReference();
+        final ServerMessage message = reference.getMessage();
+        final boolean detach = message instanceof AbstractServerMessageImpl
+                               && ((AbstractServerMessageImpl) message).isReferencedOnlyBy(getQueue())
+                               && message.getStoredMessage().flowToDisk();
+
+        if (detach)
+        {
+            ((AbstractServerMessageImpl) message).discardConvertedMessages();
+        }
+
+        _entryIds[_count] = entry.getEntryId();
+        _messageIds[_count] = message.getMessageNumber();
+        _enqueueRecords[_count] = entry.getEnqueueRecord();
+        _references[_count] = detach ? null : reference;
+        _compactedSize += message.getSize();
+        _count++;
+        return true;
+    }
+
+    /**
+     * Links the segment to the entry following the last compacted entry, after which no further entries may be
+     * added.
+     */
+    void seal(final OrderedQueueEntry successor)
+    {
+        _nextUpdater.set(this, successor);
+    }
+
+    int getCompactedCount()
+    {
+        return _count;
+    }
+
+    long getCompactedSize()
+    {
+        return _compactedSize;
+    }
+
+    boolean isExpanded()
+    {
+        return _expanded;
+    }
+
+    /**
+     * @return the next node without expanding the segment
+     */
+    OrderedQueueEntry getSuccessor()
+    {
+        return super.getNextNode();
+    }
+
+    @Override
+    public OrderedQueueEntry getNextNode()
+    {
+        if (!_expanded)
+        {
+            expand();
+        }
+        return super.getNextNode();
+    }
+
+    private synchronized void expand()
+    {
+        if (_expanded)
+        {
+            return;
+        }
+
+        final CompactingQueueEntryList queueEntryList = (CompactingQueueEntryList) getQueueEntryList();
+        MessageStore.MessageStoreReader storeReader = null;
+        OrderedQueueEntry next = super.getNextNode();
+        for (int i = _count - 1; i >= 0; i--)
+        {
+            final OrderedQueueEntry entry;
+            final MessageReference reference = _references[i];
+            if (reference != null)
+            {
+                // the queue's reference must be released before the new entry can take one of its own
+                final ServerMessage message = reference.getMessage();
+                final MessageReference transientReference = message.newReference();
+                try
+                {
+                    reference.release();
+                    entry = queueEntryList.createQueueEntry(message, _entryIds[i], _enqueueRecords[i]);
+                }
+                finally
+                {
+                    transientReference.release();
+                }
+            }
+            else
+            {
+                if (storeReader == null)
+                {
+                    storeReader = getQueue().getVirtualHost().getMessageStore().newMessageStoreReader();
+                }
+                final StoredMessage<?> storedMessage = storeReader.getMessage(_messageIds[i]);
+                if (storedMessage == null)
+                {
+                    LOGGER.warn("Message id {} on queue '{}' could not be reloaded from the store",
+                                _messageIds[i], getQueue().getName());
+                    continue;
+                }
+                final MessageMetaDataType type = storedMessage.getMetaData().getType();
+                @SuppressWarnings("unchecked")
+                final ServerMessage<?> message = type.createMessage(storedMessage);
+                entry = queueEntryList.createQueueEntry(message, _entryIds[i], _enqueueRecords[i]);
+            }
+            _nextUpdater.set(entry, next);
+            next = entry;
+        }
+        _nextUpdater.set(this, next);
+
+        _entryIds = null;
+        _messageIds = null;
+        _enqueueRecords = null;
+        _references = null;
+        _expanded = true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CompactedQueueEntrySegment[" +
+               "firstEntryId=" + getEntryId() +
+               ", count=" + _count +
+               ", expanded=" + _expanded +
+               ']';
+    }
+
+    static final class CompactedState extends EntryState
+    {
+        private final CompactedQueueEntrySegment _segment;
+
+        private CompactedState(final CompactedQueueEntrySegment segment)
+        {
+            _segment = segment;
+        }
+
+        @Override
+        public State getState()
+        {
+            return State.DELETED;
+        }
+
+        CompactedQueueEntrySegment getSegment()
+        {
+            return _segment;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "COMPACTED";
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+
+/**
+ * A standard queue entry list which, when asked, replaces runs of entries lying sufficiently far beyond the position
+ * of every consumer by {@link CompactedQueueEntrySegment}s, reducing the per-entry heap overhead of deep queues.
+ * A segment is expanded back into entries the first time a consumer, or any other navigation of the list, passes
+ * through it.
+ */
+public class CompactingQueueEntryList extends StandardQueueEntryList
+{
+    private static final HeadCreator HEAD_CREATOR = new HeadCreator()
+    {
+        @Override
+        public CompactableQueueEntry createHead(final QueueEntryList list)
+        {
+            return new CompactableQueueEntry((CompactingQueueEntryList) list);
+        }
+    };
+
+    private final int _threshold;
+
+    public CompactingQueueEntryList(final StandardQueueImpl queue, final int threshold)
+    {
+        super(queue, HEAD_CREATOR);
+        _threshold = threshold;
+    }
+
+    @Override
+    protected CompactableQueueEntry createQueueEntry(final ServerMessage<?> message,
+                                                     final MessageEnqueueRecord enqueueRecord)
+    {
+        return new CompactableQueueEntry(this, message, enqueueRecord);
+    }
+
+    CompactableQueueEntry createQueueEntry(final ServerMessage<?> message,
+                                           final long entryId,
+                                           final MessageEnqueueRecord enqueueRecord)
+    {
+        return new CompactableQueueEntry(this, message, entryId, enqueueRecord);
+    }
+
+    int getThreshold()
+    {
+        return _threshold;
+    }
+
+    /**
+     * Compacts the eligible entries lying more than the threshold number of entries beyond the given position, while
+     * always leaving the threshold number of entries nearest the tail in full form.
+     *
+     * @param furthestPosition the entry furthest along the list which any consumer has reached
+     */
+    void compact(final QueueEntry furthestPosition)
+    {
+        final long startId = ((OrderedQueueEntry) furthestPosition).getEntryId();
+        final long tailId = ((OrderedQueueEntry) getTail()).getEntryId();
+        if (tailId - startId <= 2L * _threshold)
+        {
+            return;
+        }
+
+        final List<CompactableQueueEntry> run = new ArrayList<>();
+        OrderedQueueEntry runPredecessor = null;
+        OrderedQueueEntry previous = null;
+        OrderedQueueEntry node = (OrderedQueueEntry) furthestPosition;
+        while (node != null)
+        {
+            final long entryId = node.getEntryId();
+            if (!(node instanceof CompactedQueueEntrySegment) && tailId - entryId < _threshold)
+            {
+                break;
+            }
+
+            if (entryId - startId > _threshold && isCompactable(node))
+            {
+                if (run.isEmpty())
+                {
+                    runPredecessor = previous;
+                }
+                run.add((CompactableQueueEntry) node);
+                if (run.size() == CompactedQueueEntrySegment.SEGMENT_SIZE)
+                {
+                    compact(runPredecessor, run);
+                    run.clear();
+                }
+            }
+            else if (!run.isEmpty())
+            {
+                compact(runPredecessor, run);
+                run.clear();
+            }
+            previous = node;
+            node = getSuccessor(node);
+        }
+
+        if (!run.isEmpty())
+        {
+            compact(runPredecessor, run);
+        }
+    }
+
+    private boolean isCompactable(final OrderedQueueEntry node)
+    {
+        return node instanceof CompactableQueueEntry
+               && ((CompactableQueueEntry) node).getEntryState() == QueueEntry.AVAILABLE_STATE;
+    }
+
+    private void compact(final OrderedQueueEntry predecessor, final List<CompactableQueueEntry> run)
+    {
+        final CompactedQueueEntrySegment segment = new CompactedQueueEntrySegment(this);
+
+        // holding the monitor keeps anyone redirected to the segment by an entry already compacted from expanding
+        // it until the segment is sealed
+        synchronized (segment)
+        {
+            int compacted = 0;
+            while (compacted < run.size() && segment.add(run.get(compacted)))
+            {
+                compacted++;
+            }
+            if (compacted == 0)
+            {
+                return;
+            }
+            segment.seal(compacted < run.size()
+                                 ? run.get(compacted)
+                                 : run.get(compacted - 1).getLinkedNode());
+        }
+
+        // the compacted entries redirect to the segment in any case, this just lets them be collected
+        if (predecessor != null)
+        {
+            _nextUpdater.compareAndSet(predecessor, run.get(0), segment);
+        }
+    }
+
+    /**
+     * @return an iterator over the list which returns, rather than expands, any compacted segments; segments and
+     * compacted entries are always reported as deleted
+     */
+    QueueEntryIterator nonExpandingIterator()
+    {
+        return new NonExpandingIterator((OrderedQueueEntry) getHead());
+    }
+
+    private static OrderedQueueEntry getSuccessor(final OrderedQueueEntry node)
+    {
+        return node instanceof CompactedQueueEntrySegment
+                ? ((CompactedQueueEntrySegment) node).getSuccessor()
+                : node.getNextNode();
+    }
+
+    private static class NonExpandingIterator implements QueueEntryIterator
+    {
+        private OrderedQueueEntry _lastNode;
+
+        private NonExpandingIterator(final OrderedQueueEntry startNode)
+        {
+            _lastNode = startNode;
+        }
+
+        @Override
+        public boolean atTail()
+        {
+            return getSuccessor(_lastNode) == null;
+        }
+
+        @Override
+        public QueueEntry getNode()
+        {
+            return _lastNode;
+        }
+
+        @Override
+        public boolean advance()
+        {
+            final OrderedQueueEntry next = getSuccessor(_lastNode);
+            if (next != null)
+            {
+                _lastNode = next;
+            }
+            return next != null;
+        }
+    }
+}
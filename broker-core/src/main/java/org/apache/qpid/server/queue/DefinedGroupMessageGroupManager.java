@@ -20,101 +20,118 @@
  */
 package org.apache.qpid.server.queue;
 
-import org.apache.qpid.server.consumer.ConsumerImpl;
-import org.apache.qpid.server.message.MessageInstance;
-import org.apache.qpid.server.message.MessageInstance.ConsumerAcquiredState;
-import org.apache.qpid.server.message.MessageInstance.EntryState;
-import org.apache.qpid.server.util.StateChangeListener;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageInstance;
+import org.apache.qpid.server.message.MessageInstance.ConsumerAcquiredState;
+import org.apache.qpid.server.message.MessageInstance.EntryState;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.util.StateChangeListener;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
-
+/**
+ * Assigns each message group to a single consumer for as long as that consumer holds acquired messages from the
+ * group.  Groups are held in a concurrent map and each group tracks its own ownership atomically, so that consumers
+ * working on different groups never contend with one another.
+ */
 public class DefinedGroupMessageGroupManager implements MessageGroupManager
 {
     private static final Logger _logger = LoggerFactory.getLogger(DefinedGroupMessageGroupManager.class);
 
+    /** Count held by a group which has been released by its consumer, and may no longer be joined */
+    private static final int CLOSED = -1;
+
+    /** Value of the earliest skipped entry once a group has been closed */
+    private static final Object CLOSED_MARKER = new Object();
+
+    private static final AtomicIntegerFieldUpdater<Group> _activeCountUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Group.class, "_activeCount");
+
+    private static final AtomicReferenceFieldUpdater<Group, Object> _earliestSkippedEntryUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(Group.class, Object.class, "_earliestSkippedEntry");
+
     private final String _groupId;
     private final String _defaultGroup;
-    private final Map<Object, Group> _groupMap = new HashMap<Object, Group>();
+    private final ConcurrentMap<Object, Group> _groupMap = new ConcurrentHashMap<>();
     private final ConsumerResetHelper _resetHelper;
+    private final AtomicLong _groupAssignments = new AtomicLong();
 
     private final class Group
     {
         private final Object _group;
-        private final SortedSet<QueueEntry> _skippedEntries = new TreeSet<>();
-        private QueueConsumer<?> _consumer;
-        private int _activeCount;
+        private final QueueConsumer<?> _consumer;
+
+        /**
+         * The number of entries acquired, or about to be acquired, by the consumer; {@link #CLOSED} once the group
+         * has been released.
+         */
+        volatile int _activeCount = 1;
+
+        /**
+         * The earliest entry other consumers have passed over because of this group, or {@link #CLOSED_MARKER}.
+         */
+        volatile Object _earliestSkippedEntry;
 
         private Group(final Object key, final QueueConsumer<?> consumer)
         {
             _group = key;
             _consumer = consumer;
         }
-        
+
         public boolean add()
         {
-            if(_consumer != null)
+            int count;
+            do
             {
-                _activeCount++;
-                return true;
-            }
-            else
-            {
-                return false;
-            }
-        }
-        
-        public void subtract(final QueueEntry entry, final boolean released)
-        {
-            if(!released)
-            {
-                _skippedEntries.remove(entry);
-            }
-            if(--_activeCount == 0)
-            {
-                if(!_skippedEntries.isEmpty())
+                count = _activeCount;
+                if (count == CLOSED)
                 {
-                    _resetHelper.resetSubPointersForGroups(_skippedEntries.first());
-                    _skippedEntries.clear();
+                    return false;
                 }
-                _consumer = null;
-                _groupMap.remove(_group);
             }
+            while (!_activeCountUpdater.compareAndSet(this, count, count + 1));
+            return true;
         }
 
-        @Override
-        public boolean equals(final Object o)
+        public void subtract()
         {
-            if (this == o)
+            int count;
+            int newCount;
+            do
             {
-                return true;
+                count = _activeCount;
+                newCount = count == 1 ? CLOSED : count - 1;
             }
-            if (o == null || getClass() != o.getClass())
+            while (!_activeCountUpdater.compareAndSet(this, count, newCount));
+
+            if (newCount == CLOSED)
             {
-                return false;
+                close();
             }
-
-            Group group = (Group) o;
-
-            return _group.equals(group._group);
         }
 
-        @Override
-        public int hashCode()
+        private void close()
         {
-            return _group.hashCode();
+            _groupMap.remove(_group, this);
+            Object earliestSkippedEntry = _earliestSkippedEntryUpdater.getAndSet(this, CLOSED_MARKER);
+            if (earliestSkippedEntry != null)
+            {
+                // only the consumers which passed over entries of this group need to look back
+                _resetHelper.resetSubPointersForGroups((QueueEntry) earliestSkippedEntry);
+            }
         }
 
         public boolean isValid()
         {
-            return !(_consumer == null || (_activeCount == 0 && _consumer.isClosed()));
+            return _activeCount != CLOSED;
         }
 
         public QueueConsumer<?> getConsumer()
@@ -122,6 +139,28 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
             return _consumer;
         }
 
+        /**
+         * @return false if the group has been closed, in which case the entry need not have been skipped
+         */
+        public boolean addSkippedEntry(final QueueEntry entry)
+        {
+            Object current;
+            do
+            {
+                current = _earliestSkippedEntry;
+                if (current == CLOSED_MARKER)
+                {
+                    return false;
+                }
+                if (current != null && ((QueueEntry) current).compareTo(entry) <= 0)
+                {
+                    return true;
+                }
+            }
+            while (!_earliestSkippedEntryUpdater.compareAndSet(this, current, entry));
+            return true;
+        }
+
         @Override
         public String toString()
         {
@@ -131,11 +170,6 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
                     ", _activeCount=" + _activeCount +
                     '}';
         }
-
-        public void addSkippedEntry(final QueueEntry entry)
-        {
-            _skippedEntries.add(entry);
-        }
     }
 
     public DefinedGroupMessageGroupManager(final String groupId, String defaultGroup, ConsumerResetHelper resetHelper)
@@ -144,66 +178,106 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
         _defaultGroup = defaultGroup;
         _resetHelper = resetHelper;
     }
-    
-    public synchronized boolean mightAssign(final QueueEntry entry, final QueueConsumer sub)
+
+    public boolean mightAssign(final QueueEntry entry, final QueueConsumer sub)
     {
         Object groupId = getKey(entry);
 
         Group group = _groupMap.get(groupId);
-        final boolean possibleAssignment = group == null || !group.isValid() || group.getConsumer() == sub;
-        if(!possibleAssignment)
-        {
-            group.addSkippedEntry(entry);
-        }
-        return possibleAssignment;
+        return group == null
+               || !group.isValid()
+               || group.getConsumer() == sub
+               || !group.addSkippedEntry(entry);
     }
 
-    public synchronized boolean acceptMessage(final QueueConsumer<?> sub, final QueueEntry entry)
+    public boolean acceptMessage(final QueueConsumer<?> sub, final QueueEntry entry)
     {
-        return assignMessage(sub, entry) && entry.acquire(sub);
+        Group group = assignMessage(sub, entry);
+        if (group == null)
+        {
+            return false;
+        }
+
+        GroupStateChangeListener listener = new GroupStateChangeListener(group);
+        entry.addStateChangeListener(listener);
+        if (entry.acquire(sub))
+        {
+            return true;
+        }
+        else
+        {
+            listener.release(entry);
+            return false;
+        }
     }
 
-    private boolean assignMessage(final QueueConsumer<?> sub, final QueueEntry entry)
+    /**
+     * @return the group of the entry, already counting the entry as active, if the consumer may acquire the entry
+     */
+    private Group assignMessage(final QueueConsumer<?> sub, final QueueEntry entry)
     {
         Object groupId = getKey(entry);
-        Group group = _groupMap.get(groupId);
 
-        if(group == null || !group.isValid())
+        while (true)
         {
-            group = new Group(groupId, sub);
+            Group group = _groupMap.get(groupId);
 
-            _groupMap.put(groupId, group);
+            if (group == null || !group.isValid())
+            {
+                Group newGroup = new Group(groupId, sub);
+                boolean assigned = group == null
+                        ? _groupMap.putIfAbsent(groupId, newGroup) == null
+                        : _groupMap.replace(groupId, group, newGroup);
+                if (!assigned)
+                {
+                    continue;
+                }
+                _groupAssignments.incrementAndGet();
+                _logger.debug("Assigning group {} to consumer {}", groupId, sub);
 
-            // there's a small chance that the group became empty between the point at which getNextAvailable() was
-            // called on the consumer, and when accept message is called... in that case we want to avoid delivering
-            // out of order
-            if(_resetHelper.isEntryAheadOfConsumer(entry, sub))
+                // there's a small chance that the group became empty between the point at which getNextAvailable() was
+                // called on the consumer, and when accept message is called... in that case we want to avoid delivering
+                // out of order
+                if (_resetHelper.isEntryAheadOfConsumer(entry, sub))
+                {
+                    newGroup.subtract();
+                    return null;
+                }
+                return newGroup;
+            }
+            else if (group.getConsumer() == sub)
             {
-                return false;
+                if (group.add())
+                {
+                    return group;
+                }
+            }
+            else if (group.addSkippedEntry(entry))
+            {
+                return null;
             }
-        }
-
-        ConsumerImpl assignedSub = group.getConsumer();
-
-        if(assignedSub == sub)
-        {
-            entry.addStateChangeListener(new GroupStateChangeListener(group));
-            return true;
-        }
-        else
-        {
-            group.addSkippedEntry(entry);
-            return false;            
         }
     }
 
-    public synchronized QueueEntry findEarliestAssignedAvailableEntry(final QueueConsumer<?> sub)
+    public QueueEntry findEarliestAssignedAvailableEntry(final QueueConsumer<?> sub)
     {
         EntryFinder visitor = new EntryFinder(sub);
         sub.getQueue().visit(visitor);
         return visitor.getEntry();
     }
 
+    @Override
+    public int getGroupCount()
+    {
+        return _groupMap.size();
+    }
+
+    @Override
+    public long getGroupAssignmentCount()
+    {
+        return _groupAssignments.get();
+    }
+
     private class EntryFinder implements QueueEntryVisitor
     {
         private QueueEntry _entry;
@@ -224,7 +298,7 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
             Object groupId = getKey(entry);
 
             Group group = _groupMap.get(groupId);
-            if(group != null && group.getConsumer() == _sub)
+            if(group != null && group.isValid() && group.getConsumer() == _sub)
             {
                 _entry = entry;
                 return true;
@@ -258,9 +332,13 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
         return groupVal;
     }
 
+    /**
+     * Holds the group open for one acquisition of an entry, releasing it once the entry leaves the consumer.
+     */
     private class GroupStateChangeListener implements StateChangeListener<MessageInstance, EntryState>
     {
         private final Group _group;
+        private final AtomicBoolean _released = new AtomicBoolean();
 
         public GroupStateChangeListener(final Group group)
         {
@@ -270,23 +348,18 @@ public class DefinedGroupMessageGroupManager implements MessageGroupManager
         @Override
         public void stateChanged(final MessageInstance entry, final EntryState oldState, final EntryState newState)
         {
-            synchronized (DefinedGroupMessageGroupManager.this)
+            if (isConsumerAcquiredStateForThisGroup(oldState) && !isConsumerAcquiredStateForThisGroup(newState))
             {
-                if(_group.isValid())
-                {
-                    if (isConsumerAcquiredStateForThisGroup(newState) && !isConsumerAcquiredStateForThisGroup(oldState))
-                    {
-                        _group.add();
-                    }
-                    else if (isConsumerAcquiredStateForThisGroup(oldState) && !isConsumerAcquiredStateForThisGroup(newState))
-                    {
-                        _group.subtract((QueueEntry) entry, newState.getState() == MessageInstance.State.AVAILABLE);
-                    }
-                }
-                else
-                {
-                    entry.removeStateChangeListener(this);
-                }
+                release(entry);
+            }
+        }
+
+        private void release(final MessageInstance entry)
+        {
+            if (_released.compareAndSet(false, true))
+            {
+                entry.removeStateChangeListener(this);
+                _group.subtract();
             }
         }
 
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Defers the scheduling of asynchronous delivery by queues to which the current thread enqueues until the outermost
+ * batch begun by the thread is complete, so that a burst of messages received in one network read wakes the queue
+ * runners of each queue once rather than once per message.
+ * <p>
+ * Messages are still delivered straight through to idle consumers as they are enqueued; only the hand-off to the
+ * queue runners is deferred.  Batches nest, and every {@link #begin()} must be paired with a {@link #complete()} in a
+ * finally block.
+ */
+public final class EnqueueBatch
+{
+    private static final ThreadLocal<EnqueueBatch> CURRENT = new ThreadLocal<EnqueueBatch>()
+    {
+        @Override
+        protected EnqueueBatch initialValue()
+        {
+            return new EnqueueBatch();
+        }
+    };
+
+    private final Set<AbstractQueue<?>> _queues =
+            Collections.newSetFromMap(new IdentityHashMap<AbstractQueue<?>, Boolean>());
+    private int _depth;
+
+    private EnqueueBatch()
+    {
+    }
+
+    public static void begin()
+    {
+        CURRENT.get()._depth++;
+    }
+
+    public static void complete()
+    {
+        final EnqueueBatch batch = CURRENT.get();
+        if (--batch._depth == 0 && !batch._queues.isEmpty())
+        {
+            final List<AbstractQueue<?>> queues = new ArrayList<>(batch._queues);
+            batch._queues.clear();
+            for (AbstractQueue<?> queue : queues)
+            {
+                queue.deliverAsync();
+            }
+        }
+    }
+
+    /**
+     * @return true if the current thread is within a batch, in which case the queue will be woken when the batch is
+     * complete, or false if the caller should schedule delivery itself
+     */
+    static boolean deferDelivery(final AbstractQueue<?> queue)
+    {
+        final EnqueueBatch batch = CURRENT.get();
+        if (batch._depth > 0)
+        {
+            batch._queues.add(queue);
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+}
@@ -36,4 +36,8 @@ public interface MessageGroupManager
     QueueEntry findEarliestAssignedAvailableEntry(QueueConsumer<?> sub);
 
     void clearAssignments(QueueConsumer<?> sub);
+
+    int getGroupCount();
+
+    long getGroupAssignmentCount();
 }
@@ -46,6 +46,14 @@ public abstract class OrderedQueueEntry extends QueueEntryImpl
         super(queueEntryList, message, messageEnqueueRecord);
     }
 
+    public OrderedQueueEntry(OrderedQueueEntryList queueEntryList,
+                             ServerMessage message,
+                             final long entryId,
+                             final MessageEnqueueRecord messageEnqueueRecord)
+    {
+        super(queueEntryList, message, entryId, messageEnqueueRecord);
+    }
+
     @Override
     public OrderedQueueEntry getNextNode()
     {
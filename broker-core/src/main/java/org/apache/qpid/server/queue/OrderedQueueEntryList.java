@@ -90,7 +90,7 @@ public abstract class OrderedQueueEntryList implements QueueEntryList
             {
                 if (next == null)
                 {
-                    node.setEntryId(tail.getEntryId()+1);
+                    node.setEntryId(nextEntryId(tail));
                     if (_nextUpdater.compareAndSet(tail, null, node))
                     {
                         _tailUpdater.compareAndSet(this, tail, node);
@@ -106,6 +106,15 @@ public abstract class OrderedQueueEntryList implements QueueEntryList
         }
     }
 
+    /**
+     * Returns the id for an entry about to be linked after the given tail.  It is called afresh on every attempt to
+     * append, after the tail has been read, so ids must increase along the list.
+     */
+    protected long nextEntryId(final OrderedQueueEntry tail)
+    {
+        return tail.getEntryId() + 1;
+    }
+
     abstract protected OrderedQueueEntry createQueueEntry(ServerMessage<?> message,
                                                           final MessageEnqueueRecord enqueueRecord);
 
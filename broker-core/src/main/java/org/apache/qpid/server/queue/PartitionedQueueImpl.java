@@ -0,0 +1,109 @@
+/*
+*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+package org.apache.qpid.server.queue;
+
+import java.util.Map;
+
+import org.apache.qpid.server.configuration.IllegalConfigurationException;
+import org.apache.qpid.server.model.ManagedAttributeField;
+import org.apache.qpid.server.model.ManagedObjectFactoryConstructor;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+public class PartitionedQueueImpl extends OutOfOrderQueue<PartitionedQueueImpl>
+        implements PartitionedQueue<PartitionedQueueImpl>
+{
+
+    private PartitionedQueueList.PartitionedQueueMasterList _entries;
+
+    @ManagedAttributeField
+    private int _partitions;
+
+    @ManagedObjectFactoryConstructor
+    public PartitionedQueueImpl(Map<String, Object> attributes, QueueManagingVirtualHost<?> virtualHost)
+    {
+        super(attributes, virtualHost);
+    }
+
+    @Override
+    public void onValidate()
+    {
+        super.onValidate();
+        if (_partitions < 1)
+        {
+            throw new IllegalConfigurationException("A partitioned queue must have at least one partition");
+        }
+    }
+
+    @Override
+    protected void onOpen()
+    {
+        super.onOpen();
+        _entries = PartitionedQueueList.newInstance(this);
+    }
+
+    @Override
+    QueueContext createQueueContext(final QueueEntry lastSeenEntry, final QueueRunner queueRunner)
+    {
+        return new PartitionedQueueContext(lastSeenEntry, queueRunner, _entries.newCursor());
+    }
+
+    @Override
+    QueueEntry nextEntry(final QueueContext context, final QueueEntry lastSeen)
+    {
+        return _entries.next(lastSeen, ((PartitionedQueueContext) context).getCursor());
+    }
+
+    @Override
+    protected int getDeliveryRunnerCount()
+    {
+        return Math.max(super.getDeliveryRunnerCount(), _partitions);
+    }
+
+    @Override
+    public int getPartitions()
+    {
+        return _partitions;
+    }
+
+    @Override
+    PartitionedQueueList.PartitionedQueueMasterList getEntries()
+    {
+        return _entries;
+    }
+
+    private static final class PartitionedQueueContext extends QueueContext
+    {
+        private final PartitionedQueueList.Cursor _cursor;
+
+        private PartitionedQueueContext(final QueueEntry lastSeenEntry,
+                                        final QueueRunner queueRunner,
+                                        final PartitionedQueueList.Cursor cursor)
+        {
+            super(lastSeenEntry, queueRunner);
+            _cursor = cursor;
+        }
+
+        private PartitionedQueueList.Cursor getCursor()
+        {
+            return _cursor;
+        }
+    }
+}
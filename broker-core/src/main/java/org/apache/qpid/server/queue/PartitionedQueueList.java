@@ -0,0 +1,381 @@
+/*
+*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+package org.apache.qpid.server.queue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
+
+/**
+ * The entries of a partitioned queue, held in a number of independent sub-lists so that concurrent publishers do not
+ * all contend on the tail of a single list.  Entry ids are drawn from a counter shared by the partitions, so entries
+ * are ordered by when they were enqueued whatever their partition, and consumers see the partitions interleaved in
+ * that order rather than draining one partition before moving on to the next.
+ * <p>
+ * Each consumer keeps a {@link Cursor} holding its position in every partition, so that finding its next entry takes
+ * a step along each partition from where it last looked rather than a walk from wherever the list was last searched.
+ */
+abstract public class PartitionedQueueList extends OrderedQueueEntryList
+{
+
+    public static PartitionedQueueMasterList newInstance(PartitionedQueueImpl queue)
+    {
+        return new PartitionedQueueMasterList(queue, queue.getPartitions());
+    }
+
+    public PartitionedQueueList(final PartitionedQueueImpl queue,
+                                final HeadCreator headCreator)
+    {
+        super(queue, headCreator);
+    }
+
+    static class PartitionedQueueMasterList extends PartitionedQueueList
+    {
+        private static final HeadCreator DUMMY_HEAD_CREATOR =
+                new HeadCreator()
+                {
+                    @Override
+                    public PartitionedQueueEntry createHead(final QueueEntryList list)
+                    {
+                        return null;
+                    }
+                };
+        private final PartitionedQueueImpl _queue;
+        private final PartitionedQueueEntrySubList[] _partitionLists;
+        private final AtomicInteger _nextPartition = new AtomicInteger();
+        private final AtomicLong _entryIds = new AtomicLong();
+
+        public PartitionedQueueMasterList(PartitionedQueueImpl queue, int partitions)
+        {
+            super(queue, DUMMY_HEAD_CREATOR);
+            _queue = queue;
+            _partitionLists = new PartitionedQueueEntrySubList[partitions];
+            for(int i = 0; i < partitions; i++)
+            {
+                _partitionLists[i] = new PartitionedQueueEntrySubList(queue, i, _entryIds);
+            }
+        }
+
+        public int getPartitions()
+        {
+            return _partitionLists.length;
+        }
+
+        @Override
+        public PartitionedQueueImpl getQueue()
+        {
+            return _queue;
+        }
+
+        @Override
+        public PartitionedQueueEntry add(ServerMessage message, final MessageEnqueueRecord enqueueRecord)
+        {
+            return (PartitionedQueueEntry) _partitionLists[getPartition(message)].add(message, enqueueRecord);
+        }
+
+        /**
+         * Messages of the same group always go to the same partition so that their order is kept, other messages
+         * are spread over the partitions in turn.
+         */
+        int getPartition(final ServerMessage<?> message)
+        {
+            final String groupKey = _queue.getMessageGroupKey();
+            final int hash;
+            if(groupKey != null)
+            {
+                AMQMessageHeader messageHeader = message.getMessageHeader();
+                Object group = messageHeader == null ? null : messageHeader.getHeader(groupKey);
+                if(group == null)
+                {
+                    group = _queue.getMessageGroupDefaultGroup();
+                }
+                hash = group == null ? 0 : group.hashCode();
+            }
+            else
+            {
+                hash = _nextPartition.getAndIncrement();
+            }
+            return (hash & Integer.MAX_VALUE) % _partitionLists.length;
+        }
+
+        @Override
+        protected PartitionedQueueEntry createQueueEntry(final ServerMessage<?> message,
+                                                         final MessageEnqueueRecord enqueueRecord)
+        {
+            // add() hands every message to a partition, so entries are only ever created by the sub-lists
+            throw new UnsupportedOperationException();
+        }
+
+        Cursor newCursor()
+        {
+            return new Cursor(_partitionLists.length);
+        }
+
+        @Override
+        public PartitionedQueueEntry next(QueueEntry node)
+        {
+            return next(node, null);
+        }
+
+        /**
+         * Returns the earliest enqueued valid entry after the given one, whichever partition it is in, starting the
+         * search of each partition from the position held by the given cursor, if any, and moving the cursor on.
+         */
+        PartitionedQueueEntry next(final QueueEntry node, final Cursor cursor)
+        {
+            final PartitionedQueueEntry entry = (PartitionedQueueEntry) node;
+            PartitionedQueueEntry next = null;
+            for(PartitionedQueueEntrySubList partitionList : _partitionLists)
+            {
+                PartitionedQueueEntry candidate = partitionList.nextValidEntryAfter(entry, cursor);
+                if(candidate != null && (next == null || candidate.compareTo(next) < 0))
+                {
+                    next = candidate;
+                }
+            }
+            return next;
+        }
+
+        private final class PartitionedQueueEntryListIterator implements QueueEntryIterator
+        {
+            private final Cursor _cursor = newCursor();
+            private PartitionedQueueEntry _lastNode = getHead();
+
+            @Override
+            public boolean atTail()
+            {
+                return next(_lastNode, _cursor) == null;
+            }
+
+            @Override
+            public PartitionedQueueEntry getNode()
+            {
+                return _lastNode;
+            }
+
+            @Override
+            public boolean advance()
+            {
+                PartitionedQueueEntry nextNode = next(_lastNode, _cursor);
+                if(nextNode != null)
+                {
+                    _lastNode = nextNode;
+                }
+                return nextNode != null;
+            }
+        }
+
+        @Override
+        public PartitionedQueueEntryListIterator iterator()
+        {
+            return new PartitionedQueueEntryListIterator();
+        }
+
+        @Override
+        public PartitionedQueueEntry getHead()
+        {
+            return (PartitionedQueueEntry) _partitionLists[0].getHead();
+        }
+
+        @Override
+        public PartitionedQueueEntry getTail()
+        {
+            PartitionedQueueEntry tail = null;
+            for(PartitionedQueueEntrySubList partitionList : _partitionLists)
+            {
+                PartitionedQueueEntry partitionTail = (PartitionedQueueEntry) partitionList.getTail();
+                if(tail == null || partitionTail.compareTo(tail) > 0)
+                {
+                    tail = partitionTail;
+                }
+            }
+            return tail;
+        }
+
+        @Override
+        public void entryDeleted(final QueueEntry queueEntry)
+        {
+
+        }
+
+        @Override
+        public QueueEntry getOldestEntry()
+        {
+            QueueEntry oldest = null;
+            for(PartitionedQueueEntrySubList subList : _partitionLists)
+            {
+                QueueEntry subListOldest = subList.getOldestEntry();
+                if(oldest == null || (subListOldest != null && subListOldest.getMessage().getMessageNumber() < oldest.getMessage().getMessageNumber()))
+                {
+                    oldest = subListOldest;
+                }
+            }
+            return oldest;
+        }
+    }
+
+    static class PartitionedQueueEntrySubList extends PartitionedQueueList
+    {
+        private static final HeadCreator HEAD_CREATOR = new HeadCreator()
+        {
+            @Override
+            public PartitionedQueueEntry createHead(final QueueEntryList list)
+            {
+                return new PartitionedQueueEntry((PartitionedQueueList) list);
+            }
+        };
+
+        private final int _partition;
+        private final AtomicLong _entryIds;
+
+        /**
+         * An entry of this partition at or before the position most recently searched for, from which searches by a
+         * caller without a cursor of its own, or whose cursor is ahead of the entry searched for, start rather than
+         * walking the partition from its head.
+         */
+        private volatile PartitionedQueueEntry _searchStart;
+
+        public PartitionedQueueEntrySubList(PartitionedQueueImpl queue, int partition, AtomicLong entryIds)
+        {
+            super(queue, HEAD_CREATOR);
+            _partition = partition;
+            _entryIds = entryIds;
+        }
+
+        @Override
+        protected long nextEntryId(final OrderedQueueEntry tail)
+        {
+            return _entryIds.incrementAndGet();
+        }
+
+        /**
+         * Returns the first valid entry of this partition enqueued after the given entry, which may belong to any
+         * partition, leaving the cursor, if given, at the last entry of this partition not after the given entry.
+         */
+        PartitionedQueueEntry nextValidEntryAfter(final PartitionedQueueEntry entry, final Cursor cursor)
+        {
+            if(entry.getQueueEntryList() == this)
+            {
+                if(cursor != null)
+                {
+                    cursor.setPosition(_partition, entry);
+                }
+                return entry.getNextValidEntry();
+            }
+
+            // start from the latest known position not after the entry; a cursor is only ever ahead of the entry
+            // searched for when its consumer has been moved back to a released entry
+            PartitionedQueueEntry position = (PartitionedQueueEntry) getHead();
+            if(cursor != null)
+            {
+                position = laterStart(position, cursor.getPosition(_partition), entry);
+            }
+            position = laterStart(position, _searchStart, entry);
+            PartitionedQueueEntry next = position.getNextValidEntry();
+            while(next != null && next.compareTo(entry) < 0)
+            {
+                position = next;
+                next = position.getNextValidEntry();
+            }
+
+            // only ever move the search start forward, so consumers at the front of the queue are not sent back to
+            // the head by one that has fallen behind
+            PartitionedQueueEntry searchStart = _searchStart;
+            if(searchStart == null || searchStart.compareTo(position) < 0)
+            {
+                _searchStart = position;
+            }
+            if(cursor != null)
+            {
+                cursor.setPosition(_partition, position);
+            }
+            return next;
+        }
+
+        private static PartitionedQueueEntry laterStart(final PartitionedQueueEntry position,
+                                                        final PartitionedQueueEntry start,
+                                                        final PartitionedQueueEntry entry)
+        {
+            return start != null && start.compareTo(entry) <= 0 && start.compareTo(position) > 0 ? start : position;
+        }
+
+        @Override
+        protected PartitionedQueueEntry createQueueEntry(ServerMessage<?> message,
+                                                         final MessageEnqueueRecord enqueueRecord)
+        {
+            return new PartitionedQueueEntry(this, message, enqueueRecord);
+        }
+
+        public int getPartition()
+        {
+            return _partition;
+        }
+    }
+
+    /**
+     * The position of a consumer in each partition: an entry of the partition, or its head, enqueued no later than the
+     * last entry the consumer has seen.  Positions are only hints, so concurrent updates need not be coordinated.
+     */
+    static final class Cursor
+    {
+        private final AtomicReferenceArray<PartitionedQueueEntry> _positions;
+
+        private Cursor(final int partitions)
+        {
+            _positions = new AtomicReferenceArray<>(partitions);
+        }
+
+        PartitionedQueueEntry getPosition(final int partition)
+        {
+            return _positions.get(partition);
+        }
+
+        private void setPosition(final int partition, final PartitionedQueueEntry position)
+        {
+            _positions.set(partition, position);
+        }
+    }
+
+    static class PartitionedQueueEntry extends OrderedQueueEntry
+    {
+        private PartitionedQueueEntry(final PartitionedQueueList queueEntryList)
+        {
+            super(queueEntryList);
+        }
+
+        public PartitionedQueueEntry(PartitionedQueueEntrySubList queueEntryList,
+                                     ServerMessage<?> message,
+                                     final MessageEnqueueRecord messageEnqueueRecord)
+        {
+            super(queueEntryList, message, messageEnqueueRecord);
+        }
+
+        @Override
+        public PartitionedQueueEntry getNextValidEntry()
+        {
+            return (PartitionedQueueEntry) super.getNextValidEntry();
+        }
+    }
+}
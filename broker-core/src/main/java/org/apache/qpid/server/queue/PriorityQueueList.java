@@ -20,6 +20,8 @@
 */
 package org.apache.qpid.server.queue;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 
@@ -104,23 +106,14 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         @Override
         public PriorityQueueEntry next(QueueEntry node)
         {
-            PriorityQueueEntry next = (PriorityQueueEntry) node.getNextValidEntry();
+            final PriorityQueueEntry entry = (PriorityQueueEntry) node;
+            int index = ((PriorityQueueEntrySubList) entry.getQueueEntryList()).getListPriority();
+            PriorityQueueEntry next = _priorityLists[index].next(entry);
 
-            if(next == null)
+            while(next == null && index != 0)
             {
-                final PriorityQueueList nodeEntryList = (PriorityQueueList) ((PriorityQueueEntry)node).getQueueEntryList();
-                int index;
-                for(index = _priorityLists.length-1; _priorityLists[index] != nodeEntryList; index--)
-                {
-                    // do nothing loop is just to find the index
-                }
-
-                while(next == null && index != 0)
-                {
-                    index--;
-                    next = (PriorityQueueEntry) _priorityLists[index].getHead().getNextValidEntry();
-                }
-
+                index--;
+                next = _priorityLists[index].getFirstAvailableCandidate();
             }
             return next;
         }
@@ -226,12 +219,89 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
                 return new PriorityQueueEntry((PriorityQueueList) list);
             }
         };
+        private static final AtomicReferenceFieldUpdater<PriorityQueueEntrySubList, FirstAvailable>
+                _firstAvailableUpdater =
+                AtomicReferenceFieldUpdater.newUpdater
+                        (PriorityQueueEntrySubList.class, FirstAvailable.class, "_firstAvailable");
+
         private int _listPriority;
 
+        /**
+         * No entry of the list before the referenced entry is available.  Rather than walking over every acquired
+         * entry from the head each time a consumer moves into the list, consumers start from here.
+         */
+        private volatile FirstAvailable _firstAvailable;
+
         public PriorityQueueEntrySubList(PriorityQueueImpl queue, int listPriority)
         {
             super(queue, HEAD_CREATOR);
             _listPriority = listPriority;
+            _firstAvailable = new FirstAvailable((PriorityQueueEntry) getHead());
+        }
+
+        /**
+         * @return the first available entry of the list, or null if there is none
+         */
+        PriorityQueueEntry getFirstAvailableCandidate()
+        {
+            final FirstAvailable current = _firstAvailable;
+            PriorityQueueEntry node = current.getEntry();
+            if (node.isAvailable())
+            {
+                return node;
+            }
+
+            PriorityQueueEntry next = node.getNextValidEntry();
+            while (next != null && !next.isAvailable())
+            {
+                node = next;
+                next = node.getNextValidEntry();
+            }
+            if (next != null)
+            {
+                node = next;
+            }
+            if (node != current.getEntry())
+            {
+                // fails if an entry has been released meanwhile, in which case the hint is simply left behind
+                _firstAvailableUpdater.compareAndSet(this, current, new FirstAvailable(node));
+            }
+            return next;
+        }
+
+        /**
+         * @return the entry following the given entry of this list from which a consumer should continue, or null if
+         * there are no further available entries in this list
+         */
+        PriorityQueueEntry next(final PriorityQueueEntry entry)
+        {
+            final PriorityQueueEntry firstAvailable = getFirstAvailableCandidate();
+            if (firstAvailable == null)
+            {
+                return null;
+            }
+            else if (firstAvailable.compareTo(entry) > 0)
+            {
+                return firstAvailable;
+            }
+            else
+            {
+                return entry.getNextValidEntry();
+            }
+        }
+
+        void entryReleased(final PriorityQueueEntry entry)
+        {
+            FirstAvailable current;
+            PriorityQueueEntry firstAvailable;
+            do
+            {
+                current = _firstAvailable;
+                firstAvailable = current.getEntry().compareTo(entry) > 0 ? entry : current.getEntry();
+            }
+            // always installs a new object so that a concurrent advance which may have passed the entry while it was
+            // still acquired cannot succeed
+            while (!_firstAvailableUpdater.compareAndSet(this, current, new FirstAvailable(firstAvailable)));
         }
 
         @Override
@@ -245,6 +315,21 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
         {
             return _listPriority;
         }
+
+        private static final class FirstAvailable
+        {
+            private final PriorityQueueEntry _entry;
+
+            private FirstAvailable(final PriorityQueueEntry entry)
+            {
+                _entry = entry;
+            }
+
+            private PriorityQueueEntry getEntry()
+            {
+                return _entry;
+            }
+        }
     }
 
     static class PriorityQueueEntry extends OrderedQueueEntry
@@ -261,6 +346,18 @@ abstract public class PriorityQueueList extends OrderedQueueEntryList
             super(queueEntryList, message, messageEnqueueRecord);
         }
 
+        @Override
+        public PriorityQueueEntry getNextValidEntry()
+        {
+            return (PriorityQueueEntry) super.getNextValidEntry();
+        }
+
+        @Override
+        protected void onRelease()
+        {
+            ((PriorityQueueEntrySubList) getQueueEntryList()).entryReleased(this);
+        }
+
         @Override
         public int compareTo(final QueueEntry o)
         {
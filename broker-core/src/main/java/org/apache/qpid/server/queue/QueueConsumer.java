@@ -40,6 +40,8 @@ public interface QueueConsumer<X extends QueueConsumer<X>> extends Consumer<X>
 
     void acquisitionRemoved(QueueEntry node);
 
+    void acquisitionSettled(QueueEntry node, boolean acknowledged);
+
     void queueDeleted();
 
     Queue<?> getQueue();
@@ -83,6 +83,7 @@ class QueueConsumerImpl
     private final Class<? extends ServerMessage> _messageClass;
     private final Object _sessionReference;
     private final AbstractQueue _queue;
+    private final AdaptiveCreditLimit _adaptiveCreditLimit;
 
     private final SuspendedConsumerLoggingTicker _suspendedConsumerLoggingTicker;
 
@@ -138,6 +139,10 @@ class QueueConsumerImpl
         _isTransient = optionSet.contains(Option.TRANSIENT);
         _target = target;
         _queue = queue;
+        _adaptiveCreditLimit = _acquires && queue.getContextValue(Boolean.class, Queue.ADAPTIVE_CREDIT_ENABLED)
+                ? new AdaptiveCreditLimit(queue.getContextValue(Integer.class, Queue.ADAPTIVE_CREDIT_MINIMUM),
+                                          queue.getContextValue(Integer.class, Queue.ADAPTIVE_CREDIT_HEADROOM_PERCENT))
+                : null;
 
         // Access control
         authorise(Operation.CREATE);
@@ -256,7 +261,7 @@ class QueueConsumerImpl
     @Override
     public boolean hasCredit()
     {
-        return _target.hasCredit();
+        return _target.hasCredit() && (_adaptiveCreditLimit == null || !_adaptiveCreditLimit.isLimited());
     }
 
     @Override
@@ -358,7 +363,8 @@ class QueueConsumerImpl
 
     public boolean wouldSuspend(final QueueEntry msg)
     {
-        return !_target.allocateCredit(msg.getMessage());
+        return (_adaptiveCreditLimit != null && _adaptiveCreditLimit.isLimited())
+               || !_target.allocateCredit(msg.getMessage());
     }
 
     public void restoreCredit(final QueueEntry queueEntry)
@@ -616,6 +622,10 @@ class QueueConsumerImpl
     public final void send(final QueueEntry entry, final boolean batch)
     {
         _deliveredCount.incrementAndGet();
+        if(_adaptiveCreditLimit != null && entry.isAcquiredBy(this))
+        {
+            _adaptiveCreditLimit.sent(entry);
+        }
         long size = _target.send(this, entry, batch);
         _deliveredBytes.addAndGet(size);
     }
@@ -625,6 +635,16 @@ class QueueConsumerImpl
     {
         _target.acquisitionRemoved(node);
         _queue.decrementUnackedMsgCount(node);
+        acquisitionSettled(node, false);
+    }
+
+    @Override
+    public void acquisitionSettled(final QueueEntry node, final boolean acknowledged)
+    {
+        if(_adaptiveCreditLimit != null && _adaptiveCreditLimit.settled(node, acknowledged))
+        {
+            externalStateChange();
+        }
     }
 
     @Override
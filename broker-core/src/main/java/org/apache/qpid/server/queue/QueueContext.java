@@ -23,10 +23,11 @@ package org.apache.qpid.server.queue;
 
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-final class QueueContext
+class QueueContext
 {
     private volatile QueueEntry _lastSeenEntry;
     private volatile QueueEntry _releasedEntry;
+    private final QueueRunner _queueRunner;
 
     static final AtomicReferenceFieldUpdater<QueueContext, QueueEntry>
             _lastSeenUpdater =
@@ -38,8 +39,14 @@ final class QueueContext
         (QueueContext.class, QueueEntry.class, "_releasedEntry");
 
     public QueueContext(QueueEntry head)
+    {
+        this(head, null);
+    }
+
+    public QueueContext(QueueEntry head, QueueRunner queueRunner)
     {
         _lastSeenEntry = head;
+        _queueRunner = queueRunner;
     }
 
     public QueueEntry getLastSeenEntry()
@@ -53,6 +60,15 @@ final class QueueContext
         return _releasedEntry;
     }
 
+    /**
+     * @return the runner responsible for asynchronous delivery to the consumer, or null if the consumer may be
+     * served by any of the queue's runners
+     */
+    QueueRunner getQueueRunner()
+    {
+        return _queueRunner;
+    }
+
     @Override
     public String toString()
     {
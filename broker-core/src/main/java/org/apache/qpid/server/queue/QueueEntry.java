@@ -43,6 +43,8 @@ public interface QueueEntry extends MessageInstance, Comparable<QueueEntry>
 
     void setExpiration(long calculatedExpiration);
 
+    long getExpiration();
+
     MessageReference newMessageReference();
 
     boolean checkHeld(final long evaluationTime);
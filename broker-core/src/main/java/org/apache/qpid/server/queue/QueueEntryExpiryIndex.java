@@ -0,0 +1,144 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.apache.qpid.server.message.ServerMessage;
+
+/**
+ * Index of the queue entries that have an expiration, ordered by expiration time, allowing expired entries to be
+ * found without iterating over the whole queue.
+ *
+ * An entry that is dequeued before it is indexed leaves a stale key behind.  Such keys are discarded when their
+ * expiration time is reached.
+ */
+final class QueueEntryExpiryIndex
+{
+    private final ConcurrentSkipListSet<Key> _keys = new ConcurrentSkipListSet<>();
+
+    void add(final QueueEntry entry)
+    {
+        final Key key = createKey(entry);
+        if (key != null)
+        {
+            _keys.add(key);
+        }
+    }
+
+    void remove(final QueueEntry entry)
+    {
+        final Key key = createKey(entry);
+        if (key != null)
+        {
+            _keys.remove(key);
+        }
+    }
+
+    /**
+     * Removes from the index the entries whose expiration time is before the given time.
+     *
+     * @return the removed entries that are not yet deleted
+     */
+    List<QueueEntry> removeExpired(final long currentTime)
+    {
+        List<QueueEntry> expired = new ArrayList<>();
+        Key key;
+        while (!_keys.isEmpty() && (key = _keys.first()).getExpiration() < currentTime)
+        {
+            if (_keys.remove(key) && !key.getEntry().isDeleted())
+            {
+                expired.add(key.getEntry());
+            }
+        }
+        return expired;
+    }
+
+    int size()
+    {
+        return _keys.size();
+    }
+
+    private static Key createKey(final QueueEntry entry)
+    {
+        final long expiration = entry.getExpiration();
+        final ServerMessage message;
+        if (expiration == 0L || (message = entry.getMessage()) == null)
+        {
+            return null;
+        }
+        return new Key(expiration, message.getMessageNumber(), entry);
+    }
+
+    private static final class Key implements Comparable<Key>
+    {
+        private final long _expiration;
+        private final long _messageNumber;
+        private final int _entryHash;
+        private final QueueEntry _entry;
+
+        private Key(final long expiration, final long messageNumber, final QueueEntry entry)
+        {
+            _expiration = expiration;
+            _messageNumber = messageNumber;
+            _entryHash = System.identityHashCode(entry);
+            _entry = entry;
+        }
+
+        long getExpiration()
+        {
+            return _expiration;
+        }
+
+        QueueEntry getEntry()
+        {
+            return _entry;
+        }
+
+        @Override
+        public int compareTo(final Key other)
+        {
+            if (_expiration != other._expiration)
+            {
+                return _expiration < other._expiration ? -1 : 1;
+            }
+            if (_messageNumber != other._messageNumber)
+            {
+                return _messageNumber < other._messageNumber ? -1 : 1;
+            }
+            return _entryHash < other._entryHash ? -1 : _entryHash == other._entryHash ? 0 : 1;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            return o instanceof Key && compareTo((Key) o) == 0;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (int) (_expiration ^ _messageNumber) ^ _entryHash;
+        }
+    }
+}
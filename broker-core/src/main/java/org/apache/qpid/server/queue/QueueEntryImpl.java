@@ -162,6 +162,12 @@ public abstract class QueueEntryImpl implements QueueEntry
         _expiration = expiration;
     }
 
+    @Override
+    public long getExpiration()
+    {
+        return _expiration;
+    }
+
     public InstanceProperties getInstanceProperties()
     {
         return new EntryInstanceProperties();
@@ -422,9 +428,12 @@ public abstract class QueueEntryImpl implements QueueEntry
 
     private void postRelease(final EntryState previousState)
     {
+        onRelease();
+
         if (previousState instanceof ConsumerAcquiredState)
         {
             getQueue().decrementUnackedMsgCount(this);
+            settleAcquisition((ConsumerAcquiredState) previousState, false);
         }
 
         if(!getQueue().isDeleted())
@@ -526,6 +535,7 @@ public abstract class QueueEntryImpl implements QueueEntry
             if (state instanceof ConsumerAcquiredState)
             {
                 getQueue().decrementUnackedMsgCount(this);
+                settleAcquisition((ConsumerAcquiredState) state, true);
             }
 
             getQueue().dequeue(this);
@@ -542,6 +552,15 @@ public abstract class QueueEntryImpl implements QueueEntry
 
     }
 
+    private void settleAcquisition(final ConsumerAcquiredState<?> state, final boolean acknowledged)
+    {
+        final ConsumerImpl consumer = state.getConsumer();
+        if (consumer instanceof QueueConsumer)
+        {
+            ((QueueConsumer<?>) consumer).acquisitionSettled(this, acknowledged);
+        }
+    }
+
     private void notifyStateChange(final EntryState oldState, final EntryState newState)
     {
         StateChangeListenerEntry<? super QueueEntry, EntryState> entry = _listenersUpdater.get(this);
@@ -668,11 +687,43 @@ public abstract class QueueEntryImpl implements QueueEntry
     {
     }
 
+    /**
+     * Called once the entry has been returned to the available state, before consumers are told of its release.
+     */
+    protected void onRelease()
+    {
+    }
+
     public QueueEntryList getQueueEntryList()
     {
         return _queueEntryList;
     }
 
+    MessageReference getMessageReference()
+    {
+        return _message;
+    }
+
+    EntryState getEntryState()
+    {
+        return _state;
+    }
+
+    /**
+     * Moves an entry which is available and has never been offered to a consumer into the given dispensed state, so
+     * that the list may hold it in a compacted form.  Entries with an expiration, state listeners or any delivery
+     * history are not eligible.
+     */
+    boolean compact(final EntryState compactedState)
+    {
+        return _deliveryCount == -1
+               && _expiration == 0L
+               && (_flags & REDELIVERED_FLAG) == 0
+               && _rejectedBy == null
+               && _stateChangeListeners == null
+               && _stateUpdater.compareAndSet(this, AVAILABLE_STATE, compactedState);
+    }
+
     public boolean isDeleted()
     {
         return _state.isDispensed();
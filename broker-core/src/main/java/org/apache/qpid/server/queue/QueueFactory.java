@@ -90,6 +90,10 @@ public class QueueFactory<X extends Queue<X>>  implements ConfiguredObjectTypeFa
             {
                 type = "lvq";
             }
+            else if(attributes.containsKey(PartitionedQueue.PARTITIONS))
+            {
+                type = "partitioned";
+            }
             else
             {
                 type = "standard";
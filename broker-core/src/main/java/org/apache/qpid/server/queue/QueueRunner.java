@@ -52,14 +52,24 @@ public class QueueRunner implements Runnable
 
     private final AtomicLong _lastRunAgain = new AtomicLong();
     private final AtomicLong _lastRunTime = new AtomicLong();
+    private final AtomicInteger _consumerCount = new AtomicInteger();
     private final AccessControlContext _context;
     private final String _taskName;
+    private final int _index;
 
     public QueueRunner(AbstractQueue queue, AccessControlContext context)
+    {
+        this(queue, context, 0);
+    }
+
+    public QueueRunner(AbstractQueue queue, AccessControlContext context, int index)
     {
         _queue = queue;
         _context = context;
-        _taskName = "Queue Runner[" + _queue.getName() + "]";
+        _index = index;
+        _taskName = index == 0
+                ? "Queue Runner[" + _queue.getName() + "]"
+                : "Queue Runner[" + _queue.getName() + "-" + index + "]";
     }
 
     @Override
@@ -105,7 +115,9 @@ public class QueueRunner implements Runnable
     @Override
     public String toString()
     {
-        return "QueueRunner-" + _queue.getLogSubject().toLogString();
+        return _index == 0
+                ? "QueueRunner-" + _queue.getLogSubject().toLogString()
+                : "QueueRunner-" + _index + "-" + _queue.getLogSubject().toLogString();
     }
 
     public void execute()
@@ -122,4 +134,22 @@ public class QueueRunner implements Runnable
         return _scheduled.get() == IDLE;
     }
 
+    /**
+     * @return the number of consumers whose asynchronous delivery has been assigned to this runner
+     */
+    int getConsumerCount()
+    {
+        return _consumerCount.get();
+    }
+
+    void consumerAssigned()
+    {
+        _consumerCount.incrementAndGet();
+    }
+
+    void consumerUnassigned()
+    {
+        _consumerCount.decrementAndGet();
+    }
+
 }
@@ -37,5 +37,13 @@ public class StandardQueueEntry extends OrderedQueueEntry
         super(queueEntryList, message, messageEnqueueRecord);
     }
 
+    protected StandardQueueEntry(final StandardQueueEntryList queueEntryList,
+                                 final ServerMessage message,
+                                 final long entryId,
+                                 final MessageEnqueueRecord messageEnqueueRecord)
+    {
+        super(queueEntryList, message, entryId, messageEnqueueRecord);
+    }
+
 
 }
@@ -40,6 +40,11 @@ public class StandardQueueEntryList extends OrderedQueueEntryList
         super(queue, HEAD_CREATOR);
     }
 
+    protected StandardQueueEntryList(final StandardQueueImpl queue, final HeadCreator headCreator)
+    {
+        super(queue, headCreator);
+    }
+
 
     protected StandardQueueEntry createQueueEntry(ServerMessage<?> message,
                                                   final MessageEnqueueRecord enqueueRecord)
@@ -39,7 +39,10 @@ public class StandardQueueImpl extends AbstractQueue<StandardQueueImpl> implemen
     protected void onOpen()
     {
         super.onOpen();
-        _entries = new StandardQueueEntryList(this);
+        final int compactEntriesThreshold = getContextValue(Integer.class, COMPACT_ENTRIES_THRESHOLD);
+        _entries = compactEntriesThreshold > 0
+                ? new CompactingQueueEntryList(this, compactEntriesThreshold)
+                : new StandardQueueEntryList(this);
     }
 
     @Override
@@ -47,4 +50,37 @@ public class StandardQueueImpl extends AbstractQueue<StandardQueueImpl> implemen
     {
         return _entries;
     }
+
+    @Override
+    QueueEntryIterator getHousekeepingIterator()
+    {
+        return _entries instanceof CompactingQueueEntryList
+                ? ((CompactingQueueEntryList) _entries).nonExpandingIterator()
+                : super.getHousekeepingIterator();
+    }
+
+    @Override
+    public void checkMessageStatus()
+    {
+        super.checkMessageStatus();
+        if (_entries instanceof CompactingQueueEntryList)
+        {
+            ((CompactingQueueEntryList) _entries).compact(getFurthestConsumerPosition());
+        }
+    }
+
+    private QueueEntry getFurthestConsumerPosition()
+    {
+        QueueEntry furthest = _entries.getHead();
+        for (QueueConsumer<?> consumer : getConsumers())
+        {
+            final QueueContext queueContext = consumer.getQueueContext();
+            final QueueEntry lastSeen = queueContext == null ? null : queueContext.getLastSeenEntry();
+            if (lastSeen != null && lastSeen.compareTo(furthest) > 0)
+            {
+                furthest = lastSeen;
+            }
+        }
+        return furthest;
+    }
 }
@@ -36,6 +36,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
@@ -75,6 +76,19 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     private static final int DB_VERSION = 8;
 
+    /**
+     * Context variable giving the maximum number of transactions whose work is written to the database in one group
+     * commit.  A value of zero or less, the default, disables group commit, giving each transaction its own
+     * connection.
+     */
+    public static final String COMMIT_BATCH_SIZE = "qpid.jdbcstore.commitBatchSize";
+
+    /**
+     * Context variable giving the time in milliseconds the committer may wait for further transactions before
+     * writing a batch that is not yet full.
+     */
+    public static final String COMMIT_BATCH_MAX_WAIT = "qpid.jdbcstore.commitBatchMaxWait";
+
     private final AtomicLong _messageId = new AtomicLong(0);
 
     private static final String CREATE_DB_VERSION_TABLE = "CREATE TABLE "+ DB_VERSION_TABLE_NAME + " ( version int not null )";
@@ -123,6 +137,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     protected abstract void checkMessageStoreOpen();
     private ScheduledThreadPoolExecutor _executor;
+    private CoalescingJDBCCommitter<JDBCCommitJob<?>> _committer;
 
     public AbstractJDBCMessageStore()
     {
@@ -272,11 +287,43 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         });
         _executor.prestartAllCoreThreads();
 
+        // the defaults are declared by QueueManagingVirtualHost
+        final Integer commitBatchSize = parent.getContextValue(Integer.class, COMMIT_BATCH_SIZE);
+        if (commitBatchSize != null && commitBatchSize > 0)
+        {
+            final Long commitBatchMaxWait = parent.getContextValue(Long.class, COMMIT_BATCH_MAX_WAIT);
+            _committer = new CoalescingJDBCCommitter<>(parent.getName() + "-store-committer",
+                                                       new CoalescingJDBCCommitter.BatchWriter<JDBCCommitJob<?>>()
+                                                       {
+                                                           @Override
+                                                           public void write(final List<JDBCCommitJob<?>> jobs)
+                                                           {
+                                                               writeCommitBatch(jobs);
+                                                           }
+                                                       },
+                                                       commitBatchSize,
+                                                       commitBatchMaxWait == null ? 0L : commitBatchMaxWait);
+            _committer.start();
+        }
+    }
+
+    /**
+     * Writes out any transactions queued for group commit.  Implementations should call this before releasing the
+     * underlying database.
+     */
+    protected void stopCommitter()
+    {
+        if(_committer != null)
+        {
+            _committer.stop();
+            _committer = null;
+        }
     }
 
     @Override
     public void closeMessageStore()
     {
+        stopCommitter();
         if(_executor != null)
         {
             _executor.shutdown();
@@ -571,7 +618,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         return new JDBCTransaction();
     }
 
-    private void enqueueMessage(ConnectionWrapper connWrapper, final TransactionLogResource queue, Long messageId) throws StoreException
+    private void enqueueMessage(ConnectionWrapper connWrapper, final UUID queueId, Long messageId) throws StoreException
     {
         Connection conn = connWrapper.getConnection();
 
@@ -580,13 +627,13 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             if (getLogger().isDebugEnabled())
             {
-                getLogger().debug("Enqueuing message {} on queue {} with id {} [Connection {}]",
-                                  messageId, queue.getName(), queue.getId(), conn);
+                getLogger().debug("Enqueuing message {} on queue with id {} [Connection {}]",
+                                  messageId, queueId, conn);
             }
 
             try (PreparedStatement stmt = conn.prepareStatement(INSERT_INTO_QUEUE_ENTRY))
             {
-                stmt.setString(1, queue.getId().toString());
+                stmt.setString(1, queueId.toString());
                 stmt.setLong(2, messageId);
                 stmt.executeUpdate();
             }
@@ -595,7 +642,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         catch (SQLException e)
         {
             getLogger().error("Failed to enqueue message {}", messageId, e);
-            throw new StoreException("Error writing enqueued message with id " + messageId + " for queue " + queue.getName() + " with id " + queue.getId()
+            throw new StoreException("Error writing enqueued message with id " + messageId + " for queue with id " + queueId
                                      + " to database", e);
         }
 
@@ -819,6 +866,110 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         return future;
     }
 
+    private void writeCommitBatch(final List<JDBCCommitJob<?>> jobs) throws StoreException
+    {
+        final List<StoredJDBCMessage<?>> storing = new ArrayList<>();
+        final List<JDBCEnqueueRecord> dequeues = new ArrayList<>();
+        boolean committed = false;
+        int storeSizeIncrease = 0;
+        Connection conn = null;
+        try
+        {
+            conn = newConnection();
+            try (PreparedStatement metaDataStmt = conn.prepareStatement(INSERT_INTO_META_DATA);
+                 PreparedStatement contentStmt = conn.prepareStatement(INSERT_INTO_MESSAGE_CONTENT);
+                 PreparedStatement enqueueStmt = conn.prepareStatement(INSERT_INTO_QUEUE_ENTRY);
+                 PreparedStatement dequeueStmt = conn.prepareStatement(DELETE_FROM_QUEUE_ENTRY))
+            {
+                int enqueues = 0;
+                for (JDBCCommitJob<?> job : jobs)
+                {
+                    for (StoredJDBCMessage<?> message : job.getMessages())
+                    {
+                        final PendingMessageData data = message.prepareBatchStore();
+                        if (data != null)
+                        {
+                            storing.add(message);
+                            metaDataStmt.setLong(1, message.getMessageNumber());
+                            metaDataStmt.setBinaryStream(2, new ByteArrayInputStream(data.getMetaData()),
+                                                         data.getMetaData().length);
+                            metaDataStmt.addBatch();
+                            contentStmt.setLong(1, message.getMessageNumber());
+                            contentStmt.setBinaryStream(2, new ByteArrayInputStream(data.getContent()),
+                                                        data.getContent().length);
+                            contentStmt.addBatch();
+                        }
+                    }
+                    for (JDBCEnqueueRecord record : job.getEnqueues())
+                    {
+                        enqueueStmt.setString(1, record.getQueueId().toString());
+                        enqueueStmt.setLong(2, record.getMessageNumber());
+                        enqueueStmt.addBatch();
+                        enqueues++;
+                    }
+                    for (JDBCEnqueueRecord record : job.getDequeues())
+                    {
+                        dequeueStmt.setString(1, record.getQueueId().toString());
+                        dequeueStmt.setLong(2, record.getMessageNumber());
+                        dequeueStmt.addBatch();
+                        dequeues.add(record);
+                    }
+                }
+
+                if (!storing.isEmpty())
+                {
+                    metaDataStmt.executeBatch();
+                    contentStmt.executeBatch();
+                }
+                if (enqueues > 0)
+                {
+                    enqueueStmt.executeBatch();
+                }
+                if (!dequeues.isEmpty())
+                {
+                    final int[] results = dequeueStmt.executeBatch();
+                    for (int i = 0; i < results.length; i++)
+                    {
+                        if (results[i] != 1 && results[i] != Statement.SUCCESS_NO_INFO)
+                        {
+                            throw new StoreException("Unable to find message with id "
+                                                     + dequeues.get(i).getMessageNumber()
+                                                     + " on queue with id " + dequeues.get(i).getQueueId());
+                        }
+                    }
+                }
+            }
+            conn.commit();
+            committed = true;
+
+            getLogger().debug("Group commit of {} transactions completed", jobs.size());
+        }
+        catch (SQLException e)
+        {
+            getLogger().error("Failed to commit batch of {} transactions", jobs.size(), e);
+            throw new StoreException("Error committing batch of " + jobs.size() + " transactions", e);
+        }
+        finally
+        {
+            for (StoredJDBCMessage<?> message : storing)
+            {
+                if (message.batchStoreCompleted(committed))
+                {
+                    storeSizeIncrease += message.getMetaData().getContentSize();
+                }
+            }
+            if (conn != null)
+            {
+                if (!committed)
+                {
+                    JdbcUtils.rollbackQuietly(conn, getLogger());
+                }
+                JdbcUtils.closeConnection(conn, getLogger());
+            }
+        }
+        storedSizeChange(storeSizeIncrease);
+    }
+
     private void abortTran(ConnectionWrapper connWrapper) throws StoreException
     {
         if (connWrapper == null)
@@ -851,14 +1002,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             stmt.setLong(1, messageId);
 
-            final int bodySize = 1 + metaData.getStorableSize();
-            byte[] underlying = new byte[bodySize];
-            underlying[0] = (byte) metaData.getType().ordinal();
-            QpidByteBuffer buf = QpidByteBuffer.wrap(underlying);
-            buf.position(1);
-            buf = buf.slice();
-
-            metaData.writeToBuffer(buf);
+            byte[] underlying = getMetaDataBytes(metaData);
             ByteArrayInputStream bis = new ByteArrayInputStream(underlying);
             try
             {
@@ -1007,15 +1151,21 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         }
     }
 
-    protected abstract byte[] getBlobAsBytes(ResultSet rs, int col) throws SQLException;
-
-    private void addContent(final Connection conn, long messageId,
-                            Collection<QpidByteBuffer> contentBody)
+    private static byte[] getMetaDataBytes(final StorableMessageMetaData metaData)
     {
-        getLogger().debug("Adding content for message {}", messageId);
-
-        PreparedStatement stmt = null;
+        final int bodySize = 1 + metaData.getStorableSize();
+        byte[] underlying = new byte[bodySize];
+        underlying[0] = (byte) metaData.getType().ordinal();
+        QpidByteBuffer buf = QpidByteBuffer.wrap(underlying);
+        buf.position(1);
+        buf = buf.slice();
+
+        metaData.writeToBuffer(buf);
+        return underlying;
+    }
 
+    private static byte[] getContentBytes(final Collection<QpidByteBuffer> contentBody)
+    {
         int size = 0;
 
         for(QpidByteBuffer buf : contentBody)
@@ -1028,6 +1178,19 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             buf.copyTo(dst);
         }
+        return data;
+    }
+
+    protected abstract byte[] getBlobAsBytes(ResultSet rs, int col) throws SQLException;
+
+    private void addContent(final Connection conn, long messageId,
+                            Collection<QpidByteBuffer> contentBody)
+    {
+        getLogger().debug("Adding content for message {}", messageId);
+
+        PreparedStatement stmt = null;
+
+        byte[] data = getContentBytes(contentBody);
 
         try
         {
@@ -1102,18 +1265,35 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     }
 
 
+    /**
+     * When group commit is enabled the transaction holds no connection: its work is recorded and handed to the
+     * committer on commit, which writes it together with that of other transactions.  Distributed transaction
+     * operations need a connection of their own, so recording or removing an xid switches the transaction to
+     * the per-connection mode, replaying the work recorded so far.
+     */
     protected class JDBCTransaction implements Transaction
     {
-        private final ConnectionWrapper _connWrapper;
+        private ConnectionWrapper _connWrapper;
         private int _storeSizeIncrease;
         private final List<Runnable> _preCommitActions = new ArrayList<>();
         private final List<Runnable> _postCommitActions = new ArrayList<>();
+        private final List<StoredJDBCMessage<?>> _messagesToStore = new ArrayList<>();
+        private final List<JDBCEnqueueRecord> _enqueues = new ArrayList<>();
+        private final List<JDBCEnqueueRecord> _dequeues = new ArrayList<>();
 
         protected JDBCTransaction()
+        {
+            if (_committer == null)
+            {
+                _connWrapper = openConnectionWrapper();
+            }
+        }
+
+        private ConnectionWrapper openConnectionWrapper()
         {
             try
             {
-                _connWrapper = new ConnectionWrapper(newConnection());
+                return new ConnectionWrapper(newConnection());
             }
             catch (SQLException e)
             {
@@ -1121,34 +1301,78 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             }
         }
 
+        private ConnectionWrapper getConnectionWrapper()
+        {
+            if (_connWrapper == null)
+            {
+                _connWrapper = openConnectionWrapper();
+                for (StoredJDBCMessage<?> storedMessage : _messagesToStore)
+                {
+                    addStoreAction(storedMessage);
+                }
+                for (JDBCEnqueueRecord record : _enqueues)
+                {
+                    AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper,
+                                                                 record.getQueueId(),
+                                                                 record.getMessageNumber());
+                }
+                for (JDBCEnqueueRecord record : _dequeues)
+                {
+                    AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper,
+                                                                 record.getQueueId(),
+                                                                 record.getMessageNumber());
+                }
+                _messagesToStore.clear();
+                _enqueues.clear();
+                _dequeues.clear();
+            }
+            return _connWrapper;
+        }
+
         @Override
         public MessageEnqueueRecord enqueueMessage(TransactionLogResource queue, EnqueueableMessage message)
         {
             checkMessageStoreOpen();
 
             final StoredMessage storedMessage = message.getStoredMessage();
+            final JDBCEnqueueRecord record = new JDBCEnqueueRecord(queue.getId(), message.getMessageNumber());
+            if (_connWrapper == null)
+            {
+                if (storedMessage instanceof StoredJDBCMessage)
+                {
+                    _messagesToStore.add((StoredJDBCMessage<?>) storedMessage);
+                }
+                _enqueues.add(record);
+                return record;
+            }
+
             if(storedMessage instanceof StoredJDBCMessage)
             {
-                _preCommitActions.add(new Runnable()
+                addStoreAction((StoredJDBCMessage<?>) storedMessage);
+            }
+            AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper, queue.getId(), message.getMessageNumber());
+            return record;
+        }
+
+        private void addStoreAction(final StoredJDBCMessage<?> storedMessage)
+        {
+            _preCommitActions.add(new Runnable()
+            {
+                @Override
+                public void run()
                 {
-                    @Override
-                    public void run()
+                    try
                     {
-                        try
-                        {
-                            ((StoredJDBCMessage) storedMessage).store(_connWrapper.getConnection());
-                            _storeSizeIncrease += storedMessage.getMetaData().getContentSize();
-                        }
-                        catch (SQLException e)
-                        {
-                            throw new StoreException("Exception on enqueuing message into message store" + _messageId,
-                                                     e);
-                        }
+                        storedMessage.store(_connWrapper.getConnection());
+                        _storeSizeIncrease += storedMessage.getMetaData().getContentSize();
                     }
-                });
-            }
-            AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper, queue, message.getMessageNumber());
-            return new JDBCEnqueueRecord(queue.getId(), message.getMessageNumber());
+                    catch (SQLException e)
+                    {
+                        throw new StoreException("Exception on enqueuing message into message store" + _messageId,
+                                                 e);
+                    }
+                }
+            });
         }
 
         @Override
@@ -1156,6 +1380,12 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
+            if (_connWrapper == null)
+            {
+                _dequeues.add(new JDBCEnqueueRecord(enqueueRecord.getQueueId(), enqueueRecord.getMessageNumber()));
+                return;
+            }
+
             AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper,
                                                          enqueueRecord.getQueueId(),
                                                          enqueueRecord.getMessageNumber());
@@ -1165,6 +1395,27 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         public void commitTran()
         {
             checkMessageStoreOpen();
+            if (_connWrapper == null)
+            {
+                try
+                {
+                    submitToCommitter(null).get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new StoreException("Interrupted whilst waiting for commit", e);
+                }
+                catch (ExecutionException e)
+                {
+                    if (e.getCause() instanceof RuntimeException)
+                    {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new StoreException("Error commit tx", e.getCause());
+                }
+                return;
+            }
             doPreCommitActions();
             AbstractJDBCMessageStore.this.commitTran(_connWrapper);
             storedSizeChange(_storeSizeIncrease);
@@ -1175,6 +1426,10 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         public <X> ListenableFuture<X> commitTranAsync(final X val)
         {
             checkMessageStoreOpen();
+            if (_connWrapper == null)
+            {
+                return submitToCommitter(val);
+            }
             doPreCommitActions();
             ListenableFuture<X> futureResult = AbstractJDBCMessageStore.this.commitTranAsync(_connWrapper, val);
             storedSizeChange(_storeSizeIncrease);
@@ -1182,6 +1437,17 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             return futureResult;
         }
 
+        private <X> ListenableFuture<X> submitToCommitter(final X val)
+        {
+            if (_messagesToStore.isEmpty() && _enqueues.isEmpty() && _dequeues.isEmpty())
+            {
+                return Futures.immediateFuture(val);
+            }
+            final JDBCCommitJob<X> job = new JDBCCommitJob<>(_messagesToStore, _enqueues, _dequeues, val);
+            _committer.commit(job);
+            return job.getFuture();
+        }
+
         private void doPreCommitActions()
         {
             for(Runnable action : _preCommitActions)
@@ -1209,6 +1475,13 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
             _preCommitActions.clear();
+            if (_connWrapper == null)
+            {
+                _messagesToStore.clear();
+                _enqueues.clear();
+                _dequeues.clear();
+                return;
+            }
             AbstractJDBCMessageStore.this.abortTran(_connWrapper);
         }
 
@@ -1217,7 +1490,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            AbstractJDBCMessageStore.this.removeXid(_connWrapper,
+            AbstractJDBCMessageStore.this.removeXid(getConnectionWrapper(),
                                                     record.getFormat(),
                                                     record.getGlobalId(),
                                                     record.getBranchId());
@@ -1232,13 +1505,87 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(_connWrapper, format, globalId, branchId, enqueues, dequeues));
+            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(getConnectionWrapper(), format, globalId, branchId, enqueues, dequeues));
             return new JDBCStoredXidRecord(format, globalId, branchId);
         }
 
 
     }
 
+    private static final class JDBCCommitJob<X> implements CoalescingJDBCCommitter.Job
+    {
+        private final List<StoredJDBCMessage<?>> _messages;
+        private final List<JDBCEnqueueRecord> _enqueues;
+        private final List<JDBCEnqueueRecord> _dequeues;
+        private final X _value;
+        private final SettableFuture<X> _future = SettableFuture.create();
+
+        private JDBCCommitJob(final List<StoredJDBCMessage<?>> messages,
+                              final List<JDBCEnqueueRecord> enqueues,
+                              final List<JDBCEnqueueRecord> dequeues,
+                              final X value)
+        {
+            _messages = messages;
+            _enqueues = enqueues;
+            _dequeues = dequeues;
+            _value = value;
+        }
+
+        List<StoredJDBCMessage<?>> getMessages()
+        {
+            return _messages;
+        }
+
+        List<JDBCEnqueueRecord> getEnqueues()
+        {
+            return _enqueues;
+        }
+
+        List<JDBCEnqueueRecord> getDequeues()
+        {
+            return _dequeues;
+        }
+
+        ListenableFuture<X> getFuture()
+        {
+            return _future;
+        }
+
+        @Override
+        public void complete()
+        {
+            _future.set(_value);
+        }
+
+        @Override
+        public void abort(final RuntimeException e)
+        {
+            _future.setException(e);
+        }
+    }
+
+    private static final class PendingMessageData
+    {
+        private final byte[] _metaData;
+        private final byte[] _content;
+
+        private PendingMessageData(final byte[] metaData, final byte[] content)
+        {
+            _metaData = metaData;
+            _content = content;
+        }
+
+        byte[] getMetaData()
+        {
+            return _metaData;
+        }
+
+        byte[] getContent()
+        {
+            return _content;
+        }
+    }
+
     private static class JDBCStoredXidRecord implements Transaction.StoredXidRecord
     {
         private final long _format;
@@ -1404,6 +1751,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         private final long _messageId;
 
         private MessageDataRef<T> _messageDataRef;
+        private boolean _batchStorePending;
 
 
         StoredJDBCMessage(long messageId, T metaData)
@@ -1558,7 +1906,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
         synchronized void store(final Connection conn) throws SQLException
         {
-            if (!stored())
+            if (!stored() && !_batchStorePending)
             {
 
                 AbstractJDBCMessageStore.this.storeMetaData(conn, _messageId, _messageDataRef.getMetaData());
@@ -1580,9 +1928,49 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             }
         }
 
+        /**
+         * Returns the serialised form of a message not yet in the store and marks it as being written by the
+         * committer, or null if there is nothing to write.
+         */
+        synchronized PendingMessageData prepareBatchStore()
+        {
+            if (_messageDataRef == null || stored() || _batchStorePending)
+            {
+                return null;
+            }
+            final Collection<QpidByteBuffer> data = _messageDataRef.getData();
+            final PendingMessageData pendingData =
+                    new PendingMessageData(getMetaDataBytes(_messageDataRef.getMetaData()),
+                                           getContentBytes(data == null
+                                                                   ? Collections.<QpidByteBuffer>emptySet()
+                                                                   : data));
+            _batchStorePending = true;
+            return pendingData;
+        }
+
+        /**
+         * Returns true if the message is now held in the store.  A message removed whilst its batch was being
+         * written is deleted again here.
+         */
+        synchronized boolean batchStoreCompleted(final boolean committed)
+        {
+            _batchStorePending = false;
+            if (!committed)
+            {
+                return false;
+            }
+            if (_messageDataRef == null)
+            {
+                AbstractJDBCMessageStore.this.removeMessage(_messageId);
+                return false;
+            }
+            _messageDataRef = new MessageDataSoftRef<>(_messageDataRef.getMetaData(), _messageDataRef.getData());
+            return true;
+        }
+
         synchronized ListenableFuture<Void> flushToStore()
         {
-            if (_messageDataRef != null)
+            if (_messageDataRef != null && !_batchStorePending)
             {
                 if(!stored())
                 {
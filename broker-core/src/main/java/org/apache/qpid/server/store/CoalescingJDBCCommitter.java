@@ -0,0 +1,235 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gathers commit jobs submitted by many transactions and hands them to a {@link BatchWriter} in groups, so that
+ * concurrent transactions share a single database transaction (and a single log flush) rather than paying for one
+ * each.  A batch is formed from whatever jobs are queued when the committer thread wakes, up to the maximum batch
+ * size, optionally lingering up to the maximum wait for further jobs to arrive.
+ *
+ * If a batch of several jobs fails, each job is retried on its own so that one bad transaction cannot fail its
+ * neighbours.
+ */
+final class CoalescingJDBCCommitter<J extends CoalescingJDBCCommitter.Job>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingJDBCCommitter.class);
+    private static final long IDLE_POLL_MILLIS = 500L;
+
+    interface Job
+    {
+        void complete();
+
+        void abort(RuntimeException e);
+    }
+
+    interface BatchWriter<J>
+    {
+        /**
+         * Writes the given jobs in a single database transaction, throwing a {@link RuntimeException} if that
+         * transaction could not be committed.
+         */
+        void write(List<J> jobs);
+    }
+
+    private final BlockingQueue<J> _jobQueue = new LinkedBlockingQueue<>();
+    private final BatchWriter<J> _writer;
+    private final int _maxBatchSize;
+    private final long _maxWaitNanos;
+    private final Thread _thread;
+    private volatile boolean _stopped;
+
+    CoalescingJDBCCommitter(final String name,
+                            final BatchWriter<J> writer,
+                            final int maxBatchSize,
+                            final long maxWaitMillis)
+    {
+        if (maxBatchSize < 1)
+        {
+            throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchSize);
+        }
+        _writer = writer;
+        _maxBatchSize = maxBatchSize;
+        _maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxWaitMillis));
+        _thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                processJobs();
+            }
+        }, name);
+        _thread.setDaemon(true);
+    }
+
+    void start()
+    {
+        _thread.start();
+    }
+
+    void stop()
+    {
+        _stopped = true;
+        try
+        {
+            _thread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        abortQueuedJobs();
+    }
+
+    void commit(final J job)
+    {
+        if (_stopped)
+        {
+            job.abort(new StoreException("Committer is stopped"));
+        }
+        else
+        {
+            _jobQueue.add(job);
+            if (_stopped && _jobQueue.remove(job))
+            {
+                job.abort(new StoreException("Committer is stopped"));
+            }
+        }
+    }
+
+    int getQueueDepth()
+    {
+        return _jobQueue.size();
+    }
+
+    private void processJobs()
+    {
+        final List<J> batch = new ArrayList<>(_maxBatchSize);
+        while (!_stopped || !_jobQueue.isEmpty())
+        {
+            try
+            {
+                final J first = _jobQueue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                {
+                    continue;
+                }
+                batch.add(first);
+                _jobQueue.drainTo(batch, _maxBatchSize - 1);
+
+                if (_maxWaitNanos > 0L)
+                {
+                    final long deadline = System.nanoTime() + _maxWaitNanos;
+                    while (batch.size() < _maxBatchSize)
+                    {
+                        final long remaining = deadline - System.nanoTime();
+                        final J next = remaining > 0L ? _jobQueue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null)
+                        {
+                            break;
+                        }
+                        batch.add(next);
+                        _jobQueue.drainTo(batch, _maxBatchSize - batch.size());
+                    }
+                }
+            }
+            catch (InterruptedException e)
+            {
+                LOGGER.debug("Committer thread interrupted");
+            }
+
+            if (!batch.isEmpty())
+            {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(final List<J> batch)
+    {
+        try
+        {
+            _writer.write(batch);
+        }
+        catch (RuntimeException e)
+        {
+            if (batch.size() == 1)
+            {
+                batch.get(0).abort(e);
+            }
+            else
+            {
+                LOGGER.debug("Failed to commit batch of {} jobs, retrying individually", batch.size(), e);
+                for (J job : batch)
+                {
+                    try
+                    {
+                        _writer.write(Collections.singletonList(job));
+                    }
+                    catch (RuntimeException jobException)
+                    {
+                        job.abort(jobException);
+                        continue;
+                    }
+                    completeJob(job);
+                }
+            }
+            return;
+        }
+
+        for (J job : batch)
+        {
+            completeJob(job);
+        }
+    }
+
+    private void completeJob(final J job)
+    {
+        try
+        {
+            job.complete();
+        }
+        catch (RuntimeException e)
+        {
+            LOGGER.warn("Unexpected exception completing commit job", e);
+        }
+    }
+
+    private void abortQueuedJobs()
+    {
+        J job;
+        while ((job = _jobQueue.poll()) != null)
+        {
+            job.abort(new StoreException("Committer is stopped"));
+        }
+    }
+}
@@ -44,6 +44,21 @@ public class JdbcUtils
         }
     }
 
+    public static void rollbackQuietly(final Connection conn, final Logger logger)
+    {
+        if(conn != null)
+        {
+            try
+            {
+                conn.rollback();
+            }
+            catch (SQLException e)
+            {
+                logger.error("Problem rolling back connection", e);
+            }
+        }
+    }
+
     public static void closePreparedStatement(final PreparedStatement stmt, final Logger logger)
     {
         if (stmt != null)
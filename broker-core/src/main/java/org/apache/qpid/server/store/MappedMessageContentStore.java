@@ -0,0 +1,327 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.bytebuffer.ByteBufferRef;
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.util.ByteBufferUtils;
+import org.apache.qpid.util.FileUtils;
+
+/**
+ * Holds message content evicted from memory in rolling memory-mapped segment files.
+ *
+ * Content is appended to the current segment and addressed by a {@link Location}.  Reads return views over the
+ * mapping so that no copy is made.  Each segment counts the locations that refer to it, and the views over it which
+ * have yet to be disposed of.  Once the last location is released and the segment is no longer being written, the
+ * segment is unmapped as soon as no views remain and its file deleted.  A file which cannot be deleted straight away
+ * is retried as further segments are created.  Content larger than the segment size gets a segment of its own.
+ */
+final class MappedMessageContentStore
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedMessageContentStore.class);
+
+    private final File _directory;
+    private final int _segmentSize;
+    private final Set<Segment> _segments = Collections.newSetFromMap(new ConcurrentHashMap<Segment, Boolean>());
+    private final Queue<File> _pendingDeletions = new ConcurrentLinkedQueue<>();
+    private Segment _currentSegment;
+    private long _nextSegmentNumber;
+    private boolean _closed;
+
+    MappedMessageContentStore(final File directory, final int segmentSize)
+    {
+        if (segmentSize <= 0)
+        {
+            throw new IllegalArgumentException("Segment size must be positive : " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new StoreException("Cannot create overflow directory '" + directory.getAbsolutePath() + "'");
+        }
+        _directory = directory;
+        _segmentSize = segmentSize;
+    }
+
+    synchronized Location write(final Collection<QpidByteBuffer> content, final int length)
+    {
+        if (_closed)
+        {
+            throw new StoreException("Overflow store at '" + _directory.getAbsolutePath() + "' is closed");
+        }
+
+        if (length > _segmentSize)
+        {
+            final Segment dedicatedSegment = createSegment(length);
+            final int position = dedicatedSegment.append(content, length);
+            dedicatedSegment.release();
+            return new Location(dedicatedSegment, position, length);
+        }
+
+        Segment segment = _currentSegment;
+        if (segment == null || segment.getFreeSpace() < length)
+        {
+            if (segment != null)
+            {
+                segment.release();
+            }
+            segment = createSegment(_segmentSize);
+            _currentSegment = segment;
+        }
+
+        final int position = segment.append(content, length);
+        return new Location(segment, position, length);
+    }
+
+    synchronized void close()
+    {
+        _closed = true;
+        _currentSegment = null;
+        for (Segment segment : _segments)
+        {
+            segment.discard();
+        }
+        _segments.clear();
+        _pendingDeletions.clear();
+        if (!FileUtils.delete(_directory, true))
+        {
+            LOGGER.warn("Failed to delete overflow directory '{}'", _directory.getAbsolutePath());
+        }
+    }
+
+    int getNumberOfSegments()
+    {
+        return _segments.size();
+    }
+
+    int getNumberOfPendingDeletions()
+    {
+        return _pendingDeletions.size();
+    }
+
+    private void deleteFile(final File file)
+    {
+        if (file.exists() && !file.delete())
+        {
+            LOGGER.debug("Failed to delete overflow segment '{}', will retry", file.getAbsolutePath());
+            _pendingDeletions.add(file);
+        }
+    }
+
+    private void retryPendingDeletions()
+    {
+        for (int i = _pendingDeletions.size(); i > 0; i--)
+        {
+            final File file = _pendingDeletions.poll();
+            if (file == null)
+            {
+                break;
+            }
+            deleteFile(file);
+        }
+    }
+
+    private Segment createSegment(final int size)
+    {
+        retryPendingDeletions();
+        final File file = new File(_directory, String.format("%020d.seg", _nextSegmentNumber++));
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+             FileChannel channel = randomAccessFile.getChannel())
+        {
+            final MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            final Segment segment = new Segment(file, mapping);
+            _segments.add(segment);
+            return segment;
+        }
+        catch (IOException e)
+        {
+            if (file.exists() && !file.delete())
+            {
+                LOGGER.warn("Failed to delete overflow segment '{}'", file.getAbsolutePath());
+            }
+            throw new StoreException("Failed to create overflow segment '" + file.getAbsolutePath() + "'", e);
+        }
+    }
+
+    final class Segment
+    {
+        private final File _file;
+        /** One reference per location plus one held by the store whilst the segment is being written */
+        private final AtomicInteger _references = new AtomicInteger(1);
+        /** Views over the mapping which have yet to be disposed of */
+        private final AtomicInteger _views = new AtomicInteger();
+        private volatile ByteBuffer _mapping;
+        private boolean _released;
+        private int _writePosition;
+
+        private Segment(final File file, final ByteBuffer mapping)
+        {
+            _file = file;
+            _mapping = mapping;
+        }
+
+        private int getFreeSpace()
+        {
+            return _mapping.capacity() - _writePosition;
+        }
+
+        private int append(final Collection<QpidByteBuffer> content, final int length)
+        {
+            final ByteBuffer destination = _mapping.duplicate();
+            final int position = _writePosition;
+            destination.position(position);
+            destination.limit(position + length);
+            for (QpidByteBuffer buf : content)
+            {
+                buf.copyTo(destination);
+            }
+            _writePosition += length;
+            _references.incrementAndGet();
+            return position;
+        }
+
+        private synchronized QpidByteBuffer view(final int position, final int length)
+        {
+            final ByteBuffer mapping = _mapping;
+            if (mapping == null)
+            {
+                throw new StoreException("Overflow segment '" + _file.getAbsolutePath() + "' has been deleted");
+            }
+            final ByteBuffer view = mapping.duplicate();
+            view.position(position);
+            view.limit(position + length);
+            // counts the view, and any slice of it, until disposed of
+            return QpidByteBuffer.wrap(new ViewRef(view.slice()));
+        }
+
+        private void release()
+        {
+            if (_references.decrementAndGet() == 0)
+            {
+                _segments.remove(this);
+                discard();
+            }
+        }
+
+        private synchronized void discard()
+        {
+            _released = true;
+            unmapIfUnused();
+        }
+
+        private void viewDisposed()
+        {
+            if (_views.decrementAndGet() == 0)
+            {
+                synchronized (this)
+                {
+                    unmapIfUnused();
+                }
+            }
+        }
+
+        private void unmapIfUnused()
+        {
+            final ByteBuffer mapping = _mapping;
+            if (_released && mapping != null && _views.get() == 0)
+            {
+                _mapping = null;
+                ByteBufferUtils.unmap(mapping);
+                deleteFile(_file);
+            }
+        }
+
+        private final class ViewRef implements ByteBufferRef
+        {
+            private final ByteBuffer _view;
+
+            private ViewRef(final ByteBuffer view)
+            {
+                _view = view;
+            }
+
+            @Override
+            public void incrementRef()
+            {
+                _views.incrementAndGet();
+            }
+
+            @Override
+            public void decrementRef()
+            {
+                viewDisposed();
+            }
+
+            @Override
+            public ByteBuffer getBuffer()
+            {
+                return _view;
+            }
+
+            @Override
+            public void removeFromPool()
+            {
+            }
+        }
+    }
+
+    static final class Location
+    {
+        private final Segment _segment;
+        private final int _position;
+        private final int _length;
+
+        private Location(final Segment segment, final int position, final int length)
+        {
+            _segment = segment;
+            _position = position;
+            _length = length;
+        }
+
+        Collection<QpidByteBuffer> read(final int offset, final int length)
+        {
+            final int start = Math.min(offset, _length);
+            final int end = Math.min(_length, start + length);
+            return Collections.singleton(_segment.view(_position + start, end - start));
+        }
+
+        void release()
+        {
+            _segment.release();
+        }
+    }
+}
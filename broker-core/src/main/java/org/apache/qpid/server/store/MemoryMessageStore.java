@@ -45,9 +45,14 @@ public class MemoryMessageStore implements MessageStore
 {
     public static final String TYPE = "Memory";
 
+    /** Directory to which message content is evicted on flow to disk.  Content is never evicted if not set. */
+    public static final String OVERFLOW_PATH = "qpid.memoryMessageStore.overflowPath";
+    public static final String OVERFLOW_SEGMENT_SIZE = "qpid.memoryMessageStore.overflowSegmentSize";
+
     private final AtomicLong _messageId = new AtomicLong(1);
 
     private final ConcurrentMap<Long, StoredMemoryMessage> _messages = new ConcurrentHashMap<Long, StoredMemoryMessage>();
+    private volatile MappedMessageContentStore _overflowStore;
     private final Object _transactionLock = new Object();
     private final Map<UUID, Set<Long>> _messageInstances = new HashMap<UUID, Set<Long>>();
     private final Map<Xid, DistributedTransactionRecords> _distributedTransactions = new HashMap<Xid, DistributedTransactionRecords>();
@@ -271,6 +276,16 @@ public class MemoryMessageStore implements MessageStore
     @Override
     public void openMessageStore(final ConfiguredObject<?> parent)
     {
+        final Set<String> contextKeys = parent.getContextKeys(false);
+        if (contextKeys.contains(OVERFLOW_PATH) && contextKeys.contains(OVERFLOW_SEGMENT_SIZE))
+        {
+            final String overflowPath = parent.getContextValue(String.class, OVERFLOW_PATH);
+            if (overflowPath != null && !"".equals(overflowPath.trim()))
+            {
+                final int segmentSize = parent.getContextValue(Integer.class, OVERFLOW_SEGMENT_SIZE);
+                _overflowStore = new MappedMessageContentStore(new File(overflowPath), segmentSize);
+            }
+        }
     }
 
     @Override
@@ -284,7 +299,7 @@ public class MemoryMessageStore implements MessageStore
     {
         long id = getNextMessageId();
 
-        StoredMemoryMessage<T> storedMemoryMessage = new StoredMemoryMessage<T>(id, metaData)
+        StoredMemoryMessage<T> storedMemoryMessage = new StoredMemoryMessage<T>(id, metaData, _overflowStore)
         {
 
             @Override
@@ -327,6 +342,12 @@ public class MemoryMessageStore implements MessageStore
             _messageInstances.clear();
             _distributedTransactions.clear();
         }
+        final MappedMessageContentStore overflowStore = _overflowStore;
+        if (overflowStore != null)
+        {
+            _overflowStore = null;
+            overflowStore.close();
+        }
     }
 
     @Override
@@ -29,13 +29,22 @@ import org.apache.qpid.bytebuffer.QpidByteBuffer;
 public class StoredMemoryMessage<T extends StorableMessageMetaData> implements StoredMessage<T>, MessageHandle<T>
 {
     private final long _messageNumber;
+    private final MappedMessageContentStore _overflowStore;
     private QpidByteBuffer _content;
+    private MappedMessageContentStore.Location _overflowLocation;
+    private boolean _allContentAdded;
     private T _metaData;
 
     public StoredMemoryMessage(long messageNumber, T metaData)
+    {
+        this(messageNumber, metaData, null);
+    }
+
+    StoredMemoryMessage(long messageNumber, T metaData, MappedMessageContentStore overflowStore)
     {
         _messageNumber = messageNumber;
         _metaData = metaData;
+        _overflowStore = overflowStore;
     }
 
     public long getMessageNumber()
@@ -74,22 +83,23 @@ public class StoredMemoryMessage<T extends StorableMessageMetaData> implements S
     }
 
     @Override
-    public StoredMessage<T> allContentAdded()
+    public synchronized StoredMessage<T> allContentAdded()
     {
         if(_content != null)
         {
             _content.flip();
         }
+        _allContentAdded = true;
         return this;
     }
 
 
     @Override
-    public Collection<QpidByteBuffer> getContent(int offset, int length)
+    public synchronized Collection<QpidByteBuffer> getContent(int offset, int length)
     {
         if(_content == null)
         {
-            return null;
+            return _overflowLocation == null ? null : _overflowLocation.read(offset, length);
         }
         return Collections.singleton(_content.view(offset, length));
     }
@@ -99,7 +109,7 @@ public class StoredMemoryMessage<T extends StorableMessageMetaData> implements S
         return _metaData;
     }
 
-    public void remove()
+    public synchronized void remove()
     {
         _metaData.dispose();
         _metaData = null;
@@ -108,18 +118,33 @@ public class StoredMemoryMessage<T extends StorableMessageMetaData> implements S
             _content.dispose();
             _content = null;
         }
+        if (_overflowLocation != null)
+        {
+            _overflowLocation.release();
+            _overflowLocation = null;
+        }
     }
 
     @Override
-    public boolean isInMemory()
+    public synchronized boolean isInMemory()
     {
-        return true;
+        return _overflowLocation == null;
     }
 
     @Override
-    public boolean flowToDisk()
+    public synchronized boolean flowToDisk()
     {
-        return false;
+        if (_overflowStore == null || !_allContentAdded || _metaData == null)
+        {
+            return false;
+        }
+        if (_content != null && _content.hasRemaining())
+        {
+            _overflowLocation = _overflowStore.write(Collections.singleton(_content), _content.remaining());
+            _content.dispose();
+            _content = null;
+        }
+        return true;
     }
 
 }
@@ -21,12 +21,14 @@ package org.apache.qpid.server.transport;
 
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.apache.qpid.server.util.Action;
 import org.apache.qpid.transport.network.Ticker;
 
 public class AggregateTicker implements Ticker, SchedulingDelayNotificationListener
 {
 
     private final CopyOnWriteArrayList<Ticker> _tickers = new CopyOnWriteArrayList<>();
+    private volatile Action<AggregateTicker> _tickerAddedListener;
 
     @Override
     public int getTimeToNextTick(final long currentTime)
@@ -66,6 +68,19 @@ public class AggregateTicker implements Ticker, SchedulingDelayNotificationListe
     public void addTicker(Ticker ticker)
     {
         _tickers.add(ticker);
+        Action<AggregateTicker> tickerAddedListener = _tickerAddedListener;
+        if (tickerAddedListener != null)
+        {
+            tickerAddedListener.performAction(this);
+        }
+    }
+
+    /**
+     * Sets a listener to be notified when a ticker is added, as the new ticker may bring the next tick forward.
+     */
+    public void setTickerAddedListener(final Action<AggregateTicker> tickerAddedListener)
+    {
+        _tickerAddedListener = tickerAddedListener;
     }
 
     public void removeTicker(Ticker ticker)
@@ -33,6 +33,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -41,6 +42,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.model.port.AmqpPort;
+import org.apache.qpid.server.queue.EnqueueBatch;
 import org.apache.qpid.server.util.Action;
 import org.apache.qpid.server.util.ConnectionScopedRuntimeException;
 import org.apache.qpid.transport.ByteBufferSender;
@@ -63,6 +65,9 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
     private final Runnable _onTransportEncryptionAction;
     private final AtomicLong _usedOutboundMessageSpace = new AtomicLong();
     private final long _outboundMessageBufferLimit;
+    private final AtomicLong _bufferedBytes = new AtomicLong();
+    private final int _writeBatchSize;
+    private final long _writeBatchLatencyNanos;
 
     private volatile boolean _fullyWritten = true;
 
@@ -99,6 +104,9 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
 
         _outboundMessageBufferLimit = (long) _port.getContextValue(Long.class,
                                                                    AmqpPort.PORT_AMQP_OUTBOUND_MESSAGE_BUFFER_SIZE);
+        _writeBatchSize = (int) _port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_WRITE_BATCH_SIZE);
+        _writeBatchLatencyNanos = TimeUnit.MICROSECONDS.toNanos((long) _port.getContextValue(Long.class,
+                                                                                              AmqpPort.PORT_AMQP_WRITE_BATCH_LATENCY));
 
         protocolEngine.setWorkListener(new Action<ProtocolEngine>()
         {
@@ -111,6 +119,18 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
                 }
             }
         });
+        protocolEngine.getAggregateTicker().setTickerAddedListener(new Action<AggregateTicker>()
+        {
+            @Override
+            public void performAction(final AggregateTicker ticker)
+            {
+                SelectorThread.SelectionTask selectionTask = _selectionTask;
+                if (selectionTask != null)
+                {
+                    selectionTask.evaluateConnection(NonBlockingConnection.this);
+                }
+            }
+        });
 
         if(encryptionSet.size() == 1)
         {
@@ -161,6 +181,7 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         if(_closed.compareAndSet(false,true))
         {
             _protocolEngine.notifyWork();
+            _selectionTask.evaluateConnection(this);
             _selectionTask.wakeup();
         }
     }
@@ -282,7 +303,17 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
                 {
                     _pendingIterator = null;
                     _protocolEngine.setTransportBlockedForWriting(false);
-                    boolean dataRead = doRead();
+                    boolean dataRead;
+                    // messages received in a single read wake each queue they are enqueued to only once
+                    EnqueueBatch.begin();
+                    try
+                    {
+                        dataRead = doRead();
+                    }
+                    finally
+                    {
+                        EnqueueBatch.complete();
+                    }
                     _protocolEngine.setTransportBlockedForWriting(!doWrite());
 
                     if (!_fullyWritten || dataRead || (_delegate.needsWork() && _delegate.getNetInputBuffer().position() != 0))
@@ -355,47 +386,61 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
             _pendingIterator = _protocolEngine.processPendingIterator();
         }
 
-        final int networkBufferSize = _port.getNetworkBufferSize();
+        final int writeBatchSize = _writeBatchSize;
+        long batchStartTime = 0L;
 
         while(_pendingIterator.hasNext())
         {
             long size = getBufferedSize();
-            if(size >= networkBufferSize)
+            if(size >= writeBatchSize || (size > 0L && isWriteBatchLatencyExceeded(batchStartTime)))
             {
                 doWrite();
+                batchStartTime = 0L;
                 long bytesWritten = size - getBufferedSize();
-                if(bytesWritten < (networkBufferSize / 2))
+                if(bytesWritten < (Math.min(size, writeBatchSize) / 2))
                 {
                     break;
                 }
             }
             else
             {
+                if (size > 0L && batchStartTime == 0L && _writeBatchLatencyNanos > 0L)
+                {
+                    batchStartTime = System.nanoTime();
+                }
                 final Runnable task = _pendingIterator.next();
                 task.run();
             }
         }
 
         boolean complete = !_pendingIterator.hasNext();
-        if (getBufferedSize() >= networkBufferSize)
+        if (getBufferedSize() >= writeBatchSize)
         {
             doWrite();
-            complete &= getBufferedSize() < networkBufferSize /2;
+            complete &= getBufferedSize() < writeBatchSize /2;
         }
         return complete;
     }
 
-    private long getBufferedSize()
+    private boolean isWriteBatchLatencyExceeded(final long batchStartTime)
     {
-        // Avoids iterator garbage if empty
-        if (_buffers.isEmpty())
-        {
-            return 0L;
-        }
-        long totalSize = 0L;
-        for(QpidByteBuffer buf : _buffers)
+        return batchStartTime != 0L && System.nanoTime() - batchStartTime >= _writeBatchLatencyNanos;
+    }
+
+    /**
+     * Returns the number of bytes queued for writing.  The total is maintained as buffers are sent and written
+     * so that the check made before running each pending task does not need to walk the buffer queue.
+     */
+    long getBufferedSize()
+    {
+        long totalSize = _bufferedBytes.get();
+        if (totalSize != 0L)
         {
-            totalSize += buf.remaining();
+            QpidByteBuffer head = _buffers.peek();
+            if (head != null)
+            {
+                totalSize -= head.position();
+            }
         }
         return totalSize;
     }
@@ -543,6 +588,7 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
                 break;
             }
             _buffers.poll();
+            _bufferedBytes.addAndGet(-buf.limit());
             buf.dispose();
         }
         if (_fullyWritten)
@@ -588,7 +634,10 @@ public class NonBlockingConnection implements ServerNetworkConnection, ByteBuffe
         }
         else if (msg.remaining() > 0)
         {
-            _buffers.add(msg.duplicate());
+            // slice so that a fully written buffer's limit is the number of bytes it contributed
+            QpidByteBuffer slice = msg.slice();
+            _bufferedBytes.addAndGet(slice.limit());
+            _buffers.add(slice);
         }
         msg.position(msg.limit());
     }
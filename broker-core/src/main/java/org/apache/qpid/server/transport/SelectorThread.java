@@ -29,9 +29,9 @@ import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -59,6 +59,8 @@ class SelectorThread extends Thread
                                CommonProperties.IO_NETWORK_TRANSPORT_TIMEOUT_DEFAULT);
 
     static final String IO_THREAD_NAME_PREFIX  = "IO-";
+    private static final int TICKER_WHEEL_BUCKETS = 512;
+    private static final long TICKER_WHEEL_TICK_DURATION = 10L;
     private final Queue<Runnable> _tasks = new ConcurrentLinkedQueue<>();
 
     private final AtomicBoolean _closed = new AtomicBoolean();
@@ -81,14 +83,27 @@ class SelectorThread extends Thread
          */
         private final Queue<NonBlockingConnection> _unregisteredConnections = new ConcurrentLinkedQueue<>();
 
-        /** Set of connections that are currently being selected upon */
-        private final Set<NonBlockingConnection> _unscheduledConnections = new HashSet<>();
+        /**
+         * Connections that are currently being selected upon, mapped to their entry in the ticker wheel.
+         * Only accessed by the thread currently selecting.
+         */
+        private final Map<NonBlockingConnection, TickerWheel.Entry<NonBlockingConnection>> _unscheduledConnections =
+                new HashMap<>();
 
+        /** Next tick deadlines of the unscheduled connections, so that a select only visits those that are due */
+        private final TickerWheel<NonBlockingConnection> _tickerWheel;
 
+        /** Connections whose ticker deadline or state may have changed since they were last evaluated */
+        private final Queue<NonBlockingConnection> _connectionsToEvaluate = new ConcurrentLinkedQueue<>();
+
+        private final List<NonBlockingConnection> _dueConnections = new ArrayList<>();
 
         private SelectionTask() throws IOException
         {
             _selector = Selector.open();
+            _tickerWheel = new TickerWheel<>(TICKER_WHEEL_BUCKETS,
+                                             TICKER_WHEEL_TICK_DURATION,
+                                             System.currentTimeMillis());
         }
 
         @Override
@@ -117,51 +132,98 @@ class SelectorThread extends Thread
             return _unregisteredConnections;
         }
 
-        public Set<NonBlockingConnection> getUnscheduledConnections()
+        /**
+         * Requests that the connection's ticker and state are re-evaluated the next time the selector loops,
+         * rather than when its current tick deadline is reached.
+         */
+        public void evaluateConnection(final NonBlockingConnection connection)
         {
-            return _unscheduledConnections;
+            _connectionsToEvaluate.add(connection);
+        }
+
+        private void addUnscheduledConnection(final NonBlockingConnection connection)
+        {
+            if (!_unscheduledConnections.containsKey(connection))
+            {
+                _unscheduledConnections.put(connection, _tickerWheel.createEntry(connection));
+            }
+            _connectionsToEvaluate.add(connection);
+        }
+
+        private void removeUnscheduledConnection(final NonBlockingConnection connection)
+        {
+            TickerWheel.Entry<NonBlockingConnection> entry = _unscheduledConnections.remove(connection);
+            if (entry != null)
+            {
+                _tickerWheel.cancel(entry);
+            }
         }
 
         private List<NonBlockingConnection> processUnscheduledConnections()
         {
-            _nextTimeout = Integer.MAX_VALUE;
-            if (getUnscheduledConnections().isEmpty())
+            if (_unscheduledConnections.isEmpty())
             {
+                _connectionsToEvaluate.clear();
+                _nextTimeout = Integer.MAX_VALUE;
                 return Collections.emptyList();
             }
 
             List<NonBlockingConnection> toBeScheduled = new ArrayList<>();
 
             long currentTime = System.currentTimeMillis();
-            Iterator<NonBlockingConnection> iterator = getUnscheduledConnections().iterator();
-            while (iterator.hasNext())
+            NonBlockingConnection connection;
+            while ((connection = _connectionsToEvaluate.poll()) != null)
+            {
+                evaluateUnscheduledConnection(connection, currentTime, toBeScheduled);
+            }
+
+            _tickerWheel.expire(currentTime, _dueConnections);
+            for (NonBlockingConnection dueConnection : _dueConnections)
             {
-                NonBlockingConnection connection = iterator.next();
+                evaluateUnscheduledConnection(dueConnection, currentTime, toBeScheduled);
+            }
+            _dueConnections.clear();
 
-                int period = connection.getTicker().getTimeToNextTick(currentTime);
+            _nextTimeout = Math.max(1, _tickerWheel.getTimeToNextExpiry(currentTime));
 
-                if (period <= 0 || connection.isStateChanged())
+            // QPID-7447: prevent unnecessary allocation of empty iterator
+            return toBeScheduled.isEmpty() ? Collections.<NonBlockingConnection>emptyList() : toBeScheduled;
+        }
+
+        private void evaluateUnscheduledConnection(final NonBlockingConnection connection,
+                                                   final long currentTime,
+                                                   final List<NonBlockingConnection> toBeScheduled)
+        {
+            TickerWheel.Entry<NonBlockingConnection> entry = _unscheduledConnections.get(connection);
+            if (entry == null)
+            {
+                return;
+            }
+
+            int period = connection.getTicker().getTimeToNextTick(currentTime);
+
+            if (period <= 0 || connection.isStateChanged())
+            {
+                toBeScheduled.add(connection);
+                try
                 {
-                    toBeScheduled.add(connection);
-                    try
-                    {
-                        connection.getSocketChannel().register(_selector, 0, connection);
-                    }
-                    catch (ClosedChannelException | CancelledKeyException e)
-                    {
-                        LOGGER.debug("Failed to register with selector for connection " + connection +
-                                     ". Connection is probably being closed by peer.", e);
-                    }
-                    iterator.remove();
+                    connection.getSocketChannel().register(_selector, 0, connection);
                 }
-                else
+                catch (ClosedChannelException | CancelledKeyException e)
                 {
-                    _nextTimeout = Math.min(period, _nextTimeout);
+                    LOGGER.debug("Failed to register with selector for connection " + connection +
+                                 ". Connection is probably being closed by peer.", e);
                 }
+                removeUnscheduledConnection(connection);
+            }
+            else if (period == Integer.MAX_VALUE)
+            {
+                _tickerWheel.cancel(entry);
+            }
+            else
+            {
+                _tickerWheel.schedule(entry, currentTime + period);
             }
-
-            // QPID-7447: prevent unnecessary allocation of empty iterator
-            return toBeScheduled.isEmpty() ? Collections.<NonBlockingConnection>emptyList() : toBeScheduled;
         }
 
         private List<NonBlockingConnection> processSelectionKeys()
@@ -236,7 +298,7 @@ class SelectorThread extends Thread
                         }
 
                         toBeScheduled.add(connection);
-                        getUnscheduledConnections().remove(connection);
+                        removeUnscheduledConnection(connection);
                     }
                 }
 
@@ -257,7 +319,7 @@ class SelectorThread extends Thread
             NonBlockingConnection unregisteredConnection;
             while ((unregisteredConnection = getUnregisteredConnections().poll()) != null)
             {
-                getUnscheduledConnections().add(unregisteredConnection);
+                addUnscheduledConnection(unregisteredConnection);
 
 
                 final int ops = (unregisteredConnection.wantsRead() ? SelectionKey.OP_READ : 0)
@@ -626,6 +688,15 @@ class SelectorThread extends Thread
             selectionTask.getUnregisteredConnections().add(connection);
             selectionTask.wakeup();
         }
+        else
+        {
+            SelectionTask selectionTask = connection.getSelectionTask();
+            if (selectionTask != null)
+            {
+                // its tickers may have changed while it was being processed
+                selectionTask.evaluateConnection(connection);
+            }
+        }
 
     }
 
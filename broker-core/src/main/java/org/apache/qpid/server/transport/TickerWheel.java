@@ -0,0 +1,197 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.util.Collection;
+
+/**
+ * A hashed timing wheel of tick deadlines.
+ * <p>
+ * Deadlines are rounded up to the wheel's tick duration and hashed into a fixed number of buckets; deadlines
+ * further away than one rotation stay in their bucket until the rotation in which they fall due.  Scheduling,
+ * rescheduling and cancelling an entry are constant time and {@link #expire(long, Collection)} only visits the
+ * buckets whose ticks have elapsed since the previous call, so the cost of a poll is independent of the number of
+ * entries that are not yet due.  An entry never expires before its deadline, but may expire up to one tick after
+ * it.
+ * <p>
+ * This class is not thread safe.
+ */
+final class TickerWheel<T>
+{
+    private final Entry<T>[] _buckets;
+    private final int _mask;
+    private final long _tickDuration;
+    private long _nextTick;
+    private int _size;
+
+    @SuppressWarnings("unchecked")
+    TickerWheel(final int numberOfBuckets, final long tickDuration, final long currentTime)
+    {
+        if (numberOfBuckets <= 0 || Integer.bitCount(numberOfBuckets) != 1)
+        {
+            throw new IllegalArgumentException("Number of buckets must be a positive power of two: " + numberOfBuckets);
+        }
+        if (tickDuration <= 0)
+        {
+            throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        }
+        _buckets = new Entry[numberOfBuckets];
+        for (int i = 0; i < numberOfBuckets; i++)
+        {
+            Entry<T> head = new Entry<>(null);
+            head._previous = head;
+            head._next = head;
+            _buckets[i] = head;
+        }
+        _mask = numberOfBuckets - 1;
+        _tickDuration = tickDuration;
+        _nextTick = currentTime / tickDuration;
+    }
+
+    Entry<T> createEntry(final T value)
+    {
+        return new Entry<>(value);
+    }
+
+    /**
+     * Schedules the entry to expire at the given deadline, replacing any deadline it already had.
+     */
+    void schedule(final Entry<T> entry, final long deadline)
+    {
+        if (entry.isScheduled())
+        {
+            unlink(entry);
+        }
+        long tick = Math.max((deadline + _tickDuration - 1) / _tickDuration, _nextTick);
+        entry._deadline = deadline;
+        entry._tick = tick;
+
+        Entry<T> head = _buckets[(int) (tick & _mask)];
+        entry._previous = head._previous;
+        entry._next = head;
+        head._previous._next = entry;
+        head._previous = entry;
+        _size++;
+    }
+
+    void cancel(final Entry<T> entry)
+    {
+        if (entry.isScheduled())
+        {
+            unlink(entry);
+        }
+    }
+
+    /**
+     * Removes the entries whose deadline has been reached, adding their values to the given collection.
+     */
+    void expire(final long currentTime, final Collection<? super T> expired)
+    {
+        long currentTick = currentTime / _tickDuration;
+        if (currentTick < _nextTick)
+        {
+            return;
+        }
+
+        long buckets = Math.min(currentTick - _nextTick + 1, _buckets.length);
+        for (long tick = _nextTick; _size > 0 && tick < _nextTick + buckets; tick++)
+        {
+            Entry<T> head = _buckets[(int) (tick & _mask)];
+            Entry<T> entry = head._next;
+            while (entry != head)
+            {
+                Entry<T> next = entry._next;
+                if (entry._tick <= currentTick)
+                {
+                    unlink(entry);
+                    expired.add(entry._value);
+                }
+                entry = next;
+            }
+        }
+        _nextTick = currentTick + 1;
+    }
+
+    /**
+     * Returns the time until the next bucket holding an entry comes due, or {@link Integer#MAX_VALUE} if there
+     * are no entries.  The bucket may only hold entries for a later rotation, in which case the next call to
+     * {@link #expire(long, Collection)} will simply find nothing to expire.
+     */
+    int getTimeToNextExpiry(final long currentTime)
+    {
+        if (_size == 0)
+        {
+            return Integer.MAX_VALUE;
+        }
+        for (long tick = _nextTick; tick < _nextTick + _buckets.length; tick++)
+        {
+            Entry<T> head = _buckets[(int) (tick & _mask)];
+            if (head._next != head)
+            {
+                return (int) Math.max(0L, Math.min(Integer.MAX_VALUE, tick * _tickDuration - currentTime));
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    int size()
+    {
+        return _size;
+    }
+
+    private void unlink(final Entry<T> entry)
+    {
+        entry._previous._next = entry._next;
+        entry._next._previous = entry._previous;
+        entry._previous = null;
+        entry._next = null;
+        _size--;
+    }
+
+    static final class Entry<T>
+    {
+        private final T _value;
+        private long _deadline;
+        private long _tick;
+        private Entry<T> _previous;
+        private Entry<T> _next;
+
+        private Entry(final T value)
+        {
+            _value = value;
+        }
+
+        T getValue()
+        {
+            return _value;
+        }
+
+        long getDeadline()
+        {
+            return _deadline;
+        }
+
+        boolean isScheduled()
+        {
+            return _next != null;
+        }
+    }
+}
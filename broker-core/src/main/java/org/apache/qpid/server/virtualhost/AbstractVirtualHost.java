@@ -191,6 +191,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private final VirtualHostNode<?> _virtualHostNode;
 
     private final AtomicLong _targetSize = new AtomicLong(100 * 1024 * 1024);
+    private final AtomicLong _messageConversionCacheHits = new AtomicLong();
+    private final AtomicLong _messageConversionCacheMisses = new AtomicLong();
 
     private MessageStoreLogSubject _messageStoreLogSubject;
 
@@ -1569,6 +1571,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         _dataDelivered.reset();
         _messagesReceived.reset();
         _dataReceived.reset();
+        _messageConversionCacheHits.set(0L);
+        _messageConversionCacheMisses.set(0L);
 
         for (AMQPConnection<?> connection : _connections)
         {
@@ -2045,6 +2049,31 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return getMessageDeliveryStatistics().getTotal();
     }
 
+    @Override
+    public long getMessageConversionCacheHits()
+    {
+        return _messageConversionCacheHits.get();
+    }
+
+    @Override
+    public long getMessageConversionCacheMisses()
+    {
+        return _messageConversionCacheMisses.get();
+    }
+
+    @Override
+    public void registerMessageConversion(final boolean cached)
+    {
+        if (cached)
+        {
+            _messageConversionCacheHits.incrementAndGet();
+        }
+        else
+        {
+            _messageConversionCacheMisses.incrementAndGet();
+        }
+    }
+
     @Override
     public int getHousekeepingThreadCount()
     {
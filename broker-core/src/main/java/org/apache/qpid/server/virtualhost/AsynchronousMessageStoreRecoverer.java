@@ -22,12 +22,14 @@ package org.apache.qpid.server.virtualhost;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -90,6 +92,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private static final Logger LOGGER = LoggerFactory.getLogger(AsynchronousRecoverer.class);
 
         public static final int THREAD_POOL_SHUTDOWN_TIMEOUT = 5000;
+        private static final int MESSAGE_LOCK_STRIPES = 64;
         private final QueueManagingVirtualHost<?> _virtualHost;
         private final EventLogger _eventLogger;
         private final MessageStore _store;
@@ -97,8 +100,9 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private final long _maxMessageId;
         private final Set<Queue<?>> _recoveringQueues = new CopyOnWriteArraySet<>();
         private final AtomicBoolean _recoveryComplete = new AtomicBoolean();
-        private final Map<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages = new HashMap<>();
-        private final ListeningExecutorService _queueRecoveryExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        private final ConcurrentMap<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages = new ConcurrentHashMap<>();
+        private final Object[] _messageLocks = new Object[MESSAGE_LOCK_STRIPES];
+        private final ListeningExecutorService _queueRecoveryExecutor;
         private final MessageStore.MessageStoreReader _storeReader;
         private AtomicBoolean _continueRecovery = new AtomicBoolean(true);
 
@@ -111,6 +115,19 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             _logSubject = new MessageStoreLogSubject(virtualHost.getName(), _store.getClass().getSimpleName());
 
             _maxMessageId = _store.getNextMessageId();
+            for (int i = 0; i < _messageLocks.length; i++)
+            {
+                _messageLocks[i] = new Object();
+            }
+            int threadCount = virtualHost.getContextValue(Integer.class,
+                                                          QueueManagingVirtualHost.QUEUE_RECOVERY_THREAD_COUNT);
+            // bounded so that a virtualhost with thousands of queues does not start a thread for each of them;
+            // the threads are allowed to time out so that none linger once recovery is complete
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.max(threadCount, 1), Math.max(threadCount, 1),
+                                                                 60L, TimeUnit.SECONDS,
+                                                                 new LinkedBlockingQueue<Runnable>());
+            executor.allowCoreThreadTimeOut(true);
+            _queueRecoveryExecutor = MoreExecutors.listeningDecorator(executor);
             Collection children = _virtualHost.getChildren(Queue.class);
             _recoveringQueues.addAll((Collection<? extends Queue<?>>) children);
 
@@ -188,11 +205,12 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private synchronized void completeRecovery()
         {
             // at this point nothing should be writing to the map of recovered messages
-            for (Map.Entry<Long,MessageReference<? extends ServerMessage<?>>> entry : _recoveredMessages.entrySet())
+            final Set<Long> recoveredMessageIds = new HashSet<>(_recoveredMessages.keySet());
+            for (MessageReference<? extends ServerMessage<?>> ref : _recoveredMessages.values())
             {
-                entry.getValue().release();
-                entry.setValue(null); // free up any memory associated with the reference object
+                ref.release();
             }
+            _recoveredMessages.clear(); // free up any memory associated with the reference objects
             final List<StoredMessage<?>> messagesToDelete = new ArrayList<>();
             getStoreReader().visitMessages(new MessageHandler()
             {
@@ -201,7 +219,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                 {
 
                     long messageNumber = storedMessage.getMessageNumber();
-                    if (!_recoveredMessages.containsKey(messageNumber))
+                    if (!recoveredMessageIds.contains(messageNumber))
                     {
                         messagesToDelete.add(storedMessage);
                     }
@@ -220,28 +238,37 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             }
 
             messagesToDelete.clear();
-            _recoveredMessages.clear();
+            recoveredMessageIds.clear();
             _storeReader.close();
         }
 
-        private synchronized ServerMessage<?> getRecoveredMessage(final long messageId)
+        private ServerMessage<?> getRecoveredMessage(final long messageId)
         {
             MessageReference<? extends ServerMessage<?>> ref = _recoveredMessages.get(messageId);
             if (ref == null)
             {
-                StoredMessage<?> message = _storeReader.getMessage(messageId);
-                if(message != null)
+                // only messages shared between queues can be contended, so rather than serialising every queue
+                // recovery thread on a single lock, creation is guarded by a lock striped by message id
+                synchronized (_messageLocks[(int) (messageId & (MESSAGE_LOCK_STRIPES - 1))])
                 {
-                    StorableMessageMetaData metaData = message.getMetaData();
+                    ref = _recoveredMessages.get(messageId);
+                    if (ref == null)
+                    {
+                        StoredMessage<?> message = _storeReader.getMessage(messageId);
+                        if(message != null)
+                        {
+                            StorableMessageMetaData metaData = message.getMetaData();
 
-                    @SuppressWarnings("rawtypes")
-                    MessageMetaDataType type = metaData.getType();
+                            @SuppressWarnings("rawtypes")
+                            MessageMetaDataType type = metaData.getType();
 
-                    @SuppressWarnings("unchecked")
-                    ServerMessage<?> serverMessage = type.createMessage(message);
+                            @SuppressWarnings("unchecked")
+                            ServerMessage<?> serverMessage = type.createMessage(message);
 
-                    ref = serverMessage.newReference();
-                    _recoveredMessages.put(messageId, ref);
+                            ref = serverMessage.newReference();
+                            _recoveredMessages.put(messageId, ref);
+                        }
+                    }
                 }
             }
             return ref == null ? null : ref.getMessage();
@@ -45,6 +45,7 @@ import org.apache.qpid.server.model.StatisticUnit;
 import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.queue.QueueEntry;
 import org.apache.qpid.server.stats.StatisticsGatherer;
+import org.apache.qpid.server.store.AbstractJDBCMessageStore;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.preferences.UserPreferencesCreator;
@@ -92,6 +93,12 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
     @ManagedContextDefault( name = "virtualhost.housekeepingThreadCount")
     int DEFAULT_HOUSEKEEPING_THREAD_COUNT = 4;
 
+    String QUEUE_RECOVERY_THREAD_COUNT = "virtualhost.queueRecoveryThreadCount";
+    @ManagedContextDefault( name = QUEUE_RECOVERY_THREAD_COUNT,
+            description = "The number of threads used to recover the queues of the virtualhost in parallel when "
+                          + "background recovery is enabled.")
+    int DEFAULT_QUEUE_RECOVERY_THREAD_COUNT = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+
     @ManagedAttribute( defaultValue = "${virtualhost.storeTransactionIdleTimeoutClose}",
             description = "The maximum length of time, in milliseconds, that an open store transaction may "
                           + "remain idle. If a transaction exceeds this threshold, the resource that "
@@ -119,6 +126,17 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
     @ManagedContextDefault( name = "virtualhost.storeTransactionOpenTimeoutWarn")
     public static final long DEFAULT_STORE_TRANSACTION_OPEN_TIMEOUT_WARN = 300000l;
 
+    @ManagedContextDefault( name = AbstractJDBCMessageStore.COMMIT_BATCH_SIZE,
+            description = "The maximum number of transactions a JDBC or Derby message store writes to the database "
+                          + "in one group commit. Zero, the default, disables group commit, giving each transaction "
+                          + "its own database connection.")
+    int DEFAULT_JDBC_STORE_COMMIT_BATCH_SIZE = 0;
+
+    @ManagedContextDefault( name = AbstractJDBCMessageStore.COMMIT_BATCH_MAX_WAIT,
+            description = "The time, in milliseconds, a JDBC or Derby message store using group commit may wait for "
+                          + "further transactions before writing a batch that is not yet full.")
+    long DEFAULT_JDBC_STORE_COMMIT_BATCH_MAX_WAIT = 0L;
+
     @ManagedAttribute( defaultValue = "${virtualhost.storeTransactionOpenTimeoutWarn}",
             description = "The maximum length of time, in milliseconds, that a store transaction may "
                           + "remain open. If a transaction exceeds this threshold, warnings will be "
@@ -198,6 +216,16 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
     @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Outbound")
     long getMessagesOut();
 
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT,
+            label = "Message Conversion Cache Hits",
+            description = "Number of deliveries that reused a message conversion made for an earlier delivery.")
+    long getMessageConversionCacheHits();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT,
+            label = "Message Conversions",
+            description = "Number of deliveries that required a message to be converted to another protocol.")
+    long getMessageConversionCacheMisses();
+
 
     @Override
     @ManagedOperation(nonModifying = true, changesConfiguredObjectState = false)
@@ -258,6 +286,8 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
     void setTargetSize(long targetSize);
     long getTotalQueueDepthBytes();
 
+    void registerMessageConversion(boolean cached);
+
     interface Transaction
     {
         void dequeue(QueueEntry entry);
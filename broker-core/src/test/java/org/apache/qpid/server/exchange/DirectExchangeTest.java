@@ -19,15 +19,24 @@
  */
 package org.apache.qpid.server.exchange;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.qpid.exchange.ExchangeDefaults;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Exchange;
 import org.apache.qpid.server.model.Queue;
 import org.apache.qpid.server.model.State;
 import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.txn.ServerTransaction;
 import org.apache.qpid.server.virtualhost.ExchangeIsAlternateException;
 import org.apache.qpid.server.virtualhost.ReservedExchangeNameException;
 import org.apache.qpid.test.utils.QpidTestCase;
@@ -145,4 +154,46 @@ public class DirectExchangeTest extends QpidTestCase
         assertEquals("Unexpected desired exchange state", State.ACTIVE, _exchange.getDesiredState());
     }
 
+    public void testSendBatch() throws Exception
+    {
+        Queue<?> queue1 = createQueue(getTestName() + "1");
+        Queue<?> queue2 = createQueue(getTestName() + "2");
+        _exchange.addBinding("key1", queue1, null);
+        _exchange.addBinding("key2", queue1, null);
+        _exchange.addBinding("key2", queue2, null);
+
+        List<ServerMessage> messages = Arrays.asList(mockMessage("key1"),
+                                                     mockMessage("key1"),
+                                                     mockMessage("key2"),
+                                                     mockMessage("unbound"),
+                                                     mockMessage("key1"));
+        List<InstanceProperties> instanceProperties = Collections.nCopies(messages.size(), InstanceProperties.EMPTY);
+
+        int[] enqueues = new int[messages.size()];
+        _exchange.send(messages, instanceProperties, mock(ServerTransaction.class), null, enqueues);
+
+        assertTrue("Unexpected enqueue counts " + Arrays.toString(enqueues),
+                   Arrays.equals(new int[]{1, 1, 2, 0, 1}, enqueues));
+        assertEquals("Unexpected number of messages in", 5, _exchange.getMessagesIn());
+        assertEquals("Unexpected number of messages dropped", 1, _exchange.getMessagesDropped());
+    }
+
+    private Queue<?> createQueue(final String name)
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.NAME, name);
+        attributes.put(Queue.DURABLE, false);
+
+        Queue<?> queue = (Queue<?>) _vhost.createChild(Queue.class, attributes);
+        queue.open();
+        return queue;
+    }
+
+    private ServerMessage mockMessage(final String routingAddress)
+    {
+        final ServerMessage message = mock(ServerMessage.class);
+        when(message.getInitialRoutingAddress()).thenReturn(routingAddress);
+        return message;
+    }
+
 }
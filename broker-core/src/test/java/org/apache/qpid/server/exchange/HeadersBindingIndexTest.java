@@ -0,0 +1,330 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.qpid.server.filter.Filterable;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.model.Binding;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class HeadersBindingIndexTest extends QpidTestCase
+{
+    private static final String[] NAMES = {"A", "B", "C", "D"};
+    private static final String[] VALUES = {"1", "2", "3"};
+
+    private final HeadersBindingIndex _index = new HeadersBindingIndex();
+
+    public void testAllRequiresEveryHeader()
+    {
+        HeadersBinding binding = add("A", "B=1");
+
+        assertMatches(message("A", "B=1"), binding);
+        assertMatches(message("A", "B=1", "C"), binding);
+        assertMatches(message("A", "B=2"));
+        assertMatches(message("B=1"));
+    }
+
+    public void testAnyRequiresOneHeader()
+    {
+        HeadersBinding binding = add("A", "B=1", "x-match=any");
+
+        assertMatches(message("A"), binding);
+        assertMatches(message("B=1"), binding);
+        assertMatches(message("A", "B=1"), binding);
+        assertMatches(message("B=2"));
+    }
+
+    public void testBindingWithoutHeadersMatchesEveryMessage()
+    {
+        HeadersBinding all = add();
+        HeadersBinding any = add("x-match=any");
+
+        assertMatches(message(), all, any);
+        assertMatches(message("A"), all, any);
+        assertMatches(mock(Filterable.class), all, any);
+    }
+
+    public void testRemove()
+    {
+        HeadersBinding binding1 = add("A=1");
+        HeadersBinding binding2 = add("A=1", "B");
+
+        _index.remove(binding1);
+        assertMatches(message("A=1", "B"), binding2);
+
+        _index.remove(binding2);
+        assertMatches(message("A=1", "B"));
+    }
+
+    public void testReplace()
+    {
+        HeadersBinding oldBinding = add("A=1");
+        HeadersBinding other = add("A=1", "x-match=any");
+
+        HeadersBinding newBinding = createBinding("B");
+        _index.replace(oldBinding, newBinding);
+
+        assertMatches(message("A=1"), other);
+        assertMatches(message("A=1", "B"), other, newBinding);
+        assertMatches(message("B"), newBinding);
+    }
+
+    public void testReplaceIsSeenInOneStep() throws Exception
+    {
+        final HeadersBinding[] bindings = { createBinding("A=1"), createBinding("A=1", "B") };
+        _index.add(bindings[0]);
+        final Filterable message = message("A=1", "B");
+        final int replacements = 20000;
+
+        Thread replacer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 0; i < replacements; i++)
+                {
+                    _index.replace(bindings[i % 2], bindings[(i + 1) % 2]);
+                }
+            }
+        });
+        replacer.start();
+        try
+        {
+            while (replacer.isAlive())
+            {
+                assertEquals("Message should always match exactly one version of the binding",
+                             1, _index.match(message).size());
+            }
+        }
+        finally
+        {
+            replacer.join();
+        }
+    }
+
+    public void testMatchesAsBindings()
+    {
+        Random random = new Random(0);
+        List<HeadersBinding> bindings = new ArrayList<>();
+        for (int i = 0; i < 200; i++)
+        {
+            List<String> arguments = randomHeaders(random);
+            if (random.nextBoolean())
+            {
+                arguments.add("x-match=any");
+            }
+            bindings.add(add(arguments.toArray(new String[arguments.size()])));
+        }
+
+        for (int i = 0; i < 500; i++)
+        {
+            List<String> headers = randomHeaders(random);
+            Filterable message = message(headers.toArray(new String[headers.size()]));
+            Set<HeadersBinding> expected = new HashSet<>();
+            for (HeadersBinding binding : bindings)
+            {
+                if (binding.matches(message))
+                {
+                    expected.add(binding);
+                }
+            }
+            assertEquals("Unexpected bindings matching " + headers, expected, _index.match(message));
+        }
+    }
+
+    private List<String> randomHeaders(final Random random)
+    {
+        List<String> headers = new ArrayList<>();
+        for (String name : NAMES)
+        {
+            int choice = random.nextInt(VALUES.length + 2);
+            if (choice == 0)
+            {
+                headers.add(name);
+            }
+            else if (choice <= VALUES.length)
+            {
+                headers.add(name + "=" + VALUES[choice - 1]);
+            }
+        }
+        return headers;
+    }
+
+    private void assertMatches(final Filterable message, final HeadersBinding... expected)
+    {
+        Set<HeadersBinding> expectedSet = new HashSet<>();
+        for (HeadersBinding binding : expected)
+        {
+            expectedSet.add(binding);
+        }
+        assertEquals("Unexpected bindings matched", expectedSet, _index.match(message));
+    }
+
+    private HeadersBinding add(final String... arguments)
+    {
+        HeadersBinding headersBinding = createBinding(arguments);
+        _index.add(headersBinding);
+        return headersBinding;
+    }
+
+    private HeadersBinding createBinding(final String... arguments)
+    {
+        Binding<?> binding = mock(Binding.class);
+        when(binding.getArguments()).thenReturn(toMap(arguments));
+        return new HeadersBinding(binding);
+    }
+
+    private Filterable message(final String... headers)
+    {
+        Filterable message = mock(Filterable.class);
+        when(message.getMessageHeader()).thenReturn(new MapHeader(toMap(headers)));
+        return message;
+    }
+
+    private static Map<String, Object> toMap(final String... arguments)
+    {
+        Map<String, Object> map = new HashMap<>();
+        for (String argument : arguments)
+        {
+            String[] keyValue = argument.split("=", 2);
+            map.put(keyValue[0], keyValue.length == 2 ? keyValue[1] : null);
+        }
+        return map;
+    }
+
+    private static class MapHeader implements AMQMessageHeader
+    {
+        private final Map<String, Object> _headers;
+
+        private MapHeader(final Map<String, Object> headers)
+        {
+            _headers = headers;
+        }
+
+        @Override
+        public String getCorrelationId()
+        {
+            return null;
+        }
+
+        @Override
+        public long getExpiration()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getUserId()
+        {
+            return null;
+        }
+
+        @Override
+        public String getAppId()
+        {
+            return null;
+        }
+
+        @Override
+        public String getMessageId()
+        {
+            return null;
+        }
+
+        @Override
+        public String getMimeType()
+        {
+            return null;
+        }
+
+        @Override
+        public String getEncoding()
+        {
+            return null;
+        }
+
+        @Override
+        public byte getPriority()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getTimestamp()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getNotValidBefore()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getType()
+        {
+            return null;
+        }
+
+        @Override
+        public String getReplyTo()
+        {
+            return null;
+        }
+
+        @Override
+        public Object getHeader(final String name)
+        {
+            return _headers.get(name);
+        }
+
+        @Override
+        public boolean containsHeaders(final Set<String> names)
+        {
+            return _headers.keySet().containsAll(names);
+        }
+
+        @Override
+        public boolean containsHeader(final String name)
+        {
+            return _headers.containsKey(name);
+        }
+
+        @Override
+        public Collection<String> getHeaderNames()
+        {
+            return _headers.keySet();
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Assert;
 
@@ -467,6 +468,98 @@ public class TopicExchangeTest extends QpidTestCase
         _exchange.delete();
     }
 
+    public void testRoutingCache() throws Exception
+    {
+        Map<String,Object> attributes = new HashMap<>();
+        attributes.put(Exchange.NAME, "cached");
+        attributes.put(Exchange.DURABLE, false);
+        attributes.put(Exchange.TYPE, ExchangeDefaults.TOPIC_EXCHANGE_CLASS);
+        attributes.put(Exchange.CONTEXT, Collections.singletonMap(TopicExchange.ROUTING_CACHE_SIZE, "10"));
+        _exchange = (TopicExchange) _vhost.createChild(Exchange.class, attributes, _vhost);
+        _exchange.open();
+
+        Queue<?> queue1 = createQueue("queue1");
+        createBinding(UUID.randomUUID(), "a.*", queue1, _exchange, null);
+
+        assertEquals("Unexpected number of queues", 1, routeMessage("a.b", 0l));
+        assertEquals("Unexpected number of queues", 1, routeMessage("a.b", 1l));
+        assertEquals("Unexpected cache hits", 1, _exchange.getRoutingCacheHits());
+        assertEquals("Unexpected cache misses", 1, _exchange.getRoutingCacheMisses());
+
+        Queue<?> queue2 = createQueue("queue2");
+        createBinding(UUID.randomUUID(), "a.#", queue2, _exchange, null);
+
+        assertEquals("Cached route should have been invalidated by new binding", 2, routeMessage("a.b", 2l));
+        assertEquals("Unexpected cache misses", 2, _exchange.getRoutingCacheMisses());
+        assertEquals("Unexpected queue depth", 3, queue1.getQueueDepthMessages());
+        assertEquals("Unexpected queue depth", 1, queue2.getQueueDepthMessages());
+
+        Queue<?> queue3 = createQueue("queue3");
+        Map<String, Object> bindArgs = Collections.<String, Object>singletonMap(JMS_SELECTOR.toString(), "arg > 5");
+        createBinding(UUID.randomUUID(), "a.b", queue3, _exchange, bindArgs);
+
+        ServerMessage matchMsg = mock(ServerMessage.class);
+        AMQMessageHeader msgHeader = createMessageHeader(Collections.<String, Object>singletonMap("arg", 6));
+        when(matchMsg.getMessageHeader()).thenReturn(msgHeader);
+        assertEquals("Unexpected number of queues", 3, routeMessage(matchMsg, "a.b", 3l));
+
+        ServerMessage nonMatchMsg = mock(ServerMessage.class);
+        AMQMessageHeader nonMatchHeader = createMessageHeader(Collections.<String, Object>singletonMap("arg", 5));
+        when(nonMatchMsg.getMessageHeader()).thenReturn(nonMatchHeader);
+        assertEquals("Unexpected number of queues", 2, routeMessage(nonMatchMsg, "a.b", 4l));
+        assertEquals("Route matching a selector should not be cached", 1, _exchange.getRoutingCacheHits());
+    }
+
+    public void testRoutingCacheConcurrentWithBindingChanges() throws Exception
+    {
+        Map<String,Object> attributes = new HashMap<>();
+        attributes.put(Exchange.NAME, "cached");
+        attributes.put(Exchange.DURABLE, false);
+        attributes.put(Exchange.TYPE, ExchangeDefaults.TOPIC_EXCHANGE_CLASS);
+        attributes.put(Exchange.CONTEXT, Collections.singletonMap(TopicExchange.ROUTING_CACHE_SIZE, "10"));
+        _exchange = (TopicExchange) _vhost.createChild(Exchange.class, attributes, _vhost);
+        _exchange.open();
+
+        Queue<?> queue1 = createQueue("queue1");
+        Queue<?> queue2 = createQueue("queue2");
+        createBinding(UUID.randomUUID(), "a.*", queue1, _exchange, null);
+
+        final ServerMessage message = mock(ServerMessage.class);
+        final AtomicBoolean done = new AtomicBoolean();
+        Thread router = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (!done.get())
+                {
+                    _exchange.route(message, "a.b", InstanceProperties.EMPTY);
+                }
+            }
+        });
+        router.start();
+        try
+        {
+            for (int i = 0; i < 200; i++)
+            {
+                BindingImpl binding = createBinding(UUID.randomUUID(), "a.b", queue2, _exchange, null);
+                binding.delete();
+            }
+        }
+        finally
+        {
+            done.set(true);
+            router.join(10000);
+        }
+
+        assertEquals("Route to the removed binding should not be cached", 1,
+                     _exchange.route(message, "a.b", InstanceProperties.EMPTY).size());
+
+        createBinding(UUID.randomUUID(), "a.b", queue2, _exchange, null);
+        assertEquals("Route missing the new binding", 2,
+                     _exchange.route(message, "a.b", InstanceProperties.EMPTY).size());
+    }
+
     private BindingImpl createBinding(UUID id,
                                       String bindingKey,
                                       Queue<?> queue,
@@ -25,6 +25,7 @@ import static org.mockito.Mockito.when;
 
 import java.util.UUID;
 
+import org.apache.qpid.server.model.NamedAddressSpace;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
@@ -143,4 +144,59 @@ public class AbstractServerMessageTest extends QpidTestCase
         }
 
     }
+
+    public void testConvertedMessageCache()
+    {
+        StoredMessage<StorableMessageMetaData> handle = mock(StoredMessage.class);
+        when(handle.isInMemory()).thenReturn(true);
+        TestMessage<StorableMessageMetaData> msg = new TestMessage<>(handle, this);
+        NamedAddressSpace addressSpace = mock(NamedAddressSpace.class);
+        TestMessage converted = new TestMessage(mock(StoredMessage.class), this);
+
+        assertSame(converted, msg.cacheConvertedMessage(TestMessage.class, addressSpace, converted));
+        assertNull("Conversion of unreferenced message should not be cached",
+                   msg.getConvertedMessage(TestMessage.class, addressSpace));
+
+        MessageReference<TestMessage<StorableMessageMetaData>> reference = msg.newReference();
+        assertSame(converted, msg.cacheConvertedMessage(TestMessage.class, addressSpace, converted));
+        assertSame(converted, msg.getConvertedMessage(TestMessage.class, addressSpace));
+        assertNull("Conversion should not be shared between address spaces",
+                   msg.getConvertedMessage(TestMessage.class, mock(NamedAddressSpace.class)));
+
+        TestMessage otherConversion = new TestMessage(mock(StoredMessage.class), this);
+        assertSame("Conversion cached first should be used",
+                   converted, msg.cacheConvertedMessage(TestMessage.class, addressSpace, otherConversion));
+
+        reference.release();
+        assertNull("Conversion should not outlive the message",
+                   msg.getConvertedMessage(TestMessage.class, addressSpace));
+    }
+
+    public void testConvertedMessageCacheDiscardedOnceFlowedToDisk()
+    {
+        StoredMessage<StorableMessageMetaData> handle = mock(StoredMessage.class);
+        when(handle.isInMemory()).thenReturn(true);
+        TestMessage<StorableMessageMetaData> msg = new TestMessage<>(handle, this);
+        NamedAddressSpace addressSpace = mock(NamedAddressSpace.class);
+        TestMessage converted = new TestMessage(mock(StoredMessage.class), this);
+
+        MessageReference<TestMessage<StorableMessageMetaData>> reference = msg.newReference();
+        msg.cacheConvertedMessage(TestMessage.class, addressSpace, converted);
+        assertSame(converted, msg.getConvertedMessage(TestMessage.class, addressSpace));
+
+        when(handle.isInMemory()).thenReturn(false);
+        assertNull("Conversion should not be used once the message has flowed to disk",
+                   msg.getConvertedMessage(TestMessage.class, addressSpace));
+
+        when(handle.isInMemory()).thenReturn(true);
+        assertNull("Conversion should have been discarded when the message flowed to disk",
+                   msg.getConvertedMessage(TestMessage.class, addressSpace));
+
+        msg.cacheConvertedMessage(TestMessage.class, addressSpace, converted);
+        msg.discardConvertedMessages();
+        assertNull("Conversion should have been discarded",
+                   msg.getConvertedMessage(TestMessage.class, addressSpace));
+
+        reference.release();
+    }
 }
@@ -198,7 +198,10 @@ public class BrokerTestHelper
         when(virtualHostNode.getVirtualHost()).thenReturn(host);
         _createdVirtualHosts.add(host);
         QpidTestCase testCase = QpidTestCase.getCurrentInstance();
-        testCase.registerTearDown(_closeVirtualHosts);
+        if (testCase != null)
+        {
+            testCase.registerTearDown(_closeVirtualHosts);
+        }
         return host;
     }
 
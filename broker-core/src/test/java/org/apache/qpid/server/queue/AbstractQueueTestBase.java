@@ -910,6 +910,25 @@ abstract class AbstractQueueTestBase extends QpidTestCase
     }
 
 
+    public void testExpiredMessagesDequeuedByCheckMessageStatus() throws Exception
+    {
+        ServerMessage expiredMessage = createMessage(new Long(24));
+        when(expiredMessage.getExpiration()).thenReturn(System.currentTimeMillis() - 1000L);
+        ServerMessage unexpiredMessage = createMessage(new Long(25));
+        when(unexpiredMessage.getExpiration()).thenReturn(System.currentTimeMillis() + 60000L);
+        ServerMessage messageWithoutExpiration = createMessage(new Long(26));
+
+        _queue.enqueue(expiredMessage, null, null);
+        _queue.enqueue(unexpiredMessage, null, null);
+        _queue.enqueue(messageWithoutExpiration, null, null);
+
+        assertEquals("Unexpected queue depth before check", 3, _queue.getQueueDepthMessages());
+
+        _queue.checkMessageStatus();
+
+        assertEquals("Expired message was not dequeued", 2, _queue.getQueueDepthMessages());
+    }
+
     public void testMaximumMessageTtl() throws Exception
     {
 
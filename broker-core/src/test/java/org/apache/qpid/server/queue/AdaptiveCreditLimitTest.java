@@ -0,0 +1,124 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class AdaptiveCreditLimitTest extends QpidTestCase
+{
+    private static final int MINIMUM_CREDIT = 10;
+
+    private final AdaptiveCreditLimit _limit = new AdaptiveCreditLimit(MINIMUM_CREDIT, 200);
+
+    public void testLimitStartsAtMinimum()
+    {
+        List<QueueEntry> entries = send(MINIMUM_CREDIT - 1);
+        assertFalse("Consumer should not be limited below the minimum credit", _limit.isLimited());
+
+        entries.addAll(send(1));
+        assertTrue("Consumer should be limited at the minimum credit", _limit.isLimited());
+        assertEquals("Unexpected number of messages in flight", MINIMUM_CREDIT, _limit.getInFlight());
+    }
+
+    public void testSettlingAtLimitLiftsLimit()
+    {
+        List<QueueEntry> entries = send(MINIMUM_CREDIT);
+
+        assertTrue("Settling the first entry should lift the limit", _limit.settled(entries.get(0), false));
+        assertFalse("Consumer should no longer be limited", _limit.isLimited());
+        assertFalse("Limit was already lifted", _limit.settled(entries.get(1), true));
+    }
+
+    public void testSettlingUnsentEntryDoesNotUnderflow()
+    {
+        _limit.settled(mock(QueueEntry.class), true);
+        assertEquals("Unexpected number of messages in flight", 0, _limit.getInFlight());
+    }
+
+    public void testLimitFollowsBandwidthDelayProduct() throws Exception
+    {
+        final int batchSize = 50;
+        final long roundTripMillis = 10L;
+        final long end = System.currentTimeMillis() + 500L;
+
+        // a consumer which acknowledges a batch of fifty messages every ten milliseconds
+        while (System.currentTimeMillis() < end)
+        {
+            List<QueueEntry> entries = send(batchSize);
+            Thread.sleep(roundTripMillis);
+            for (QueueEntry entry : entries)
+            {
+                _limit.settled(entry, true);
+            }
+        }
+
+        int limit = _limit.getLimit();
+        assertTrue("Limit " + limit + " should have grown above the minimum towards the bandwidth-delay product",
+                   limit > 2 * MINIMUM_CREDIT);
+        assertTrue("Limit " + limit + " should not greatly exceed twice the bandwidth-delay product",
+                   limit <= 4 * batchSize);
+    }
+
+    public void testLimitStaysBoundedForSlowConsumer() throws Exception
+    {
+        // expire the shortest round trip quickly so that it is re-sampled many times during the test
+        final AdaptiveCreditLimit limit = new AdaptiveCreditLimit(MINIMUM_CREDIT, 200, 50000000L);
+        final Deque<QueueEntry> inFlight = new ArrayDeque<>();
+        final long end = System.currentTimeMillis() + 1000L;
+        int highestLimit = 0;
+
+        // a consumer which works through its messages in order, taking a millisecond over each
+        while (System.currentTimeMillis() < end)
+        {
+            while (!limit.isLimited())
+            {
+                QueueEntry entry = mock(QueueEntry.class);
+                limit.sent(entry);
+                inFlight.add(entry);
+            }
+            Thread.sleep(1L);
+            limit.settled(inFlight.poll(), true);
+            highestLimit = Math.max(highestLimit, limit.getLimit());
+        }
+
+        assertTrue("Limit " + highestLimit + " should not grow with the consumer's own backlog",
+                   highestLimit <= 3 * MINIMUM_CREDIT);
+    }
+
+    private List<QueueEntry> send(final int count)
+    {
+        List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            QueueEntry entry = mock(QueueEntry.class);
+            _limit.sent(entry);
+            entries.add(entry);
+        }
+        return entries;
+    }
+}
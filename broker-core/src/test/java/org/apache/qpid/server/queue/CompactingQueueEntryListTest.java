@@ -0,0 +1,207 @@
+/*
+*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class CompactingQueueEntryListTest extends QpidTestCase
+{
+    private static final int THRESHOLD = 10;
+    private static final int NUMBER_OF_MESSAGES = 100;
+
+    private CompactingQueueEntryList _list;
+    private final List<ServerMessage> _messages = new ArrayList<>();
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        Map<String,Object> queueAttributes = new HashMap<>();
+        queueAttributes.put(Queue.ID, UUID.randomUUID());
+        queueAttributes.put(Queue.NAME, getName());
+        queueAttributes.put(Queue.CONTEXT,
+                            Collections.singletonMap(Queue.COMPACT_ENTRIES_THRESHOLD, String.valueOf(THRESHOLD)));
+        final QueueManagingVirtualHost virtualHost = mock(QueueManagingVirtualHost.class);
+        when(virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        ConfiguredObjectFactoryImpl factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        when(virtualHost.getObjectFactory()).thenReturn(factory);
+        when(virtualHost.getModel()).thenReturn(factory.getModel());
+        TaskExecutor taskExecutor = CurrentThreadTaskExecutor.newStartedInstance();
+        when(virtualHost.getTaskExecutor()).thenReturn(taskExecutor);
+        when(virtualHost.getChildExecutor()).thenReturn(taskExecutor);
+        when(virtualHost.getPrincipal()).thenReturn(mock(Principal.class));
+        StandardQueueImpl queue = new StandardQueueImpl(queueAttributes, virtualHost);
+        queue.open();
+        _list = (CompactingQueueEntryList) queue.getEntries();
+
+        for (int i = 1; i <= NUMBER_OF_MESSAGES; i++)
+        {
+            final ServerMessage message = mock(ServerMessage.class);
+            when(message.getMessageNumber()).thenReturn((long) i);
+            MessageReference ref = mock(MessageReference.class);
+            when(ref.getMessage()).thenReturn(message);
+            when(message.newReference()).thenReturn(ref);
+            when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+            _list.add(message, null);
+            _messages.add(message);
+        }
+    }
+
+    public void testEntriesNearHeadAndTailAreNotCompacted()
+    {
+        _list.compact(_list.getHead());
+
+        List<CompactedQueueEntrySegment> segments = getSegments();
+        assertEquals("Unexpected number of segments", 1, segments.size());
+        assertEquals("Unexpected number of compacted entries",
+                     NUMBER_OF_MESSAGES - 2 * THRESHOLD, segments.get(0).getCompactedCount());
+        assertEquals("Unexpected number of entries in full form", 2 * THRESHOLD, countLiveEntries());
+    }
+
+    public void testCompactedEntriesAreRestoredInOrder()
+    {
+        _list.compact(_list.getHead());
+        CompactedQueueEntrySegment segment = getSegments().get(0);
+
+        assertAllMessagesAvailableInOrder();
+        assertTrue("Segment should have been expanded", segment.isExpanded());
+        assertEquals("Expanded segment should have been unlinked", 0, getSegments().size());
+        assertEquals("Unexpected number of entries in full form", NUMBER_OF_MESSAGES, countLiveEntries());
+    }
+
+    public void testAcquiredEntryIsNotCompacted()
+    {
+        QueueEntry entry = getEntry(NUMBER_OF_MESSAGES / 2);
+        assertTrue("Entry should have been acquired", entry.acquire());
+
+        _list.compact(_list.getHead());
+
+        List<CompactedQueueEntrySegment> segments = getSegments();
+        assertEquals("Unexpected number of segments", 2, segments.size());
+        assertEquals("Unexpected number of compacted entries",
+                     NUMBER_OF_MESSAGES - 2 * THRESHOLD - 1,
+                     segments.get(0).getCompactedCount() + segments.get(1).getCompactedCount());
+        assertTrue("Acquired entry should remain acquired", entry.isAcquired());
+        assertFalse("Acquired entry should not be deleted", entry.isDeleted());
+    }
+
+    public void testNothingCompactedCloseToConsumer()
+    {
+        _list.compact(getEntry(NUMBER_OF_MESSAGES - 2 * THRESHOLD));
+
+        assertEquals("Unexpected number of segments", 0, getSegments().size());
+        assertEquals("Unexpected number of entries in full form", NUMBER_OF_MESSAGES, countLiveEntries());
+    }
+
+    public void testNavigationFromCompactedEntryIsRedirected()
+    {
+        QueueEntry compactedEntry = getEntry(THRESHOLD + 1);
+
+        _list.compact(_list.getHead());
+
+        assertTrue("Entry should have been compacted", compactedEntry.isDeleted());
+        QueueEntry next = compactedEntry.getNextValidEntry();
+        assertNotNull("Next entry should not be null", next);
+        assertSame("Unexpected message", _messages.get(THRESHOLD), next.getMessage());
+        assertTrue("Restored entry should be available", next.isAvailable());
+        assertAllMessagesAvailableInOrder();
+    }
+
+    private void assertAllMessagesAvailableInOrder()
+    {
+        QueueEntryIterator iterator = _list.iterator();
+        int count = 0;
+        QueueEntry previous = null;
+        while (iterator.advance())
+        {
+            QueueEntry entry = iterator.getNode();
+            assertSame("Unexpected message at position " + count, _messages.get(count), entry.getMessage());
+            assertTrue("Entry at position " + count + " should be available", entry.isAvailable());
+            if (previous != null)
+            {
+                assertTrue("Entries out of order at position " + count, previous.compareTo(entry) < 0);
+            }
+            previous = entry;
+            count++;
+        }
+        assertEquals("Unexpected number of entries", NUMBER_OF_MESSAGES, count);
+    }
+
+    private QueueEntry getEntry(final int position)
+    {
+        QueueEntry entry = _list.getHead();
+        for (int i = 0; i < position; i++)
+        {
+            entry = entry.getNextValidEntry();
+        }
+        return entry;
+    }
+
+    private List<CompactedQueueEntrySegment> getSegments()
+    {
+        List<CompactedQueueEntrySegment> segments = new ArrayList<>();
+        QueueEntryIterator iterator = _list.nonExpandingIterator();
+        while (iterator.advance())
+        {
+            if (iterator.getNode() instanceof CompactedQueueEntrySegment)
+            {
+                segments.add((CompactedQueueEntrySegment) iterator.getNode());
+            }
+        }
+        return segments;
+    }
+
+    private int countLiveEntries()
+    {
+        int count = 0;
+        QueueEntryIterator iterator = _list.nonExpandingIterator();
+        while (iterator.advance())
+        {
+            if (!iterator.getNode().isDeleted())
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+}
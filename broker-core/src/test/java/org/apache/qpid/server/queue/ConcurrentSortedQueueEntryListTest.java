@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactory;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.LifetimePolicy;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+public class ConcurrentSortedQueueEntryListTest extends QueueEntryListTestBase
+{
+    private final static String keysSorted[] = SortedQueueEntryListTest.keys.clone();
+
+    private SortedQueueImpl _testQueue;
+    private ConcurrentSortedQueueEntryList _list;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        Map<String,Object> attributes = new HashMap<String,Object>();
+        attributes.put(Queue.ID,UUID.randomUUID());
+        attributes.put(Queue.NAME, getName());
+        attributes.put(Queue.DURABLE, false);
+        attributes.put(Queue.LIFETIME_POLICY, LifetimePolicy.PERMANENT);
+        attributes.put(SortedQueue.SORT_KEY, "KEY");
+
+        final QueueManagingVirtualHost virtualHost = mock(QueueManagingVirtualHost.class);
+        when(virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        ConfiguredObjectFactory factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        when(virtualHost.getObjectFactory()).thenReturn(factory);
+        when(virtualHost.getModel()).thenReturn(factory.getModel());
+        when(virtualHost.getPrincipal()).thenReturn(mock(Principal.class));
+        TaskExecutor taskExecutor = CurrentThreadTaskExecutor.newStartedInstance();
+        when(virtualHost.getTaskExecutor()).thenReturn(taskExecutor);
+        when(virtualHost.getChildExecutor()).thenReturn(taskExecutor);
+        _testQueue = new SortedQueueImpl(attributes, virtualHost);
+        _testQueue.open();
+        _list = (ConcurrentSortedQueueEntryList) _testQueue.getEntries();
+
+        super.setUp();
+
+        Arrays.sort(keysSorted);
+
+        long messageId = 0L;
+        for(final String key : SortedQueueEntryListTest.keys)
+        {
+            _list.add(generateTestMessage(messageId++, key), null);
+        }
+    }
+
+    @Override
+    public ConcurrentSortedQueueEntryList getTestList()
+    {
+        return getTestList(false);
+    }
+
+    @Override
+    public ConcurrentSortedQueueEntryList getTestList(boolean newList)
+    {
+        if(newList)
+        {
+            return new ConcurrentSortedQueueEntryList(_testQueue);
+        }
+        else
+        {
+            return _list;
+        }
+    }
+
+    @Override
+    public int getExpectedListLength()
+    {
+        return SortedQueueEntryListTest.keys.length;
+    }
+
+    @Override
+    public long getExpectedFirstMsgId()
+    {
+        return 67L;
+    }
+
+    @Override
+    public ServerMessage getTestMessageToAdd()
+    {
+        return generateTestMessage(1, "test value");
+    }
+
+    @Override
+    protected SortedQueueImpl getTestQueue()
+    {
+        return _testQueue;
+    }
+
+    private ServerMessage generateTestMessage(final long id, final String keyValue)
+    {
+        final ServerMessage message = mock(ServerMessage.class);
+        AMQMessageHeader hdr = mock(AMQMessageHeader.class);
+        when(message.getMessageHeader()).thenReturn(hdr);
+        when(hdr.getHeader(eq("KEY"))).thenReturn(keyValue);
+        when(hdr.containsHeader(eq("KEY"))).thenReturn(true);
+        when(hdr.getHeaderNames()).thenReturn(Collections.singleton("KEY"));
+        MessageReference ref = mock(MessageReference.class);
+        when(ref.getMessage()).thenReturn(message);
+        when(message.newReference()).thenReturn(ref);
+        when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+        when(message.getMessageNumber()).thenReturn(id);
+
+        return message;
+    }
+
+    @Override
+    public void testIterator()
+    {
+        super.testIterator();
+
+        final QueueEntryIterator iter = getTestList().iterator();
+        int count = 0;
+        while(iter.advance())
+        {
+            assertEquals("Sorted queue entry value does not match sorted key array",
+                         keysSorted[count++], getSortedKeyValue(iter.getNode()));
+        }
+    }
+
+    public void testNonUniqueSortKeysKeepInsertionOrder()
+    {
+        _list = getTestList(true);
+        for(long messageId = 0; messageId < 200; messageId++)
+        {
+            _list.add(generateTestMessage(messageId, messageId % 2 == 0 ? "samekey" : null), null);
+        }
+
+        final QueueEntryIterator iter = _list.iterator();
+        int count = 0;
+        while(iter.advance())
+        {
+            final QueueEntry entry = iter.getNode();
+            if(count < 100)
+            {
+                assertNull("Entries without a key should come first", getSortedKeyValue(entry));
+                assertEquals("Message id not as expected", 2L * count + 1, entry.getMessage().getMessageNumber());
+            }
+            else
+            {
+                assertEquals("Sorted queue entry value is not as expected", "samekey", getSortedKeyValue(entry));
+                assertEquals("Message id not as expected", 2L * (count - 100), entry.getMessage().getMessageNumber());
+            }
+            count++;
+        }
+        assertEquals("Unexpected number of entries", 200, count);
+    }
+
+    public void testNextFromDeletedEntry()
+    {
+        _list = getTestList(true);
+        final QueueEntry entryA = _list.add(generateTestMessage(1, "A"), null);
+        final QueueEntry entryB = _list.add(generateTestMessage(2, "B"), null);
+        final QueueEntry entryC = _list.add(generateTestMessage(3, "C"), null);
+
+        entryB.acquire();
+        entryB.delete();
+        assertSame("Deleted entry should have been skipped", entryC, _list.next(entryA));
+        assertSame("Unexpected entry following deleted entry", entryC, _list.next(entryB));
+
+        final QueueEntry entryBB = _list.add(generateTestMessage(4, "BB"), null);
+        assertSame("Entry added after deleted entry not found", entryBB, _list.next(entryB));
+        assertSame("Unexpected tail", entryC, _list.getTail());
+    }
+
+    public void testConcurrentAdds() throws Exception
+    {
+        _list = getTestList(true);
+        final int threadCount = 4;
+        final int messagesPerThread = 500;
+        final ServerMessage[] messages = new ServerMessage[threadCount * messagesPerThread];
+        for(int i = 0; i < messages.length; i++)
+        {
+            messages[i] = generateTestMessage(i, String.format("%05d", i));
+        }
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] threads = new Thread[threadCount];
+        for(int t = 0; t < threadCount; t++)
+        {
+            final int threadId = t;
+            threads[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for(int i = 0; i < messagesPerThread; i++)
+                    {
+                        _list.add(messages[threadId * messagesPerThread + i], null);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for(Thread thread : threads)
+        {
+            thread.join(10000L);
+        }
+
+        final QueueEntryIterator iter = _list.iterator();
+        long expectedMessageId = 0;
+        while(iter.advance())
+        {
+            assertEquals("Message id not as expected",
+                         expectedMessageId++, iter.getNode().getMessage().getMessageNumber());
+        }
+        assertEquals("Unexpected number of entries", (long) threadCount * messagesPerThread, expectedMessageId);
+    }
+
+    private Object getSortedKeyValue(final QueueEntry entry)
+    {
+        return entry.getMessage().getMessageHeader().getHeader("KEY");
+    }
+}
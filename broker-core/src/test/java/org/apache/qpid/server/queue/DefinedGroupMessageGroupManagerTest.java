@@ -0,0 +1,256 @@
+/*
+*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageInstance;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class DefinedGroupMessageGroupManagerTest extends QpidTestCase
+{
+    private static final String GROUP_KEY = "group";
+
+    private final List<QueueEntry> _resetEntries = new CopyOnWriteArrayList<>();
+    private DefinedGroupMessageGroupManager _groupManager;
+    private QueueEntryList _entries;
+    private long _messageNumber;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        Map<String,Object> queueAttributes = new HashMap<>();
+        queueAttributes.put(Queue.ID, UUID.randomUUID());
+        queueAttributes.put(Queue.NAME, getName());
+        final QueueManagingVirtualHost virtualHost = mock(QueueManagingVirtualHost.class);
+        when(virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        ConfiguredObjectFactoryImpl factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        when(virtualHost.getObjectFactory()).thenReturn(factory);
+        when(virtualHost.getModel()).thenReturn(factory.getModel());
+        TaskExecutor taskExecutor = CurrentThreadTaskExecutor.newStartedInstance();
+        when(virtualHost.getTaskExecutor()).thenReturn(taskExecutor);
+        when(virtualHost.getChildExecutor()).thenReturn(taskExecutor);
+        when(virtualHost.getPrincipal()).thenReturn(mock(Principal.class));
+        StandardQueueImpl queue = new StandardQueueImpl(queueAttributes, virtualHost);
+        queue.open();
+        _entries = queue.getEntries();
+
+        _groupManager = new DefinedGroupMessageGroupManager(GROUP_KEY,
+                                                            "default",
+                                                            new MessageGroupManager.ConsumerResetHelper()
+                                                            {
+                                                                @Override
+                                                                public void resetSubPointersForGroups(final QueueEntry entry)
+                                                                {
+                                                                    _resetEntries.add(entry);
+                                                                }
+
+                                                                @Override
+                                                                public boolean isEntryAheadOfConsumer(final QueueEntry entry,
+                                                                                                      final QueueConsumer<?> sub)
+                                                                {
+                                                                    return false;
+                                                                }
+                                                            });
+    }
+
+    public void testGroupIsHeldByConsumerWithAcquiredEntries()
+    {
+        QueueConsumer<?> consumer1 = createConsumer();
+        QueueConsumer<?> consumer2 = createConsumer();
+        QueueEntry entry1 = createEntry("A");
+        QueueEntry entry2 = createEntry("A");
+
+        assertTrue("First consumer should have been assigned the group", _groupManager.acceptMessage(consumer1, entry1));
+        assertFalse("Second consumer should not be assigned the group", _groupManager.mightAssign(entry2, consumer2));
+        assertFalse("Second consumer should not be assigned the group", _groupManager.acceptMessage(consumer2, entry2));
+        assertTrue("Owning consumer should be able to acquire more of the group",
+                   _groupManager.acceptMessage(consumer1, entry2));
+
+        assertEquals("Unexpected number of groups", 1, _groupManager.getGroupCount());
+        assertEquals("Unexpected number of group assignments", 1L, _groupManager.getGroupAssignmentCount());
+    }
+
+    public void testGroupIsFreedWhenLastAcquiredEntryIsConsumed()
+    {
+        QueueConsumer<?> consumer1 = createConsumer();
+        QueueConsumer<?> consumer2 = createConsumer();
+        QueueEntry entry1 = createEntry("A");
+        QueueEntry entry2 = createEntry("A");
+        QueueEntry entry3 = createEntry("A");
+
+        assertTrue("First consumer should have been assigned the group", _groupManager.acceptMessage(consumer1, entry1));
+        assertFalse("Second consumer should not be assigned the group", _groupManager.mightAssign(entry3, consumer2));
+        assertFalse("Second consumer should not be assigned the group", _groupManager.mightAssign(entry2, consumer2));
+        assertTrue("No entries should have been reset yet", _resetEntries.isEmpty());
+
+        entry1.delete();
+
+        assertEquals("Unexpected number of groups", 0, _groupManager.getGroupCount());
+        assertEquals("Only the earliest skipped entry should be reset", 1, _resetEntries.size());
+        assertSame("Unexpected entry reset", entry2, _resetEntries.get(0));
+
+        assertTrue("Second consumer should now be assigned the group", _groupManager.acceptMessage(consumer2, entry2));
+        assertEquals("Unexpected number of group assignments", 2L, _groupManager.getGroupAssignmentCount());
+    }
+
+    public void testGroupIsFreedWhenLastAcquiredEntryIsReleased()
+    {
+        QueueConsumer<?> consumer1 = createConsumer();
+        QueueConsumer<?> consumer2 = createConsumer();
+        QueueEntry entry1 = createEntry("A");
+
+        assertTrue("First consumer should have been assigned the group", _groupManager.acceptMessage(consumer1, entry1));
+        entry1.release();
+
+        assertEquals("Unexpected number of groups", 0, _groupManager.getGroupCount());
+        assertTrue("Second consumer should now be assigned the group", _groupManager.acceptMessage(consumer2, entry1));
+    }
+
+    public void testGroupsAreIndependent()
+    {
+        QueueConsumer<?> consumer1 = createConsumer();
+        QueueConsumer<?> consumer2 = createConsumer();
+        QueueEntry entryA = createEntry("A");
+        QueueEntry entryB = createEntry("B");
+        QueueEntry entryDefault = createEntry(null);
+
+        assertTrue("First consumer should have been assigned group A", _groupManager.acceptMessage(consumer1, entryA));
+        assertTrue("Second consumer should have been assigned group B", _groupManager.acceptMessage(consumer2, entryB));
+        assertTrue("Second consumer should have been assigned the default group",
+                   _groupManager.acceptMessage(consumer2, entryDefault));
+
+        assertEquals("Unexpected number of groups", 3, _groupManager.getGroupCount());
+    }
+
+    public void testConcurrentConsumersNeverShareAGroup() throws Exception
+    {
+        final int numberOfConsumers = 4;
+        final int numberOfGroups = 16;
+        final int entriesPerGroup = 100;
+
+        final List<QueueEntry> entries = new ArrayList<>();
+        for (int i = 0; i < entriesPerGroup; i++)
+        {
+            for (int group = 0; group < numberOfGroups; group++)
+            {
+                entries.add(createEntry("group" + group));
+            }
+        }
+
+        final List<QueueConsumer<?>> consumers = new ArrayList<>();
+        for (int i = 0; i < numberOfConsumers; i++)
+        {
+            consumers.add(createConsumer());
+        }
+
+        final Map<Object, QueueConsumer<?>> owners = new HashMap<>();
+        final List<String> errors = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(numberOfConsumers);
+        for (final QueueConsumer<?> consumer : consumers)
+        {
+            new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (QueueEntry entry : entries)
+                        {
+                            if (_groupManager.acceptMessage(consumer, entry))
+                            {
+                                Object group = entry.getMessage().getMessageHeader().getHeader(GROUP_KEY);
+                                synchronized (owners)
+                                {
+                                    QueueConsumer<?> owner = owners.get(group);
+                                    if (owner != null && owner != consumer)
+                                    {
+                                        errors.add("Group " + group + " acquired by two consumers at once");
+                                    }
+                                    owners.put(group, consumer);
+                                }
+                                synchronized (owners)
+                                {
+                                    owners.remove(group);
+                                }
+                                entry.delete();
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        assertTrue("Consumers did not finish", done.await(10, TimeUnit.SECONDS));
+        assertTrue("Unexpected errors: " + errors, errors.isEmpty());
+        assertEquals("No group should remain assigned", 0, _groupManager.getGroupCount());
+    }
+
+    private QueueConsumer<?> createConsumer()
+    {
+        QueueConsumer consumer = mock(QueueConsumer.class);
+        when(consumer.getOwningState()).thenReturn(new MessageInstance.StealableConsumerAcquiredState(consumer));
+        return consumer;
+    }
+
+    private QueueEntry createEntry(final String group)
+    {
+        final AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeader(GROUP_KEY)).thenReturn(group);
+        final ServerMessage message = mock(ServerMessage.class);
+        when(message.getMessageNumber()).thenReturn(++_messageNumber);
+        when(message.getMessageHeader()).thenReturn(header);
+        MessageReference ref = mock(MessageReference.class);
+        when(ref.getMessage()).thenReturn(message);
+        when(message.newReference()).thenReturn(ref);
+        when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+        return _entries.add(message, null);
+    }
+}
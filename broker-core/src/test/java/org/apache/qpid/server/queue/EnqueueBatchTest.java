@@ -0,0 +1,169 @@
+/*
+*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class EnqueueBatchTest extends QpidTestCase
+{
+    private QueueManagingVirtualHost<?> _virtualHost;
+    private long _messageNumber;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _virtualHost = mock(QueueManagingVirtualHost.class);
+        when(_virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        ConfiguredObjectFactoryImpl factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        when(_virtualHost.getObjectFactory()).thenReturn(factory);
+        when(_virtualHost.getModel()).thenReturn(factory.getModel());
+        TaskExecutor taskExecutor = CurrentThreadTaskExecutor.newStartedInstance();
+        when(_virtualHost.getTaskExecutor()).thenReturn(taskExecutor);
+        when(_virtualHost.getChildExecutor()).thenReturn(taskExecutor);
+        when(_virtualHost.getPrincipal()).thenReturn(mock(Principal.class));
+    }
+
+    public void testQueueWokenOncePerBatch()
+    {
+        CountingQueue queue1 = createQueue("queue1");
+        CountingQueue queue2 = createQueue("queue2");
+
+        EnqueueBatch.begin();
+        try
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                queue1.enqueue(createMessage(), null, null);
+                queue2.enqueue(createMessage(), null, null);
+            }
+            assertEquals("Delivery should be deferred within the batch", 0, queue1.getDeliverAsyncCount());
+            assertEquals("Delivery should be deferred within the batch", 0, queue2.getDeliverAsyncCount());
+        }
+        finally
+        {
+            EnqueueBatch.complete();
+        }
+
+        assertEquals("Unexpected number of wake-ups", 1, queue1.getDeliverAsyncCount());
+        assertEquals("Unexpected number of wake-ups", 1, queue2.getDeliverAsyncCount());
+    }
+
+    public void testNestedBatchCompletesWithOutermost()
+    {
+        CountingQueue queue = createQueue("queue");
+
+        EnqueueBatch.begin();
+        try
+        {
+            EnqueueBatch.begin();
+            try
+            {
+                queue.enqueue(createMessage(), null, null);
+            }
+            finally
+            {
+                EnqueueBatch.complete();
+            }
+            assertEquals("Delivery should be deferred until the outermost batch completes",
+                         0, queue.getDeliverAsyncCount());
+        }
+        finally
+        {
+            EnqueueBatch.complete();
+        }
+
+        assertEquals("Unexpected number of wake-ups", 1, queue.getDeliverAsyncCount());
+    }
+
+    public void testEnqueueOutsideBatchWakesQueue()
+    {
+        CountingQueue queue = createQueue("queue");
+
+        queue.enqueue(createMessage(), null, null);
+        queue.enqueue(createMessage(), null, null);
+
+        assertEquals("Unexpected number of wake-ups", 2, queue.getDeliverAsyncCount());
+    }
+
+    private CountingQueue createQueue(final String name)
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.ID, UUID.randomUUID());
+        attributes.put(Queue.NAME, name);
+        CountingQueue queue = new CountingQueue(attributes, _virtualHost);
+        queue.open();
+        queue.completeRecovery();
+        return queue;
+    }
+
+    private ServerMessage<?> createMessage()
+    {
+        final ServerMessage message = mock(ServerMessage.class);
+        when(message.getMessageNumber()).thenReturn(++_messageNumber);
+        MessageReference ref = mock(MessageReference.class);
+        when(ref.getMessage()).thenReturn(message);
+        when(message.newReference()).thenReturn(ref);
+        when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+        return message;
+    }
+
+    private static class CountingQueue extends StandardQueueImpl
+    {
+        private int _deliverAsyncCount;
+
+        private CountingQueue(final Map<String, Object> attributes, final QueueManagingVirtualHost<?> virtualHost)
+        {
+            super(attributes, virtualHost);
+        }
+
+        @Override
+        public void deliverAsync()
+        {
+            _deliverAsyncCount++;
+            super.deliverAsync();
+        }
+
+        private int getDeliverAsyncCount()
+        {
+            return _deliverAsyncCount;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.qpid.server.configuration.updater.CurrentThreadTaskExecutor;
+import org.apache.qpid.server.configuration.updater.TaskExecutor;
+import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.BrokerModel;
+import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.model.ConfiguredObjectFactory;
+import org.apache.qpid.server.model.ConfiguredObjectFactoryImpl;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.queue.PartitionedQueueList.Cursor;
+import org.apache.qpid.server.queue.PartitionedQueueList.PartitionedQueueEntrySubList;
+import org.apache.qpid.server.queue.PartitionedQueueList.PartitionedQueueMasterList;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class PartitionedQueueListTest extends QpidTestCase
+{
+    private static final int PARTITIONS = 3;
+    private static final String GROUP_KEY = "group";
+
+    private long _messageNumber;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        BrokerTestHelper.setUp();
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            super.tearDown();
+        }
+        finally
+        {
+            BrokerTestHelper.tearDown();
+        }
+    }
+
+    public void testMessagesAreSpreadOverPartitionsInTurn()
+    {
+        PartitionedQueueList list = createList(null);
+
+        for (int i = 0; i < 2 * PARTITIONS; i++)
+        {
+            QueueEntry entry = list.add(createMessage(null), null);
+            assertEquals("Unexpected partition for message " + i, i % PARTITIONS, getPartition(entry));
+        }
+    }
+
+    public void testMessagesOfAGroupShareAPartition()
+    {
+        PartitionedQueueList list = createList(GROUP_KEY);
+
+        for (String group : new String[]{"A", "B", "C", "D"})
+        {
+            int partition = getPartition(list.add(createMessage(group), null));
+            for (int i = 0; i < 5; i++)
+            {
+                assertEquals("Message of group " + group + " added to a different partition",
+                             partition, getPartition(list.add(createMessage(group), null)));
+            }
+        }
+    }
+
+    public void testNextVisitsEveryEntryInEnqueueOrder()
+    {
+        PartitionedQueueList list = createList(null);
+        List<QueueEntry> added = new ArrayList<>();
+        for (int i = 0; i < 3 * PARTITIONS; i++)
+        {
+            added.add(list.add(createMessage(null), null));
+        }
+
+        List<QueueEntry> visited = new ArrayList<>();
+        QueueEntry entry = list.getHead();
+        while ((entry = list.next(entry)) != null)
+        {
+            if (!visited.isEmpty())
+            {
+                assertTrue("Entries not visited in order", visited.get(visited.size() - 1).compareTo(entry) < 0);
+            }
+            visited.add(entry);
+        }
+        assertEquals("Entries not visited in enqueue order", added, visited);
+
+        List<QueueEntry> iterated = new ArrayList<>();
+        QueueEntryIterator iterator = list.iterator();
+        while (iterator.advance())
+        {
+            iterated.add(iterator.getNode());
+        }
+        assertEquals("Iterator and next disagree on the order of entries", visited, iterated);
+    }
+
+    public void testBacklogInOnePartitionDoesNotStarveAnother()
+    {
+        PartitionedQueueList list = createList(GROUP_KEY);
+        String backlogGroup = "A";
+        int backlogPartition = getPartition(list.add(createMessage(backlogGroup), null));
+        String otherGroup = null;
+        for (int i = 0; otherGroup == null; i++)
+        {
+            QueueEntry entry = list.add(createMessage("G" + i), null);
+            if (getPartition(entry) != backlogPartition)
+            {
+                otherGroup = "G" + i;
+            }
+            entry.acquire();
+            entry.delete();
+        }
+
+        QueueEntry first = list.add(createMessage(otherGroup), null);
+        for (int i = 0; i < 100; i++)
+        {
+            list.add(createMessage(backlogGroup), null);
+        }
+        QueueEntry last = list.add(createMessage(otherGroup), null);
+
+        QueueEntry lastSeen = list.next(list.getHead());
+        assertEquals("Unexpected partition for oldest entry", backlogPartition, getPartition(lastSeen));
+        lastSeen.acquire();
+        lastSeen.delete();
+
+        lastSeen = list.next(lastSeen);
+        assertSame("Entry of the other partition should be next in enqueue order", first, lastSeen);
+
+        QueueEntry added = list.add(createMessage(backlogGroup), null);
+        assertTrue("Newly enqueued entry should never be ahead of a consumer's position",
+                   added.compareTo(lastSeen) > 0);
+
+        int visited = 0;
+        QueueEntry entry;
+        while ((entry = list.next(lastSeen)) != last)
+        {
+            assertNotNull("Entry of the other partition was never reached", entry);
+            assertEquals("Unexpected partition", backlogPartition, getPartition(entry));
+            lastSeen = entry;
+            visited++;
+        }
+        assertEquals("Unexpected number of backlog entries before the other partition's entry", 100, visited);
+        assertSame("Entry enqueued after the other partition's entry should follow it", added, list.next(last));
+        assertSame("Unexpected tail", added, list.getTail());
+    }
+
+    public void testCursorHoldsPositionInEveryPartition()
+    {
+        PartitionedQueueMasterList list = createList(null);
+        List<QueueEntry> added = new ArrayList<>();
+        for (int i = 0; i < 10 * PARTITIONS; i++)
+        {
+            added.add(list.add(createMessage(null), null));
+        }
+
+        // a consumer without a cursor of its own moves the shared search start to the tail
+        QueueEntry entry = list.getHead();
+        while ((entry = list.next(entry)) != null)
+        {
+        }
+
+        Cursor cursor = list.newCursor();
+        QueueEntry lastSeen = list.getHead();
+        for (int i = 0; i < added.size(); i++)
+        {
+            QueueEntry next = list.next(lastSeen, cursor);
+            assertSame("Unexpected entry " + i, added.get(i), next);
+            assertCursorAt(cursor, added, i - 1);
+            lastSeen = next;
+        }
+        assertNull("Unexpected entry after tail", list.next(lastSeen, cursor));
+
+        // a consumer moved back to a released entry continues from there
+        assertSame("Unexpected entry after released entry", added.get(3), list.next(added.get(2), cursor));
+        assertCursorAt(cursor, added, 2);
+    }
+
+    public void testNextSkipsDeletedEntriesAcrossPartitions()
+    {
+        PartitionedQueueList list = createList(null);
+        QueueEntry first = list.add(createMessage(null), null);
+        QueueEntry second = list.add(createMessage(null), null);
+        QueueEntry third = list.add(createMessage(null), null);
+
+        second.acquire();
+        second.delete();
+
+        assertSame("Unexpected entry after first", third, list.next(first));
+    }
+
+    public void testOldestEntry()
+    {
+        PartitionedQueueList list = createList(null);
+        assertNull("Empty list has no oldest entry", list.getOldestEntry());
+
+        QueueEntry first = list.add(createMessage(null), null);
+        list.add(createMessage(null), null);
+        assertSame("Unexpected oldest entry", first, list.getOldestEntry());
+
+        first.acquire();
+        first.delete();
+        assertEquals("Unexpected oldest entry", 2L, list.getOldestEntry().getMessage().getMessageNumber());
+    }
+
+    /**
+     * Asserts that the cursor holds, for every partition, the last entry of that partition added no later than the
+     * entry at the given index, or the head of the partition if there is none.
+     */
+    private void assertCursorAt(final Cursor cursor, final List<QueueEntry> added, final int index)
+    {
+        for (int partition = 0; partition < PARTITIONS; partition++)
+        {
+            QueueEntry expected = null;
+            for (int i = 0; i <= index; i++)
+            {
+                if (getPartition(added.get(i)) == partition)
+                {
+                    expected = added.get(i);
+                }
+            }
+            QueueEntry position = cursor.getPosition(partition);
+            assertNotNull("No position for partition " + partition, position);
+            if (expected == null)
+            {
+                assertFalse("Position for partition " + partition + " should be its head", added.contains(position));
+                assertEquals("Head of wrong partition", partition, getPartition(position));
+            }
+            else
+            {
+                assertSame("Unexpected position for partition " + partition, expected, position);
+            }
+        }
+    }
+
+    private int getPartition(final QueueEntry entry)
+    {
+        return ((PartitionedQueueEntrySubList) ((QueueEntryImpl) entry).getQueueEntryList()).getPartition();
+    }
+
+    private PartitionedQueueMasterList createList(final String groupKey)
+    {
+        Map<String,Object> queueAttributes = new HashMap<String, Object>();
+        queueAttributes.put(Queue.ID, UUID.randomUUID());
+        queueAttributes.put(Queue.NAME, getName());
+        queueAttributes.put(PartitionedQueue.PARTITIONS, PARTITIONS);
+        if (groupKey != null)
+        {
+            queueAttributes.put(Queue.MESSAGE_GROUP_KEY, groupKey);
+        }
+        final QueueManagingVirtualHost virtualHost = mock(QueueManagingVirtualHost.class);
+        when(virtualHost.getEventLogger()).thenReturn(new EventLogger());
+        ConfiguredObjectFactory factory = new ConfiguredObjectFactoryImpl(BrokerModel.getInstance());
+        when(virtualHost.getObjectFactory()).thenReturn(factory);
+        when(virtualHost.getModel()).thenReturn(factory.getModel());
+        when(virtualHost.getPrincipal()).thenReturn(mock(Principal.class));
+        TaskExecutor taskExecutor = CurrentThreadTaskExecutor.newStartedInstance();
+        when(virtualHost.getTaskExecutor()).thenReturn(taskExecutor);
+        when(virtualHost.getChildExecutor()).thenReturn(taskExecutor);
+        PartitionedQueueImpl queue = new PartitionedQueueImpl(queueAttributes, virtualHost);
+        queue.open();
+        return queue.getEntries();
+    }
+
+    private ServerMessage<?> createMessage(final String group)
+    {
+        ServerMessage<?> message = mock(ServerMessage.class);
+        AMQMessageHeader header = mock(AMQMessageHeader.class);
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        MessageReference<ServerMessage> ref = mock(MessageReference.class);
+
+        when(message.getMessageNumber()).thenReturn(++_messageNumber);
+        when(message.getMessageHeader()).thenReturn(header);
+        when(message.newReference()).thenReturn(ref);
+        when(message.newReference(any(TransactionLogResource.class))).thenReturn(ref);
+        when(ref.getMessage()).thenReturn(message);
+        when(header.getHeader(GROUP_KEY)).thenReturn(group);
+        return message;
+    }
+}
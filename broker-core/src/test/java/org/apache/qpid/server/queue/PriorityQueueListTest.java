@@ -161,4 +161,36 @@ public class PriorityQueueListTest extends QpidTestCase
         assertEquals("second message with priority 4 should be 'later' than second message of priority 5",
                 1, _priority4message2.compareTo(_priority5message2));
     }
+
+    public void testNextSkipsAcquiredEntries()
+    {
+        assertTrue("Entry should have been acquired", _priority5message1.acquire());
+        assertTrue("Entry should have been acquired", _priority5message2.acquire());
+
+        assertSame("Acquired entries should have been skipped", _priority4message1, _list.next(_list.getHead()));
+        assertSame("Unexpected entry following acquired entries", _priority4message2, _list.next(_priority4message1));
+        assertNull("Unexpected entry at end of list", _list.next(_priority4message2));
+    }
+
+    public void testNextFromAcquiredEntryContinuesAtFirstAvailable()
+    {
+        assertTrue("Entry should have been acquired", _priority4message1.acquire());
+
+        assertSame("Unexpected first available entry", _priority4message2, _list.next(_priority5message2));
+        assertSame("Unexpected entry following acquired entry", _priority4message2, _list.next(_priority4message1));
+    }
+
+    public void testNextReturnsReleasedEntry()
+    {
+        assertTrue("Entry should have been acquired", _priority5message1.acquire());
+        assertTrue("Entry should have been acquired", _priority4message1.acquire());
+        assertSame("Acquired entries should have been skipped", _priority5message2, _list.next(_list.getHead()));
+        assertSame("Acquired entry should have been skipped", _priority4message2, _list.next(_priority5message2));
+
+        _priority5message1.release();
+        _priority4message1.release();
+
+        assertSame("Released entry should have been returned", _priority5message1, _list.next(_list.getHead()));
+        assertSame("Released entry should have been returned", _priority4message1, _list.next(_priority5message2));
+    }
 }
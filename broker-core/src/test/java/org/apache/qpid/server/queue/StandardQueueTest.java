@@ -21,11 +21,15 @@
 package org.apache.qpid.server.queue;
 
 import java.security.AccessController;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -239,6 +243,61 @@ public class StandardQueueTest extends AbstractQueueTestBase
         verifyReceivedMessages(expected, consumer.getMessages());
     }
 
+    public void testConsumersDistributedAcrossDeliveryRunners() throws Exception
+    {
+        Map<String,Object> queueAttributes = new HashMap<>();
+        queueAttributes.put(Queue.NAME, "testConsumersDistributedAcrossDeliveryRunners");
+        queueAttributes.put(Queue.CONTEXT, Collections.singletonMap(Queue.DELIVERY_RUNNERS, "2"));
+        final StandardQueueImpl queue = new StandardQueueImpl(queueAttributes, getVirtualHost());
+        queue.open();
+
+        final int numberOfMessages = 8;
+        final CountDownLatch latch = new CountDownLatch(numberOfMessages);
+        final Set<QueueRunner> queueRunners = new HashSet<>();
+        final List<MockConsumer> consumerTargets = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            MockConsumer consumerTarget = new MockConsumer()
+            {
+                @Override
+                public long send(final ConsumerImpl consumer, MessageInstance entry, boolean batch)
+                {
+                    long size = super.send(consumer, entry, batch);
+                    latch.countDown();
+                    return size;
+                }
+            };
+            consumerTargets.add(consumerTarget);
+            QueueConsumer<?> consumer = (QueueConsumer<?>) queue.addConsumer(consumerTarget,
+                                                                             null,
+                                                                             createMessage(-1l).getClass(),
+                                                                             "test" + i,
+                                                                             EnumSet.of(ConsumerImpl.Option.ACQUIRES,
+                                                                                        ConsumerImpl.Option.SEES_REQUEUES),
+                                                                             0);
+            queueRunners.add(consumer.getQueueContext().getQueueRunner());
+        }
+
+        assertEquals("Unexpected number of runners serving consumers", 2, queueRunners.size());
+        for (QueueRunner queueRunner : queueRunners)
+        {
+            assertEquals("Unexpected number of consumers for runner " + queueRunner, 2, queueRunner.getConsumerCount());
+        }
+
+        for (int i = 0; i < numberOfMessages; i++)
+        {
+            queue.enqueue(createMessage((long) i), null, null);
+        }
+
+        assertTrue("Not all messages were delivered", latch.await(10, TimeUnit.SECONDS));
+        int delivered = 0;
+        for (MockConsumer consumerTarget : consumerTargets)
+        {
+            delivered += consumerTarget.getMessages().size();
+        }
+        assertEquals("Unexpected number of deliveries", numberOfMessages, delivered);
+    }
+
     public void testNonDurableImpliesMessageDurabilityNever() throws Exception
     {
         getQueue().close();
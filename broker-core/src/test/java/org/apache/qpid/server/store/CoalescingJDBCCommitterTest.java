@@ -0,0 +1,212 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class CoalescingJDBCCommitterTest extends QpidTestCase
+{
+    private final List<List<TestJob>> _batches = Collections.synchronizedList(new ArrayList<List<TestJob>>());
+    private CoalescingJDBCCommitter<TestJob> _committer;
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            if (_committer != null)
+            {
+                _committer.stop();
+            }
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testJobsQueuedWhilstWriting() throws Exception
+    {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        _committer = new CoalescingJDBCCommitter<>(getTestName(), new CoalescingJDBCCommitter.BatchWriter<TestJob>()
+        {
+            @Override
+            public void write(final List<TestJob> jobs)
+            {
+                _batches.add(new ArrayList<>(jobs));
+                writing.countDown();
+                awaitQuietly(release);
+            }
+        }, 3, 0);
+        _committer.start();
+
+        final TestJob first = new TestJob(false);
+        _committer.commit(first);
+        assertTrue("First batch not written", writing.await(5, TimeUnit.SECONDS));
+
+        final List<TestJob> queued = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            final TestJob job = new TestJob(false);
+            queued.add(job);
+            _committer.commit(job);
+        }
+        release.countDown();
+
+        for (TestJob job : queued)
+        {
+            assertTrue("Job not completed", job.await());
+            assertNull("Unexpected failure", job.getFailure());
+        }
+        assertTrue("First job not completed", first.await());
+
+        assertEquals("Unexpected number of batches", 3, _batches.size());
+        assertEquals(Collections.singletonList(first), _batches.get(0));
+        assertEquals(queued.subList(0, 3), _batches.get(1));
+        assertEquals(queued.subList(3, 4), _batches.get(2));
+    }
+
+    public void testFailingJobDoesNotFailBatch() throws Exception
+    {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        _committer = new CoalescingJDBCCommitter<>(getTestName(), new CoalescingJDBCCommitter.BatchWriter<TestJob>()
+        {
+            @Override
+            public void write(final List<TestJob> jobs)
+            {
+                writing.countDown();
+                awaitQuietly(release);
+                for (TestJob job : jobs)
+                {
+                    if (job.isFailing())
+                    {
+                        throw new StoreException("Test failure");
+                    }
+                }
+            }
+        }, 10, 0);
+        _committer.start();
+
+        _committer.commit(new TestJob(false));
+        assertTrue("First batch not written", writing.await(5, TimeUnit.SECONDS));
+
+        final TestJob good1 = new TestJob(false);
+        final TestJob bad = new TestJob(true);
+        final TestJob good2 = new TestJob(false);
+        _committer.commit(good1);
+        _committer.commit(bad);
+        _committer.commit(good2);
+        release.countDown();
+
+        assertTrue(good1.await());
+        assertTrue(bad.await());
+        assertTrue(good2.await());
+        assertNull("Unexpected failure", good1.getFailure());
+        assertTrue("Expected failure", bad.getFailure() instanceof StoreException);
+        assertNull("Unexpected failure", good2.getFailure());
+    }
+
+    public void testCommitAfterStopAborts() throws Exception
+    {
+        _committer = new CoalescingJDBCCommitter<>(getTestName(), new CoalescingJDBCCommitter.BatchWriter<TestJob>()
+        {
+            @Override
+            public void write(final List<TestJob> jobs)
+            {
+                _batches.add(new ArrayList<>(jobs));
+            }
+        }, 10, 0);
+        _committer.start();
+
+        final TestJob beforeStop = new TestJob(false);
+        _committer.commit(beforeStop);
+        _committer.stop();
+
+        assertTrue(beforeStop.await());
+        assertNull("Job submitted before stop should be written", beforeStop.getFailure());
+
+        final TestJob afterStop = new TestJob(false);
+        _committer.commit(afterStop);
+        assertTrue(afterStop.await());
+        assertTrue("Expected failure", afterStop.getFailure() instanceof StoreException);
+        _committer = null;
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TestJob implements CoalescingJDBCCommitter.Job
+    {
+        private final boolean _failing;
+        private final CountDownLatch _done = new CountDownLatch(1);
+        private volatile RuntimeException _failure;
+
+        private TestJob(final boolean failing)
+        {
+            _failing = failing;
+        }
+
+        boolean isFailing()
+        {
+            return _failing;
+        }
+
+        boolean await() throws InterruptedException
+        {
+            return _done.await(5, TimeUnit.SECONDS);
+        }
+
+        RuntimeException getFailure()
+        {
+            return _failure;
+        }
+
+        @Override
+        public void complete()
+        {
+            _done.countDown();
+        }
+
+        @Override
+        public void abort(final RuntimeException e)
+        {
+            _failure = e;
+            _done.countDown();
+        }
+    }
+}
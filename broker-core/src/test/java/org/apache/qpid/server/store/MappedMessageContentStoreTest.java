@@ -0,0 +1,173 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.test.utils.TestFileUtils;
+import org.apache.qpid.util.FileUtils;
+
+public class MappedMessageContentStoreTest extends QpidTestCase
+{
+    private static final int SEGMENT_SIZE = 16;
+
+    private File _directory;
+    private MappedMessageContentStore _store;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _directory = TestFileUtils.createTestDirectory("overflow", true);
+        _store = new MappedMessageContentStore(_directory, SEGMENT_SIZE);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        try
+        {
+            _store.close();
+            FileUtils.delete(_directory, true);
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testWriteAndRead()
+    {
+        MappedMessageContentStore.Location location = write("0123456789");
+
+        assertEquals("Unexpected content", "0123456789", read(location, 0, 10));
+        assertEquals("Unexpected partial content", "345", read(location, 3, 3));
+        assertEquals("Unexpected content read beyond end", "89", read(location, 8, 10));
+    }
+
+    public void testSegmentsRollAndAreReclaimed()
+    {
+        MappedMessageContentStore.Location first = write("0123456789");
+        MappedMessageContentStore.Location second = write("abcdefghij");
+
+        assertEquals("Unexpected number of segments", 2, _store.getNumberOfSegments());
+        assertEquals("Unexpected content in first segment", "0123456789", read(first, 0, 10));
+        assertEquals("Unexpected content in second segment", "abcdefghij", read(second, 0, 10));
+
+        first.release();
+        assertEquals("Rolled segment was not reclaimed", 1, _store.getNumberOfSegments());
+
+        second.release();
+        assertEquals("Current segment should be retained", 1, _store.getNumberOfSegments());
+    }
+
+    public void testContentLargerThanSegment()
+    {
+        String content = "this content is larger than a segment";
+        MappedMessageContentStore.Location location = write(content);
+
+        assertEquals("Unexpected content", content, read(location, 0, content.length()));
+
+        location.release();
+        assertEquals("Dedicated segment was not reclaimed", 0, _store.getNumberOfSegments());
+    }
+
+    public void testReleasedSegmentIsRetainedUntilViewsAreDisposed()
+    {
+        String content = "this content is larger than a segment";
+        MappedMessageContentStore.Location location = write(content);
+        Collection<QpidByteBuffer> view = location.read(0, content.length());
+        QpidByteBuffer slice = view.iterator().next().slice();
+
+        location.release();
+        assertEquals("Released segment should no longer be tracked", 0, _store.getNumberOfSegments());
+        assertEquals("Segment file deleted whilst views remain", 1, countSegmentFiles());
+
+        assertEquals("Unexpected content through view", content, asString(view));
+        assertEquals("Segment file deleted whilst a slice remains", 1, countSegmentFiles());
+
+        assertEquals("Unexpected content through slice", content, asString(Collections.singleton(slice)));
+        assertEquals("Segment file not deleted once views were disposed", 0, countSegmentFiles());
+        assertEquals("Unexpected pending deletions", 0, _store.getNumberOfPendingDeletions());
+    }
+
+    public void testStoredMemoryMessageFlowToDisk()
+    {
+        byte[] content = "message content".getBytes();
+        StoredMemoryMessage<TestMessageMetaData> message =
+                new StoredMemoryMessage<>(1L, new TestMessageMetaData(1L, content.length, false), _store);
+        QpidByteBuffer buffer = QpidByteBuffer.wrap(content);
+        message.addContent(buffer);
+        buffer.dispose();
+        message.allContentAdded();
+
+        assertTrue("Message should be in memory", message.isInMemory());
+        assertTrue("Flow to disk failed", message.flowToDisk());
+        assertFalse("Message should no longer be in memory", message.isInMemory());
+        assertEquals("Unexpected content after flow to disk",
+                     "message content",
+                     asString(message.getContent(0, content.length)));
+
+        message.remove();
+        assertEquals("Segment should be retained whilst current", 1, _store.getNumberOfSegments());
+    }
+
+    private MappedMessageContentStore.Location write(final String content)
+    {
+        QpidByteBuffer buffer = QpidByteBuffer.wrap(content.getBytes());
+        try
+        {
+            return _store.write(Collections.singleton(buffer), buffer.remaining());
+        }
+        finally
+        {
+            buffer.dispose();
+        }
+    }
+
+    private String read(final MappedMessageContentStore.Location location, final int offset, final int length)
+    {
+        return asString(location.read(offset, length));
+    }
+
+    private int countSegmentFiles()
+    {
+        File[] files = _directory.listFiles();
+        return files == null ? 0 : files.length;
+    }
+
+    private String asString(final Collection<QpidByteBuffer> buffers)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (QpidByteBuffer buffer : buffers)
+        {
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+            builder.append(new String(data));
+            buffer.dispose();
+        }
+        return builder.toString();
+    }
+}
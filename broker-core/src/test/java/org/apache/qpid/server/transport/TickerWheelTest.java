@@ -0,0 +1,111 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class TickerWheelTest extends QpidTestCase
+{
+    private static final long START = 1000000L;
+
+    private TickerWheel<String> _wheel;
+    private List<String> _expired;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _wheel = new TickerWheel<>(8, 10L, START);
+        _expired = new ArrayList<>();
+    }
+
+    public void testEntryExpiresOnlyOnceDeadlineReached()
+    {
+        _wheel.schedule(_wheel.createEntry("a"), START + 25);
+
+        _wheel.expire(START + 24, _expired);
+        assertTrue("Entry expired before its deadline", _expired.isEmpty());
+
+        _wheel.expire(START + 30, _expired);
+        assertEquals(Collections.singletonList("a"), _expired);
+        assertEquals(0, _wheel.size());
+    }
+
+    public void testEntriesBeyondOneRotation()
+    {
+        _wheel.schedule(_wheel.createEntry("near"), START + 15);
+        _wheel.schedule(_wheel.createEntry("far"), START + 15 + 8 * 10);
+
+        _wheel.expire(START + 20, _expired);
+        assertEquals(Collections.singletonList("near"), _expired);
+        _expired.clear();
+
+        _wheel.expire(START + 90, _expired);
+        assertTrue("Entry for a later rotation expired early", _expired.isEmpty());
+
+        _wheel.expire(START + 100, _expired);
+        assertEquals(Collections.singletonList("far"), _expired);
+    }
+
+    public void testExpireAfterLongPause()
+    {
+        _wheel.schedule(_wheel.createEntry("a"), START + 10);
+        _wheel.schedule(_wheel.createEntry("b"), START + 55);
+        _wheel.schedule(_wheel.createEntry("c"), START + 500);
+
+        _wheel.expire(START + 400, _expired);
+        Collections.sort(_expired);
+        assertEquals(Arrays.asList("a", "b"), _expired);
+        assertEquals(1, _wheel.size());
+    }
+
+    public void testRescheduleAndCancel()
+    {
+        TickerWheel.Entry<String> entry = _wheel.createEntry("a");
+        _wheel.schedule(entry, START + 20);
+        _wheel.schedule(entry, START + 60);
+        assertEquals(1, _wheel.size());
+        assertEquals(START + 60, entry.getDeadline());
+
+        _wheel.expire(START + 40, _expired);
+        assertTrue("Rescheduled entry expired at its old deadline", _expired.isEmpty());
+
+        _wheel.cancel(entry);
+        assertFalse(entry.isScheduled());
+        _wheel.expire(START + 100, _expired);
+        assertTrue("Cancelled entry expired", _expired.isEmpty());
+    }
+
+    public void testTimeToNextExpiry()
+    {
+        assertEquals(Integer.MAX_VALUE, _wheel.getTimeToNextExpiry(START));
+
+        _wheel.schedule(_wheel.createEntry("a"), START + 42);
+        int timeToNextExpiry = _wheel.getTimeToNextExpiry(START + 1);
+        assertTrue("Unexpected time to next expiry " + timeToNextExpiry,
+                   timeToNextExpiry >= 41 && timeToNextExpiry <= 49);
+    }
+}
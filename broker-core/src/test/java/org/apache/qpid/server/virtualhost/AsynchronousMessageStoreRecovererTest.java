@@ -24,8 +24,11 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.concurrent.ExecutionException;
 
@@ -57,6 +60,8 @@ public class AsynchronousMessageStoreRecovererTest extends QpidTestCase
         when(_virtualHost.getEventLogger()).thenReturn(new EventLogger());
         when(_virtualHost.getMessageStore()).thenReturn(_store);
         when(_store.newMessageStoreReader()).thenReturn(_storeReader);
+        when(_virtualHost.getContextValue(eq(Integer.class),
+                                          eq(QueueManagingVirtualHost.QUEUE_RECOVERY_THREAD_COUNT))).thenReturn(2);
     }
 
     public void testExceptionOnRecovery() throws Exception
@@ -89,4 +94,23 @@ public class AsynchronousMessageStoreRecovererTest extends QpidTestCase
         ListenableFuture<Void> result = recoverer.recover(_virtualHost);
         assertNull(result.get());
     }
+
+    public void testRecoveryOfMoreQueuesThanThreads() throws Exception
+    {
+        Collection<Queue<?>> queues = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            queues.add(mock(Queue.class));
+        }
+        when(_virtualHost.getChildren(eq(Queue.class))).thenReturn(queues);
+
+        AsynchronousMessageStoreRecoverer recoverer = new AsynchronousMessageStoreRecoverer();
+        ListenableFuture<Void> result = recoverer.recover(_virtualHost);
+        assertNull(result.get());
+
+        for (Queue<?> queue : queues)
+        {
+            verify(queue).completeRecovery();
+        }
+    }
 }
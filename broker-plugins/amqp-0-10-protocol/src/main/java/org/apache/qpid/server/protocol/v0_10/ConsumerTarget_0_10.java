@@ -41,7 +41,6 @@ import org.apache.qpid.server.message.MessageInstance.EntryState;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Exchange;
 import org.apache.qpid.server.model.Queue;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.txn.AutoCommitTransaction;
@@ -234,11 +233,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
         }
         else
         {
-            MessageConverter converter =
-                    MessageConverterRegistry.getConverter(serverMsg.getClass(), MessageTransferMessage.class);
-
-
-            msg = (MessageTransferMessage) converter.convert(serverMsg, _session.getAddressSpace());
+            msg = MessageConverterRegistry.convert(serverMsg, MessageTransferMessage.class, _session.getAddressSpace());
         }
         DeliveryProperties origDeliveryProps = msg.getHeader() == null ? null : msg.getHeader().getDeliveryProperties();
         messageProps = msg.getHeader() == null ? null : msg.getHeader().getMessageProperties();
@@ -290,6 +285,8 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
         if(msgCompressed && !compressionSupported && bodyBuffers != null)
         {
             Collection<QpidByteBuffer> uncompressedBuffers = inflateIfPossible(bodyBuffers);
+            // the message (or its conversion) is shared with other consumers so must not be modified
+            messageProps = new MessageProperties(messageProps);
             messageProps.setContentEncoding(null);
             for (QpidByteBuffer buf : bodyBuffers)
             {
@@ -304,10 +301,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget implements FlowC
                 && ByteBufferUtils.remaining(bodyBuffers) > _session.getConnection().getMessageCompressionThreshold())
         {
             Collection<QpidByteBuffer> compressedBuffers = deflateIfPossible(bodyBuffers);
-            if(messageProps == null)
-            {
-                messageProps = new MessageProperties();
-            }
+            messageProps = messageProps == null ? new MessageProperties() : new MessageProperties(messageProps);
             messageProps.setContentEncoding(GZIPUtils.GZIP_CONTENT_ENCODING);
             for (QpidByteBuffer buf : bodyBuffers)
             {
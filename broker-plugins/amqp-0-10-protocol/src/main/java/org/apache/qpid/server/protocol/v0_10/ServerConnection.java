@@ -59,6 +59,7 @@ import org.apache.qpid.transport.ConnectionCloseCode;
 import org.apache.qpid.transport.ConnectionCloseOk;
 import org.apache.qpid.transport.ExecutionErrorCode;
 import org.apache.qpid.transport.ExecutionException;
+import org.apache.qpid.transport.MessageTransfer;
 import org.apache.qpid.transport.Method;
 import org.apache.qpid.transport.Option;
 import org.apache.qpid.transport.ProtocolEvent;
@@ -83,6 +84,7 @@ public class ServerConnection extends Connection
     private final AMQPConnection_0_10 _amqpConnection;
     private boolean _ignoreFutureInput;
     private boolean _ignoreAllButConnectionCloseOk;
+    private final TransferBatch _transferBatch = new TransferBatch();
 
     public ServerConnection(final long connectionId,
                             Broker<?> broker,
@@ -223,6 +225,10 @@ public class ServerConnection extends Connection
     public void received(final ProtocolEvent event)
     {
         _lastIoTime.set(System.currentTimeMillis());
+        if (!(event instanceof MessageTransfer))
+        {
+            _transferBatch.flush();
+        }
         AccessControlContext context;
         if (event.isConnectionControl())
         {
@@ -381,6 +387,7 @@ public class ServerConnection extends Connection
     {
         try
         {
+            _transferBatch.discard();
             performDeleteTasks();
             super.closed();
         }
@@ -405,8 +412,14 @@ public class ServerConnection extends Connection
         }
     }
 
+    TransferBatch getTransferBatch()
+    {
+        return _transferBatch;
+    }
+
     public void receivedComplete()
     {
+        _transferBatch.flush();
         for (Session ssn : getChannels())
         {
             ((ServerSession)ssn).receivedComplete();
@@ -29,6 +29,7 @@ import java.security.Principal;
 import java.security.PrivilegedAction;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -58,6 +59,7 @@ import org.apache.qpid.protocol.AMQConstant;
 import org.apache.qpid.server.connection.SessionPrincipal;
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.consumer.ConsumerTarget;
+import org.apache.qpid.server.exchange.AbstractExchange;
 import org.apache.qpid.server.logging.LogMessage;
 import org.apache.qpid.server.logging.LogSubject;
 import org.apache.qpid.server.logging.messages.ChannelMessages;
@@ -287,6 +289,44 @@ public class ServerSession extends Session
     public int enqueue(final MessageTransferMessage message,
                        final InstanceProperties instanceProperties,
                        final MessageDestination exchange)
+    {
+        consumeProducerCredit();
+        int enqueues = exchange.send(message,
+                                     message.getInitialRoutingAddress(),
+                                     instanceProperties, _transaction, _checkCapacityAction
+                                    );
+        messageEnqueued(message);
+        return enqueues;
+    }
+
+    /**
+     * Sends the messages to the exchange together, setting the number of queues each was enqueued to in the given
+     * array.  Should the send fail partway through, the entries for the messages not enqueued are set to -1.
+     */
+    void enqueue(final List<MessageTransferMessage> messages,
+                 final List<InstanceProperties> instanceProperties,
+                 final AbstractExchange<?> exchange,
+                 final int[] enqueues)
+    {
+        Arrays.fill(enqueues, -1);
+        for (int i = 0; i < messages.size(); i++)
+        {
+            consumeProducerCredit();
+        }
+        try
+        {
+            exchange.send(messages, instanceProperties, _transaction, _checkCapacityAction, enqueues);
+        }
+        finally
+        {
+            for (int i = 0; i < enqueues.length && enqueues[i] >= 0; i++)
+            {
+                messageEnqueued(messages.get(i));
+            }
+        }
+    }
+
+    private void consumeProducerCredit()
     {
         if(_outstandingCredit.get() != UNLIMITED_CREDIT
                 && _outstandingCredit.decrementAndGet() == (Integer.MAX_VALUE - PRODUCER_CREDIT_TOPUP_THRESHOLD))
@@ -294,14 +334,13 @@ public class ServerSession extends Session
             _outstandingCredit.addAndGet(PRODUCER_CREDIT_TOPUP_THRESHOLD);
             invoke(new MessageFlow("",MessageCreditUnit.MESSAGE, PRODUCER_CREDIT_TOPUP_THRESHOLD));
         }
-        int enqueues = exchange.send(message,
-                                     message.getInitialRoutingAddress(),
-                                     instanceProperties, _transaction, _checkCapacityAction
-                                    );
+    }
+
+    private void messageEnqueued(final MessageTransferMessage message)
+    {
         getAMQPConnection().registerMessageReceived(message.getSize(), message.getArrivalTime());
         incrementOutstandingTxnsIfNecessary();
         incrementUncommittedMessageSize(message.getStoredMessage());
-        return enqueues;
     }
 
     private void resetUncommittedMessages()
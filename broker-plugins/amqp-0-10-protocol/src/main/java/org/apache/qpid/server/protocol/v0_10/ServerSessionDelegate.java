@@ -40,6 +40,7 @@ import org.apache.qpid.common.AMQPFilterTypes;
 import org.apache.qpid.exchange.ExchangeDefaults;
 import org.apache.qpid.protocol.AMQConstant;
 import org.apache.qpid.server.consumer.ConsumerImpl;
+import org.apache.qpid.server.exchange.AbstractExchange;
 import org.apache.qpid.server.filter.AMQInvalidArgumentException;
 import org.apache.qpid.server.filter.ArrivalTimeFilter;
 import org.apache.qpid.server.filter.FilterManager;
@@ -104,7 +105,8 @@ public class ServerSessionDelegate extends SessionDelegate
                 Object asyncCommandMark = ((ServerSession)session).getAsyncCommandMark();
                 super.command(session, method, false);
                 Object newOutstanding = ((ServerSession)session).getAsyncCommandMark();
-                if(newOutstanding == null || newOutstanding == asyncCommandMark)
+                if(!getServerConnection(session).getTransferBatch().isHeldBack(method)
+                   && (newOutstanding == null || newOutstanding == asyncCommandMark))
                 {
                     session.processed(method);
                 }
@@ -409,6 +411,7 @@ public class ServerSessionDelegate extends SessionDelegate
     @Override
     public void messageTransfer(Session ssn, final MessageTransfer xfr)
     {
+        boolean heldBack = false;
         try
         {
             ServerSession serverSession = (ServerSession) ssn;
@@ -483,33 +486,24 @@ public class ServerSessionDelegate extends SessionDelegate
                         }
                     };
 
-                    int enqueues = serverSession.enqueue(message, instanceProperties, destination);
-
-                    if (enqueues == 0)
-                    {
-                        if ((delvProps == null || !delvProps.getDiscardUnroutable())
-                            && xfr.getAcceptMode() == MessageAcceptMode.EXPLICIT)
-                        {
-                            RangeSet rejects = RangeSetFactory.createRangeSet();
-                            rejects.add(xfr.getId());
-                            MessageReject reject = new MessageReject(rejects, MessageRejectCode.UNROUTABLE, "Unroutable");
-                            ssn.invoke(reject);
-                        }
-                        else
-                        {
-                            getEventLogger(ssn).message(ExchangeMessages.DISCARDMSG(destination.getName(),
-                                                                                             messageMetaData.getRoutingKey()));
-                        }
-                    }
-
-                    if (serverSession.isTransactional())
+                    final TransferBatch transferBatch = getServerConnection(serverSession).getTransferBatch();
+                    if (destination instanceof AbstractExchange && !serverSession.isTransactional() && !xfr.isSync())
                     {
-                        serverSession.processed(xfr);
+                        transferBatch.add(new HeldBackTransfer(serverSession,
+                                                               xfr,
+                                                               (AbstractExchange<?>) destination,
+                                                               message,
+                                                               instanceProperties,
+                                                               reference,
+                                                               delvProps,
+                                                               messageMetaData.getRoutingKey()));
+                        heldBack = true;
                     }
                     else
                     {
-                        serverSession.recordFuture(Futures.<Void>immediateFuture(null),
-                                                   new CommandProcessedAction(serverSession, xfr));
+                        transferBatch.flush();
+                        int enqueues = serverSession.enqueue(message, instanceProperties, destination);
+                        transferEnqueued(serverSession, xfr, delvProps, destination, messageMetaData.getRoutingKey(), enqueues);
                     }
                 }
                 catch (VirtualHostUnavailableException e)
@@ -518,13 +512,53 @@ public class ServerSessionDelegate extends SessionDelegate
                 }
                 finally
                 {
-                    reference.release();
+                    if (!heldBack)
+                    {
+                        reference.release();
+                    }
                 }
             }
         }
         finally
         {
-            xfr.dispose();
+            if (!heldBack)
+            {
+                xfr.dispose();
+            }
+        }
+    }
+
+    private void transferEnqueued(final ServerSession serverSession,
+                                  final MessageTransfer xfr,
+                                  final DeliveryProperties delvProps,
+                                  final MessageDestination destination,
+                                  final String routingKey,
+                                  final int enqueues)
+    {
+        if (enqueues == 0)
+        {
+            if ((delvProps == null || !delvProps.getDiscardUnroutable())
+                && xfr.getAcceptMode() == MessageAcceptMode.EXPLICIT)
+            {
+                RangeSet rejects = RangeSetFactory.createRangeSet();
+                rejects.add(xfr.getId());
+                MessageReject reject = new MessageReject(rejects, MessageRejectCode.UNROUTABLE, "Unroutable");
+                serverSession.invoke(reject);
+            }
+            else
+            {
+                getEventLogger(serverSession).message(ExchangeMessages.DISCARDMSG(destination.getName(), routingKey));
+            }
+        }
+
+        if (serverSession.isTransactional())
+        {
+            serverSession.processed(xfr);
+        }
+        else
+        {
+            serverSession.recordFuture(Futures.<Void>immediateFuture(null),
+                                       new CommandProcessedAction(serverSession, xfr));
         }
     }
 
@@ -1734,6 +1768,69 @@ public class ServerSessionDelegate extends SessionDelegate
         closed(session);
     }
 
+    private final class HeldBackTransfer extends TransferBatch.Transfer
+    {
+        private final MessageTransfer _xfr;
+        private final MessageReference<MessageTransferMessage> _reference;
+        private final DeliveryProperties _delvProps;
+        private final String _routingKey;
+
+        private HeldBackTransfer(final ServerSession serverSession,
+                                 final MessageTransfer xfr,
+                                 final AbstractExchange<?> exchange,
+                                 final MessageTransferMessage message,
+                                 final InstanceProperties instanceProperties,
+                                 final MessageReference<MessageTransferMessage> reference,
+                                 final DeliveryProperties delvProps,
+                                 final String routingKey)
+        {
+            super(serverSession, xfr, exchange, message, instanceProperties);
+            _xfr = xfr;
+            _reference = reference;
+            _delvProps = delvProps;
+            _routingKey = routingKey;
+        }
+
+        @Override
+        void enqueued(final int enqueues)
+        {
+            transferEnqueued(getSession(), _xfr, _delvProps, getExchange(), _routingKey, enqueues);
+        }
+
+        @Override
+        void failed(final RuntimeException e)
+        {
+            if (e instanceof VirtualHostUnavailableException)
+            {
+                getServerConnection(getSession()).sendConnectionCloseAsync(AMQConstant.CONNECTION_FORCED, e.getMessage());
+            }
+            else if (e instanceof ServerScopedRuntimeException || e instanceof ConnectionScopedRuntimeException)
+            {
+                throw e;
+            }
+            else if (!getSession().isClosing())
+            {
+                // as for a command received after an earlier one failed, the rest of a failed batch are ignored
+                // once the session is closing
+                LOGGER.error("Exception processing command", e);
+                exception(getSession(), _xfr, ExecutionErrorCode.INTERNAL_ERROR, "Exception processing command: " + e);
+            }
+        }
+
+        @Override
+        void release()
+        {
+            try
+            {
+                _reference.release();
+            }
+            finally
+            {
+                _xfr.dispose();
+            }
+        }
+    }
+
     private static class CommandProcessedAction implements ServerTransaction.Action
     {
         private final ServerSession _serverSession;
@@ -0,0 +1,204 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v0_10;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.server.exchange.AbstractExchange;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.transport.Method;
+
+/**
+ * Holds back the unsynchronised, non-transactional message transfers read from a connection so that consecutive
+ * transfers from one session to one exchange can be routed together.  The batch must be flushed before any other
+ * command is processed, and once the connection has finished processing the bytes it has read.
+ */
+class TransferBatch
+{
+    private List<Transfer> _transfers = new ArrayList<>();
+
+    void add(final Transfer transfer)
+    {
+        _transfers.add(transfer);
+    }
+
+    boolean isHeldBack(final Method method)
+    {
+        return !_transfers.isEmpty() && _transfers.get(_transfers.size() - 1).getMethod() == method;
+    }
+
+    void flush()
+    {
+        if (_transfers.isEmpty())
+        {
+            return;
+        }
+
+        final List<Transfer> transfers = _transfers;
+        _transfers = new ArrayList<>();
+        try
+        {
+            int start = 0;
+            while (start < transfers.size())
+            {
+                final Transfer first = transfers.get(start);
+                int end = start + 1;
+                while (end < transfers.size()
+                       && transfers.get(end).getSession() == first.getSession()
+                       && transfers.get(end).getExchange() == first.getExchange())
+                {
+                    end++;
+                }
+                route(transfers.subList(start, end));
+                start = end;
+            }
+        }
+        finally
+        {
+            for (Transfer transfer : transfers)
+            {
+                transfer.release();
+            }
+        }
+    }
+
+    void discard()
+    {
+        final List<Transfer> transfers = _transfers;
+        _transfers = new ArrayList<>();
+        for (Transfer transfer : transfers)
+        {
+            transfer.release();
+        }
+    }
+
+    private void route(final List<Transfer> group)
+    {
+        final Transfer first = group.get(0);
+        final List<MessageTransferMessage> messages = new ArrayList<>(group.size());
+        final List<InstanceProperties> instanceProperties = new ArrayList<>(group.size());
+        for (Transfer transfer : group)
+        {
+            messages.add(transfer.getMessage());
+            instanceProperties.add(transfer.getInstanceProperties());
+        }
+
+        final int[] enqueues = new int[group.size()];
+        RuntimeException failure = null;
+        try
+        {
+            enqueue(first.getSession(), first.getExchange(), messages, instanceProperties, enqueues);
+        }
+        catch (RuntimeException e)
+        {
+            failure = e;
+        }
+
+        // the messages are enqueued in order, so any not enqueued follow all of those that were
+        for (int i = 0; i < enqueues.length; i++)
+        {
+            if (enqueues[i] >= 0)
+            {
+                group.get(i).enqueued(enqueues[i]);
+            }
+            else
+            {
+                group.get(i).failed(failure);
+            }
+        }
+    }
+
+    void enqueue(final ServerSession session,
+                 final AbstractExchange<?> exchange,
+                 final List<MessageTransferMessage> messages,
+                 final List<InstanceProperties> instanceProperties,
+                 final int[] enqueues)
+    {
+        AccessController.doPrivileged(new PrivilegedAction<Void>()
+        {
+            @Override
+            public Void run()
+            {
+                session.enqueue(messages, instanceProperties, exchange, enqueues);
+                return null;
+            }
+        }, session.getAccessControllerContext());
+    }
+
+    abstract static class Transfer
+    {
+        private final ServerSession _session;
+        private final Method _method;
+        private final AbstractExchange<?> _exchange;
+        private final MessageTransferMessage _message;
+        private final InstanceProperties _instanceProperties;
+
+        Transfer(final ServerSession session,
+                 final Method method,
+                 final AbstractExchange<?> exchange,
+                 final MessageTransferMessage message,
+                 final InstanceProperties instanceProperties)
+        {
+            _session = session;
+            _method = method;
+            _exchange = exchange;
+            _message = message;
+            _instanceProperties = instanceProperties;
+        }
+
+        ServerSession getSession()
+        {
+            return _session;
+        }
+
+        Method getMethod()
+        {
+            return _method;
+        }
+
+        AbstractExchange<?> getExchange()
+        {
+            return _exchange;
+        }
+
+        MessageTransferMessage getMessage()
+        {
+            return _message;
+        }
+
+        InstanceProperties getInstanceProperties()
+        {
+            return _instanceProperties;
+        }
+
+        /** Called once the message has been passed to the exchange. */
+        abstract void enqueued(int enqueues);
+
+        /** Called instead of {@link #enqueued(int)} if the message could not be passed to the exchange. */
+        abstract void failed(RuntimeException e);
+
+        /** Called exactly once for every transfer added to the batch, whether or not it was routed. */
+        abstract void release();
+    }
+}
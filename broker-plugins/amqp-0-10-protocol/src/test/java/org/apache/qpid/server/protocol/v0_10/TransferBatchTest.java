@@ -0,0 +1,108 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v0_10;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.server.exchange.AbstractExchange;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class TransferBatchTest extends QpidTestCase
+{
+    public void testEnqueuedTransfersCompletedWhenBatchFailsPartway()
+    {
+        final RuntimeException failure = new RuntimeException("Queue full");
+        final TransferBatch batch = new TransferBatch()
+        {
+            @Override
+            void enqueue(final ServerSession session,
+                         final AbstractExchange<?> exchange,
+                         final List<MessageTransferMessage> messages,
+                         final List<InstanceProperties> instanceProperties,
+                         final int[] enqueues)
+            {
+                enqueues[0] = 1;
+                enqueues[1] = 2;
+                enqueues[2] = -1;
+                enqueues[3] = -1;
+                throw failure;
+            }
+        };
+
+        final List<RecordingTransfer> transfers = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            RecordingTransfer transfer = new RecordingTransfer();
+            transfers.add(transfer);
+            batch.add(transfer);
+        }
+
+        batch.flush();
+
+        assertEquals("Unexpected enqueues for first transfer", 1, transfers.get(0)._enqueues);
+        assertEquals("Unexpected enqueues for second transfer", 2, transfers.get(1)._enqueues);
+        for (int i = 0; i < 2; i++)
+        {
+            assertNull("Enqueued transfer " + i + " should not have failed", transfers.get(i)._failure);
+        }
+        for (int i = 2; i < 4; i++)
+        {
+            assertEquals("Transfer " + i + " should not have been completed", -1, transfers.get(i)._enqueues);
+            assertSame("Transfer " + i + " should have failed", failure, transfers.get(i)._failure);
+        }
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals("Transfer " + i + " should have been released once", 1, transfers.get(i)._releases);
+        }
+    }
+
+    private static class RecordingTransfer extends TransferBatch.Transfer
+    {
+        private int _enqueues = -1;
+        private RuntimeException _failure;
+        private int _releases;
+
+        RecordingTransfer()
+        {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        void enqueued(final int enqueues)
+        {
+            _enqueues = enqueues;
+        }
+
+        @Override
+        void failed(final RuntimeException e)
+        {
+            _failure = e;
+        }
+
+        @Override
+        void release()
+        {
+            _releases++;
+        }
+    }
+}
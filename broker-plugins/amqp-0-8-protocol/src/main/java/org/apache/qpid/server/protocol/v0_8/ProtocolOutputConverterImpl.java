@@ -42,7 +42,6 @@ import org.apache.qpid.protocol.AMQVersionAwareProtocolSession;
 import org.apache.qpid.server.message.InstanceProperties;
 import org.apache.qpid.server.message.MessageContentSource;
 import org.apache.qpid.server.message.ServerMessage;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.transport.ByteBufferSender;
 import org.apache.qpid.util.GZIPUtils;
@@ -80,16 +79,10 @@ public class ProtocolOutputConverterImpl implements ProtocolOutputConverter
         }
         else
         {
-            return getMessageConverter(serverMessage).convert(serverMessage, _connection.getAddressSpace());
+            return MessageConverterRegistry.convert(serverMessage, AMQMessage.class, _connection.getAddressSpace());
         }
     }
 
-    private <M extends ServerMessage> MessageConverter<M, AMQMessage> getMessageConverter(M message)
-    {
-        Class<M> clazz = (Class<M>) message.getClass();
-        return MessageConverterRegistry.getConverter(clazz, AMQMessage.class);
-    }
-
     private long writeMessageDelivery(AMQMessage message, int channelId, AMQBody deliverBody)
     {
         return writeMessageDelivery(message, message.getContentHeaderBody(), channelId, deliverBody);
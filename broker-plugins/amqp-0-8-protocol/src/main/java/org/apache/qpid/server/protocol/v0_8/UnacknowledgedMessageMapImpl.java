@@ -23,32 +23,49 @@ package org.apache.qpid.server.protocol.v0_8;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.qpid.server.message.MessageInstance;
 
+/**
+ * Holds the unacknowledged deliveries of a channel in fixed size segments indexed by delivery tag.  Delivery tags
+ * increase monotonically, so a tag maps directly to a slot: adding or removing a single delivery is a constant time
+ * slot update, and acknowledging a range visits only the segments covering that range, in tag order.  No lock is
+ * shared between the delivering and acknowledging threads; a segment is discarded once all of its deliveries are
+ * settled and later tags have been issued.
+ */
 public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 {
-    private final Object _lock = new Object();
-
-    private Map<Long, MessageInstance> _map;
+    private static final int MIN_SEGMENT_SHIFT = 4;
+    private static final int MAX_SEGMENT_SHIFT = 10;
 
-    private final int _prefetchLimit;
+    private final ConcurrentSkipListMap<Long, Segment> _segments = new ConcurrentSkipListMap<>();
+    private final AtomicInteger _size = new AtomicInteger();
+    private final AtomicLong _highestSegmentIndex = new AtomicLong(-1L);
+    private final int _segmentShift;
+    private final int _segmentMask;
 
     public UnacknowledgedMessageMapImpl(int prefetchLimit)
     {
-        _prefetchLimit = prefetchLimit;
-        _map = new LinkedHashMap<>(prefetchLimit);
+        // size segments so that a full prefetch window spans only a handful of them
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(1, prefetchLimit - 1)) - 2;
+        _segmentShift = Math.max(MIN_SEGMENT_SHIFT, Math.min(MAX_SEGMENT_SHIFT, shift));
+        _segmentMask = (1 << _segmentShift) - 1;
     }
 
     public void collect(long deliveryTag, boolean multiple, Map<Long, MessageInstance> msgs)
     {
         if (multiple)
         {
-            collect(deliveryTag, msgs);
+            collect(upperBound(deliveryTag), msgs, null, false);
         }
         else
         {
@@ -63,97 +80,124 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 
     public void remove(Map<Long,MessageInstance> msgs)
     {
-        synchronized (_lock)
+        for (Long deliveryTag : msgs.keySet())
         {
-            for (Long deliveryTag : msgs.keySet())
-            {
-                remove(deliveryTag);
-            }
+            remove(deliveryTag);
         }
     }
 
     public MessageInstance remove(long deliveryTag)
     {
-        synchronized (_lock)
-        {
-
-            MessageInstance message = _map.remove(deliveryTag);
-            return message;
-        }
+        final Segment segment = _segments.get(segmentIndex(deliveryTag));
+        return segment == null ? null : removeFromSegment(segment, slot(deliveryTag));
     }
 
     public void visit(Visitor visitor)
     {
-        synchronized (_lock)
+        for (Segment segment : _segments.values())
         {
-            Set<Map.Entry<Long, MessageInstance>> currentEntries = _map.entrySet();
-            for (Map.Entry<Long, MessageInstance> entry : currentEntries)
+            for (int i = 0; i <= _segmentMask; i++)
             {
-                visitor.callback(entry.getKey().longValue(), entry.getValue());
+                final MessageInstance message = segment.get(i);
+                if (message != null)
+                {
+                    visitor.callback(segment.getFirstTag() + i, message);
+                }
             }
-            visitor.visitComplete();
         }
+        visitor.visitComplete();
     }
 
     public void add(long deliveryTag, MessageInstance message)
     {
-        synchronized (_lock)
+        final long index = segmentIndex(deliveryTag);
+        long highest;
+        while (index > (highest = _highestSegmentIndex.get()))
+        {
+            if (_highestSegmentIndex.compareAndSet(highest, index))
+            {
+                // a segment emptied while it was the highest could not be retired at the time
+                retireIfEmpty(highest);
+                break;
+            }
+        }
+
+        while (true)
         {
-            _map.put(deliveryTag, message);
+            Segment segment = _segments.get(index);
+            if (segment == null)
+            {
+                final Segment newSegment = new Segment(index << _segmentShift, _segmentMask + 1);
+                segment = _segments.putIfAbsent(index, newSegment);
+                if (segment == null)
+                {
+                    segment = newSegment;
+                }
+            }
+            if (segment.acquire())
+            {
+                if (segment.set(slot(deliveryTag), message) != null)
+                {
+                    // replaces an existing delivery with the same tag
+                    segment.release();
+                }
+                else
+                {
+                    _size.incrementAndGet();
+                }
+                return;
+            }
+            _segments.remove(index, segment);
         }
     }
 
     public Collection<MessageInstance> cancelAllMessages()
     {
-        synchronized (_lock)
-        {
-            Collection<MessageInstance> currentEntries = _map.values();
-            _map = new LinkedHashMap<>(_prefetchLimit);
-            return currentEntries;
-        }
+        final List<MessageInstance> currentEntries = new ArrayList<>(_size.get());
+        collect(Long.MAX_VALUE, null, currentEntries, true);
+        return currentEntries;
     }
 
     public int size()
     {
-        synchronized (_lock)
-        {
-            return _map.size();
-        }
+        return _size.get();
     }
 
     public void clear()
     {
-        synchronized (_lock)
-        {
-            _map.clear();
-        }
+        collect(Long.MAX_VALUE, null, null, true);
     }
 
     public MessageInstance get(long key)
     {
-        synchronized (_lock)
-        {
-            return _map.get(key);
-        }
+        final Segment segment = _segments.get(segmentIndex(key));
+        return segment == null ? null : segment.get(slot(key));
     }
 
     public Set<Long> getDeliveryTags()
     {
-        synchronized (_lock)
+        final Set<Long> deliveryTags = new LinkedHashSet<>();
+        for (Segment segment : _segments.values())
         {
-            return _map.keySet();
+            for (int i = 0; i <= _segmentMask; i++)
+            {
+                if (segment.get(i) != null)
+                {
+                    deliveryTags.add(segment.getFirstTag() + i);
+                }
+            }
         }
+        return deliveryTags;
     }
 
     public Collection<MessageInstance> acknowledge(long deliveryTag, boolean multiple)
     {
         if(multiple)
         {
-            Map<Long, MessageInstance> ackedMessageMap = new LinkedHashMap<Long, MessageInstance>();
-            collect(deliveryTag, multiple, ackedMessageMap);
-            remove(ackedMessageMap);
-            List<MessageInstance> acknowledged = new ArrayList<>();
-            for (MessageInstance instance : ackedMessageMap.values())
+            List<MessageInstance> removed = new ArrayList<>();
+            collect(upperBound(deliveryTag), null, removed, true);
+            List<MessageInstance> acknowledged = new ArrayList<>(removed.size());
+            for (MessageInstance instance : removed)
             {
                 if (instance.makeAcquisitionUnstealable(instance.getAcquiringConsumer()))
                 {
@@ -164,11 +208,7 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
         }
         else
         {
-            MessageInstance instance;
-            synchronized (_lock)
-            {
-                instance = remove(deliveryTag);
-            }
+            MessageInstance instance = remove(deliveryTag);
             if(instance != null && instance.makeAcquisitionUnstealable(instance.getAcquiringConsumer()))
             {
                 return Collections.singleton(instance);
@@ -181,19 +221,148 @@ public class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
         }
     }
 
-    private void collect(long key, Map<Long, MessageInstance> msgs)
+    /**
+     * Visits the deliveries with tags up to and including the given key in tag order, adding them to the given map
+     * and/or list and, if requested, removing them.
+     */
+    private void collect(final long key,
+                         final Map<Long, MessageInstance> msgs,
+                         final List<MessageInstance> list,
+                         final boolean remove)
     {
-        synchronized (_lock)
+        if (key < 0)
+        {
+            return;
+        }
+        final long lastIndex = segmentIndex(key);
+        final ConcurrentNavigableMap<Long, Segment> segments = _segments.headMap(lastIndex, true);
+        for (Segment segment : segments.values())
         {
-            for (Map.Entry<Long, MessageInstance> entry : _map.entrySet())
+            final long firstTag = segment.getFirstTag();
+            final int lastSlot = key - firstTag < _segmentMask ? (int) (key - firstTag) : _segmentMask;
+            for (int i = 0; i <= lastSlot; i++)
             {
-                msgs.put(entry.getKey(),entry.getValue());
-                if (entry.getKey() == key)
+                final MessageInstance message = remove ? removeFromSegment(segment, i) : segment.get(i);
+                if (message != null)
                 {
-                    break;
+                    if (msgs != null)
+                    {
+                        msgs.put(firstTag + i, message);
+                    }
+                    if (list != null)
+                    {
+                        list.add(message);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * With the multiple flag set a delivery tag of zero refers to all outstanding deliveries.
+     */
+    private static long upperBound(final long deliveryTag)
+    {
+        return deliveryTag == 0L ? Long.MAX_VALUE : deliveryTag;
+    }
+
+    private MessageInstance removeFromSegment(final Segment segment, final int slot)
+    {
+        final MessageInstance message = segment.set(slot, null);
+        if (message != null)
+        {
+            _size.decrementAndGet();
+            if (segment.release() && segment.getIndex(_segmentShift) < _highestSegmentIndex.get() && segment.retire())
+            {
+                _segments.remove(segment.getIndex(_segmentShift), segment);
+            }
+        }
+        return message;
+    }
+
+    private void retireIfEmpty(final long index)
+    {
+        final Segment segment = _segments.get(index);
+        if (segment != null && segment.retire())
+        {
+            _segments.remove(index, segment);
+        }
+    }
+
+    int getSegmentCount()
+    {
+        return _segments.size();
+    }
+
+    private long segmentIndex(final long deliveryTag)
+    {
+        return deliveryTag >>> _segmentShift;
+    }
+
+    private int slot(final long deliveryTag)
+    {
+        return (int) (deliveryTag & _segmentMask);
+    }
+
+    private static final class Segment
+    {
+        private static final int RETIRED = -1;
+
+        private final long _firstTag;
+        private final AtomicReferenceArray<MessageInstance> _slots;
+        /** Number of occupied slots, or {@link #RETIRED} once the segment may no longer be used */
+        private final AtomicInteger _live = new AtomicInteger();
+
+        private Segment(final long firstTag, final int size)
+        {
+            _firstTag = firstTag;
+            _slots = new AtomicReferenceArray<>(size);
+        }
+
+        long getFirstTag()
+        {
+            return _firstTag;
+        }
+
+        long getIndex(final int shift)
+        {
+            return _firstTag >>> shift;
+        }
+
+        MessageInstance get(final int slot)
+        {
+            return _slots.get(slot);
+        }
+
+        MessageInstance set(final int slot, final MessageInstance message)
+        {
+            return _slots.getAndSet(slot, message);
+        }
+
+        boolean acquire()
+        {
+            int live;
+            do
+            {
+                live = _live.get();
+                if (live == RETIRED)
+                {
+                    return false;
+                }
+            }
+            while (!_live.compareAndSet(live, live + 1));
+            return true;
+        }
+
+        /** Returns true if the segment is left empty */
+        boolean release()
+        {
+            return _live.decrementAndGet() == 0;
+        }
+
+        boolean retire()
+        {
+            return _live.compareAndSet(0, RETIRED);
+        }
+    }
 }
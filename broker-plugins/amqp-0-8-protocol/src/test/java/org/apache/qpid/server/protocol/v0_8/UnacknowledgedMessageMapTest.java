@@ -23,7 +23,14 @@ package org.apache.qpid.server.protocol.v0_8;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.message.MessageInstance;
@@ -66,6 +73,159 @@ public class UnacknowledgedMessageMapTest extends QpidTestCase
 
     }
 
+    public void testMultipleAcknowledgeUpToTag()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(16);
+        MessageInstance[] msgs = populateMap(map, 100);
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(41, true);
+        assertEquals("Unexpected number of acknowledged messages", 42, acknowledged.size());
+        assertEquals("Unexpected map size", 58, map.size());
+        int i = 0;
+        for (MessageInstance instance : acknowledged)
+        {
+            assertSame("Messages not acknowledged in tag order", msgs[i++], instance);
+        }
+        assertNull("Acknowledged message still present", map.get(41));
+        assertSame("Unacknowledged message missing", msgs[42], map.get(42));
+
+        acknowledged = map.acknowledge(41, true);
+        assertTrue("Nothing further should be acknowledged", acknowledged.isEmpty());
+
+        acknowledged = map.acknowledge(50, false);
+        assertEquals(1, acknowledged.size());
+        assertSame(msgs[50], acknowledged.iterator().next());
+        assertEquals(57, map.size());
+    }
+
+    public void testMultipleAcknowledgeOfTagZeroAcknowledgesAll()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(16);
+        MessageInstance[] msgs = new MessageInstance[50];
+        for (int i = 0; i < msgs.length; i++)
+        {
+            msgs[i] = createMessageInstance(i);
+            map.add(i + 1, msgs[i]);
+        }
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(0, true);
+        assertEquals("Unexpected number of acknowledged messages", msgs.length, acknowledged.size());
+        assertEquals("Map should be empty", 0, map.size());
+        int i = 0;
+        for (MessageInstance instance : acknowledged)
+        {
+            assertSame("Messages not acknowledged in tag order", msgs[i++], instance);
+        }
+    }
+
+    public void testMultipleCollectOfTagZeroCollectsAll()
+    {
+        UnacknowledgedMessageMapImpl map = new UnacknowledgedMessageMapImpl(16);
+        for (int i = 1; i <= 50; i++)
+        {
+            map.add(i, createMessageInstance(i));
+        }
+
+        Map<Long, MessageInstance> collected = new LinkedHashMap<>();
+        map.collect(0, true, collected);
+        assertEquals("Unexpected number of collected messages", 50, collected.size());
+        assertEquals("Collect should not remove", 50, map.size());
+
+        collected.clear();
+        map.collect(0, false, collected);
+        assertTrue("Tag zero without multiple should collect nothing", collected.isEmpty());
+    }
+
+    public void testCollectDoesNotRemove()
+    {
+        UnacknowledgedMessageMapImpl map = new UnacknowledgedMessageMapImpl(16);
+        MessageInstance[] msgs = populateMap(map, 40);
+        map.remove(3);
+
+        Map<Long, MessageInstance> collected = new LinkedHashMap<>();
+        map.collect(20, true, collected);
+        assertEquals("Unexpected number of collected messages", 20, collected.size());
+        assertFalse("Removed message collected", collected.containsKey(3L));
+        assertSame(msgs[20], collected.get(20L));
+        assertEquals("Collect should not remove", 39, map.size());
+
+        map.remove(collected);
+        assertEquals(19, map.size());
+        assertEquals(new ArrayList<>(map.getDeliveryTags()).get(0), Long.valueOf(21L));
+    }
+
+    public void testCancelAllMessagesInTagOrder()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(16);
+        MessageInstance[] msgs = populateMap(map, 70);
+
+        Collection<MessageInstance> cancelled = map.cancelAllMessages();
+        assertEquals(70, cancelled.size());
+        int i = 0;
+        for (MessageInstance instance : cancelled)
+        {
+            assertSame(msgs[i++], instance);
+        }
+        assertEquals(0, map.size());
+
+        MessageInstance instance = createMessageInstance(100);
+        map.add(100, instance);
+        assertSame("Map not usable after cancel", instance, map.get(100));
+        assertEquals(1, map.size());
+    }
+
+    public void testAcknowledgingEachDeliveryDoesNotLeakSegments()
+    {
+        UnacknowledgedMessageMapImpl map = new UnacknowledgedMessageMapImpl(1);
+        MessageInstance instance = createMessageInstance(0);
+        for (int i = 0; i < 1000; i++)
+        {
+            map.add(i, instance);
+            assertEquals("Delivery " + i + " not acknowledged", 1, map.acknowledge(i, false).size());
+        }
+
+        assertEquals(0, map.size());
+        assertTrue("Unexpected number of segments " + map.getSegmentCount(), map.getSegmentCount() <= 1);
+    }
+
+    public void testConcurrentDeliveryAndAcknowledgement() throws Exception
+    {
+        final UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(64);
+        final int messageCount = 20000;
+        final MessageInstance instance = createMessageInstance(0);
+        final AtomicInteger acknowledged = new AtomicInteger();
+        final CountDownLatch delivered = new CountDownLatch(1);
+
+        Thread acknowledger = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                long tag = 0;
+                while (tag < messageCount)
+                {
+                    tag = Math.min(messageCount, tag + 7);
+                    while (map.get(tag - 1) == null && acknowledged.get() < tag)
+                    {
+                        Thread.yield();
+                    }
+                    acknowledged.addAndGet(map.acknowledge(tag - 1, true).size());
+                }
+                delivered.countDown();
+            }
+        });
+        acknowledger.start();
+
+        for (int i = 0; i < messageCount; i++)
+        {
+            map.add(i, instance);
+        }
+
+        assertTrue("Acknowledger did not complete", delivered.await(10, TimeUnit.SECONDS));
+        assertEquals("Unexpected number of acknowledged messages", messageCount, acknowledged.get());
+        assertEquals("Map should be empty", 0, map.size());
+    }
+
     public MessageInstance[] populateMap(final UnacknowledgedMessageMap map, int size)
     {
         MessageInstance[] msgs = new MessageInstance[size];
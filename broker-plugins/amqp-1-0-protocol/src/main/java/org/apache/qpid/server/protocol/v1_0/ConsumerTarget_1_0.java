@@ -52,7 +52,6 @@ import org.apache.qpid.server.consumer.AbstractConsumerTarget;
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.ServerMessage;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.AMQSessionModel;
 import org.apache.qpid.server.protocol.LinkRegistry;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
@@ -117,8 +116,7 @@ class ConsumerTarget_1_0 extends AbstractConsumerTarget
         }
         else
         {
-            final MessageConverter converter = MessageConverterRegistry.getConverter(serverMessage.getClass(), Message_1_0.class);
-            message = (Message_1_0) converter.convert(serverMessage, _link.getAddressSpace());
+            message = MessageConverterRegistry.convert(serverMessage, Message_1_0.class, _link.getAddressSpace());
         }
 
         Transfer transfer = new Transfer();
@@ -0,0 +1,238 @@
+/*
+*
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing,
+* software distributed under the License is distributed on an
+* "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+* KIND, either express or implied.  See the License for the
+* specific language governing permissions and limitations
+* under the License.
+*
+*/
+package org.apache.qpid.server.protocol.v1_0;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.protocol.v1_0.codec.ValueHandler;
+import org.apache.qpid.server.protocol.v1_0.type.AmqpErrorException;
+import org.apache.qpid.server.protocol.v1_0.type.Symbol;
+import org.apache.qpid.server.protocol.v1_0.type.transport.AmqpError;
+import org.apache.qpid.server.util.ConnectionScopedRuntimeException;
+
+/**
+ * The map value of a message section (message-annotations, application-properties) held in its encoded form.
+ * Lookups of individual string or symbol keys scan the encoded map and construct only the matching value; the
+ * whole map is decoded only when it is asked for, and is then retained.
+ */
+final class LazyMapSection
+{
+    static final byte NULL = (byte) 0x40;
+    static final byte MAP8 = (byte) 0xc1;
+    static final byte MAP32 = (byte) 0xd1;
+
+    private static final byte STR8 = (byte) 0xa1;
+    private static final byte STR32 = (byte) 0xb1;
+    private static final byte SYM8 = (byte) 0xa3;
+    private static final byte SYM32 = (byte) 0xb3;
+
+    private final ValueHandler _valueHandler;
+    private QpidByteBuffer _encoded;
+    private volatile boolean _decoded;
+    private volatile Map _value;
+
+    LazyMapSection(final Map value)
+    {
+        _valueHandler = null;
+        _value = value;
+        _decoded = true;
+    }
+
+    /**
+     * @param encoded the encoded map value of the section (excluding the section descriptor), which must already
+     *                have been validated with {@link ValueHandler#skipValue}.  Ownership passes to this object.
+     */
+    LazyMapSection(final QpidByteBuffer encoded, final ValueHandler valueHandler)
+    {
+        _encoded = encoded;
+        _valueHandler = valueHandler;
+    }
+
+    Map getValue()
+    {
+        if(!_decoded)
+        {
+            QpidByteBuffer buf = duplicateEncoded();
+            if(buf != null)
+            {
+                try
+                {
+                    _value = (Map) _valueHandler.parse(buf);
+                }
+                catch (AmqpErrorException e)
+                {
+                    throw new ConnectionScopedRuntimeException(e);
+                }
+                finally
+                {
+                    buf.dispose();
+                }
+            }
+            _decoded = true;
+        }
+        return _value;
+    }
+
+    Object get(final Object key)
+    {
+        if(_decoded || !(key instanceof String || key instanceof Symbol))
+        {
+            Map value = getValue();
+            return value == null ? null : value.get(key);
+        }
+
+        QpidByteBuffer buf = duplicateEncoded();
+        if(buf == null)
+        {
+            return null;
+        }
+        try
+        {
+            return findValue(buf, key) ? _valueHandler.parse(buf) : null;
+        }
+        catch (AmqpErrorException e)
+        {
+            throw new ConnectionScopedRuntimeException(e);
+        }
+        finally
+        {
+            buf.dispose();
+        }
+    }
+
+    boolean containsKey(final Object key)
+    {
+        if(_decoded || !(key instanceof String || key instanceof Symbol))
+        {
+            Map value = getValue();
+            return value != null && value.containsKey(key);
+        }
+
+        QpidByteBuffer buf = duplicateEncoded();
+        if(buf == null)
+        {
+            return false;
+        }
+        try
+        {
+            return findValue(buf, key);
+        }
+        catch (AmqpErrorException e)
+        {
+            throw new ConnectionScopedRuntimeException(e);
+        }
+        finally
+        {
+            buf.dispose();
+        }
+    }
+
+    boolean isDecoded()
+    {
+        return _decoded;
+    }
+
+    synchronized void dispose()
+    {
+        if(_encoded != null)
+        {
+            _encoded.dispose();
+            _encoded = null;
+        }
+    }
+
+    private synchronized QpidByteBuffer duplicateEncoded()
+    {
+        return _encoded == null ? null : _encoded.duplicate();
+    }
+
+    /**
+     * Positions the buffer at the value associated with the given key, returning false if the key is not present.
+     */
+    private static boolean findValue(final QpidByteBuffer buf, final Object key) throws AmqpErrorException
+    {
+        final int count;
+        final byte formatCode = buf.get();
+        switch(formatCode)
+        {
+            case NULL:
+                return false;
+            case MAP8:
+                buf.get();
+                count = buf.getUnsignedByte();
+                break;
+            case MAP32:
+                buf.getInt();
+                count = buf.getInt();
+                break;
+            default:
+                throw new AmqpErrorException(AmqpError.DECODE_ERROR,
+                                             "Section value with format-code 0x%02x is not a map", formatCode);
+        }
+
+        final boolean isSymbol = key instanceof Symbol;
+        final Charset charset = isSymbol ? StandardCharsets.US_ASCII : StandardCharsets.UTF_8;
+        final byte[] keyBytes = key.toString().getBytes(charset);
+        for(int i = 0; i < count; i += 2)
+        {
+            if(keyMatches(buf, isSymbol, keyBytes))
+            {
+                return true;
+            }
+            ValueHandler.skipValue(buf);
+        }
+        return false;
+    }
+
+    private static boolean keyMatches(final QpidByteBuffer buf, final boolean isSymbol, final byte[] keyBytes)
+            throws AmqpErrorException
+    {
+        final int start = buf.position();
+        final byte formatCode = buf.get();
+        final int length;
+        if(formatCode == (isSymbol ? SYM8 : STR8))
+        {
+            length = buf.getUnsignedByte();
+        }
+        else if(formatCode == (isSymbol ? SYM32 : STR32))
+        {
+            length = buf.getInt();
+        }
+        else
+        {
+            buf.position(start);
+            ValueHandler.skipValue(buf);
+            return false;
+        }
+
+        final int keyStart = buf.position();
+        boolean matches = length == keyBytes.length;
+        for(int i = 0; matches && i < length; i++)
+        {
+            matches = buf.get(keyStart + i) == keyBytes[i];
+        }
+        buf.position(keyStart + length);
+        return matches;
+    }
+}
@@ -24,7 +24,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,17 +33,14 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.server.protocol.v1_0.codec.ValueHandler;
 import org.apache.qpid.server.protocol.v1_0.messaging.SectionDecoder;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionDecoderImpl;
 import org.apache.qpid.server.protocol.v1_0.messaging.SectionEncoder;
 import org.apache.qpid.server.protocol.v1_0.type.AmqpErrorException;
 import org.apache.qpid.server.protocol.v1_0.type.Section;
 import org.apache.qpid.server.protocol.v1_0.type.Symbol;
 import org.apache.qpid.server.protocol.v1_0.type.codec.AMQPDescribedTypeRegistry;
-import org.apache.qpid.server.protocol.v1_0.type.messaging.AmqpSequence;
-import org.apache.qpid.server.protocol.v1_0.type.messaging.AmqpValue;
+import org.apache.qpid.server.protocol.v1_0.type.transport.AmqpError;
 import org.apache.qpid.server.protocol.v1_0.type.messaging.ApplicationProperties;
-import org.apache.qpid.server.protocol.v1_0.type.messaging.Data;
-import org.apache.qpid.server.protocol.v1_0.type.messaging.DeliveryAnnotations;
-import org.apache.qpid.server.protocol.v1_0.type.messaging.Footer;
 import org.apache.qpid.server.protocol.v1_0.type.messaging.Header;
 import org.apache.qpid.server.protocol.v1_0.type.messaging.MessageAnnotations;
 import org.apache.qpid.server.protocol.v1_0.type.messaging.Properties;
@@ -59,16 +55,53 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
     private static final Logger _logger = LoggerFactory.getLogger(MessageMetaData_1_0.class);
     // TODO move to somewhere more useful
     public static final Symbol JMS_TYPE = Symbol.valueOf("x-opt-jms-type");
+    // must be initialised before the factory, which decodes with it
+    static final AMQPDescribedTypeRegistry DESCRIBED_TYPE_REGISTRY = AMQPDescribedTypeRegistry.newInstance()
+            .registerTransportLayer()
+            .registerMessagingLayer()
+            .registerTransactionLayer()
+            .registerSecurityLayer();
+    private static final ValueHandler VALUE_HANDLER = new ValueHandler(DESCRIBED_TYPE_REGISTRY);
+
     public static final MessageMetaDataType.Factory<MessageMetaData_1_0> FACTORY = new MetaDataFactory();
     private static final MessageMetaDataType_1_0 TYPE = new MessageMetaDataType_1_0();
 
 
+    private static final Symbol NOT_VALID_BEFORE = Symbol.valueOf("x-qpid-not-valid-before");
+
+    private static final byte DESCRIBED_TYPE = (byte) 0x00;
+    private static final byte SMALL_ULONG = (byte) 0x53;
+    private static final byte ULONG = (byte) 0x80;
+
+    private static final int NO_SECTION = -1;
+    private static final int HEADER = 0x70;
+    private static final int DELIVERY_ANNOTATIONS = 0x71;
+    private static final int MESSAGE_ANNOTATIONS = 0x72;
+    private static final int PROPERTIES = 0x73;
+    private static final int APPLICATION_PROPERTIES = 0x74;
+    private static final int DATA = 0x75;
+    private static final int AMQP_SEQUENCE = 0x76;
+    private static final int AMQP_VALUE = 0x77;
+    private static final int FOOTER = 0x78;
+
+    private static final Map<Symbol, Integer> SYMBOLIC_SECTION_DESCRIPTORS = new HashMap<>();
+    static
+    {
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:header:list"), HEADER);
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:delivery-annotations:map"), DELIVERY_ANNOTATIONS);
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:message-annotations:map"), MESSAGE_ANNOTATIONS);
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:properties:list"), PROPERTIES);
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:application-properties:map"), APPLICATION_PROPERTIES);
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:data:binary"), DATA);
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:amqp-sequence:list"), AMQP_SEQUENCE);
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:amqp-value:*"), AMQP_VALUE);
+        SYMBOLIC_SECTION_DESCRIPTORS.put(Symbol.valueOf("amqp:footer:map"), FOOTER);
+    }
+
     private Header _header;
     private Properties _properties;
-    private Map _deliveryAnnotations;
-    private Map _messageAnnotations;
-    private Map _appProperties;
-    private Map _footer;
+    private LazyMapSection _messageAnnotations;
+    private LazyMapSection _appProperties;
 
     private volatile List<QpidByteBuffer> _encodedSections = new ArrayList<>(3);
 
@@ -78,7 +111,29 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
 
     public MessageMetaData_1_0(List<Section> sections, SectionEncoder encoder)
     {
-        this(sections, encodeSections(sections, encoder));
+        _encodedSections = encodeSections(sections, encoder);
+
+        for(Section section : sections)
+        {
+            if(section instanceof Header)
+            {
+                _header = (Header) section;
+            }
+            else if(section instanceof MessageAnnotations)
+            {
+                _messageAnnotations = new LazyMapSection(((MessageAnnotations) section).getValue());
+            }
+            else if(section instanceof Properties)
+            {
+                _properties = (Properties) section;
+            }
+            else if(section instanceof ApplicationProperties)
+            {
+                _appProperties = new LazyMapSection(((ApplicationProperties) section).getValue());
+            }
+        }
+
+        _messageHeader = new MessageHeader_1_0();
     }
 
     public Properties getPropertiesSection()
@@ -111,60 +166,6 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
 
     public MessageMetaData_1_0(QpidByteBuffer[] fragments, SectionDecoder decoder, List<QpidByteBuffer> immutableSections)
     {
-        this(constructSections(fragments, decoder,immutableSections), immutableSections);
-    }
-
-    private MessageMetaData_1_0(List<Section> sections, List<QpidByteBuffer> encodedSections)
-    {
-        _encodedSections = encodedSections;
-
-        Iterator<Section> sectIter = sections.iterator();
-
-        Section section = sectIter.hasNext() ? sectIter.next() : null;
-        if(section instanceof Header)
-        {
-            _header = (Header) section;
-            section = sectIter.hasNext() ? sectIter.next() : null;
-        }
-
-        if(section instanceof DeliveryAnnotations)
-        {
-            _deliveryAnnotations = ((DeliveryAnnotations) section).getValue();
-            section = sectIter.hasNext() ? sectIter.next() : null;
-        }
-
-        if(section instanceof MessageAnnotations)
-        {
-            _messageAnnotations = ((MessageAnnotations) section).getValue();
-            section = sectIter.hasNext() ? sectIter.next() : null;
-        }
-
-        if(section instanceof Properties)
-        {
-            _properties = (Properties) section;
-            section = sectIter.hasNext() ? sectIter.next() : null;
-        }
-
-        if(section instanceof ApplicationProperties)
-        {
-            _appProperties = ((ApplicationProperties) section).getValue();
-            section = sectIter.hasNext() ? sectIter.next() : null;
-        }
-
-        if(section instanceof Footer)
-        {
-            _footer = ((Footer) section).getValue();
-            section = sectIter.hasNext() ? sectIter.next() : null;
-        }
-
-        _messageHeader = new MessageHeader_1_0();
-
-    }
-
-    private static List<Section> constructSections(final QpidByteBuffer[] fragments, final SectionDecoder decoder, List<QpidByteBuffer> encodedSections)
-    {
-        List<Section> sections = new ArrayList<Section>(3);
-
         QpidByteBuffer src;
         if(fragments.length == 1)
         {
@@ -190,110 +191,192 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
 
         try
         {
-            int startBarePos = -1;
-            int lastPos = src.position();
-            Section s = decoder.readSection(src);
+            // the merged copy of a fragmented message is discarded once read, so retained sections are copied out
+            readSections(src, decoder, fragments.length != 1);
+        }
+        catch (AmqpErrorException e)
+        {
+            _logger.error("Decoding read section error", e);
+            disposeSections();
+            throw new IllegalArgumentException(e);
+        }
+        finally
+        {
+            src.dispose();
+        }
 
+        for(QpidByteBuffer buf : fragments)
+        {
+            immutableSections.add(buf.duplicate());
+        }
+        _encodedSections = immutableSections;
+        _messageHeader = new MessageHeader_1_0();
+    }
 
+    private MessageMetaData_1_0(QpidByteBuffer buf, SectionDecoder decoder) throws AmqpErrorException
+    {
+        QpidByteBuffer encoded = buf.slice();
+        try
+        {
+            readSections(buf, decoder, false);
+            buf.position(buf.limit());
+        }
+        catch (AmqpErrorException e)
+        {
+            encoded.dispose();
+            disposeSections();
+            throw e;
+        }
+        _encodedSections = new ArrayList<>(Collections.singletonList(encoded));
+        _messageHeader = new MessageHeader_1_0();
+    }
 
-            if(s instanceof Header)
-            {
-                sections.add(s);
-                lastPos = src.position();
-                s = src.hasRemaining() ? decoder.readSection(src) : null;
-            }
+    /**
+     * Reads the sections of the message in order.  The header and properties sections, which are small and needed
+     * for routing and delivery, are decoded; the message-annotations and application-properties sections are
+     * retained as encoded maps and decoded on demand; all other sections are validated and skipped.
+     */
+    private void readSections(final QpidByteBuffer src, final SectionDecoder decoder, final boolean copyRetained)
+            throws AmqpErrorException
+    {
+        int section = peekSectionType(src);
 
-            if(s instanceof DeliveryAnnotations)
-            {
-                sections.add(s);
-                lastPos = src.position();
-                s = src.hasRemaining() ? decoder.readSection(src) : null;
-            }
+        if(section == HEADER)
+        {
+            _header = (Header) decoder.readSection(src);
+            section = peekSectionType(src);
+        }
 
-            if(s instanceof MessageAnnotations)
-            {
-                sections.add(s);
-                lastPos = src.position();
-                s = src.hasRemaining() ? decoder.readSection(src) : null;
-            }
+        if(section == DELIVERY_ANNOTATIONS)
+        {
+            ValueHandler.skipValue(src);
+            section = peekSectionType(src);
+        }
 
-            if(s instanceof Properties)
-            {
-                sections.add(s);
-                if(startBarePos == -1)
-                {
-                    startBarePos = lastPos;
-                }
-                s = src.hasRemaining() ? decoder.readSection(src) : null;
-            }
+        if(section == MESSAGE_ANNOTATIONS)
+        {
+            _messageAnnotations = retainMapSection(src, copyRetained);
+            section = peekSectionType(src);
+        }
 
-            if(s instanceof ApplicationProperties)
-            {
-                sections.add(s);
-                if(startBarePos == -1)
-                {
-                    startBarePos = lastPos;
-                }
-                s = src.hasRemaining() ? decoder.readSection(src) : null;
-            }
+        if(section == PROPERTIES)
+        {
+            _properties = (Properties) decoder.readSection(src);
+            section = peekSectionType(src);
+        }
 
-            if(s instanceof AmqpValue)
-            {
-                if(startBarePos == -1)
-                {
-                    startBarePos = lastPos;
-                }
-                s = src.hasRemaining() ? decoder.readSection(src) : null;
-            }
-            else if(s instanceof Data)
-            {
-                if(startBarePos == -1)
-                {
-                    startBarePos = lastPos;
-                }
-                do
-                {
-                    s = src.hasRemaining() ? decoder.readSection(src) : null;
-                } while(s instanceof Data);
-            }
-            else if(s instanceof AmqpSequence)
-            {
-                if(startBarePos == -1)
-                {
-                    startBarePos = lastPos;
-                }
-                do
-                {
-                    s = src.hasRemaining() ? decoder.readSection(src) : null;
-                }
-                while(s instanceof AmqpSequence);
-            }
+        if(section == APPLICATION_PROPERTIES)
+        {
+            _appProperties = retainMapSection(src, copyRetained);
+            section = peekSectionType(src);
+        }
 
-            if(s instanceof Footer)
+        if(section == AMQP_VALUE)
+        {
+            ValueHandler.skipValue(src);
+            section = peekSectionType(src);
+        }
+        else if(section == DATA || section == AMQP_SEQUENCE)
+        {
+            final int bodySection = section;
+            do
             {
-                sections.add(s);
+                ValueHandler.skipValue(src);
+                section = peekSectionType(src);
             }
+            while(section == bodySection);
+        }
 
+        if(section == FOOTER)
+        {
+            ValueHandler.skipValue(src);
+        }
+    }
 
-            for(QpidByteBuffer buf : fragments)
+    /**
+     * Returns the type of the section at the current position of the buffer, without moving the position.
+     */
+    private static int peekSectionType(final QpidByteBuffer src) throws AmqpErrorException
+    {
+        if(!src.hasRemaining())
+        {
+            return NO_SECTION;
+        }
+        final int start = src.position();
+        if(src.get(start) != DESCRIBED_TYPE || src.remaining() < 2)
+        {
+            throw new AmqpErrorException(AmqpError.DECODE_ERROR, "Expected a message section at position %d", start);
+        }
+
+        final byte descriptorFormat = src.get(start + 1);
+        if(descriptorFormat == SMALL_ULONG && src.remaining() >= 3)
+        {
+            return src.get(start + 2) & 0xff;
+        }
+        else if(descriptorFormat == ULONG && src.remaining() >= 10)
+        {
+            long descriptor = src.getLong(start + 2);
+            return descriptor >= HEADER && descriptor <= FOOTER ? (int) descriptor : NO_SECTION;
+        }
+        else
+        {
+            src.position(start + 1);
+            try
             {
-                encodedSections.add(buf.duplicate());
+                Integer section = SYMBOLIC_SECTION_DESCRIPTORS.get(VALUE_HANDLER.parse(src));
+                return section == null ? NO_SECTION : section;
+            }
+            finally
+            {
+                src.position(start);
             }
-
-            return sections;
         }
-        catch (AmqpErrorException e)
+    }
+
+    private static LazyMapSection retainMapSection(final QpidByteBuffer src, final boolean copy)
+            throws AmqpErrorException
+    {
+        src.get();
+        ValueHandler.skipValue(src);
+        final int valueStart = src.position();
+        final byte formatCode = src.get(valueStart);
+        if(formatCode != LazyMapSection.NULL && formatCode != LazyMapSection.MAP8 && formatCode != LazyMapSection.MAP32)
+        {
+            throw new AmqpErrorException(AmqpError.DECODE_ERROR,
+                                         "Section value with format-code 0x%02x is not a map", formatCode);
+        }
+        ValueHandler.skipValue(src);
+
+        QpidByteBuffer duplicate = src.duplicate();
+        duplicate.position(valueStart);
+        duplicate.limit(src.position());
+        QpidByteBuffer encoded = duplicate.slice();
+        duplicate.dispose();
+        if(copy)
+        {
+            QpidByteBuffer copied = QpidByteBuffer.allocateDirect(encoded.remaining());
+            copied.put(encoded);
+            copied.flip();
+            encoded.dispose();
+            encoded = copied;
+        }
+        return new LazyMapSection(encoded, VALUE_HANDLER);
+    }
+
+    private void disposeSections()
+    {
+        if(_messageAnnotations != null)
         {
-            _logger.error("Decoding read section error", e);
-            throw new IllegalArgumentException(e);
+            _messageAnnotations.dispose();
         }
-        finally
+        if(_appProperties != null)
         {
-            src.dispose();
+            _appProperties.dispose();
         }
     }
 
 
+
     public MessageMetaDataType getType()
     {
         return TYPE;
@@ -376,6 +459,7 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
     @Override
     public void dispose()
     {
+        disposeSections();
         for(QpidByteBuffer bin : _encodedSections)
         {
             bin.dispose();
@@ -393,45 +477,19 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
 
     private static class MetaDataFactory implements MessageMetaDataType.Factory<MessageMetaData_1_0>
     {
-        private final AMQPDescribedTypeRegistry _typeRegistry = AMQPDescribedTypeRegistry.newInstance();
-
-        private MetaDataFactory()
-        {
-            _typeRegistry.registerTransportLayer();
-            _typeRegistry.registerMessagingLayer();
-            _typeRegistry.registerTransactionLayer();
-            _typeRegistry.registerSecurityLayer();
-        }
+        private final SectionDecoder _sectionDecoder = new SectionDecoderImpl(DESCRIBED_TYPE_REGISTRY);
 
         public MessageMetaData_1_0 createMetaData(QpidByteBuffer buf)
         {
-            ValueHandler valueHandler = new ValueHandler(_typeRegistry);
-
-            ArrayList<Section> sections = new ArrayList<Section>(3);
-            ArrayList<QpidByteBuffer> encodedSections = new ArrayList<>(3);
-
-            while(buf.hasRemaining())
+            try
             {
-                try
-                {
-                    int start = buf.position();
-                    QpidByteBuffer encodedBuf = buf.slice();
-                    Object parse = valueHandler.parse(buf);
-                    sections.add((Section) parse);
-                    encodedBuf.limit(buf.position()-start);
-                    encodedSections.add(encodedBuf);
-
-                }
-                catch (AmqpErrorException e)
-                {
-                    //TODO
-                    throw new ConnectionScopedRuntimeException(e);
-                }
-
+                return new MessageMetaData_1_0(buf, _sectionDecoder);
+            }
+            catch (AmqpErrorException e)
+            {
+                //TODO
+                throw new ConnectionScopedRuntimeException(e);
             }
-
-            return new MessageMetaData_1_0(sections,encodedSections);
-
         }
     }
 
@@ -516,7 +574,7 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
         {
             long notValidBefore;
             Object annotation;
-            if(_messageAnnotations != null && (annotation = _messageAnnotations.get(Symbol.valueOf("x-qpid-not-valid-before"))) instanceof Number)
+            if(_messageAnnotations != null && (annotation = _messageAnnotations.get(NOT_VALID_BEFORE)) instanceof Number)
             {
                 notValidBefore = ((Number)annotation).longValue();
             }
@@ -536,14 +594,8 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
             }
 
             // Use legacy annotation if present and there was no subject
-            if(_messageAnnotations == null || _messageAnnotations.get(JMS_TYPE) == null)
-            {
-                return null;
-            }
-            else
-            {
-                return _messageAnnotations.get(JMS_TYPE).toString();
-            }
+            Object type = _messageAnnotations == null ? null : _messageAnnotations.get(JMS_TYPE);
+            return type == null ? null : type.toString();
         }
 
         public String getReplyTo()
@@ -577,14 +629,15 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
 
         public boolean containsHeaders(final Set<String> names)
         {
-            if(_appProperties == null)
+            Map appProperties = getApplicationProperties();
+            if(appProperties == null)
             {
                 return false;
             }
 
             for(String key : names)
             {
-                if(!_appProperties.containsKey(key))
+                if(!appProperties.containsKey(key))
                 {
                     return false;
                 }
@@ -595,11 +648,12 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
         @Override
         public Collection<String> getHeaderNames()
         {
-            if(_appProperties == null)
+            Map appProperties = getApplicationProperties();
+            if(appProperties == null)
             {
                 return Collections.emptySet();
             }
-            return Collections.unmodifiableCollection(_appProperties.keySet());
+            return Collections.unmodifiableCollection(appProperties.keySet());
         }
 
         public boolean containsHeader(final String name)
@@ -619,7 +673,13 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
 
         public Map<String, Object> getHeadersAsMap()
         {
-            return _appProperties == null ? new HashMap<String,Object>() : new HashMap<String,Object>(_appProperties);
+            Map appProperties = getApplicationProperties();
+            return appProperties == null ? new HashMap<String,Object>() : new HashMap<String,Object>(appProperties);
+        }
+
+        private Map getApplicationProperties()
+        {
+            return _appProperties == null ? null : _appProperties.getValue();
         }
     }
 
@@ -141,6 +141,128 @@ public class ValueHandler implements DescribedTypeConstructorRegistry.Source
 
 
 
+    /**
+     * Advances the buffer past the next encoded value without constructing it.  The structure of compound and
+     * array values is walked so that malformed encodings are rejected in the same way as by {@link #parse}.
+     */
+    public static void skipValue(final QpidByteBuffer in) throws AmqpErrorException
+    {
+        ensureRemaining(in, 1);
+        byte formatCode = in.get();
+        if(formatCode == DESCRIBED_TYPE)
+        {
+            skipValue(in);
+            skipValue(in);
+        }
+        else
+        {
+            skipValueBody(in, formatCode);
+        }
+    }
+
+    private static void skipValueBody(final QpidByteBuffer in, final byte formatCode) throws AmqpErrorException
+    {
+        int subCategory = (formatCode >> 4) & 0x0F;
+        int subtype =  formatCode & 0x0F;
+
+        if(subCategory >= TYPE_CONSTRUCTORS.length
+           || subtype >= TYPE_CONSTRUCTORS[subCategory].length
+           || TYPE_CONSTRUCTORS[subCategory][subtype] == null)
+        {
+            throw new AmqpErrorException(ConnectionError.FRAMING_ERROR,"Unknown type format-code 0x%02x", formatCode);
+        }
+
+        switch(subCategory)
+        {
+            case 0x4:
+                break;
+            case 0x5:
+                skipBytes(in, 1);
+                break;
+            case 0x6:
+                skipBytes(in, 2);
+                break;
+            case 0x7:
+                skipBytes(in, 4);
+                break;
+            case 0x8:
+                skipBytes(in, 8);
+                break;
+            case 0x9:
+                skipBytes(in, 16);
+                break;
+            case 0xa:
+            case 0xb:
+                skipBytes(in, readSize(in, subCategory == 0xa ? 1 : 4));
+                break;
+            case 0xc:
+            case 0xd:
+            case 0xe:
+            case 0xf:
+                int width = (subCategory & 0x1) == 0 ? 1 : 4;
+                int size = readSize(in, width);
+                ensureRemaining(in, size);
+                int end = in.position() + size;
+                int count = readSize(in, width);
+                if(subCategory < 0xe)
+                {
+                    for(int i = 0; i < count; i++)
+                    {
+                        skipValue(in);
+                    }
+                }
+                else
+                {
+                    ensureRemaining(in, 1);
+                    byte elementFormatCode = in.get();
+                    if(elementFormatCode == DESCRIBED_TYPE)
+                    {
+                        skipValue(in);
+                        ensureRemaining(in, 1);
+                        elementFormatCode = in.get();
+                    }
+                    for(int i = 0; i < count; i++)
+                    {
+                        skipValueBody(in, elementFormatCode);
+                    }
+                }
+                if(in.position() != end)
+                {
+                    throw new AmqpErrorException(AmqpError.DECODE_ERROR,
+                                                 "Compound value incorrectly encoded, expected %d octets but found %d",
+                                                 size, in.position() - end + size);
+                }
+                break;
+        }
+    }
+
+    private static int readSize(final QpidByteBuffer in, final int width) throws AmqpErrorException
+    {
+        ensureRemaining(in, width);
+        int size = width == 1 ? in.getUnsignedByte() : in.getInt();
+        if(size < 0)
+        {
+            throw new AmqpErrorException(AmqpError.DECODE_ERROR, "Invalid size %d", size);
+        }
+        return size;
+    }
+
+    private static void skipBytes(final QpidByteBuffer in, final int length) throws AmqpErrorException
+    {
+        ensureRemaining(in, length);
+        in.position(in.position() + length);
+    }
+
+    private static void ensureRemaining(final QpidByteBuffer in, final int required) throws AmqpErrorException
+    {
+        if(in.remaining() < required)
+        {
+            throw new AmqpErrorException(AmqpError.DECODE_ERROR,
+                                         "Insufficient data - requires %d octets, only %d remaining",
+                                         required, in.remaining());
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,232 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v1_0;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.protocol.v1_0.codec.ValueHandler;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionDecoderImpl;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionEncoderImpl;
+import org.apache.qpid.server.protocol.v1_0.type.Binary;
+import org.apache.qpid.server.protocol.v1_0.type.Section;
+import org.apache.qpid.server.protocol.v1_0.type.Symbol;
+import org.apache.qpid.server.protocol.v1_0.type.UnsignedByte;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.ApplicationProperties;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Data;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.DeliveryAnnotations;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Footer;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Header;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.MessageAnnotations;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Properties;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class MessageMetaData_1_0Test extends QpidTestCase
+{
+    private final SectionEncoderImpl _encoder = new SectionEncoderImpl(MessageMetaData_1_0.DESCRIBED_TYPE_REGISTRY);
+    private final SectionDecoderImpl _decoder = new SectionDecoderImpl(MessageMetaData_1_0.DESCRIBED_TYPE_REGISTRY);
+
+    public void testHeaderAccessorsFromEncodedSections() throws Exception
+    {
+        byte[] encoded = encode(createSections());
+        MessageMetaData_1_0 metaData =
+                new MessageMetaData_1_0(new QpidByteBuffer[]{QpidByteBuffer.wrap(encoded)}, _decoder);
+
+        assertMessageHeader(metaData.getMessageHeader());
+        assertTrue("Message should be persistent", metaData.isPersistent());
+    }
+
+    public void testHeaderAccessorsFromFragmentedSections() throws Exception
+    {
+        byte[] encoded = encode(createSections());
+        int split = encoded.length / 2;
+        QpidByteBuffer[] fragments = {QpidByteBuffer.wrap(Arrays.copyOfRange(encoded, 0, split)),
+                                      QpidByteBuffer.wrap(Arrays.copyOfRange(encoded, split, encoded.length))};
+        MessageMetaData_1_0 metaData = new MessageMetaData_1_0(fragments, _decoder);
+
+        assertMessageHeader(metaData.getMessageHeader());
+        assertEquals("Unexpected encoded form", Arrays.asList(toArray(encoded)), Arrays.asList(toArray(write(metaData))));
+    }
+
+    public void testEncodedFormIsUnchanged() throws Exception
+    {
+        byte[] encoded = encode(createSections());
+        MessageMetaData_1_0 metaData =
+                new MessageMetaData_1_0(new QpidByteBuffer[]{QpidByteBuffer.wrap(encoded)}, _decoder);
+        metaData.getMessageHeader().getHeader("key1");
+        metaData.getMessageHeader().getHeadersAsMap();
+
+        byte[] written = write(metaData);
+        assertTrue("Encoded form was not re-emitted unchanged", Arrays.equals(encoded, written));
+
+        MessageMetaData_1_0 recovered = MessageMetaData_1_0.FACTORY.createMetaData(QpidByteBuffer.wrap(written));
+        assertMessageHeader(recovered.getMessageHeader());
+        assertTrue("Recovered encoded form differs", Arrays.equals(encoded, write(recovered)));
+    }
+
+    public void testConstructedFromSections() throws Exception
+    {
+        MessageMetaData_1_0 metaData = new MessageMetaData_1_0(createSections(), _encoder);
+
+        assertMessageHeader(metaData.getMessageHeader());
+    }
+
+    public void testMalformedSectionRejected() throws Exception
+    {
+        byte[] encoded = encode(createSections());
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 3);
+        try
+        {
+            new MessageMetaData_1_0(new QpidByteBuffer[]{QpidByteBuffer.wrap(truncated)}, _decoder);
+            fail("Exception not thrown");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // pass
+        }
+    }
+
+    public void testApplicationPropertiesLookupDoesNotDecodeMap() throws Exception
+    {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("key1", "value1");
+        properties.put("list", Arrays.asList(1, 2, 3));
+        properties.put("key2", 2L);
+        properties.put("longer-key-name", Collections.singletonMap("nested", "map"));
+
+        byte[] encoded = encode(Collections.<Section>singletonList(new ApplicationProperties(properties)));
+        QpidByteBuffer value = QpidByteBuffer.wrap(Arrays.copyOfRange(encoded, 3, encoded.length));
+
+        QpidByteBuffer duplicate = value.duplicate();
+        ValueHandler.skipValue(duplicate);
+        assertFalse("Value not skipped entirely", duplicate.hasRemaining());
+        duplicate.dispose();
+
+        LazyMapSection section = new LazyMapSection(value, new ValueHandler(MessageMetaData_1_0.DESCRIBED_TYPE_REGISTRY));
+        assertEquals("value1", section.get("key1"));
+        assertEquals(2L, section.get("key2"));
+        assertEquals(Collections.singletonMap("nested", "map"), section.get("longer-key-name"));
+        assertNull("Unexpected value for absent key", section.get("key"));
+        assertNull("Symbol key should not match string key", section.get(Symbol.valueOf("key1")));
+        assertTrue(section.containsKey("list"));
+        assertFalse(section.containsKey("missing"));
+        assertFalse("Map should not have been decoded", section.isDecoded());
+
+        assertEquals(properties, section.getValue());
+        assertTrue("Map should have been decoded", section.isDecoded());
+        section.dispose();
+    }
+
+    private void assertMessageHeader(final MessageMetaData_1_0.MessageHeader_1_0 header)
+    {
+        assertEquals("Unexpected to", "queue", header.getTo());
+        assertEquals("Unexpected subject", "subject", header.getSubject());
+        assertEquals("Unexpected priority", 7, header.getPriority());
+        assertEquals("Unexpected type", "subject", header.getType());
+        assertEquals("Unexpected not valid before", 1234L, header.getNotValidBefore());
+        assertEquals("Unexpected header", "value1", header.getHeader("key1"));
+        assertEquals("Unexpected header", 2, header.getHeader("key2"));
+        assertNull("Unexpected header", header.getHeader("key3"));
+        assertTrue("Header not found", header.containsHeader("key2"));
+        assertFalse("Unexpected header found", header.containsHeader("key3"));
+        assertTrue("Headers not found", header.containsHeaders(new java.util.HashSet<>(Arrays.asList("key1", "key2"))));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("key1", "value1");
+        expected.put("key2", 2);
+        assertEquals("Unexpected headers", expected, header.getHeadersAsMap());
+    }
+
+    private List<Section> createSections()
+    {
+        List<Section> sections = new ArrayList<>();
+
+        Header header = new Header();
+        header.setDurable(true);
+        header.setPriority(UnsignedByte.valueOf((byte) 7));
+        sections.add(header);
+
+        sections.add(new DeliveryAnnotations(Collections.singletonMap(Symbol.valueOf("x-opt-delivery"), "da")));
+
+        Map<Symbol, Object> annotations = new HashMap<>();
+        annotations.put(Symbol.valueOf("x-qpid-not-valid-before"), 1234L);
+        annotations.put(MessageMetaData_1_0.JMS_TYPE, "jmsType");
+        sections.add(new MessageAnnotations(annotations));
+
+        Properties properties = new Properties();
+        properties.setTo("queue");
+        properties.setSubject("subject");
+        sections.add(properties);
+
+        Map<String, Object> appProperties = new LinkedHashMap<>();
+        appProperties.put("key1", "value1");
+        appProperties.put("key2", 2);
+        sections.add(new ApplicationProperties(appProperties));
+
+        sections.add(new Data(new Binary(new byte[]{1, 2, 3, 4})));
+        sections.add(new Data(new Binary(new byte[]{5, 6})));
+        sections.add(new Footer(Collections.singletonMap(Symbol.valueOf("x-opt-footer"), "footer")));
+        return sections;
+    }
+
+    private byte[] encode(final List<Section> sections)
+    {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        for(Section section : sections)
+        {
+            _encoder.reset();
+            _encoder.encodeObject(section);
+            buf.put(_encoder.getEncoding().asByteBuffer());
+        }
+        buf.flip();
+        byte[] data = new byte[buf.remaining()];
+        buf.get(data);
+        return data;
+    }
+
+    private byte[] write(final MessageMetaData_1_0 metaData)
+    {
+        QpidByteBuffer dest = QpidByteBuffer.allocate(metaData.getStorableSize());
+        metaData.writeToBuffer(dest);
+        dest.flip();
+        byte[] data = new byte[dest.remaining()];
+        dest.get(data);
+        dest.dispose();
+        return data;
+    }
+
+    private Byte[] toArray(final byte[] data)
+    {
+        Byte[] result = new Byte[data.length];
+        for(int i = 0; i < data.length; i++)
+        {
+            result[i] = data[i];
+        }
+        return result;
+    }
+}
@@ -88,6 +88,7 @@ public abstract class AbstractDerbyMessageStore extends AbstractJDBCMessageStore
         {
             try
             {
+                stopCommitter();
                 doClose();
             }
             finally
@@ -47,6 +47,7 @@ public abstract class GenericAbstractJDBCMessageStore extends org.apache.qpid.se
 
             createOrOpenMessageStoreDatabase();
             setMaximumMessageId();
+            initMessageStore(parent);
         }
     }
 
@@ -76,6 +77,7 @@ public abstract class GenericAbstractJDBCMessageStore extends org.apache.qpid.se
             }
             finally
             {
+                stopCommitter();
                 doClose();
                 super.closeMessageStore();
             }
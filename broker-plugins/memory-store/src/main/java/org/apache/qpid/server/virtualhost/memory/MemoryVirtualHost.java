@@ -22,6 +22,7 @@ package org.apache.qpid.server.virtualhost.memory;
 
 import java.util.Map;
 
+import org.apache.qpid.server.model.ManagedContextDefault;
 import org.apache.qpid.server.model.ManagedObject;
 import org.apache.qpid.server.model.ManagedObjectFactoryConstructor;
 import org.apache.qpid.server.model.VirtualHostNode;
@@ -34,6 +35,18 @@ public class MemoryVirtualHost extends AbstractVirtualHost<MemoryVirtualHost>
 {
     public static final String VIRTUAL_HOST_TYPE = "Memory";
 
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = MemoryMessageStore.OVERFLOW_PATH,
+                           description = "Directory to which the content of non-persistent messages is evicted when"
+                                         + " queues flow to disk.  If empty, message content is always held in memory.")
+    public static final String DEFAULT_OVERFLOW_PATH = "";
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = MemoryMessageStore.OVERFLOW_SEGMENT_SIZE,
+                           description = "Size in bytes of the memory-mapped segment files holding evicted message"
+                                         + " content.")
+    public static final int DEFAULT_OVERFLOW_SEGMENT_SIZE = 64 * 1024 * 1024;
+
     @ManagedObjectFactoryConstructor
     public MemoryVirtualHost(final Map<String, Object> attributes,
                              final VirtualHostNode<?> virtualHostNode)
@@ -58,7 +58,8 @@ import org.apache.qpid.properties.ConnectionStartProperties;
 import org.apache.qpid.transport.ConnectionSettings;
 import org.apache.qpid.transport.ExceptionHandlingByteBufferReceiver;
 import org.apache.qpid.transport.network.NetworkConnection;
-import org.apache.qpid.transport.network.io.IoNetworkTransport;
+import org.apache.qpid.transport.network.OutgoingNetworkTransport;
+import org.apache.qpid.transport.network.OutgoingNetworkTransportFactory;
 import org.apache.qpid.transport.network.security.SecurityLayer;
 import org.apache.qpid.transport.network.security.SecurityLayerFactory;
 
@@ -141,7 +142,7 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
 
         SecurityLayer securityLayer = SecurityLayerFactory.newInstance(settings);
 
-        IoNetworkTransport transport = new IoNetworkTransport();
+        OutgoingNetworkTransport transport = OutgoingNetworkTransportFactory.newInstance(settings);
 
         ReceiverClosedWaiter monitoringReceiver = new ReceiverClosedWaiter(securityLayer.receiver(_conn.getProtocolHandler()));
 
@@ -355,6 +356,12 @@ public class AMQConnectionDelegate_8_0 implements AMQConnectionDelegate
 
             _conn.getProtocolHandler().syncWrite(body.generateFrame(channelId), ConfirmSelectOkBody.class);
         }
+
+        AMQSession_0_8 session = (AMQSession_0_8) _conn.getSession(channelId);
+        if (session != null)
+        {
+            session.getPublishConfirmTracker().channelOpened(useConfirms);
+        }
     }
 
     /**
@@ -32,6 +32,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -94,6 +95,8 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
     private FlowControlIndicator _flowControl = new FlowControlIndicator();
     private final AtomicBoolean _creditChanged = new AtomicBoolean();
 
+    private final PublishConfirmTracker _publishConfirmTracker;
+
     /**
      * Creates a new session on a connection.
      * @param con                     The connection on which to create the session.
@@ -113,6 +116,41 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
 
         super(con,channelId,transacted,acknowledgeMode, defaultPrefetchHighMark,defaultPrefetchLowMark);
         _unacknowledgedMessages.set(0);
+        _publishConfirmTracker = new PublishConfirmTracker(new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                getAMQConnection().performConnectionTask(command);
+            }
+        });
+    }
+
+    PublishConfirmTracker getPublishConfirmTracker()
+    {
+        return _publishConfirmTracker;
+    }
+
+    /**
+     * Puts the channel into confirm mode, if it is not already, so that the broker confirms each publish.
+     */
+    void selectPublishConfirms() throws QpidException, FailoverException
+    {
+        if (!_publishConfirmTracker.isConfirmSelected())
+        {
+            if (_logger.isDebugEnabled())
+            {
+                _logger.debug("Issuing ConfirmSelect for " + getChannelId());
+            }
+            ConfirmSelectBody body = new ConfirmSelectBody(false);
+            getProtocolHandler().syncWrite(body.generateFrame(getChannelId()), ConfirmSelectOkBody.class);
+            _publishConfirmTracker.confirmSelected();
+        }
+    }
+
+    public void publishConfirmed(final long deliveryTag, final boolean multiple, final boolean rejected)
+    {
+        _publishConfirmTracker.confirmed(deliveryTag, multiple, rejected);
     }
 
 
@@ -236,19 +274,45 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
         // We can't close the session if we are already in the process of
         // closing/closed the connection.
 
-        if (!(getProtocolHandler().getStateManager().getCurrentState().equals(AMQState.CONNECTION_CLOSED)
-            || getProtocolHandler().getStateManager().getCurrentState().equals(AMQState.CONNECTION_CLOSING)))
+        try
+        {
+            if (!(getProtocolHandler().getStateManager().getCurrentState().equals(AMQState.CONNECTION_CLOSED)
+                || getProtocolHandler().getStateManager().getCurrentState().equals(AMQState.CONNECTION_CLOSING)))
+            {
+                // give the broker the chance to confirm what has been sent before the channel goes away
+                if (!_publishConfirmTracker.awaitOutstanding(timeout))
+                {
+                    _logger.warn("Closing channel " + getChannelId() + " with "
+                                 + _publishConfirmTracker.getOutstandingCount() + " publishes still unconfirmed");
+                }
+                getProtocolHandler().closeSession(this);
+                getProtocolHandler().syncWrite(getProtocolHandler().getMethodRegistry()
+                                                       .createChannelCloseBody(AMQConstant.REPLY_SUCCESS.getCode(),
+                                                                               new AMQShortString(
+                                                                                       "JMS client closing channel"), 0, 0)
+                                                       .generateFrame(getChannelId()),
+                                               ChannelCloseOkBody.class, timeout);
+                // When control resumes at this point, a reply will have been received that
+                // indicates the broker has closed the channel successfully.
+            }
+        }
+        finally
         {
+            _publishConfirmTracker.channelClosed(new JMSException("Session closed before the message was confirmed"));
+        }
+    }
 
-            getProtocolHandler().closeSession(this);
-            getProtocolHandler().syncWrite(getProtocolHandler().getMethodRegistry()
-                                                   .createChannelCloseBody(AMQConstant.REPLY_SUCCESS.getCode(),
-                                                                           new AMQShortString(
-                                                                                   "JMS client closing channel"), 0, 0)
-                                                   .generateFrame(getChannelId()),
-                                           ChannelCloseOkBody.class, timeout);
-            // When control resumes at this point, a reply will have been received that
-            // indicates the broker has closed the channel successfully.
+    @Override
+    public void closed(final Throwable e) throws JMSException
+    {
+        try
+        {
+            super.closed(e);
+        }
+        finally
+        {
+            _publishConfirmTracker.channelClosed(JMSExceptionHelper.chainJMSException(
+                    new JMSException("Session closed before the message was confirmed"), e));
         }
     }
 
@@ -40,6 +40,7 @@ import org.apache.qpid.QpidException;
 import org.apache.qpid.client.message.AbstractJMSMessage;
 import org.apache.qpid.client.message.MessageConverter;
 import org.apache.qpid.client.util.JMSExceptionHelper;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.transport.TransportException;
 import org.apache.qpid.util.UUIDGen;
 import org.apache.qpid.util.UUIDs;
@@ -331,7 +332,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         synchronized (_connection.getFailoverMutex())
         {
             sendImpl(_destination, message, _deliveryMode, _messagePriority, _timeToLive, _mandatory, _immediate,
-                     _deliveryDelay);
+                     _deliveryDelay, null);
         }
     }
 
@@ -343,7 +344,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         synchronized (_connection.getFailoverMutex())
         {
             sendImpl(_destination, message, deliveryMode, _messagePriority, _timeToLive, _mandatory, _immediate,
-                     _deliveryDelay);
+                     _deliveryDelay, null);
         }
     }
 
@@ -354,7 +355,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         synchronized (_connection.getFailoverMutex())
         {
             sendImpl(_destination, message, deliveryMode, _messagePriority, _timeToLive, _mandatory, immediate,
-                     _deliveryDelay);
+                     _deliveryDelay, null);
         }
     }
 
@@ -364,7 +365,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         checkInitialDestination();
         synchronized (_connection.getFailoverMutex())
         {
-            sendImpl(_destination, message, deliveryMode, priority, timeToLive, _mandatory, _immediate, _deliveryDelay);
+            sendImpl(_destination, message, deliveryMode, priority, timeToLive, _mandatory, _immediate, _deliveryDelay, null);
         }
     }
 
@@ -383,7 +384,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
                                 : _defaultMandatoryValue
                             : _mandatory,
                      _immediate,
-                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay);
+                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay, null);
         }
     }
 
@@ -403,7 +404,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
                                 : _defaultMandatoryValue
                             : _mandatory,
                      _immediate,
-                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay);
+                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay, null);
         }
     }
 
@@ -417,7 +418,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
             validateDestination(destination);
             AMQDestination amqDestination = (AMQDestination) destination;
             sendImpl(amqDestination, message, deliveryMode, priority, timeToLive, mandatory, _immediate,
-                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay);
+                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay, null);
         }
     }
 
@@ -431,10 +432,91 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
             validateDestination(destination);
             AMQDestination amqDestination = (AMQDestination) destination;
             sendImpl(amqDestination, message, deliveryMode, priority, timeToLive, mandatory, immediate,
-                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay);
+                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay, null);
         }
     }
 
+    @Override
+    public void send(final Message message, final CompletionListener completionListener) throws JMSException
+    {
+        send(message, _deliveryMode, _messagePriority, _timeToLive, completionListener);
+    }
+
+    @Override
+    public void send(final Message message,
+                     final int deliveryMode,
+                     final int priority,
+                     final long timeToLive,
+                     final CompletionListener completionListener) throws JMSException
+    {
+        checkPreConditions();
+        checkInitialDestination();
+        checkCompletionListener(completionListener);
+        synchronized (_connection.getFailoverMutex())
+        {
+            sendImpl(_destination, message, deliveryMode, priority, timeToLive, _mandatory, _immediate, _deliveryDelay,
+                     completionListener);
+        }
+    }
+
+    @Override
+    public void send(final Destination destination, final Message message, final CompletionListener completionListener)
+            throws JMSException
+    {
+        send(destination, message, _deliveryMode, _messagePriority, _timeToLive, completionListener);
+    }
+
+    @Override
+    public void send(final Destination destination,
+                     final Message message,
+                     final int deliveryMode,
+                     final int priority,
+                     final long timeToLive,
+                     final CompletionListener completionListener) throws JMSException
+    {
+        checkPreConditions();
+        checkDestination(destination);
+        checkCompletionListener(completionListener);
+        synchronized (_connection.getFailoverMutex())
+        {
+            validateDestination(destination);
+            AMQDestination amqDestination = (AMQDestination) destination;
+            sendImpl(amqDestination, message, deliveryMode, priority, timeToLive,
+                    _mandatory == null
+                            ? destination instanceof Topic
+                                ? _defaultMandatoryTopicValue
+                                : _defaultMandatoryValue
+                            : _mandatory,
+                     _immediate,
+                     amqDestination.getDeliveryDelay() != 0L ? amqDestination.getDeliveryDelay() : _deliveryDelay,
+                     completionListener);
+        }
+    }
+
+    private void checkCompletionListener(final CompletionListener completionListener)
+    {
+        if (completionListener == null)
+        {
+            throw new IllegalArgumentException("CompletionListener must not be null");
+        }
+    }
+
+    /**
+     * Notifies the listener of the completion of a send which completed synchronously, on the same connection thread
+     * as would be used for an asynchronous completion.
+     */
+    protected void notifyCompletion(final Message message, final CompletionListener completionListener)
+    {
+        _connection.performConnectionTask(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                completionListener.onCompletion(message);
+            }
+        });
+    }
+
     private AbstractJMSMessage convertToNativeMessage(Message message) throws JMSException
     {
         if (message instanceof AbstractJMSMessage)
@@ -517,6 +599,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
      * @param immediate
      *
      * @param deliveryDelay
+     * @param completionListener the listener to notify of the outcome of an asynchronous send, or null
      * @throws JMSException
      */
     protected void sendImpl(AMQDestination destination,
@@ -526,7 +609,8 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
                             long timeToLive,
                             boolean mandatory,
                             boolean immediate,
-                            long deliveryDelay) throws JMSException
+                            long deliveryDelay,
+                            CompletionListener completionListener) throws JMSException
     {
         checkTemporaryDestination(destination);
         origMessage.setJMSDestination(destination);
@@ -547,7 +631,7 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
         try
         {
             sendMessage(destination, origMessage, message, messageId, deliveryMode, priority, timeToLive, mandatory, immediate,
-                        deliveryDelay);
+                        deliveryDelay, completionListener);
         }
         catch (TransportException e)
         {
@@ -575,7 +659,8 @@ public abstract class BasicMessageProducer extends Closeable implements org.apac
 
     abstract void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                               UUID messageId, int deliveryMode, int priority, long timeToLive, boolean mandatory,
-                              boolean immediate, final long deliveryDelay) throws JMSException;
+                              boolean immediate, final long deliveryDelay,
+                              final CompletionListener completionListener) throws JMSException;
 
     private void checkTemporaryDestination(AMQDestination destination) throws InvalidDestinationException
     {
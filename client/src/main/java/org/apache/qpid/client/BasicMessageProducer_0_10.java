@@ -49,6 +49,7 @@ import org.apache.qpid.client.message.MessageEncryptionHelper;
 import org.apache.qpid.client.message.QpidMessageProperties;
 import org.apache.qpid.client.messaging.address.Link.Reliability;
 import org.apache.qpid.client.util.JMSExceptionHelper;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.transport.DeliveryProperties;
 import org.apache.qpid.transport.Header;
 import org.apache.qpid.transport.MessageAcceptMode;
@@ -112,7 +113,8 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
      */
     void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                      UUID messageId, int deliveryMode, int priority, long timeToLive, boolean mandatory,
-                     boolean immediate, final long deliveryDelay) throws JMSException
+                     boolean immediate, final long deliveryDelay,
+                     final CompletionListener completionListener) throws JMSException
     {
         message.prepareForSending();
 
@@ -357,7 +359,9 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
             // if true, we need to sync the delivery of this message
             boolean sync = false;
 
-            sync = ( (getPublishMode() == PublishMode.SYNC_PUBLISH_ALL) ||
+            // 0-10 has no per message confirmation, so a completion listener is notified once the session is synced
+            sync = ( completionListener != null ||
+                     (getPublishMode() == PublishMode.SYNC_PUBLISH_ALL) ||
                      (getPublishMode() == PublishMode.SYNC_PUBLISH_PERSISTENT &&
                          deliveryMode == DeliveryMode.PERSISTENT)
                    );  
@@ -385,6 +389,11 @@ public class BasicMessageProducer_0_10 extends BasicMessageProducer
             throw JMSExceptionHelper.chainJMSException(new JMSException("Exception when sending message:"
                                                                         + e.getMessage()), e);
         }
+
+        if (completionListener != null)
+        {
+            notifyCompletion(origMessage, completionListener);
+        }
     }
 
     @Override
@@ -60,6 +60,7 @@ import org.apache.qpid.framing.ContentHeaderBody;
 import org.apache.qpid.framing.ExchangeDeclareBody;
 import org.apache.qpid.framing.FieldTable;
 import org.apache.qpid.framing.MethodRegistry;
+import org.apache.qpid.jms.CompletionListener;
 import org.apache.qpid.util.GZIPUtils;
 
 public class BasicMessageProducer_0_8 extends BasicMessageProducer
@@ -110,7 +111,8 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
 
     void sendMessage(AMQDestination destination, Message origMessage, AbstractJMSMessage message,
                      UUID messageId, int deliveryMode, int priority, long timeToLive, boolean mandatory,
-                     boolean immediate, final long deliveryDelay) throws JMSException
+                     boolean immediate, final long deliveryDelay,
+                     final CompletionListener completionListener) throws JMSException
     {
 
 
@@ -359,19 +361,37 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
 
         AMQConnectionDelegate_8_0 connectionDelegate80 = (AMQConnectionDelegate_8_0) (getConnection().getDelegate());
 
-        boolean useConfirms = getPublishMode() == PublishMode.SYNC_PUBLISH_ALL
-                              && (connectionDelegate80.isConfirmedPublishSupported()
-                               || (!getSession().isTransacted() && connectionDelegate80.isConfirmedPublishNonTransactionalSupported()));
+        boolean confirmsSupported = connectionDelegate80.isConfirmedPublishSupported()
+                                    || (!getSession().isTransacted() && connectionDelegate80.isConfirmedPublishNonTransactionalSupported());
+        final PublishConfirmTracker confirmTracker = getSession().getPublishConfirmTracker();
 
-        if(!useConfirms)
-        {
-            getConnection().getProtocolHandler().writeFrame(compositeFrame);
-        }
-        else
+        try
         {
-            final PublishConfirmMessageListener frameListener = new PublishConfirmMessageListener(getChannelId());
-            try
+            if (completionListener != null && confirmsSupported)
             {
+                getSession().selectPublishConfirms();
+            }
+
+            if (!confirmTracker.isConfirmSelected())
+            {
+                getConnection().getProtocolHandler().writeFrame(compositeFrame);
+                if (completionListener != null)
+                {
+                    // without confirms the best the client can promise is that the message has been written
+                    notifyCompletion(origMessage, completionListener);
+                }
+            }
+            else if (completionListener != null || getPublishMode() != PublishMode.SYNC_PUBLISH_ALL)
+            {
+                // every publish on a channel in confirm mode is tracked so that the sequence numbers stay aligned
+                confirmTracker.register(origMessage, completionListener);
+                getConnection().getProtocolHandler().writeFrame(compositeFrame);
+            }
+            else
+            {
+                final long sequence = confirmTracker.register(origMessage, null);
+                final PublishConfirmMessageListener frameListener =
+                        new PublishConfirmMessageListener(getChannelId(), sequence);
 
                 getConnection().getProtocolHandler().writeCommandFrameAndWaitForReply(compositeFrame,
                                                                                       frameListener);
@@ -381,16 +401,16 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
                     throw new JMSException("The message was not accepted by the server (e.g. because the address was no longer valid)");
                 }
             }
-            catch (QpidException e)
-            {
-                throw JMSExceptionHelper.chainJMSException(new JMSException(e.getMessage()), e);
-            }
-            catch (FailoverException e)
-            {
-                throw JMSExceptionHelper.chainJMSException(new JMSException(
-                        "Fail-over interrupted send. Status of the send is uncertain."), e);
+        }
+        catch (QpidException e)
+        {
+            throw JMSExceptionHelper.chainJMSException(new JMSException(e.getMessage()), e);
+        }
+        catch (FailoverException e)
+        {
+            throw JMSExceptionHelper.chainJMSException(new JMSException(
+                    "Fail-over interrupted send. Status of the send is uncertain."), e);
 
-            }
         }
     }
 
@@ -462,16 +482,20 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
 
     private static class PublishConfirmMessageListener extends BlockingMethodFrameListener
     {
+        private final long _sequence;
         private boolean _rejected;
 
         /**
-         * Creates a new method listener, that filters incoming method to just those that match the specified channel id.
+         * Creates a new method listener, that filters incoming method to just those that match the specified channel id
+         * and confirm the publish with the given sequence number.
          *
          * @param channelId The channel id to filter incoming methods with.
+         * @param sequence The sequence number of the publish awaiting confirmation.
          */
-        public PublishConfirmMessageListener(final int channelId)
+        public PublishConfirmMessageListener(final int channelId, final long sequence)
         {
             super(channelId);
+            _sequence = sequence;
         }
 
         @Override
@@ -479,12 +503,14 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
         {
             if (frame instanceof BasicAckBody)
             {
-                return true;
+                final BasicAckBody ack = (BasicAckBody) frame;
+                return confirms(ack.getDeliveryTag(), ack.getMultiple());
             }
             else if (frame instanceof BasicNackBody)
             {
-                _rejected = true;
-                return true;
+                final BasicNackBody nack = (BasicNackBody) frame;
+                _rejected = confirms(nack.getDeliveryTag(), nack.getMultiple());
+                return _rejected;
             }
             else
             {
@@ -492,6 +518,11 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
             }
         }
 
+        private boolean confirms(final long deliveryTag, final boolean multiple)
+        {
+            return deliveryTag == _sequence || (multiple && deliveryTag >= _sequence);
+        }
+
         public boolean isRejected()
         {
             return _rejected;
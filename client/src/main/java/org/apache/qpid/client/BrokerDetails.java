@@ -46,6 +46,7 @@ public class BrokerDetails implements Serializable
     public static final String OPTIONS_SASL_ENCRYPTION = "sasl_encryption";
     public static final String OPTIONS_SSL = "ssl";
     public static final String OPTIONS_TCP_NO_DELAY = "tcp_nodelay";
+    public static final String OPTIONS_NON_BLOCKING_IO = "non_blocking_io";
     public static final String OPTIONS_SASL_PROTOCOL_NAME = "sasl_protocol";
     public static final String OPTIONS_SASL_SERVER_NAME = "sasl_server";
     public static final String OPTIONS_TRUST_STORE = "trust_store";
@@ -594,6 +595,12 @@ public class BrokerDetails implements Serializable
                     getBooleanProperty(BrokerDetails.OPTIONS_TCP_NO_DELAY,true));
         }
 
+        if (getProperty(BrokerDetails.OPTIONS_NON_BLOCKING_IO) != null)
+        {
+            conSettings.setNonBlockingIo(
+                    getBooleanProperty(BrokerDetails.OPTIONS_NON_BLOCKING_IO, false));
+        }
+
         conSettings.setConnectTimeout(lookupConnectTimeout());
 
         if (getProperty(BrokerDetails.OPTIONS_HEARTBEAT) != null)
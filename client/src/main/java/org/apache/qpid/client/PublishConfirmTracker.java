@@ -0,0 +1,304 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.jms.CompletionListener;
+
+/**
+ * Tracks the messages published on a channel in confirm mode, resolving them as the broker acknowledges (basic.ack)
+ * or rejects (basic.nack) their publish sequence numbers.
+ * <p>
+ * The broker numbers publishes contiguously from one and largely confirms them in order, so rather than keying a map
+ * by sequence number the outstanding publishes are held in a ring indexed by their distance from the oldest one
+ * which is unresolved.  Completion listeners are run by the given executor, in the order the confirms are received.
+ * <p>
+ * Publishes must be registered in the order in which they are written, which the failover mutex held by senders
+ * ensures.
+ */
+class PublishConfirmTracker
+{
+    private static final Logger _logger = LoggerFactory.getLogger(PublishConfirmTracker.class);
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Stands in for the listener of a publish which is tracked only to keep the sequence numbers aligned. */
+    private static final CompletionListener NO_LISTENER = new CompletionListener()
+    {
+        @Override
+        public void onCompletion(final Message message)
+        {
+        }
+
+        @Override
+        public void onException(final Message message, final Exception exception)
+        {
+        }
+    };
+
+    private final Executor _completionExecutor;
+
+    private Message[] _messages = new Message[INITIAL_CAPACITY];
+    private CompletionListener[] _listeners = new CompletionListener[INITIAL_CAPACITY];
+    private int _head;
+    private int _size;
+    private long _firstSequence = 1L;
+    private int _outstanding;
+    private boolean _confirmSelected;
+
+    PublishConfirmTracker(final Executor completionExecutor)
+    {
+        _completionExecutor = completionExecutor;
+    }
+
+    synchronized boolean isConfirmSelected()
+    {
+        return _confirmSelected;
+    }
+
+    /**
+     * Called once the channel has been put into confirm mode, from which point the broker numbers its publishes.
+     */
+    synchronized void confirmSelected()
+    {
+        _confirmSelected = true;
+    }
+
+    /**
+     * Called when the channel is (re)opened.  The outcome of any publishes outstanding on a previous incarnation of
+     * the channel will never be known, so their listeners are notified of the failure.
+     */
+    void channelOpened(final boolean confirmSelected)
+    {
+        fail(new JMSException("Fail-over interrupted send. Status of the send is uncertain."), confirmSelected);
+    }
+
+    /**
+     * Called when the channel is closed, notifying the listeners of any publishes still outstanding.
+     */
+    void channelClosed(final Exception cause)
+    {
+        fail(cause, false);
+    }
+
+    /**
+     * Registers a message about to be published on the channel.
+     *
+     * @param completionListener the listener to notify of the outcome, or null if no one is interested in it
+     * @return the sequence number the broker will confirm the publish with
+     */
+    synchronized long register(final Message message, final CompletionListener completionListener)
+    {
+        if (!_confirmSelected)
+        {
+            throw new IllegalStateException("Channel is not in confirm mode");
+        }
+        if (_size == _listeners.length)
+        {
+            grow();
+        }
+        final int index = (_head + _size) & (_listeners.length - 1);
+        _messages[index] = message;
+        _listeners[index] = completionListener == null ? NO_LISTENER : completionListener;
+        _outstanding++;
+        return _firstSequence + _size++;
+    }
+
+    /**
+     * Resolves the publish with the given sequence number, or with the multiple flag every publish up to and including
+     * it.
+     */
+    void confirmed(final long sequence, final boolean multiple, final boolean rejected)
+    {
+        final List<Completion> completions = new ArrayList<>();
+        synchronized (this)
+        {
+            final long first = multiple ? _firstSequence : Math.max(sequence, _firstSequence);
+            final long last = Math.min(sequence, _firstSequence + _size - 1);
+            for (long s = first; s <= last; s++)
+            {
+                final int index = (int) ((_head + (s - _firstSequence)) & (_listeners.length - 1));
+                final CompletionListener listener = _listeners[index];
+                if (listener != null)
+                {
+                    if (listener != NO_LISTENER)
+                    {
+                        completions.add(new Completion(_messages[index], listener, rejected ? newRejectedException() : null));
+                    }
+                    _messages[index] = null;
+                    _listeners[index] = null;
+                    _outstanding--;
+                }
+            }
+
+            while (_size > 0 && _listeners[_head] == null)
+            {
+                _head = (_head + 1) & (_listeners.length - 1);
+                _size--;
+                _firstSequence++;
+            }
+
+            if (_outstanding == 0)
+            {
+                notifyAll();
+            }
+        }
+        dispatch(completions);
+    }
+
+    /**
+     * Waits for the outcome of every outstanding publish to become known.
+     *
+     * @return true if none remain outstanding
+     */
+    synchronized boolean awaitOutstanding(final long timeout)
+    {
+        final long end = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while (_outstanding != 0 && remaining > 0)
+        {
+            try
+            {
+                wait(remaining);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            remaining = end - System.currentTimeMillis();
+        }
+        return _outstanding == 0;
+    }
+
+    synchronized int getOutstandingCount()
+    {
+        return _outstanding;
+    }
+
+    private void fail(final Exception cause, final boolean confirmSelected)
+    {
+        final List<Completion> completions = new ArrayList<>();
+        synchronized (this)
+        {
+            for (int i = 0; i < _size; i++)
+            {
+                final int index = (_head + i) & (_listeners.length - 1);
+                final CompletionListener listener = _listeners[index];
+                if (listener != null && listener != NO_LISTENER)
+                {
+                    completions.add(new Completion(_messages[index], listener, cause));
+                }
+                _messages[index] = null;
+                _listeners[index] = null;
+            }
+            _head = 0;
+            _size = 0;
+            _firstSequence = 1L;
+            _outstanding = 0;
+            _confirmSelected = confirmSelected;
+            notifyAll();
+        }
+        dispatch(completions);
+    }
+
+    private void grow()
+    {
+        final int capacity = _listeners.length;
+        final Message[] messages = new Message[capacity * 2];
+        final CompletionListener[] listeners = new CompletionListener[capacity * 2];
+        for (int i = 0; i < _size; i++)
+        {
+            final int index = (_head + i) & (capacity - 1);
+            messages[i] = _messages[index];
+            listeners[i] = _listeners[index];
+        }
+        _messages = messages;
+        _listeners = listeners;
+        _head = 0;
+    }
+
+    private void dispatch(final List<Completion> completions)
+    {
+        if (!completions.isEmpty())
+        {
+            _completionExecutor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (Completion completion : completions)
+                    {
+                        completion.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private static JMSException newRejectedException()
+    {
+        return new JMSException("The message was not accepted by the server (e.g. because the address was no longer valid)");
+    }
+
+    private static final class Completion implements Runnable
+    {
+        private final Message _message;
+        private final CompletionListener _listener;
+        private final Exception _exception;
+
+        private Completion(final Message message, final CompletionListener listener, final Exception exception)
+        {
+            _message = message;
+            _listener = listener;
+            _exception = exception;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                if (_exception == null)
+                {
+                    _listener.onCompletion(_message);
+                }
+                else
+                {
+                    _listener.onException(_message, _exception);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                _logger.warn("Completion listener threw exception", e);
+            }
+        }
+    }
+}
@@ -282,13 +282,15 @@ public class ClientMethodDispatcherImpl implements MethodDispatcher
     @Override
     public boolean dispatchBasicAck(BasicAckBody body, int channelId) throws QpidException
     {
-        return false;
+        _session.publishConfirmed(channelId, body.getDeliveryTag(), body.getMultiple(), false);
+        return true;
     }
 
     @Override
     public boolean dispatchBasicNack(final BasicNackBody basicNackBody, final int channelId)
     {
-        return false;
+        _session.publishConfirmed(channelId, basicNackBody.getDeliveryTag(), basicNackBody.getMultiple(), true);
+        return true;
     }
 
 
@@ -34,6 +34,7 @@ import org.apache.qpid.QpidException;
 import org.apache.qpid.AMQException;
 import org.apache.qpid.client.AMQConnection;
 import org.apache.qpid.client.AMQSession;
+import org.apache.qpid.client.AMQSession_0_8;
 import org.apache.qpid.client.ConnectionTuneParameters;
 import org.apache.qpid.client.handler.ClientMethodDispatcherImpl;
 import org.apache.qpid.client.message.UnprocessedMessage;
@@ -402,6 +403,18 @@ public class AMQProtocolSession implements AMQVersionAwareProtocolSession
         session.confirmConsumerCancelled(consumerTag.toIntValue());
     }
 
+    public void publishConfirmed(final int channelId,
+                                 final long deliveryTag,
+                                 final boolean multiple,
+                                 final boolean rejected)
+    {
+        final AMQSession session = getSession(channelId);
+        if (session instanceof AMQSession_0_8)
+        {
+            ((AMQSession_0_8) session).publishConfirmed(deliveryTag, multiple, rejected);
+        }
+    }
+
     public void setProtocolVersion(final ProtocolVersion pv)
     {
         if (_logger.isDebugEnabled())
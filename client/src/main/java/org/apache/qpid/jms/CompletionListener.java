@@ -0,0 +1,44 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.jms;
+
+import javax.jms.Message;
+
+/**
+ * Notified of the outcome of a message sent asynchronously, after the manner of the JMS 2.0 interface of the same
+ * name.
+ * <p>
+ * Listeners are invoked on a thread of the connection, never on the sending thread, and in the order in which the
+ * outcomes become known.  A listener must not block, nor use the session on which the message was sent.
+ */
+public interface CompletionListener
+{
+    /**
+     * Called once the broker has accepted responsibility for the message.
+     */
+    void onCompletion(Message message);
+
+    /**
+     * Called if the message was rejected by the broker, or its outcome could not be determined, for example because
+     * the connection failed over before the broker confirmed it.
+     */
+    void onException(Message message, Exception exception);
+}
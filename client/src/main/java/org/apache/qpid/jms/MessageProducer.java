@@ -38,4 +38,20 @@ public interface MessageProducer extends javax.jms.MessageProducer
 
     void setDeliveryDelay(long delay);
 
+    /**
+     * Sends a message without waiting for the broker to confirm it, notifying the listener of the outcome once it is
+     * known.  Over 0-9-1, where the broker supports publisher confirms, any number of messages may be awaiting
+     * confirmation at once; without confirms the listener is notified once the message has been written to the
+     * connection.  Over 0-10 the send is synchronous and the listener is notified once the broker has completed it.
+     */
+    void send(Message message, CompletionListener completionListener) throws JMSException;
+
+    void send(Message message, int deliveryMode, int priority, long timeToLive,
+              CompletionListener completionListener) throws JMSException;
+
+    void send(Destination destination, Message message, CompletionListener completionListener) throws JMSException;
+
+    void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive,
+              CompletionListener completionListener) throws JMSException;
+
 }
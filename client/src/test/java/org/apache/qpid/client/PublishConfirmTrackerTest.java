@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.qpid.client;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.apache.qpid.jms.CompletionListener;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class PublishConfirmTrackerTest extends QpidTestCase
+{
+    private PublishConfirmTracker _tracker;
+    private RecordingCompletionListener _listener;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _tracker = new PublishConfirmTracker(new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                command.run();
+            }
+        });
+        _tracker.confirmSelected();
+        _listener = new RecordingCompletionListener();
+    }
+
+    public void testRegisterRequiresConfirmMode()
+    {
+        PublishConfirmTracker tracker = new PublishConfirmTracker(null);
+        try
+        {
+            tracker.register(mock(Message.class), _listener);
+            fail("Exception not thrown");
+        }
+        catch (IllegalStateException e)
+        {
+            // pass
+        }
+    }
+
+    public void testSequenceNumbersAreContiguousFromOne()
+    {
+        assertEquals(1L, _tracker.register(mock(Message.class), _listener));
+        assertEquals(2L, _tracker.register(mock(Message.class), null));
+        assertEquals(3L, _tracker.register(mock(Message.class), _listener));
+        assertEquals(3, _tracker.getOutstandingCount());
+    }
+
+    public void testSingleConfirmsOutOfOrder()
+    {
+        Message first = mock(Message.class);
+        Message second = mock(Message.class);
+        Message third = mock(Message.class);
+        _tracker.register(first, _listener);
+        _tracker.register(second, _listener);
+        _tracker.register(third, _listener);
+
+        _tracker.confirmed(2L, false, false);
+        assertEquals("Unexpected completions", 1, _listener.getCompleted().size());
+        assertSame(second, _listener.getCompleted().get(0));
+
+        _tracker.confirmed(3L, false, false);
+        _tracker.confirmed(1L, false, false);
+        assertEquals("Unexpected completions", 3, _listener.getCompleted().size());
+        assertSame(third, _listener.getCompleted().get(1));
+        assertSame(first, _listener.getCompleted().get(2));
+        assertEquals(0, _tracker.getOutstandingCount());
+
+        // a duplicate confirm is ignored
+        _tracker.confirmed(2L, false, false);
+        assertEquals("Unexpected completions", 3, _listener.getCompleted().size());
+    }
+
+    public void testMultipleConfirmResolvesEverythingUpToTheSequenceNumber()
+    {
+        Message[] messages = new Message[4];
+        for (int i = 0; i < messages.length; i++)
+        {
+            messages[i] = mock(Message.class);
+            _tracker.register(messages[i], _listener);
+        }
+
+        _tracker.confirmed(2L, false, false);
+        _tracker.confirmed(3L, true, false);
+
+        assertEquals("Unexpected completions", 3, _listener.getCompleted().size());
+        assertSame(messages[1], _listener.getCompleted().get(0));
+        assertSame(messages[0], _listener.getCompleted().get(1));
+        assertSame(messages[2], _listener.getCompleted().get(2));
+        assertEquals(1, _tracker.getOutstandingCount());
+    }
+
+    public void testRejectNotifiesException()
+    {
+        Message message = mock(Message.class);
+        _tracker.register(message, _listener);
+
+        _tracker.confirmed(1L, false, true);
+
+        assertTrue("Unexpected completions", _listener.getCompleted().isEmpty());
+        assertEquals("Unexpected failures", 1, _listener.getFailed().size());
+        assertSame(message, _listener.getFailed().get(0));
+        assertTrue("Unexpected exception", _listener.getExceptions().get(0) instanceof JMSException);
+    }
+
+    public void testPublishesBeyondInitialCapacity()
+    {
+        final int count = 200;
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            Message message = mock(Message.class);
+            messages.add(message);
+            _tracker.register(message, i % 2 == 0 ? _listener : null);
+        }
+        // confirm the first few so that the ring has wrapped before it grows again
+        _tracker.confirmed(10L, true, false);
+        for (int i = 0; i < count; i++)
+        {
+            _tracker.register(mock(Message.class), null);
+        }
+
+        _tracker.confirmed(count, true, false);
+
+        assertEquals("Unexpected completions", count / 2, _listener.getCompleted().size());
+        for (int i = 0; i < count / 2; i++)
+        {
+            assertSame(messages.get(i * 2), _listener.getCompleted().get(i));
+        }
+        assertEquals(count, _tracker.getOutstandingCount());
+    }
+
+    public void testChannelClosedFailsOutstandingPublishes()
+    {
+        Message first = mock(Message.class);
+        Message second = mock(Message.class);
+        _tracker.register(first, _listener);
+        _tracker.register(second, _listener);
+        _tracker.confirmed(1L, false, false);
+
+        JMSException cause = new JMSException("closed");
+        _tracker.channelClosed(cause);
+
+        assertEquals("Unexpected completions", 1, _listener.getCompleted().size());
+        assertEquals("Unexpected failures", 1, _listener.getFailed().size());
+        assertSame(second, _listener.getFailed().get(0));
+        assertSame(cause, _listener.getExceptions().get(0));
+        assertEquals(0, _tracker.getOutstandingCount());
+        assertFalse("Channel should no longer be in confirm mode", _tracker.isConfirmSelected());
+    }
+
+    public void testChannelReopenedRestartsSequence()
+    {
+        _tracker.register(mock(Message.class), _listener);
+        _tracker.channelOpened(true);
+
+        assertEquals("Unexpected failures", 1, _listener.getFailed().size());
+        assertTrue("Channel should be in confirm mode", _tracker.isConfirmSelected());
+        assertEquals(1L, _tracker.register(mock(Message.class), _listener));
+    }
+
+    public void testAwaitOutstanding()
+    {
+        assertTrue("Nothing should be outstanding", _tracker.awaitOutstanding(0L));
+
+        _tracker.register(mock(Message.class), null);
+        assertFalse("Publish should be outstanding", _tracker.awaitOutstanding(10L));
+
+        _tracker.confirmed(1L, false, false);
+        assertTrue("Nothing should be outstanding", _tracker.awaitOutstanding(10L));
+    }
+
+    private static class RecordingCompletionListener implements CompletionListener
+    {
+        private final List<Message> _completed = new ArrayList<>();
+        private final List<Message> _failed = new ArrayList<>();
+        private final List<Exception> _exceptions = new ArrayList<>();
+
+        @Override
+        public void onCompletion(final Message message)
+        {
+            _completed.add(message);
+        }
+
+        @Override
+        public void onException(final Message message, final Exception exception)
+        {
+            _failed.add(message);
+            _exceptions.add(exception);
+        }
+
+        public List<Message> getCompleted()
+        {
+            return _completed;
+        }
+
+        public List<Message> getFailed()
+        {
+            return _failed;
+        }
+
+        public List<Exception> getExceptions()
+        {
+            return _exceptions;
+        }
+    }
+}
@@ -225,4 +225,22 @@ public class BrokerDetailsTest extends QpidTestCase
         assertNull(String.format("Unexpected '%s' property value", BrokerDetails.OPTIONS_SSL_VERIFY_HOSTNAME),
                 broker.getProperty(BrokerDetails.OPTIONS_SSL_VERIFY_HOSTNAME));
     }
+
+    public void testNonBlockingIoIsTurnedOffByDefault() throws Exception
+    {
+        String brokerURL = "tcp://localhost:5672";
+        BrokerDetails broker = new BrokerDetails(brokerURL);
+        ConnectionSettings connectionSettings = broker.buildConnectionSettings();
+        assertFalse(String.format("Unexpected '%s' option value", BrokerDetails.OPTIONS_NON_BLOCKING_IO),
+                connectionSettings.isNonBlockingIo());
+    }
+
+    public void testNonBlockingIoIsTurnedOn() throws Exception
+    {
+        String brokerURL = "tcp://localhost:5672?non_blocking_io='true'";
+        BrokerDetails broker = new BrokerDetails(brokerURL);
+        ConnectionSettings connectionSettings = broker.buildConnectionSettings();
+        assertTrue(String.format("Unexpected '%s' option value", BrokerDetails.OPTIONS_NON_BLOCKING_IO),
+                connectionSettings.isNonBlockingIo());
+    }
 }
@@ -20,35 +20,295 @@
  */
 package org.apache.qpid.bytebuffer;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * Pool of direct buffers of a single size.
+ *
+ * Each thread keeps a small magazine of buffers which it allocates from and returns to without contention.  When a
+ * magazine overflows half of it is moved to one of several depots shared between the threads, and when it runs dry
+ * it is refilled from the depots.  The depots are striped only to spread contention; the number of pooled buffers,
+ * wherever they are held, is bounded by a single count so that any one thread may pool up to the maximum pool size.
+ * The magazine of a thread that has terminated is returned to the depots once the thread has been collected.
+ */
 class BufferPool
 {
+    private static final int MAGAZINE_SIZE = 16;
+    /** Spacing between the counters of adjacent stripes so that they do not share a cache line */
+    private static final int PADDING = 16;
+    private static final int HITS = 0;
+    private static final int MISSES = 1;
+
+    private final int _bufferSize;
     private final int _maxSize;
-    private final ConcurrentLinkedQueue<ByteBuffer> _pooledBuffers = new ConcurrentLinkedQueue<>();
+    private final int _magazineSize;
+    private final ConcurrentLinkedQueue<ByteBuffer>[] _depots;
+    private final AtomicInteger _pooledCount = new AtomicInteger();
+    private final AtomicLongArray _counters;
+    private final AtomicLong _allocatedBuffers = new AtomicLong();
+    private final AtomicLong _maxAllocatedBuffers = new AtomicLong();
+    private final AtomicInteger _nextStripe = new AtomicInteger();
+    private final ReferenceQueue<Thread> _terminatedOwners = new ReferenceQueue<>();
+    private final Set<MagazineOwner> _owners =
+            Collections.newSetFromMap(new ConcurrentHashMap<MagazineOwner, Boolean>());
+    private final ThreadLocal<Magazine> _magazines = new ThreadLocal<Magazine>()
+    {
+        @Override
+        protected Magazine initialValue()
+        {
+            final Magazine magazine = new Magazine((_nextStripe.getAndIncrement() & Integer.MAX_VALUE) % _depots.length,
+                                                   _magazineSize);
+            _owners.add(new MagazineOwner(Thread.currentThread(), magazine, _terminatedOwners));
+            return magazine;
+        }
+    };
 
-    BufferPool(final int maxSize)
+    BufferPool(final int bufferSize, final int maxSize)
     {
+        this(bufferSize, maxSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    BufferPool(final int bufferSize, final int maxSize, final int concurrency)
+    {
+        _bufferSize = bufferSize;
         _maxSize = maxSize;
+
+        final int stripes = Math.max(1, Math.min(concurrency, maxSize));
+        _magazineSize = Math.max(0, Math.min(MAGAZINE_SIZE, maxSize));
+        _depots = new ConcurrentLinkedQueue[stripes];
+        for (int i = 0; i < stripes; i++)
+        {
+            _depots[i] = new ConcurrentLinkedQueue<>();
+        }
+        _counters = new AtomicLongArray(stripes * PADDING);
     }
 
     ByteBuffer getBuffer()
     {
-        return _pooledBuffers.poll();
+        final Magazine magazine = _magazines.get();
+        final int stripe = magazine.getStripe();
+
+        ByteBuffer buf = magazine.pop();
+        if (buf == null)
+        {
+            reclaimMagazinesOfTerminatedThreads();
+            for (int i = 0; i < _depots.length && buf == null; i++)
+            {
+                buf = _depots[(stripe + i) % _depots.length].poll();
+            }
+        }
+
+        if (buf != null)
+        {
+            _pooledCount.decrementAndGet();
+            _counters.incrementAndGet(stripe * PADDING + HITS);
+        }
+        else
+        {
+            _counters.incrementAndGet(stripe * PADDING + MISSES);
+            buf = ByteBuffer.allocateDirect(_bufferSize);
+            updateMaxAllocatedBuffers(_allocatedBuffers.incrementAndGet());
+        }
+        return buf;
     }
 
     void returnBuffer(ByteBuffer buf)
     {
         buf.clear();
-        if (_pooledBuffers.size() < _maxSize)
+        if (reserve())
+        {
+            final Magazine magazine = _magazines.get();
+            if (!magazine.push(buf))
+            {
+                final ConcurrentLinkedQueue<ByteBuffer> depot = _depots[magazine.getStripe()];
+                for (int i = _magazineSize / 2; i > 0; i--)
+                {
+                    depot.add(magazine.pop());
+                }
+                if (!magazine.push(buf))
+                {
+                    depot.add(buf);
+                }
+            }
+        }
+        else
+        {
+            _allocatedBuffers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Moves the buffers held in the magazines of threads which have terminated, and since been collected, to the
+     * depots.
+     *
+     * @return the number of buffers reclaimed
+     */
+    int reclaimMagazinesOfTerminatedThreads()
+    {
+        int reclaimed = 0;
+        Reference<? extends Thread> reference;
+        while ((reference = _terminatedOwners.poll()) != null)
+        {
+            final MagazineOwner owner = (MagazineOwner) reference;
+            if (_owners.remove(owner))
+            {
+                final Magazine magazine = owner.getMagazine();
+                final ConcurrentLinkedQueue<ByteBuffer> depot = _depots[magazine.getStripe()];
+                ByteBuffer buf;
+                while ((buf = magazine.pop()) != null)
+                {
+                    depot.add(buf);
+                    reclaimed++;
+                }
+            }
+        }
+        return reclaimed;
+    }
+
+    private boolean reserve()
+    {
+        int count;
+        do
         {
-            _pooledBuffers.add(buf);
+            count = _pooledCount.get();
+            if (count >= _maxSize)
+            {
+                return false;
+            }
         }
+        while (!_pooledCount.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    private void updateMaxAllocatedBuffers(final long allocated)
+    {
+        long max;
+        do
+        {
+            max = _maxAllocatedBuffers.get();
+            if (allocated <= max)
+            {
+                return;
+            }
+        }
+        while (!_maxAllocatedBuffers.compareAndSet(max, allocated));
     }
 
     public int getMaxSize()
     {
         return _maxSize;
     }
+
+    int getBufferSize()
+    {
+        return _bufferSize;
+    }
+
+    int getNumberOfPooledBuffers()
+    {
+        return _pooledCount.get();
+    }
+
+    long getHitCount()
+    {
+        return sumCounter(HITS);
+    }
+
+    long getMissCount()
+    {
+        return sumCounter(MISSES);
+    }
+
+    /**
+     * @return number of buffers allocated by this pool that are either loaned or pooled
+     */
+    long getNumberOfAllocatedBuffers()
+    {
+        return _allocatedBuffers.get();
+    }
+
+    long getMaximumNumberOfAllocatedBuffers()
+    {
+        return _maxAllocatedBuffers.get();
+    }
+
+    private long sumCounter(final int counter)
+    {
+        long total = 0L;
+        for (int i = 0; i < _depots.length; i++)
+        {
+            total += _counters.get(i * PADDING + counter);
+        }
+        return total;
+    }
+
+    /**
+     * Enqueued once the thread owning the magazine has been collected, after which its buffers can safely be moved by
+     * any other thread.
+     */
+    private static final class MagazineOwner extends WeakReference<Thread>
+    {
+        private final Magazine _magazine;
+
+        private MagazineOwner(final Thread owner, final Magazine magazine, final ReferenceQueue<Thread> queue)
+        {
+            super(owner, queue);
+            _magazine = magazine;
+        }
+
+        Magazine getMagazine()
+        {
+            return _magazine;
+        }
+    }
+
+    private static final class Magazine
+    {
+        private final int _stripe;
+        private final ByteBuffer[] _buffers;
+        private int _size;
+
+        private Magazine(final int stripe, final int capacity)
+        {
+            _stripe = stripe;
+            _buffers = new ByteBuffer[capacity];
+        }
+
+        int getStripe()
+        {
+            return _stripe;
+        }
+
+        ByteBuffer pop()
+        {
+            if (_size == 0)
+            {
+                return null;
+            }
+            final ByteBuffer buf = _buffers[--_size];
+            _buffers[_size] = null;
+            return buf;
+        }
+
+        boolean push(final ByteBuffer buf)
+        {
+            if (_size == _buffers.length)
+            {
+                return false;
+            }
+            _buffers[_size++] = buf;
+            return true;
+        }
+    }
 }
@@ -570,12 +570,7 @@ public class QpidByteBuffer
         {
             if (_pooledBufferSize == size)
             {
-                ByteBuffer buf = _bufferPool.getBuffer();
-                if (buf == null)
-                {
-                    buf = ByteBuffer.allocateDirect(size);
-                }
-                ref = new PooledByteBufferRef(buf);
+                ref = new PooledByteBufferRef(_bufferPool.getBuffer());
             }
             else
             {
@@ -760,6 +755,15 @@ public class QpidByteBuffer
         return new QpidByteBuffer(new NonPooledByteBufferRef(wrap));
     }
 
+    /**
+     * Wraps the buffer of the given reference, which is told as each QpidByteBuffer over the buffer, including any
+     * duplicate, slice or view, is created and disposed of.
+     */
+    public static QpidByteBuffer wrap(final ByteBufferRef ref)
+    {
+        return new QpidByteBuffer(ref);
+    }
+
     public static QpidByteBuffer wrap(final byte[] data)
     {
         return wrap(ByteBuffer.wrap(data));
@@ -798,7 +802,7 @@ public class QpidByteBuffer
             throw new IllegalArgumentException("Negative or zero bufferSize illegal : " + bufferSize);
         }
 
-        _bufferPool = new BufferPool(maxPoolSize);
+        _bufferPool = new BufferPool(bufferSize, maxPoolSize);
         _pooledBufferSize = bufferSize;
         _zeroed = ByteBuffer.allocateDirect(_pooledBufferSize);
         _isPoolInitialized = true;
@@ -809,6 +813,39 @@ public class QpidByteBuffer
         return _pooledBufferSize;
     }
 
+    public static long getNumberOfPooledBuffers()
+    {
+        final BufferPool bufferPool = _bufferPool;
+        return bufferPool == null ? 0L : bufferPool.getNumberOfPooledBuffers();
+    }
+
+    public static long getPoolHitCount()
+    {
+        final BufferPool bufferPool = _bufferPool;
+        return bufferPool == null ? 0L : bufferPool.getHitCount();
+    }
+
+    public static long getPoolMissCount()
+    {
+        final BufferPool bufferPool = _bufferPool;
+        return bufferPool == null ? 0L : bufferPool.getMissCount();
+    }
+
+    /**
+     * @return direct memory in bytes held by buffers of the pooled size, whether loaned or pooled
+     */
+    public static long getAllocatedDirectMemorySize()
+    {
+        final BufferPool bufferPool = _bufferPool;
+        return bufferPool == null ? 0L : bufferPool.getNumberOfAllocatedBuffers() * bufferPool.getBufferSize();
+    }
+
+    public static long getMaximumAllocatedDirectMemorySize()
+    {
+        final BufferPool bufferPool = _bufferPool;
+        return bufferPool == null ? 0L : bufferPool.getMaximumNumberOfAllocatedBuffers() * bufferPool.getBufferSize();
+    }
+
     private static final class BufferInputStream extends InputStream
     {
         private final QpidByteBuffer _qpidByteBuffer;
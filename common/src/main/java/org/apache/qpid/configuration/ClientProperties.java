@@ -186,6 +186,17 @@ public class ClientProperties
      */
     public static final String SEND_BUFFER_SIZE_PROP_NAME  = "qpid.send_buffer_size";
 
+    /**
+     * System property to change the default used for the non_blocking_io broker option.  When enabled, connections
+     * share a small pool of selector threads rather than each having its own reader and writer thread.
+     */
+    public static final String QPID_NON_BLOCKING_IO_PROP_NAME = "qpid.non_blocking_io";
+
+    /**
+     * System property used to set the number of selector threads shared by non blocking connections.
+     */
+    public static final String QPID_NON_BLOCKING_IO_SELECTOR_THREADS_PROP_NAME = "qpid.non_blocking_io.selector_threads";
+
     /**
      * System property to set the time (in millis) to wait before failing when sending and
      * the client has been flow controlled by the broker.
@@ -73,10 +73,14 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
     {
 
         private Pattern likePattern;
+        private final String _like;
+        private final int _escape;
 
         public LikeExpression(Expression<E> right, String like, int escape)
         {
             super(right);
+            _like = like;
+            _escape = escape;
 
             StringBuilder regexp = new StringBuilder(like.length() * 2);
             regexp.append("\\A"); // The beginning of the input
@@ -133,9 +137,11 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
          */
         public Object evaluate(E message)
         {
+            return evaluateValue(this.getRight().evaluate(message));
+        }
 
-            Object rv = this.getRight().evaluate(message);
-
+        Object evaluateValue(final Object rv)
+        {
             if (rv == null)
             {
                 return null;
@@ -150,6 +156,16 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
             return likePattern.matcher((String) rv).matches() ? Boolean.TRUE : Boolean.FALSE;
         }
 
+        String getLike()
+        {
+            return _like;
+        }
+
+        int getEscape()
+        {
+            return _escape;
+        }
+
         public boolean matches(E message)
         {
             Object object = evaluate(message);
@@ -388,6 +404,18 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
         return compare(lv, rv);
     }
 
+    /**
+     * Compares two already evaluated operands with the same semantics as {@link #evaluate(Object)}.
+     */
+    Object evaluateValues(Object lv, Object rv)
+    {
+        if (lv == null || rv == null)
+        {
+            return null;
+        }
+        return compare((Comparable) lv, (Comparable) rv);
+    }
+
     protected Boolean compare(Comparable lv, Comparable rv)
     {
         Class lc = lv.getClass();
@@ -569,7 +597,7 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
         return (object != null) && (object == Boolean.TRUE);
     }
 
-    private static class EqualExpression<E> extends ComparisonExpression<E>
+    static class EqualExpression<E> extends ComparisonExpression<E>
     {
         public EqualExpression(final Expression<E> left, final Expression<E> right)
         {
@@ -578,9 +606,12 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
 
         public Object evaluate(E message)
         {
-            Object lv = getLeft().evaluate(message);
-            Object rv = getRight().evaluate(message);
+            return evaluateValues(getLeft().evaluate(message), getRight().evaluate(message));
+        }
 
+        @Override
+        Object evaluateValues(final Object lv, final Object rv)
+        {
             // Iff one of the values is null
             if ((lv == null) ^ (rv == null))
             {
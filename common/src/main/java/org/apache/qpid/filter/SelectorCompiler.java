@@ -0,0 +1,736 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a parsed selector into a tree of evaluation nodes specialised for the shape of the selector.
+ * <p>
+ * Properties referenced more than once are looked up at most once per message, comparisons between a property
+ * and a numeric or string literal are performed without the general purpose type promotion, simple LIKE patterns
+ * are matched without a regular expression, and the operands of conjunctions and disjunctions whose only
+ * observable outcome is whether the selector matches are flattened and evaluated cheapest first.
+ * <p>
+ * The compiled selector returns the same result as the parsed selector from {@link BooleanExpression#matches}.
+ * Its {@link Expression#evaluate} may return {@link Boolean#FALSE} where the parsed selector returns
+ * {@code null} (unknown). The compiled selector holds no per-message state and may be shared between threads.
+ */
+public final class SelectorCompiler
+{
+    private static final int PROPERTY_COST = 1;
+    private static final int OPERATOR_COST = 1;
+    private static final int REGEX_COST = 8;
+    private static final int INTERPRETED_COST = 10;
+
+    private SelectorCompiler()
+    {
+    }
+
+    public static <E> BooleanExpression<E> compile(final BooleanExpression<E> selector)
+    {
+        Compilation<E> compilation = new Compilation<>();
+        Node<E> root = compilation.compile(selector, true);
+        int slots = compilation.assignSlots();
+        return new CompiledSelector<>(selector, root, slots);
+    }
+
+    private static final class Compilation<E>
+    {
+        private final Map<Expression<E>, List<PropertyNode<E>>> _propertyNodes = new HashMap<>();
+
+        Node<E> compile(final Expression<E> expression, final boolean matchOnly)
+        {
+            if (expression instanceof LogicExpression.AndExpression || expression instanceof LogicExpression.OrExpression)
+            {
+                return compileLogic((LogicExpression<E>) expression, matchOnly);
+            }
+            else if (expression instanceof UnaryExpression.NotExpression)
+            {
+                return new NotNode<>(compile(((UnaryExpression<E>) expression).getRight(), false));
+            }
+            else if (expression instanceof UnaryExpression.BooleanCastExpression)
+            {
+                UnaryExpression.BooleanCastExpression<E> cast = (UnaryExpression.BooleanCastExpression<E>) expression;
+                return new BooleanCastNode<>(compile(cast.getRight(), false), cast);
+            }
+            else if (expression instanceof UnaryExpression.InExpression)
+            {
+                UnaryExpression.InExpression<E> in = (UnaryExpression.InExpression<E>) expression;
+                return new InNode<>(compile(in.getRight(), false), in);
+            }
+            else if (expression instanceof ComparisonExpression.LikeExpression)
+            {
+                ComparisonExpression.LikeExpression<E> like = (ComparisonExpression.LikeExpression<E>) expression;
+                return LikeNode.create(compile(like.getRight(), false), like);
+            }
+            else if (expression instanceof ComparisonExpression)
+            {
+                return compileComparison((ComparisonExpression<E>) expression);
+            }
+            else if (expression instanceof PropertyExpression)
+            {
+                PropertyNode<E> node = new PropertyNode<>(expression);
+                List<PropertyNode<E>> nodes = _propertyNodes.get(expression);
+                if (nodes == null)
+                {
+                    nodes = new ArrayList<>();
+                    _propertyNodes.put(expression, nodes);
+                }
+                nodes.add(node);
+                return node;
+            }
+            else if (expression instanceof ConstantExpression)
+            {
+                return new ConstantNode<>(expression.evaluate(null));
+            }
+            else
+            {
+                return new InterpretedNode<>(expression);
+            }
+        }
+
+        int assignSlots()
+        {
+            int slot = 0;
+            for (List<PropertyNode<E>> nodes : _propertyNodes.values())
+            {
+                if (nodes.size() > 1)
+                {
+                    for (PropertyNode<E> node : nodes)
+                    {
+                        node.setSlot(slot);
+                    }
+                    slot++;
+                }
+            }
+            return slot;
+        }
+
+        private Node<E> compileLogic(final LogicExpression<E> expression, final boolean matchOnly)
+        {
+            List<Expression<E>> operandExpressions = new ArrayList<>();
+            flatten(expression, expression.getClass(), operandExpressions);
+
+            List<Node<E>> operands = new ArrayList<>(operandExpressions.size());
+            for (Expression<E> operandExpression : operandExpressions)
+            {
+                operands.add(compile(operandExpression, matchOnly));
+            }
+
+            // null (unknown) and false are indistinguishable to the caller, so the evaluation order is free
+            if (matchOnly)
+            {
+                Collections.sort(operands, new Comparator<Node<E>>()
+                {
+                    @Override
+                    public int compare(final Node<E> o1, final Node<E> o2)
+                    {
+                        return Integer.compare(o1.getCost(), o2.getCost());
+                    }
+                });
+            }
+
+            if (expression instanceof LogicExpression.AndExpression)
+            {
+                return new AndNode<>(operands, matchOnly);
+            }
+            else
+            {
+                return new OrNode<>(operands, matchOnly);
+            }
+        }
+
+        private void flatten(final Expression<E> expression,
+                             final Class<?> logicType,
+                             final List<Expression<E>> operands)
+        {
+            if (expression.getClass() == logicType)
+            {
+                BinaryExpression<E> binaryExpression = (BinaryExpression<E>) expression;
+                flatten(binaryExpression.getLeft(), logicType, operands);
+                flatten(binaryExpression.getRight(), logicType, operands);
+            }
+            else
+            {
+                operands.add(expression);
+            }
+        }
+
+        private Node<E> compileComparison(final ComparisonExpression<E> comparison)
+        {
+            Node<E> left = compile(comparison.getLeft(), false);
+            Node<E> right = compile(comparison.getRight(), false);
+            boolean equality = comparison instanceof ComparisonExpression.EqualExpression;
+
+            Node<E> specialised = null;
+            if (left instanceof PropertyNode && right instanceof ConstantNode)
+            {
+                specialised = specialise((PropertyNode<E>) left,
+                                         ((ConstantNode<E>) right).getValue(),
+                                         false,
+                                         comparison,
+                                         equality);
+            }
+            else if (equality && left instanceof ConstantNode && right instanceof PropertyNode)
+            {
+                specialised = specialise((PropertyNode<E>) right,
+                                         ((ConstantNode<E>) left).getValue(),
+                                         true,
+                                         comparison,
+                                         equality);
+            }
+            return specialised == null ? new ComparisonNode<>(left, right, comparison, equality) : specialised;
+        }
+
+        private Node<E> specialise(final PropertyNode<E> property,
+                                   final Object constant,
+                                   final boolean constantOnLeft,
+                                   final ComparisonExpression<E> comparison,
+                                   final boolean equality)
+        {
+            if (constant == null)
+            {
+                return equality ? new IsNullNode<>(property) : null;
+            }
+            else if (equality && constant instanceof String)
+            {
+                return new StringEqualityNode<>(property, (String) constant, constantOnLeft, comparison);
+            }
+            else if (!constantOnLeft
+                     && (constant instanceof Integer || constant instanceof Long || constant instanceof Double))
+            {
+                // numeric promotion is not symmetric, so only the property-on-the-left form is specialised
+                return new NumericComparisonNode<>(property, (Number) constant, comparison, equality);
+            }
+            return null;
+        }
+    }
+
+    private static final class CompiledSelector<E> implements BooleanExpression<E>
+    {
+        private final BooleanExpression<E> _selector;
+        private final Node<E> _root;
+        private final int _slots;
+
+        private CompiledSelector(final BooleanExpression<E> selector, final Node<E> root, final int slots)
+        {
+            _selector = selector;
+            _root = root;
+            _slots = slots;
+        }
+
+        @Override
+        public Object evaluate(final E message)
+        {
+            return _root.evaluate(message, _slots == 0 ? null : new Object[_slots]);
+        }
+
+        @Override
+        public boolean matches(final E message)
+        {
+            return evaluate(message) == Boolean.TRUE;
+        }
+
+        @Override
+        public String toString()
+        {
+            return _selector.toString();
+        }
+    }
+
+    private abstract static class Node<E>
+    {
+        private final int _cost;
+
+        Node(final int cost)
+        {
+            _cost = cost;
+        }
+
+        final int getCost()
+        {
+            return _cost;
+        }
+
+        /**
+         * @param values per message cache of hoisted property values, or null if no properties are hoisted
+         */
+        abstract Object evaluate(E message, Object[] values);
+    }
+
+    private static final class PropertyNode<E> extends Node<E>
+    {
+        private static final Object NULL_VALUE = new Object();
+
+        private final Expression<E> _property;
+        private int _slot = -1;
+
+        PropertyNode(final Expression<E> property)
+        {
+            super(PROPERTY_COST);
+            _property = property;
+        }
+
+        void setSlot(final int slot)
+        {
+            _slot = slot;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            if (_slot < 0)
+            {
+                return _property.evaluate(message);
+            }
+
+            Object value = values[_slot];
+            if (value == null)
+            {
+                value = _property.evaluate(message);
+                values[_slot] = value == null ? NULL_VALUE : value;
+                return value;
+            }
+            return value == NULL_VALUE ? null : value;
+        }
+    }
+
+    private static final class ConstantNode<E> extends Node<E>
+    {
+        private final Object _value;
+
+        ConstantNode(final Object value)
+        {
+            super(0);
+            _value = value;
+        }
+
+        Object getValue()
+        {
+            return _value;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            return _value;
+        }
+    }
+
+    private static final class InterpretedNode<E> extends Node<E>
+    {
+        private final Expression<E> _expression;
+
+        InterpretedNode(final Expression<E> expression)
+        {
+            super(INTERPRETED_COST);
+            _expression = expression;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            return _expression.evaluate(message);
+        }
+    }
+
+    private static <E> int totalCost(final List<Node<E>> nodes)
+    {
+        int cost = 0;
+        for (Node<E> node : nodes)
+        {
+            cost += node.getCost();
+        }
+        return cost;
+    }
+
+    private static final class AndNode<E> extends Node<E>
+    {
+        private final Node<E>[] _operands;
+        private final boolean _matchOnly;
+
+        @SuppressWarnings("unchecked")
+        AndNode(final List<Node<E>> operands, final boolean matchOnly)
+        {
+            super(totalCost(operands));
+            _operands = operands.toArray(new Node[operands.size()]);
+            _matchOnly = matchOnly;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            for (Node<E> operand : _operands)
+            {
+                Boolean value = (Boolean) operand.evaluate(message, values);
+                if (value != Boolean.TRUE)
+                {
+                    return value == null && !_matchOnly ? null : Boolean.FALSE;
+                }
+            }
+            return Boolean.TRUE;
+        }
+    }
+
+    private static final class OrNode<E> extends Node<E>
+    {
+        private final Node<E>[] _operands;
+        private final boolean _matchOnly;
+
+        @SuppressWarnings("unchecked")
+        OrNode(final List<Node<E>> operands, final boolean matchOnly)
+        {
+            super(totalCost(operands));
+            _operands = operands.toArray(new Node[operands.size()]);
+            _matchOnly = matchOnly;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            int last = _operands.length - 1;
+            for (int i = 0; i < last; i++)
+            {
+                if (_operands[i].evaluate(message, values) == Boolean.TRUE)
+                {
+                    return Boolean.TRUE;
+                }
+            }
+            Boolean value = (Boolean) _operands[last].evaluate(message, values);
+            return value == null && _matchOnly ? Boolean.FALSE : value;
+        }
+    }
+
+    private static final class NotNode<E> extends Node<E>
+    {
+        private final Node<E> _operand;
+
+        NotNode(final Node<E> operand)
+        {
+            super(operand.getCost());
+            _operand = operand;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            Boolean value = (Boolean) _operand.evaluate(message, values);
+            if (value == null)
+            {
+                return null;
+            }
+            return value ? Boolean.FALSE : Boolean.TRUE;
+        }
+    }
+
+    private static final class BooleanCastNode<E> extends Node<E>
+    {
+        private final Node<E> _operand;
+        private final UnaryExpression.BooleanCastExpression<E> _cast;
+
+        BooleanCastNode(final Node<E> operand, final UnaryExpression.BooleanCastExpression<E> cast)
+        {
+            super(operand.getCost());
+            _operand = operand;
+            _cast = cast;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            return _cast.evaluateValue(_operand.evaluate(message, values));
+        }
+    }
+
+    private static final class InNode<E> extends Node<E>
+    {
+        private final Node<E> _operand;
+        private final UnaryExpression.InExpression<E> _in;
+
+        InNode(final Node<E> operand, final UnaryExpression.InExpression<E> in)
+        {
+            super(operand.getCost() + OPERATOR_COST + (in.getInList() == null ? 0 : in.getInList().size() / 4));
+            _operand = operand;
+            _in = in;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            return _in.evaluateValue(_operand.evaluate(message, values), message);
+        }
+    }
+
+    private abstract static class LikeNode<E> extends Node<E>
+    {
+        private final Node<E> _operand;
+
+        LikeNode(final Node<E> operand, final int cost)
+        {
+            super(operand.getCost() + cost);
+            _operand = operand;
+        }
+
+        static <E> Node<E> create(final Node<E> operand, final ComparisonExpression.LikeExpression<E> like)
+        {
+            String pattern = like.getLike();
+            int escape = like.getEscape();
+            if (escape == -1 || pattern.indexOf(escape) == -1)
+            {
+                int start = 0;
+                int end = pattern.length();
+                while (start < end && pattern.charAt(start) == '%')
+                {
+                    start++;
+                }
+                while (end > start && pattern.charAt(end - 1) == '%')
+                {
+                    end--;
+                }
+                String literal = pattern.substring(start, end);
+                if (literal.indexOf('%') == -1 && literal.indexOf('_') == -1)
+                {
+                    return new LiteralLikeNode<>(operand, literal, start > 0, end < pattern.length());
+                }
+            }
+            return new RegexLikeNode<>(operand, like);
+        }
+
+        @Override
+        final Object evaluate(final E message, final Object[] values)
+        {
+            Object value = _operand.evaluate(message, values);
+            if (value == null)
+            {
+                return null;
+            }
+            if (!(value instanceof String))
+            {
+                return Boolean.FALSE;
+            }
+            return matches((String) value) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        abstract boolean matches(String value);
+    }
+
+    private static final class LiteralLikeNode<E> extends LikeNode<E>
+    {
+        private final String _literal;
+        private final boolean _anyPrefix;
+        private final boolean _anySuffix;
+
+        LiteralLikeNode(final Node<E> operand, final String literal, final boolean anyPrefix, final boolean anySuffix)
+        {
+            super(operand, OPERATOR_COST);
+            _literal = literal;
+            _anyPrefix = anyPrefix;
+            _anySuffix = anySuffix;
+        }
+
+        @Override
+        boolean matches(final String value)
+        {
+            if (_anyPrefix)
+            {
+                return _anySuffix ? value.contains(_literal) : value.endsWith(_literal);
+            }
+            else
+            {
+                return _anySuffix ? value.startsWith(_literal) : value.equals(_literal);
+            }
+        }
+    }
+
+    private static final class RegexLikeNode<E> extends LikeNode<E>
+    {
+        private final ComparisonExpression.LikeExpression<E> _like;
+
+        RegexLikeNode(final Node<E> operand, final ComparisonExpression.LikeExpression<E> like)
+        {
+            super(operand, REGEX_COST);
+            _like = like;
+        }
+
+        @Override
+        boolean matches(final String value)
+        {
+            return _like.evaluateValue(value) == Boolean.TRUE;
+        }
+    }
+
+    private static final class ComparisonNode<E> extends Node<E>
+    {
+        private final Node<E> _left;
+        private final Node<E> _right;
+        private final ComparisonExpression<E> _comparison;
+        private final boolean _equality;
+
+        ComparisonNode(final Node<E> left,
+                       final Node<E> right,
+                       final ComparisonExpression<E> comparison,
+                       final boolean equality)
+        {
+            super(left.getCost() + right.getCost() + OPERATOR_COST);
+            _left = left;
+            _right = right;
+            _comparison = comparison;
+            _equality = equality;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            Object left = _left.evaluate(message, values);
+            if (left == null && !_equality)
+            {
+                return null;
+            }
+            return _comparison.evaluateValues(left, _right.evaluate(message, values));
+        }
+    }
+
+    private static final class IsNullNode<E> extends Node<E>
+    {
+        private final PropertyNode<E> _property;
+
+        IsNullNode(final PropertyNode<E> property)
+        {
+            super(PROPERTY_COST);
+            _property = property;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            return _property.evaluate(message, values) == null ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    private static final class StringEqualityNode<E> extends Node<E>
+    {
+        private final PropertyNode<E> _property;
+        private final String _constant;
+        private final boolean _constantOnLeft;
+        private final ComparisonExpression<E> _comparison;
+
+        StringEqualityNode(final PropertyNode<E> property,
+                           final String constant,
+                           final boolean constantOnLeft,
+                           final ComparisonExpression<E> comparison)
+        {
+            super(PROPERTY_COST + OPERATOR_COST);
+            _property = property;
+            _constant = constant;
+            _constantOnLeft = constantOnLeft;
+            _comparison = comparison;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            Object value = _property.evaluate(message, values);
+            if (value == null)
+            {
+                return Boolean.FALSE;
+            }
+            if (value instanceof String)
+            {
+                return _constant.equals(value) ? Boolean.TRUE : Boolean.FALSE;
+            }
+            // e.g. enumerated values, which compare by name
+            return _constantOnLeft
+                    ? _comparison.evaluateValues(_constant, value)
+                    : _comparison.evaluateValues(value, _constant);
+        }
+    }
+
+    /**
+     * Compares a property against an Integer, Long or Double literal, applying the same numeric promotion as
+     * {@link ComparisonExpression#compare(Comparable, Comparable)} without boxing the promoted values.
+     */
+    private static final class NumericComparisonNode<E> extends Node<E>
+    {
+        private final PropertyNode<E> _property;
+        private final Number _constant;
+        private final ComparisonExpression<E> _comparison;
+        private final boolean _equality;
+        private final boolean _integralConstant;
+        private final long _longValue;
+        private final float _floatValue;
+        private final double _doubleValue;
+
+        NumericComparisonNode(final PropertyNode<E> property,
+                              final Number constant,
+                              final ComparisonExpression<E> comparison,
+                              final boolean equality)
+        {
+            super(PROPERTY_COST + OPERATOR_COST);
+            _property = property;
+            _constant = constant;
+            _comparison = comparison;
+            _equality = equality;
+            _integralConstant = !(constant instanceof Double);
+            _longValue = constant.longValue();
+            _floatValue = constant.floatValue();
+            _doubleValue = constant.doubleValue();
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] values)
+        {
+            Object value = _property.evaluate(message, values);
+            if (value == null)
+            {
+                return _equality ? Boolean.FALSE : null;
+            }
+
+            final int result;
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+            {
+                result = _integralConstant
+                        ? Long.compare(((Number) value).longValue(), _longValue)
+                        : Double.compare(((Number) value).doubleValue(), _doubleValue);
+            }
+            else if (value instanceof Double)
+            {
+                result = Double.compare((Double) value, _doubleValue);
+            }
+            else if (value instanceof Float)
+            {
+                result = _integralConstant
+                        ? Float.compare((Float) value, _floatValue)
+                        : Double.compare(((Float) value).doubleValue(), _doubleValue);
+            }
+            else
+            {
+                return _comparison.evaluateValues(value, _constant);
+            }
+            return _comparison.asBoolean(result) ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+}
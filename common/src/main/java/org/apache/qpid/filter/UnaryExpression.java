@@ -209,7 +209,7 @@ public abstract class UnaryExpression<T> implements Expression<T>
         }
     }
 
-    private static class InExpression<E> extends BooleanUnaryExpression<E>
+    static class InExpression<E> extends BooleanUnaryExpression<E>
     {
         private final Collection<?> _inList;
         private final boolean _not;
@@ -228,8 +228,11 @@ public abstract class UnaryExpression<T> implements Expression<T>
 
         public Object evaluate(E expression)
         {
+            return evaluateValue(getRight().evaluate(expression), expression);
+        }
 
-            Object rvalue = getRight().evaluate(expression);
+        Object evaluateValue(final Object rvalue, final E expression)
+        {
             if (rvalue == null || !(_allowNonJms || rvalue instanceof String))
             {
                 return null;
@@ -316,6 +319,11 @@ public abstract class UnaryExpression<T> implements Expression<T>
             return answer.toString();
         }
 
+        Collection<?> getInList()
+        {
+            return _inList;
+        }
+
         public String getExpressionSymbol()
         {
             if (_not)
@@ -329,7 +337,7 @@ public abstract class UnaryExpression<T> implements Expression<T>
         }
     }
 
-    private static class NotExpression<E> extends BooleanUnaryExpression<E>
+    static class NotExpression<E> extends BooleanUnaryExpression<E>
     {
         public NotExpression(final BooleanExpression<E> left)
         {
@@ -353,7 +361,7 @@ public abstract class UnaryExpression<T> implements Expression<T>
         }
     }
 
-    private static class BooleanCastExpression<E> extends BooleanUnaryExpression<E>
+    static class BooleanCastExpression<E> extends BooleanUnaryExpression<E>
     {
         public BooleanCastExpression(final Expression<E> left)
         {
@@ -362,7 +370,11 @@ public abstract class UnaryExpression<T> implements Expression<T>
 
         public Object evaluate(E message)
         {
-            Object rvalue = getRight().evaluate(message);
+            return evaluateValue(getRight().evaluate(message));
+        }
+
+        Object evaluateValue(final Object rvalue)
+        {
             if (rvalue == null)
             {
                 return null;
@@ -48,8 +48,9 @@ import org.apache.qpid.transport.network.Assembler;
 import org.apache.qpid.transport.network.Disassembler;
 import org.apache.qpid.transport.network.InputHandler;
 import org.apache.qpid.transport.network.NetworkConnection;
+import org.apache.qpid.transport.network.OutgoingNetworkTransport;
+import org.apache.qpid.transport.network.OutgoingNetworkTransportFactory;
 import org.apache.qpid.transport.network.TransportActivity;
-import org.apache.qpid.transport.network.io.IoNetworkTransport;
 import org.apache.qpid.transport.network.security.SecurityLayer;
 import org.apache.qpid.transport.network.security.SecurityLayerFactory;
 import org.apache.qpid.transport.util.Waiter;
@@ -228,7 +229,7 @@ public class Connection extends ConnectionInvoker
 
             securityLayer = SecurityLayerFactory.newInstance(getConnectionSettings());
 
-            IoNetworkTransport transport = new IoNetworkTransport();
+            OutgoingNetworkTransport transport = OutgoingNetworkTransportFactory.newInstance(settings);
             final InputHandler inputHandler = new InputHandler(new Assembler(this), false);
             addFrameSizeObserver(inputHandler);
             ExceptionHandlingByteBufferReceiver secureReceiver = securityLayer.receiver(inputHandler);
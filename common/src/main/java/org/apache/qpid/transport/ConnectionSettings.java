@@ -27,6 +27,7 @@ import static org.apache.qpid.configuration.ClientProperties.QPID_HEARTBEAT_INTE
 import static org.apache.qpid.configuration.ClientProperties.QPID_HEARTBEAT_INTERVAL_010_DEFAULT;
 import static org.apache.qpid.configuration.ClientProperties.QPID_HEARTBEAT_TIMEOUT_FACTOR;
 import static org.apache.qpid.configuration.ClientProperties.QPID_HEARTBEAT_TIMEOUT_FACTOR_DEFAULT;
+import static org.apache.qpid.configuration.ClientProperties.QPID_NON_BLOCKING_IO_PROP_NAME;
 import static org.apache.qpid.transport.LegacyClientProperties.AMQJ_TCP_NODELAY_PROP_NAME;
 import static org.apache.qpid.configuration.ClientProperties.QPID_SSL_KEY_MANAGER_FACTORY_ALGORITHM_PROP_NAME;
 import static org.apache.qpid.transport.LegacyClientProperties.QPID_SSL_KEY_STORE_CERT_TYPE_PROP_NAME;
@@ -83,6 +84,7 @@ public class ConnectionSettings
     private String password;
     private int port = 5672;
     private boolean tcpNodelay = QpidProperty.booleanProperty(Boolean.TRUE, QPID_TCP_NODELAY_PROP_NAME, AMQJ_TCP_NODELAY_PROP_NAME).get();
+    private boolean _nonBlockingIo = QpidProperty.booleanProperty(Boolean.FALSE, QPID_NON_BLOCKING_IO_PROP_NAME).get();
     private int maxChannelCount = 32767;
     private int maxFrameSize = 65535;
     private Integer hearbeatIntervalLegacyMs = QpidProperty.intProperty(null, IDLE_TIMEOUT_PROP_NAME).get();
@@ -141,6 +143,20 @@ public class ConnectionSettings
         this.tcpNodelay = tcpNodelay;
     }
 
+    /**
+     * @return true if the connection should be serviced by the shared selector threads rather than by a reader and
+     * a writer thread of its own
+     */
+    public boolean isNonBlockingIo()
+    {
+        return _nonBlockingIo;
+    }
+
+    public void setNonBlockingIo(boolean nonBlockingIo)
+    {
+        _nonBlockingIo = nonBlockingIo;
+    }
+
     /**
      * Gets the heartbeat interval (seconds) for 0-8/9/9-1 protocols.
      * 0 means heartbeating is disabled.
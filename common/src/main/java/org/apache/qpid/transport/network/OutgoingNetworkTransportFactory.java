@@ -0,0 +1,48 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport.network;
+
+import org.apache.qpid.transport.ConnectionSettings;
+import org.apache.qpid.transport.network.io.IoNetworkTransport;
+import org.apache.qpid.transport.network.nio.NonBlockingNetworkTransport;
+
+public class OutgoingNetworkTransportFactory
+{
+    private OutgoingNetworkTransportFactory()
+    {
+    }
+
+    /**
+     * Connections which ask for non blocking io over tcp are serviced by the shared selector threads, all others
+     * (including those over a previously registered socket) get a reader and a writer thread of their own.
+     */
+    public static OutgoingNetworkTransport newInstance(ConnectionSettings settings)
+    {
+        if(settings.isNonBlockingIo() && "tcp".equalsIgnoreCase(settings.getTransport()))
+        {
+            return new NonBlockingNetworkTransport();
+        }
+        else
+        {
+            return new IoNetworkTransport();
+        }
+    }
+}
@@ -34,9 +34,10 @@ import org.apache.qpid.transport.ConnectionSettings;
 import org.apache.qpid.transport.ExceptionHandlingByteBufferReceiver;
 import org.apache.qpid.transport.TransportException;
 import org.apache.qpid.transport.network.NetworkConnection;
+import org.apache.qpid.transport.network.OutgoingNetworkTransport;
 import org.apache.qpid.transport.network.TransportActivity;
 
-public class IoNetworkTransport
+public class IoNetworkTransport implements OutgoingNetworkTransport
 {
 
 
@@ -58,6 +59,7 @@ public class IoNetworkTransport
                                 ticker);
     }
 
+    @Override
     public NetworkConnection connect(ConnectionSettings settings,
                                      ExceptionHandlingByteBufferReceiver delegate,
                                      TransportActivity transportActivity)
@@ -153,6 +155,7 @@ public class IoNetworkTransport
         return socket;
     }
 
+    @Override
     public void close()
     {
         if(_connection != null)
@@ -166,6 +169,7 @@ public class IoNetworkTransport
         _registeredSockets.put(id, socket);
     }
 
+    @Override
     public NetworkConnection getConnection()
     {
         return _connection;
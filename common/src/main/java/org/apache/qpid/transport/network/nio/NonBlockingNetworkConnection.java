@@ -0,0 +1,540 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport.network.nio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.transport.ByteBufferSender;
+import org.apache.qpid.transport.ExceptionHandlingByteBufferReceiver;
+import org.apache.qpid.transport.SenderClosedException;
+import org.apache.qpid.transport.SenderException;
+import org.apache.qpid.transport.network.NetworkConnection;
+import org.apache.qpid.transport.network.Ticker;
+
+/**
+ * A client connection whose reads, and whichever writes cannot complete immediately on the sending thread, are
+ * performed by a {@link SelectorThread} shared with other connections.
+ * <p>
+ * Sent bytes are copied, as the security layers reuse their buffers once a send returns.  As with the blocking
+ * sender, a thread other than the selector thread which finds more than twice the send buffer size outstanding waits
+ * for the selector thread to write it out.
+ * <p>
+ * The receiver is told of the close of the connection on a thread of its own, as it may block for a long time, for
+ * instance while failing over to another broker, and would otherwise stall every connection on the selector thread.
+ */
+public class NonBlockingNetworkConnection implements NetworkConnection, ByteBufferSender
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(NonBlockingNetworkConnection.class);
+
+    private final SocketChannel _channel;
+    private final ExceptionHandlingByteBufferReceiver _receiver;
+    private final SelectorThread _selectorThread;
+    private final Executor _closedNotifier;
+    private final Ticker _ticker;
+    private final int _sendBufferSize;
+    private final int _receiveBufferSize;
+    private final long _timeout;
+    private final String _socketEndpointDescription;
+
+    private final Object _sendLock = new Object();
+    private final Deque<ByteBuffer> _pending = new ArrayDeque<>();
+    private ByteBuffer _current;
+    private long _pendingBytes;
+    private boolean _writeInterest;
+    private volatile Throwable _exception;
+
+    private byte[] _readBuffer;
+    private int _readOffset;
+
+    private final AtomicBoolean _closing = new AtomicBoolean();
+    private final AtomicBoolean _closed = new AtomicBoolean();
+    private final CountDownLatch _closedLatch = new CountDownLatch(1);
+
+    private volatile SelectionKey _selectionKey;
+    private volatile Thread _closedNotifierThread;
+    private volatile long _maxWriteIdleMillis;
+    private volatile long _maxReadIdleMillis;
+
+    NonBlockingNetworkConnection(final SocketChannel channel,
+                                 final ExceptionHandlingByteBufferReceiver receiver,
+                                 final SelectorThread selectorThread,
+                                 final Executor closedNotifier,
+                                 final int sendBufferSize,
+                                 final int receiveBufferSize,
+                                 final long timeout,
+                                 final Ticker ticker)
+    {
+        _channel = channel;
+        _receiver = receiver;
+        _selectorThread = selectorThread;
+        _closedNotifier = closedNotifier;
+        _sendBufferSize = sendBufferSize;
+        _receiveBufferSize = receiveBufferSize;
+        _timeout = timeout;
+        _ticker = ticker;
+        _readBuffer = new byte[receiveBufferSize];
+        _socketEndpointDescription = String.format("%s-%s",
+                                                   channel.socket().getLocalSocketAddress(),
+                                                   channel.socket().getRemoteSocketAddress());
+    }
+
+    @Override
+    public void start()
+    {
+        _selectorThread.addConnection(this);
+    }
+
+    @Override
+    public ByteBufferSender getSender()
+    {
+        return this;
+    }
+
+    @Override
+    public boolean isDirectBufferPreferred()
+    {
+        return false;
+    }
+
+    @Override
+    public void send(final QpidByteBuffer msg)
+    {
+        checkNotAlreadyClosed();
+
+        synchronized (_sendLock)
+        {
+            int remaining = msg.remaining();
+            while (remaining > 0)
+            {
+                if (_current == null)
+                {
+                    _current = ByteBuffer.allocate(_sendBufferSize);
+                }
+                final int length = Math.min(_current.remaining(), remaining);
+                msg.get(_current.array(), _current.arrayOffset() + _current.position(), length);
+                _current.position(_current.position() + length);
+                remaining -= length;
+                _pendingBytes += length;
+                if (!_current.hasRemaining())
+                {
+                    _current.flip();
+                    _pending.add(_current);
+                    _current = null;
+                }
+            }
+
+            if (_pendingBytes >= 2L * _sendBufferSize && !_selectorThread.isSelectorThread())
+            {
+                awaitPendingWritten();
+            }
+        }
+    }
+
+    private void awaitPendingWritten()
+    {
+        writePending();
+
+        final long start = System.currentTimeMillis();
+        long elapsed = 0;
+        while (!_closed.get() && _pendingBytes >= 2L * _sendBufferSize && elapsed < _timeout)
+        {
+            try
+            {
+                _sendLock.wait(_timeout - elapsed);
+            }
+            catch (InterruptedException e)
+            {
+                // pass
+            }
+            elapsed = System.currentTimeMillis() - start;
+        }
+
+        checkNotAlreadyClosed();
+
+        if (_pendingBytes >= 2L * _sendBufferSize)
+        {
+            LOGGER.error("write timed out for socket {}: {} bytes pending", _socketEndpointDescription, _pendingBytes);
+            _closing.set(true);
+            closeOnSelectorThread();
+            throw new SenderException(String.format("write timed out for socket %s: %d bytes pending",
+                                                    _socketEndpointDescription, _pendingBytes));
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        synchronized (_sendLock)
+        {
+            writePending();
+        }
+    }
+
+    /**
+     * Writes as much of the outstanding data as the socket will take without blocking, leaving the rest to the
+     * selector thread.  Must be called holding the send lock.
+     */
+    private void writePending()
+    {
+        if (_current != null && _current.position() != 0)
+        {
+            _current.flip();
+            _pending.add(_current);
+            _current = null;
+        }
+
+        if (!_writeInterest && !_pending.isEmpty() && !_closed.get())
+        {
+            doWriteLocked();
+            if (!_pending.isEmpty() && !_closed.get())
+            {
+                _writeInterest = true;
+                _selectorThread.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        updateInterest(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Called on the selector thread when the socket can take more data.
+     */
+    void doWrite()
+    {
+        final boolean drained;
+        synchronized (_sendLock)
+        {
+            if (_current != null && _current.position() != 0 && _pending.isEmpty())
+            {
+                _current.flip();
+                _pending.add(_current);
+                _current = null;
+            }
+            doWriteLocked();
+            drained = _pending.isEmpty();
+            if (drained)
+            {
+                _writeInterest = false;
+            }
+        }
+
+        if (drained)
+        {
+            updateInterest(SelectionKey.OP_READ);
+            if (_closing.get())
+            {
+                closed(null);
+            }
+        }
+    }
+
+    private void doWriteLocked()
+    {
+        try
+        {
+            final ByteBuffer[] buffers = _pending.toArray(new ByteBuffer[_pending.size()]);
+            _channel.write(buffers);
+            for (ByteBuffer buffer : buffers)
+            {
+                if (buffer.hasRemaining())
+                {
+                    break;
+                }
+                _pending.poll();
+                _pendingBytes -= buffer.limit();
+            }
+            _sendLock.notifyAll();
+        }
+        catch (IOException e)
+        {
+            LOGGER.info("Exception sending for socket '{}' : {}", _socketEndpointDescription, e.getMessage());
+            _exception = e;
+            _pending.clear();
+            _pendingBytes = 0;
+            closeOnSelectorThread();
+        }
+    }
+
+    private void closeOnSelectorThread()
+    {
+        _selectorThread.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                closed(null);
+            }
+        });
+    }
+
+    /**
+     * Called on the selector thread when there is data to be read.
+     */
+    void doRead()
+    {
+        try
+        {
+            final ByteBuffer buffer = ByteBuffer.wrap(_readBuffer, _readOffset, _readBuffer.length - _readOffset);
+            final int read = _channel.read(buffer);
+            if (read == -1)
+            {
+                closed(null);
+            }
+            else if (read > 0)
+            {
+                final ByteBuffer received = ByteBuffer.wrap(_readBuffer, _readOffset, read);
+                _readOffset += read;
+                // the receiver may hold on to what it was given, so the array is only reused until half full
+                if (_readOffset > _receiveBufferSize / 2)
+                {
+                    _readOffset = 0;
+                    _readBuffer = new byte[_receiveBufferSize];
+                }
+                _receiver.received(received);
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            closed(_closing.get() ? null : e);
+        }
+    }
+
+    /**
+     * Called on the selector thread to tick the connection.
+     *
+     * @return the time in milliseconds until the connection next needs to be ticked
+     */
+    int tick(final long currentTime)
+    {
+        int tick = _ticker.getTimeToNextTick(currentTime);
+        if (tick <= 0)
+        {
+            tick = _ticker.tick(currentTime);
+        }
+        return tick;
+    }
+
+    @Override
+    public void close()
+    {
+        if (!_closing.getAndSet(true))
+        {
+            flush();
+            _selectorThread.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    boolean drained;
+                    synchronized (_sendLock)
+                    {
+                        drained = !_writeInterest;
+                    }
+                    if (drained)
+                    {
+                        closed(null);
+                    }
+                }
+            });
+
+            if (!_selectorThread.isSelectorThread() && Thread.currentThread() != _closedNotifierThread)
+            {
+                try
+                {
+                    if (!_closedLatch.await(_timeout, TimeUnit.MILLISECONDS))
+                    {
+                        LOGGER.error("close timed out for socket {}", _socketEndpointDescription);
+                        closed(null);
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the channel and informs the receiver exactly once, reporting the exception if there is one.
+     */
+    void closed(final Throwable t)
+    {
+        if (!_closed.getAndSet(true))
+        {
+            _closing.set(true);
+            try
+            {
+                final SelectionKey selectionKey = _selectionKey;
+                if (selectionKey != null)
+                {
+                    selectionKey.cancel();
+                }
+                try
+                {
+                    _channel.close();
+                }
+                catch (IOException e)
+                {
+                    LOGGER.warn("Error closing socket", e);
+                }
+            }
+            finally
+            {
+                _selectorThread.removeConnection(this);
+                synchronized (_sendLock)
+                {
+                    _sendLock.notifyAll();
+                }
+                _closedNotifier.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        notifyClosed(t);
+                    }
+                });
+            }
+        }
+    }
+
+    private void notifyClosed(final Throwable t)
+    {
+        _closedNotifierThread = Thread.currentThread();
+        try
+        {
+            if (t != null)
+            {
+                _receiver.exception(t);
+            }
+        }
+        finally
+        {
+            try
+            {
+                _receiver.closed();
+            }
+            finally
+            {
+                _closedNotifierThread = null;
+                _closedLatch.countDown();
+            }
+        }
+    }
+
+    private void updateInterest(final int ops)
+    {
+        final SelectionKey selectionKey = _selectionKey;
+        if (selectionKey != null && selectionKey.isValid())
+        {
+            selectionKey.interestOps(ops);
+        }
+    }
+
+    private void checkNotAlreadyClosed()
+    {
+        if (_closing.get())
+        {
+            throw new SenderClosedException(String.format("sender for socket %s is closed",
+                                                          _socketEndpointDescription), _exception);
+        }
+    }
+
+    SocketChannel getChannel()
+    {
+        return _channel;
+    }
+
+    void setSelectionKey(final SelectionKey selectionKey)
+    {
+        _selectionKey = selectionKey;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress()
+    {
+        return _channel.socket().getRemoteSocketAddress();
+    }
+
+    @Override
+    public SocketAddress getLocalAddress()
+    {
+        return _channel.socket().getLocalSocketAddress();
+    }
+
+    @Override
+    public void setMaxWriteIdleMillis(final long millis)
+    {
+        _maxWriteIdleMillis = millis;
+    }
+
+    @Override
+    public void setMaxReadIdleMillis(final long millis)
+    {
+        _maxReadIdleMillis = millis;
+    }
+
+    @Override
+    public long getMaxReadIdleMillis()
+    {
+        return _maxReadIdleMillis;
+    }
+
+    @Override
+    public long getMaxWriteIdleMillis()
+    {
+        return _maxWriteIdleMillis;
+    }
+
+    @Override
+    public Principal getPeerPrincipal()
+    {
+        // TLS, if any, is layered above the transport
+        return null;
+    }
+
+    @Override
+    public Certificate getPeerCertificate()
+    {
+        return null;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport.network.nio;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.configuration.ClientProperties;
+import org.apache.qpid.configuration.CommonProperties;
+import org.apache.qpid.thread.Threading;
+import org.apache.qpid.transport.ConnectionSettings;
+import org.apache.qpid.transport.ExceptionHandlingByteBufferReceiver;
+import org.apache.qpid.transport.TransportException;
+import org.apache.qpid.transport.network.NetworkConnection;
+import org.apache.qpid.transport.network.OutgoingNetworkTransport;
+import org.apache.qpid.transport.network.TransportActivity;
+import org.apache.qpid.transport.network.io.IdleTimeoutTicker;
+
+/**
+ * Connects over tcp, handing the connection to whichever of a small pool of selector threads, shared by every non
+ * blocking connection of the JVM, is servicing the fewest connections.
+ */
+public class NonBlockingNetworkTransport implements OutgoingNetworkTransport
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(NonBlockingNetworkTransport.class);
+    private static final int TIMEOUT = Integer.getInteger(CommonProperties.IO_NETWORK_TRANSPORT_TIMEOUT_PROP_NAME,
+                                                          CommonProperties.IO_NETWORK_TRANSPORT_TIMEOUT_DEFAULT);
+    private static final int SELECTOR_THREADS =
+            Integer.getInteger(ClientProperties.QPID_NON_BLOCKING_IO_SELECTOR_THREADS_PROP_NAME,
+                               Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+
+    private static SelectorThread[] _selectorThreads;
+    private static Executor _closedNotifier;
+
+    private NetworkConnection _connection;
+
+    @Override
+    public NetworkConnection connect(final ConnectionSettings settings,
+                                     final ExceptionHandlingByteBufferReceiver delegate,
+                                     final TransportActivity transportActivity)
+    {
+        if (!"tcp".equalsIgnoreCase(settings.getTransport()))
+        {
+            throw new TransportException("Unsupported transport '" + settings.getTransport()
+                                         + "' for non blocking io");
+        }
+
+        final SocketChannel channel = connectTcp(settings);
+        try
+        {
+            channel.configureBlocking(false);
+            IdleTimeoutTicker ticker = new IdleTimeoutTicker(transportActivity, TIMEOUT);
+            NonBlockingNetworkConnection connection =
+                    new NonBlockingNetworkConnection(channel, delegate, getSelectorThread(), getClosedNotifier(),
+                                                     settings.getWriteBufferSize(), settings.getReadBufferSize(),
+                                                     TIMEOUT, ticker);
+            ticker.setConnection(connection);
+            _connection = connection;
+            _connection.start();
+        }
+        catch (Exception e)
+        {
+            try
+            {
+                channel.close();
+            }
+            catch (IOException ioe)
+            {
+                //ignored, throw based on original exception
+            }
+
+            throw new TransportException("Error creating network connection", e);
+        }
+
+        return _connection;
+    }
+
+    private SocketChannel connectTcp(final ConnectionSettings settings)
+    {
+        SocketChannel channel = null;
+        try
+        {
+            channel = SocketChannel.open();
+            final Socket socket = channel.socket();
+            socket.setReuseAddress(true);
+            socket.setTcpNoDelay(settings.isTcpNodelay());
+            socket.setSendBufferSize(settings.getWriteBufferSize());
+            socket.setReceiveBufferSize(settings.getReadBufferSize());
+
+            if (LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug("Socket options SO_RCVBUF : {}, SO_SNDBUF : {}, TCP_NODELAY : {}",
+                             socket.getReceiveBufferSize(),
+                             socket.getSendBufferSize(),
+                             socket.getTcpNoDelay());
+            }
+
+            InetAddress address = InetAddress.getByName(settings.getHost());
+
+            // the channel is still blocking, so the connect timeout is honoured
+            socket.connect(new InetSocketAddress(address, settings.getPort()), settings.getConnectTimeout());
+
+            if (LOGGER.isDebugEnabled())
+            {
+                LOGGER.debug("Socket connection from {} to {} established",
+                             socket.getLocalSocketAddress(),
+                             socket.getRemoteSocketAddress());
+            }
+            return channel;
+        }
+        catch (IOException e)
+        {
+            if (channel != null)
+            {
+                try
+                {
+                    channel.close();
+                }
+                catch (IOException ignore)
+                {
+                }
+            }
+
+            throw new TransportException("Error connecting to broker", e);
+        }
+    }
+
+    private static synchronized SelectorThread getSelectorThread()
+    {
+        if (_selectorThreads == null)
+        {
+            final SelectorThread[] selectorThreads = new SelectorThread[SELECTOR_THREADS];
+            for (int i = 0; i < selectorThreads.length; i++)
+            {
+                selectorThreads[i] = new SelectorThread("NioSelector-" + i);
+                selectorThreads[i].start();
+            }
+            _selectorThreads = selectorThreads;
+        }
+
+        SelectorThread leastLoaded = _selectorThreads[0];
+        for (SelectorThread selectorThread : _selectorThreads)
+        {
+            if (selectorThread.getConnectionCount() < leastLoaded.getConnectionCount())
+            {
+                leastLoaded = selectorThread;
+            }
+        }
+        return leastLoaded;
+    }
+
+    /**
+     * Returns the executor on which receivers are told their connection has closed.  Its threads are created as
+     * needed, as a receiver may hold one for as long as it takes to fail over.
+     */
+    private static synchronized Executor getClosedNotifier()
+    {
+        if (_closedNotifier == null)
+        {
+            _closedNotifier = Executors.newCachedThreadPool(new ThreadFactory()
+            {
+                private final AtomicInteger _threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread;
+                    try
+                    {
+                        thread = Threading.getThreadFactory().createThread(runnable);
+                    }
+                    catch (Exception e)
+                    {
+                        throw new RuntimeException("Error creating closed notifier thread", e);
+                    }
+                    thread.setDaemon(true);
+                    thread.setName("NioClosedNotifier-" + _threadCount.incrementAndGet());
+                    return thread;
+                }
+            });
+        }
+        return _closedNotifier;
+    }
+
+    @Override
+    public void close()
+    {
+        if (_connection != null)
+        {
+            _connection.close();
+        }
+    }
+
+    @Override
+    public NetworkConnection getConnection()
+    {
+        return _connection;
+    }
+}
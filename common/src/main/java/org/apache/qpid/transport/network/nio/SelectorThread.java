@@ -0,0 +1,190 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport.network.nio;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.thread.Threading;
+import org.apache.qpid.transport.TransportException;
+
+/**
+ * Services the reads, the writes which could not be completed by the sending thread, and the idle ticking of any
+ * number of client connections.
+ */
+final class SelectorThread implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SelectorThread.class);
+
+    private final Selector _selector;
+    private final Thread _thread;
+    private final Queue<Runnable> _tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NonBlockingNetworkConnection> _connections = new HashSet<>();
+    private final AtomicInteger _connectionCount = new AtomicInteger();
+
+    SelectorThread(final String name)
+    {
+        try
+        {
+            _selector = Selector.open();
+        }
+        catch (IOException e)
+        {
+            throw new TransportException("Error opening selector", e);
+        }
+
+        try
+        {
+            _thread = Threading.getThreadFactory().createThread(this);
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException("Error creating selector thread", e);
+        }
+        _thread.setDaemon(true);
+        _thread.setName(name);
+    }
+
+    void start()
+    {
+        _thread.start();
+    }
+
+    boolean isSelectorThread()
+    {
+        return Thread.currentThread() == _thread;
+    }
+
+    int getConnectionCount()
+    {
+        return _connectionCount.get();
+    }
+
+    void addConnection(final NonBlockingNetworkConnection connection)
+    {
+        _connectionCount.incrementAndGet();
+        execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    connection.setSelectionKey(connection.getChannel().register(_selector,
+                                                                                SelectionKey.OP_READ,
+                                                                                connection));
+                    _connections.add(connection);
+                }
+                catch (ClosedChannelException e)
+                {
+                    connection.closed(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Called exactly once for every connection added, when it is closed.
+     */
+    void removeConnection(final NonBlockingNetworkConnection connection)
+    {
+        _connectionCount.decrementAndGet();
+        // deferred so that the connection set is never modified while it is being ticked
+        execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                _connections.remove(connection);
+            }
+        });
+    }
+
+    /**
+     * Runs the task on the selector thread, waking it if it is blocked in select.
+     */
+    void execute(final Runnable task)
+    {
+        _tasks.add(task);
+        _selector.wakeup();
+    }
+
+    @Override
+    public void run()
+    {
+        while (true)
+        {
+            try
+            {
+                Runnable task;
+                while ((task = _tasks.poll()) != null)
+                {
+                    task.run();
+                }
+
+                final int timeout = tick();
+                _selector.select(timeout);
+
+                final Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    final NonBlockingNetworkConnection connection = (NonBlockingNetworkConnection) key.attachment();
+                    if (key.isValid() && key.isWritable())
+                    {
+                        connection.doWrite();
+                    }
+                    if (key.isValid() && key.isReadable())
+                    {
+                        connection.doRead();
+                    }
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                LOGGER.error("Unexpected exception in {}", _thread.getName(), e);
+            }
+        }
+    }
+
+    private int tick()
+    {
+        final long currentTime = System.currentTimeMillis();
+        int timeout = Integer.MAX_VALUE;
+        for (NonBlockingNetworkConnection connection : _connections)
+        {
+            timeout = Math.min(timeout, connection.tick(currentTime));
+        }
+        return timeout == Integer.MAX_VALUE ? 0 : Math.max(timeout, 1);
+    }
+}
@@ -20,14 +20,21 @@
  */
 package org.apache.qpid.util;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
 
 public class ByteBufferUtils
 {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ByteBufferUtils.class);
     private static final ByteBuffer EMPTY_BYTE_BUFFER = ByteBuffer.allocate(0);
+    private static final Unmapper UNMAPPER = createUnmapper();
 
     public static ByteBuffer combine(Collection<QpidByteBuffer> bufs)
     {
@@ -68,4 +75,81 @@ public class ByteBufferUtils
         }
         return size;
     }
+
+    /**
+     * Releases the memory of a direct or mapped buffer straight away rather than when the buffer is garbage
+     * collected.  The buffer, and every duplicate, slice or view of it, must never be accessed again.
+     *
+     * @return false if the buffer could not be released, in which case it is released when it is collected
+     */
+    public static boolean unmap(final ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect() || UNMAPPER == null)
+        {
+            return false;
+        }
+        try
+        {
+            UNMAPPER.unmap(buffer);
+            return true;
+        }
+        catch (Exception e)
+        {
+            LOGGER.debug("Failed to unmap buffer", e);
+            return false;
+        }
+    }
+
+    private static Unmapper createUnmapper()
+    {
+        try
+        {
+            // Java 9 onwards
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return new Unmapper()
+            {
+                @Override
+                public void unmap(final ByteBuffer buffer) throws Exception
+                {
+                    invokeCleaner.invoke(unsafe, buffer);
+                }
+            };
+        }
+        catch (Exception e)
+        {
+            // fall through to the mechanism of earlier releases
+        }
+
+        try
+        {
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return new Unmapper()
+            {
+                @Override
+                public void unmap(final ByteBuffer buffer) throws Exception
+                {
+                    final Object bufferCleaner = cleaner.invoke(buffer);
+                    if (bufferCleaner != null)
+                    {
+                        clean.invoke(bufferCleaner);
+                    }
+                }
+            };
+        }
+        catch (Exception e)
+        {
+            LOGGER.debug("Direct buffers cannot be unmapped explicitly on this platform", e);
+            return null;
+        }
+    }
+
+    private interface Unmapper
+    {
+        void unmap(ByteBuffer buffer) throws Exception;
+    }
 }
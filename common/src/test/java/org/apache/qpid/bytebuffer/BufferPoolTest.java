@@ -0,0 +1,164 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.qpid.bytebuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class BufferPoolTest extends QpidTestCase
+{
+    private static final int BUFFER_SIZE = 10;
+
+    public void testAllocationIsServedFromPool()
+    {
+        BufferPool pool = new BufferPool(BUFFER_SIZE, 4, 1);
+
+        ByteBuffer buffer = pool.getBuffer();
+        assertEquals("Unexpected buffer capacity", BUFFER_SIZE, buffer.capacity());
+        assertTrue("Pooled buffer should be direct", buffer.isDirect());
+        assertEquals("Unexpected number of misses", 1, pool.getMissCount());
+
+        pool.returnBuffer(buffer);
+        assertEquals("Unexpected number of pooled buffers", 1, pool.getNumberOfPooledBuffers());
+
+        assertSame("Returned buffer was not reused", buffer, pool.getBuffer());
+        assertEquals("Unexpected number of hits", 1, pool.getHitCount());
+        assertEquals("Unexpected number of pooled buffers", 0, pool.getNumberOfPooledBuffers());
+    }
+
+    public void testPoolSizeIsBounded()
+    {
+        final int maxSize = 20;
+        BufferPool pool = new BufferPool(BUFFER_SIZE, maxSize, 4);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < maxSize * 2; i++)
+        {
+            buffers.add(pool.getBuffer());
+        }
+        assertEquals("Unexpected number of allocated buffers", maxSize * 2, pool.getNumberOfAllocatedBuffers());
+
+        for (ByteBuffer buffer : buffers)
+        {
+            pool.returnBuffer(buffer);
+        }
+
+        assertEquals("A single thread should be able to pool up to the maximum size",
+                     maxSize, pool.getNumberOfPooledBuffers());
+        assertEquals("Unexpected number of allocated buffers",
+                     pool.getNumberOfPooledBuffers(),
+                     pool.getNumberOfAllocatedBuffers());
+        assertEquals("Unexpected high water mark", maxSize * 2, pool.getMaximumNumberOfAllocatedBuffers());
+    }
+
+    public void testBuffersReturnedByOtherThreadsAreReused() throws Exception
+    {
+        final BufferPool pool = new BufferPool(BUFFER_SIZE, 100, 2);
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+        {
+            buffers.add(pool.getBuffer());
+        }
+
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (ByteBuffer buffer : buffers)
+                {
+                    pool.returnBuffer(buffer);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        int overflowedToDepot = pool.getNumberOfPooledBuffers();
+        assertTrue("Expected returned buffers to be pooled", overflowedToDepot > 0);
+
+        long missesBefore = pool.getMissCount();
+        pool.getBuffer();
+        assertEquals("Buffer returned by another thread was not reused", missesBefore, pool.getMissCount());
+    }
+
+    public void testMagazineOfTerminatedThreadIsReclaimed() throws Exception
+    {
+        final BufferPool pool = new BufferPool(BUFFER_SIZE, 100, 1);
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+        {
+            buffers.add(pool.getBuffer());
+        }
+
+        // few enough buffers that they all remain in the returning thread's magazine
+        Thread thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (ByteBuffer buffer : buffers)
+                {
+                    pool.returnBuffer(buffer);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        thread = null;
+        assertEquals("Unexpected number of pooled buffers", buffers.size(), pool.getNumberOfPooledBuffers());
+
+        int reclaimed = 0;
+        final long timeout = System.currentTimeMillis() + 10000L;
+        while (reclaimed == 0 && System.currentTimeMillis() < timeout)
+        {
+            System.gc();
+            Thread.sleep(10);
+            reclaimed = pool.reclaimMagazinesOfTerminatedThreads();
+        }
+        assertEquals("Buffers of terminated thread were not reclaimed", buffers.size(), reclaimed);
+        assertEquals("Unexpected number of pooled buffers", buffers.size(), pool.getNumberOfPooledBuffers());
+
+        long missesBefore = pool.getMissCount();
+        ByteBuffer reused = pool.getBuffer();
+        assertEquals("Reclaimed buffer was not reused", missesBefore, pool.getMissCount());
+        boolean found = false;
+        for (ByteBuffer buffer : buffers)
+        {
+            found |= buffer == reused;
+        }
+        assertTrue("Unexpected buffer returned", found);
+    }
+
+    public void testZeroSizedPool()
+    {
+        BufferPool pool = new BufferPool(BUFFER_SIZE, 0, 4);
+        ByteBuffer buffer = pool.getBuffer();
+        pool.returnBuffer(buffer);
+
+        assertEquals("Unexpected number of pooled buffers", 0, pool.getNumberOfPooledBuffers());
+        assertEquals("Unexpected number of allocated buffers", 0, pool.getNumberOfAllocatedBuffers());
+    }
+}
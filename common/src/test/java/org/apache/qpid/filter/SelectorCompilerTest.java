@@ -0,0 +1,209 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.filter.selector.SelectorParser;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class SelectorCompilerTest extends QpidTestCase
+{
+    private static final String[] SELECTORS = {
+            "price > 10",
+            "price >= 10.5 AND price < 20",
+            "price BETWEEN 5 AND 15",
+            "price NOT BETWEEN 5 AND 15",
+            "count = 3",
+            "count <> 3",
+            "3 = count",
+            "ratio < 1",
+            "ratio = 0.25",
+            "colour = 'red'",
+            "'red' = colour",
+            "colour <> 'red'",
+            "colour IS NULL",
+            "colour IS NOT NULL",
+            "colour IN ('red', 'green')",
+            "colour NOT IN ('red', 'green')",
+            "colour LIKE 're%'",
+            "colour LIKE '%en'",
+            "colour LIKE '%ee%'",
+            "colour LIKE 'red'",
+            "colour LIKE 'r_d'",
+            "colour LIKE 'r\\%' ESCAPE '\\'",
+            "colour NOT LIKE 'gr%'",
+            "flag",
+            "NOT flag",
+            "flag AND price > 10",
+            "NOT (price > 10 AND colour = 'red')",
+            "NOT (price > 10 OR colour = 'red')",
+            "NOT (missing > 10 OR colour = 'red')",
+            "NOT (colour = 'red' AND missing > 10)",
+            "price + 1 > 11",
+            "price > count",
+            "count = price",
+            "colour = 'red' OR colour = 'green' OR colour = 'blue' OR price > 100",
+            "(colour = 'red' OR count = 3) AND (price > 5 OR ratio < 0.5) AND flag",
+            "JMSPriority > 3 AND colour = 'red'",
+            "missing = 'x' OR missing IS NULL"
+    };
+
+    private final SelectorParser<FilterableMessage> _parser = new SelectorParser<>();
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _parser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
+    }
+
+    public void testCompiledSelectorsMatchInterpretedSelectors() throws Exception
+    {
+        TestMessage[] messages = {
+                new TestMessage(),
+                new TestMessage().with("price", 12).with("count", 3).with("colour", "red").with("flag", true),
+                new TestMessage().with("price", 12L).with("count", (short) 4).with("colour", "green"),
+                new TestMessage().with("price", 10.5f).with("count", 3L).with("ratio", 0.25d).with("flag", false),
+                new TestMessage().with("price", 7.0d).with("count", (byte) 3).with("ratio", 0.25f),
+                new TestMessage().with("price", "12").with("colour", "r%").with("flag", "true"),
+                new TestMessage().with("price", 150).with("colour", "reed").with("ratio", 2),
+                new TestMessage().with("price", 11).with("count", 11).with("colour", 3)
+        };
+
+        for (String selector : SELECTORS)
+        {
+            BooleanExpression<FilterableMessage> interpreted = _parser.parse(selector);
+            BooleanExpression<FilterableMessage> compiled = SelectorCompiler.compile(_parser.parse(selector));
+            for (TestMessage message : messages)
+            {
+                assertEquals("Unexpected result for selector [" + selector + "] and message " + message,
+                             interpreted.matches(message),
+                             compiled.matches(message));
+            }
+        }
+    }
+
+    public void testRepeatedPropertyLookedUpOnce() throws Exception
+    {
+        BooleanExpression<FilterableMessage> compiled =
+                SelectorCompiler.compile(_parser.parse("price BETWEEN 5 AND 15 AND price <> 10"));
+        TestMessage message = new TestMessage().with("price", 12);
+
+        assertTrue(compiled.matches(message));
+        assertEquals("Unexpected number of property lookups", 1, message.getHeaderLookups());
+    }
+
+    public void testCheapOperandsEvaluatedFirst() throws Exception
+    {
+        BooleanExpression<FilterableMessage> compiled =
+                SelectorCompiler.compile(_parser.parse("price + 1 > 11 AND colour = 'red'"));
+        TestMessage message = new TestMessage().with("price", 12).with("colour", "green");
+
+        assertFalse(compiled.matches(message));
+        assertEquals("Arithmetic operand should not have been evaluated", 1, message.getHeaderLookups());
+    }
+
+    private static class TestMessage implements FilterableMessage
+    {
+        private final Map<String, Object> _headers = new HashMap<>();
+        private int _headerLookups;
+
+        TestMessage with(String name, Object value)
+        {
+            _headers.put(name, value);
+            return this;
+        }
+
+        int getHeaderLookups()
+        {
+            return _headerLookups;
+        }
+
+        @Override
+        public boolean isPersistent()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isRedelivered()
+        {
+            return false;
+        }
+
+        @Override
+        public Object getHeader(final String name)
+        {
+            _headerLookups++;
+            return _headers.get(name);
+        }
+
+        @Override
+        public String getReplyTo()
+        {
+            return null;
+        }
+
+        @Override
+        public String getType()
+        {
+            return null;
+        }
+
+        @Override
+        public byte getPriority()
+        {
+            return 4;
+        }
+
+        @Override
+        public String getMessageId()
+        {
+            return null;
+        }
+
+        @Override
+        public long getTimestamp()
+        {
+            return 0;
+        }
+
+        @Override
+        public String getCorrelationId()
+        {
+            return null;
+        }
+
+        @Override
+        public long getExpiration()
+        {
+            return 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "TestMessage" + _headers;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport.network.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.transport.ConnectionSettings;
+import org.apache.qpid.transport.ExceptionHandlingByteBufferReceiver;
+import org.apache.qpid.transport.SenderClosedException;
+import org.apache.qpid.transport.network.NetworkConnection;
+import org.apache.qpid.transport.network.TransportActivity;
+
+public class NonBlockingNetworkTransportTest extends QpidTestCase
+{
+    private ServerSocket _serverSocket;
+    private Thread _echoThread;
+    private volatile Socket _acceptedSocket;
+    private RecordingReceiver _receiver;
+    private ConnectionSettings _settings;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        _echoThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    while (true)
+                    {
+                        final Socket socket = _serverSocket.accept();
+                        _acceptedSocket = socket;
+                        new Thread(new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                echo(socket);
+                            }
+                        }).start();
+                    }
+                }
+                catch (IOException e)
+                {
+                    // server socket closed
+                }
+            }
+        });
+        _echoThread.start();
+
+        _receiver = new RecordingReceiver();
+        _settings = new ConnectionSettings();
+        _settings.setHost(_serverSocket.getInetAddress().getHostAddress());
+        _settings.setPort(_serverSocket.getLocalPort());
+        _settings.setNonBlockingIo(true);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            _serverSocket.close();
+            _echoThread.join(1000);
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testSentBytesAreEchoed() throws Exception
+    {
+        NetworkConnection connection = new NonBlockingNetworkTransport().connect(_settings, _receiver, new Activity());
+
+        byte[] data = createData(100);
+        sendAndFlush(connection, data);
+
+        _receiver.awaitReceived(data.length);
+        assertTrue("Unexpected bytes received", Arrays.equals(data, _receiver.getReceived()));
+
+        connection.close();
+        assertTrue("Receiver should have been told of the close", _receiver.awaitClosed());
+    }
+
+    public void testSendLargerThanBuffers() throws Exception
+    {
+        _settings.setWriteBufferSize(1024);
+        _settings.setReadBufferSize(1024);
+        NetworkConnection connection = new NonBlockingNetworkTransport().connect(_settings, _receiver, new Activity());
+
+        byte[] data = createData(1024 * 1024);
+        sendAndFlush(connection, data);
+
+        _receiver.awaitReceived(data.length);
+        assertTrue("Unexpected bytes received", Arrays.equals(data, _receiver.getReceived()));
+
+        connection.close();
+    }
+
+    public void testPeerCloseIsReported() throws Exception
+    {
+        NetworkConnection connection = new NonBlockingNetworkTransport().connect(_settings, _receiver, new Activity());
+        sendAndFlush(connection, createData(10));
+        _receiver.awaitReceived(10);
+
+        _acceptedSocket.close();
+        assertTrue("Receiver should have been told of the close", _receiver.awaitClosed());
+
+        try
+        {
+            connection.getSender().send(QpidByteBuffer.wrap(createData(10)));
+            fail("Send after close should fail");
+        }
+        catch (SenderClosedException e)
+        {
+            // pass
+        }
+    }
+
+    public void testReceiverMayReconnectWhenToldOfClose() throws Exception
+    {
+        final ReconnectingReceiver receiver = new ReconnectingReceiver();
+        NetworkConnection connection = new NonBlockingNetworkTransport().connect(_settings, receiver, new Activity());
+        sendAndFlush(connection, createData(10));
+        receiver.awaitReceived(10);
+
+        _acceptedSocket.close();
+        assertTrue("Receiver should have been told of the close", receiver.awaitClosed());
+        assertTrue("Receiver should have reconnected", receiver.awaitReconnected());
+        assertFalse("Receiver was told of the close on selector thread " + receiver.getClosedThreadName(),
+                    receiver.getClosedThreadName().startsWith("NioSelector-"));
+
+        NetworkConnection reconnection = receiver.getReconnection();
+        byte[] data = createData(100);
+        sendAndFlush(reconnection, data);
+        receiver.getReconnectionReceiver().awaitReceived(10 + data.length);
+        reconnection.close();
+    }
+
+    private static void echo(final Socket socket)
+    {
+        try
+        {
+            final InputStream in = socket.getInputStream();
+            final OutputStream out = socket.getOutputStream();
+            final byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                out.write(buffer, 0, read);
+            }
+        }
+        catch (IOException e)
+        {
+            // connection closed
+        }
+        finally
+        {
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                // ignore
+            }
+        }
+    }
+
+    private void sendAndFlush(final NetworkConnection connection, final byte[] data)
+    {
+        // send in pieces smaller and larger than the send buffer
+        int offset = 0;
+        int length = 1;
+        while (offset < data.length)
+        {
+            length = Math.min(length * 3, data.length - offset);
+            connection.getSender().send(QpidByteBuffer.wrap(data, offset, length));
+            offset += length;
+        }
+        connection.getSender().flush();
+    }
+
+    private byte[] createData(final int length)
+    {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static class RecordingReceiver implements ExceptionHandlingByteBufferReceiver
+    {
+        private final ByteArrayOutputStream _received = new ByteArrayOutputStream();
+        private final CountDownLatch _closed = new CountDownLatch(1);
+
+        @Override
+        public synchronized void received(final ByteBuffer msg)
+        {
+            byte[] bytes = new byte[msg.remaining()];
+            msg.get(bytes);
+            _received.write(bytes, 0, bytes.length);
+            notifyAll();
+        }
+
+        @Override
+        public void exception(final Throwable t)
+        {
+        }
+
+        @Override
+        public void closed()
+        {
+            _closed.countDown();
+        }
+
+        synchronized void awaitReceived(final int length) throws InterruptedException
+        {
+            final long end = System.currentTimeMillis() + 10000;
+            while (_received.size() < length && System.currentTimeMillis() < end)
+            {
+                wait(100);
+            }
+            assertEquals("Unexpected number of bytes received", length, _received.size());
+        }
+
+        synchronized byte[] getReceived()
+        {
+            return _received.toByteArray();
+        }
+
+        boolean awaitClosed() throws InterruptedException
+        {
+            return _closed.await(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Connects again from within the close notification and waits for its first send to be echoed, as the client
+     * does when it fails over.
+     */
+    private class ReconnectingReceiver extends RecordingReceiver
+    {
+        private final CountDownLatch _reconnected = new CountDownLatch(1);
+        private final RecordingReceiver _reconnectionReceiver = new RecordingReceiver();
+        private volatile NetworkConnection _reconnection;
+        private volatile String _closedThreadName;
+
+        @Override
+        public void closed()
+        {
+            _closedThreadName = Thread.currentThread().getName();
+            super.closed();
+            try
+            {
+                _reconnection = new NonBlockingNetworkTransport().connect(_settings,
+                                                                          _reconnectionReceiver,
+                                                                          new Activity());
+                sendAndFlush(_reconnection, createData(10));
+                _reconnectionReceiver.awaitReceived(10);
+                _reconnected.countDown();
+            }
+            catch (Throwable t)
+            {
+                // the test fails on the reconnected latch
+            }
+        }
+
+        boolean awaitReconnected() throws InterruptedException
+        {
+            return _reconnected.await(20, TimeUnit.SECONDS);
+        }
+
+        String getClosedThreadName()
+        {
+            return _closedThreadName;
+        }
+
+        NetworkConnection getReconnection()
+        {
+            return _reconnection;
+        }
+
+        RecordingReceiver getReconnectionReceiver()
+        {
+            return _reconnectionReceiver;
+        }
+    }
+
+    private static class Activity implements TransportActivity
+    {
+        @Override
+        public long getLastReadTime()
+        {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long getLastWriteTime()
+        {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void writerIdle()
+        {
+        }
+
+        @Override
+        public void readerIdle()
+        {
+        }
+    }
+}